@@ -0,0 +1,113 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the canned parameter profiles of the benchmarks, from a single
+ * instrument of the usage examples to a large orchestral score
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum BenchmarkProfile {
+
+    /**
+     * One instrument playing for 120 seconds at 108 bpm, as in the first usage
+     * example
+     */
+    SMALL(54, 1, 150, 3),
+    /**
+     * Five instruments playing for 120 seconds at 108 bpm, as in the usage
+     * example with more than one instrument
+     */
+    MEDIUM(54, 5, 250, 3),
+    /**
+     * A chamber orchestra playing a movement of about 13 minutes
+     */
+    LARGE(200, 16, 1000, 4),
+    /**
+     * A full orchestra playing a movement of about 33 minutes
+     */
+    HUGE(500, 64, 4000, 6);
+
+    private static final String METRE = "4:4";
+    private static final int BPM = 60;
+    private static final int BEATS_NUMBER = 4;
+    private static final int[] MIN_DURATION = {1, 16};
+    private static final int[] MAX_DURATION = {1, 1};
+    private static final String MIN_HEIGHT = "C2";
+    private static final String MAX_HEIGHT = "A6";
+    private static final int MINIMUM_DELAY = 256;
+
+    /**
+     * The number of measures
+     */
+    private final int measuresNumber;
+    /**
+     * The number of musical instruments
+     */
+    private final int instrumentsNumber;
+    /**
+     * The maximum number of played notes of each instrument
+     */
+    private final int maxNumberOfPlayedNotes;
+    /**
+     * The maximum number of notes in a chord of each instrument
+     */
+    private final int maxNumberOfNotesInAChord;
+
+    private BenchmarkProfile(int measuresNumber, int instrumentsNumber, int maxNumberOfPlayedNotes, int maxNumberOfNotesInAChord) {
+        this.measuresNumber = measuresNumber;
+        this.instrumentsNumber = instrumentsNumber;
+        this.maxNumberOfPlayedNotes = maxNumberOfPlayedNotes;
+        this.maxNumberOfNotesInAChord = maxNumberOfNotesInAChord;
+    }
+
+    /**
+     * <p>
+     * creates the formatter of the profile, whose parameters are replaced by
+     * the input ones when these are positive
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param measuresNumber the number of measures, or 0
+     * @param instrumentsNumber the number of musical instruments, or 0
+     * @param maxNumberOfPlayedNotes the maximum number of played notes, or 0
+     * @param maxNumberOfNotesInAChord the maximum number of notes in a chord,
+     * or 0
+     * @param randomStreams the way in which the random values of the parts are
+     * drawn
+     *
+     * @return the created formatter
+     */
+    protected Formatter createFormatter(long seed, int measuresNumber, int instrumentsNumber, int maxNumberOfPlayedNotes, int maxNumberOfNotesInAChord, RandomStreams randomStreams) {
+        measuresNumber = measuresNumber > 0 ? measuresNumber : this.measuresNumber;
+        instrumentsNumber = instrumentsNumber > 0 ? instrumentsNumber : this.instrumentsNumber;
+        maxNumberOfPlayedNotes = maxNumberOfPlayedNotes > 0 ? maxNumberOfPlayedNotes : this.maxNumberOfPlayedNotes;
+        maxNumberOfNotesInAChord = maxNumberOfNotesInAChord > 0 ? maxNumberOfNotesInAChord : this.maxNumberOfNotesInAChord;
+
+        // at 60 bpm a beat lasts one second
+        Initializer initializer = new Initializer((long) measuresNumber * BEATS_NUMBER, METRE, BPM);
+        for (int i = 0; i < instrumentsNumber; i++) {
+            initializer.initializeInstrumentsParams(maxNumberOfPlayedNotes, MIN_DURATION, MAX_DURATION, MIN_HEIGHT, MAX_HEIGHT, maxNumberOfNotesInAChord, true, MINIMUM_DELAY);
+        }
+
+        return FormatterBuilder.newBuilder()
+                .seed(seed)
+                .creator("Benchmark")
+                .docVersion(IEEE1599App.DOC_VERSION)
+                .title("Title")
+                .author("Author")
+                .instrumentsNumber(instrumentsNumber)
+                .instruments(initializer.getInstruments())
+                .clefs(IEEE1599App.CLEFS)
+                .clefsSteps(IEEE1599App.CLEFS_STEPS)
+                .accidentalMap(IEEE1599App.ACCIDENTAL_MAP)
+                .allNotesMap(IEEE1599App.ALL_NOTES_MAP)
+                .metreInNumbers(initializer.getMetreInNumbers())
+                .measuresNumber(initializer.getMeasuresNumber())
+                .irregularGroupsMap(initializer.getIrregularGroupsMap())
+                .randomStreams(randomStreams)
+                .partThreads(Runtime.getRuntime().availableProcessors())
+                .build();
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Contains the main method to run the benchmarks, always reporting the
+ * allocation rate together with the throughput
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class BenchmarkRunner {
+
+    /**
+     * <p>
+     * runs the benchmarks with the JMH command line options and the GC
+     * profiler
+     * </p>
+     *
+     * @param args the JMH command line options
+     *
+     * @throws CommandLineOptionException if the options are not valid
+     * @throws RunnerException if a benchmark cannot be run
+     * @throws IOException if the benchmarks cannot be listed
+     */
+    public static void main(String... args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
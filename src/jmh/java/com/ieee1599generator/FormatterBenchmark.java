@@ -0,0 +1,95 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the generation of a whole document, from the score alone to the
+ * document written by each backend
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class FormatterBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    private BenchmarkProfile profile;
+
+    /**
+     * The number of measures, or 0 to keep the one of the profile
+     */
+    @Param("0")
+    private int measures;
+
+    /**
+     * The number of instruments, or 0 to keep the one of the profile
+     */
+    @Param("0")
+    private int instruments;
+
+    /**
+     * The maximum number of played notes, or 0 to keep the one of the profile
+     */
+    @Param("0")
+    private int maxNotes;
+
+    /**
+     * The maximum number of notes in a chord, or 0 to keep the one of the
+     * profile
+     */
+    @Param("0")
+    private int chordSize;
+
+    @Param({"SHARED"})
+    private RandomStreams randomStreams;
+
+    private Formatter formatter;
+
+    @Setup
+    public void setUp() {
+        this.formatter = this.profile.createFormatter(1234, this.measures, this.instruments, this.maxNotes, this.chordSize, this.randomStreams);
+    }
+
+    @Benchmark
+    public Score generate() {
+        return this.formatter.generate();
+    }
+
+    @Benchmark
+    public Document formatDom() throws ParserConfigurationException {
+        this.formatter.format();
+        return this.formatter.getDocument();
+    }
+
+    @Benchmark
+    public void formatStax() throws IOException, XMLStreamException {
+        this.formatter.format(new StaxScoreWriter(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public void formatDirect() {
+        this.formatter.format(new ByteScoreWriter(OutputStream.nullOutputStream(), false));
+    }
+
+}
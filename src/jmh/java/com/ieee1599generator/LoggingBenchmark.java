@@ -0,0 +1,52 @@
+package com.ieee1599generator;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the generation of a score with the buffered file logging of the
+ * application enabled at each level
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-logging-benchmark.xml")
+public class LoggingBenchmark {
+
+    @Param({"SMALL", "MEDIUM"})
+    private BenchmarkProfile profile;
+
+    @Param({"OFF", "ERROR", "INFO", "DEBUG"})
+    private String level;
+
+    private Formatter formatter;
+
+    @Setup
+    public void setUp() {
+        Configurator.setRootLevel(Level.valueOf(this.level));
+        this.formatter = this.profile.createFormatter(1234, 0, 0, 0, 0, RandomStreams.SHARED);
+    }
+
+    @Benchmark
+    public Score generate() {
+        return this.formatter.generate();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.ieee1599generator;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookups of the pitch table done for each notehead
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class PitchTableBenchmark {
+
+    private PitchTable pitchTable;
+
+    private Randomizer randomizer;
+
+    @Setup
+    public void setUp() {
+        this.pitchTable = new PitchTable(IEEE1599App.ALL_NOTES_MAP, IEEE1599App.ACCIDENTAL_MAP);
+        this.randomizer = new Randomizer(1234);
+    }
+
+    @Benchmark
+    public float getPitch() {
+        return this.pitchTable.getPitch("D_flat_and_a_half");
+    }
+
+    @Benchmark
+    public int getNearestKeyIndex() {
+        return this.pitchTable.getNearestKeyIndex(this.randomizer.getRandomFloat(0f, 12f));
+    }
+
+}
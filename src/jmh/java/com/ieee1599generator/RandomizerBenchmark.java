@@ -0,0 +1,120 @@
+package com.ieee1599generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the primitives of the Randomizer, with inputs of the same size as
+ * the ones used while generating a document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class RandomizerBenchmark {
+
+    private static final int INSTRUMENTS_NUMBER = 16;
+    private static final int NOTES_AND_RESTS_NUMBER = 256;
+
+    private Randomizer randomizer;
+
+    private List<Character> notesAndRests;
+
+    private char[] notesAndRestsArray;
+
+    private Map<Integer, Integer> irregularGroupsMap;
+
+    private int[] irregularGroups;
+
+    private String[] accidentals;
+
+    @Setup
+    public void setUp() {
+        this.randomizer = new Randomizer(1234);
+        this.notesAndRests = new ArrayList<>(Collections.nCopies(NOTES_AND_RESTS_NUMBER / 2, 'N'));
+        this.notesAndRests.addAll(Collections.nCopies(NOTES_AND_RESTS_NUMBER / 2, 'R'));
+        this.notesAndRestsArray = new char[NOTES_AND_RESTS_NUMBER];
+        for (int c = 0; c < NOTES_AND_RESTS_NUMBER; c++) {
+            this.notesAndRestsArray[c] = this.notesAndRests.get(c);
+        }
+        this.irregularGroupsMap = new Initializer(120, "4:4", 108).getIrregularGroupsMap();
+        this.irregularGroups = this.irregularGroupsMap.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.accidentals = IEEE1599App.ACCIDENTAL_MAP.keySet().toArray(new String[0]);
+    }
+
+    @Benchmark
+    public int getRandomInteger() {
+        return this.randomizer.getRandomInteger(1, 250);
+    }
+
+    @Benchmark
+    public float getRandomFloat() {
+        return this.randomizer.getRandomFloat(0f, 11f);
+    }
+
+    @Benchmark
+    public boolean getRandomBoolean() {
+        return this.randomizer.getRandomBoolean();
+    }
+
+    @Benchmark
+    public String getRandomElementFromList() {
+        return this.randomizer.getRandomElementFromList(IEEE1599App.ALL_NOTES_MAP.get(0f));
+    }
+
+    @Benchmark
+    public String getRandomStringFromMap() {
+        return this.randomizer.getRandomStringFromMap(IEEE1599App.ACCIDENTAL_MAP);
+    }
+
+    @Benchmark
+    public String getRandomString() {
+        return this.randomizer.getRandomString(this.accidentals);
+    }
+
+    @Benchmark
+    public int getRandomIntFromMap() {
+        return this.randomizer.getRandomIntFromMap(this.irregularGroupsMap);
+    }
+
+    @Benchmark
+    public int getRandomIntFromArray() {
+        return this.randomizer.getRandomIntFromArray(this.irregularGroups);
+    }
+
+    @Benchmark
+    public List<Integer> getRandomNonRepeatingIntegers() {
+        return this.randomizer.getRandomNonRepeatingIntegers(INSTRUMENTS_NUMBER, 0, INSTRUMENTS_NUMBER - 1);
+    }
+
+    @Benchmark
+    public List<Character> shuffleList() {
+        this.randomizer.shuffleList(this.notesAndRests);
+        return this.notesAndRests;
+    }
+
+    @Benchmark
+    public char[] shuffleArray() {
+        this.randomizer.shuffleArray(this.notesAndRestsArray);
+        return this.notesAndRestsArray;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.ieee1599generator;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the generation and the serialization of a document scale with
+ * its number of events, up to a million events.
+ * <p>
+ * Each instrument has a single event in each measure, since its minimum
+ * duration fills the measure, so that the number of events is exactly the
+ * number of measures times the number of instruments. The events counter
+ * reports the events per second, which stays the same for all the numbers of
+ * events if the generation is linear in them.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class ScalingBenchmark {
+
+    private static final int INSTRUMENTS_NUMBER = 16;
+    private static final String METRE = "4:4";
+    private static final int BPM = 60;
+    private static final int BEATS_NUMBER = 4;
+    private static final int[] WHOLE_DURATION = {1, 1};
+
+    /**
+     * The number of events of the voices of the document, a multiple of the
+     * number of instruments
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int events;
+
+    @Param({"SHARED"})
+    private RandomStreams randomStreams;
+
+    private Formatter formatter;
+
+    /**
+     * Counts the events of the generated documents, reported as events per
+     * second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class EventsCounter {
+
+        public long events;
+
+    }
+
+    @Setup
+    public void setUp() {
+        int measuresNumber = this.events / INSTRUMENTS_NUMBER;
+        // at 60 bpm a beat lasts one second
+        Initializer initializer = new Initializer((long) measuresNumber * BEATS_NUMBER, METRE, BPM);
+        for (int i = 0; i < INSTRUMENTS_NUMBER; i++) {
+            initializer.initializeInstrumentsParams(4, WHOLE_DURATION, WHOLE_DURATION, "C2", "A6", 3, false, 256);
+        }
+
+        this.formatter = FormatterBuilder.newBuilder()
+                .seed(1234)
+                .creator("Benchmark")
+                .docVersion(IEEE1599App.DOC_VERSION)
+                .title("Title")
+                .author("Author")
+                .instrumentsNumber(INSTRUMENTS_NUMBER)
+                .instruments(initializer.getInstruments())
+                .clefs(IEEE1599App.CLEFS)
+                .clefsSteps(IEEE1599App.CLEFS_STEPS)
+                .accidentalMap(IEEE1599App.ACCIDENTAL_MAP)
+                .allNotesMap(IEEE1599App.ALL_NOTES_MAP)
+                .metreInNumbers(initializer.getMetreInNumbers())
+                .measuresNumber(initializer.getMeasuresNumber())
+                .irregularGroupsMap(initializer.getIrregularGroupsMap())
+                .randomStreams(this.randomStreams)
+                .partThreads(Runtime.getRuntime().availableProcessors())
+                .build();
+
+        Score score = this.formatter.generate();
+        int generatedEvents = 0;
+        for (int i = 1; i <= INSTRUMENTS_NUMBER; i++) {
+            generatedEvents += score.getEventsNumberInAMeasure(i) * score.getMeasuresNumber();
+        }
+        if (generatedEvents != this.events) {
+            throw new IllegalStateException(" the document has " + generatedEvents + " events instead of " + this.events);
+        }
+    }
+
+    @Benchmark
+    public Score generate(EventsCounter counter) {
+        counter.events += this.events;
+        return this.formatter.generate();
+    }
+
+    @Benchmark
+    public void formatDirect(EventsCounter counter) {
+        counter.events += this.events;
+        this.formatter.format(new ByteScoreWriter(OutputStream.nullOutputStream(), false));
+    }
+
+}
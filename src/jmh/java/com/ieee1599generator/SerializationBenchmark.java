@@ -0,0 +1,89 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the serialization of an already generated document into a xml file,
+ * and of an already generated score through each writer
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class SerializationBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "HUGE"})
+    private BenchmarkProfile profile;
+
+    private Score score;
+
+    private Document document;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws ParserConfigurationException, IOException {
+        Formatter formatter = this.profile.createFormatter(1234, 0, 0, 0, 0, RandomStreams.SHARED);
+        this.score = formatter.generate();
+        DomScoreWriter writer = new DomScoreWriter();
+        this.score.writeTo(writer);
+        this.document = writer.getDocument();
+        this.file = Files.createTempFile("ieee1599-benchmark", ".xml");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public void saveXMLFile() throws TransformerException {
+        FormatterUtils.saveXMLFile(this.document, this.file.toString());
+    }
+
+    @Benchmark
+    public void writeTransformer() throws TransformerException {
+        FormatterUtils.saveXMLFile(this.document, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void writeStax() throws IOException, XMLStreamException {
+        this.score.writeTo(new StaxScoreWriter(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public void writeDirect() {
+        this.score.writeTo(new ByteScoreWriter(OutputStream.nullOutputStream(), false));
+    }
+
+    @Benchmark
+    public void writeCompact() {
+        this.score.writeTo(new ByteScoreWriter(OutputStream.nullOutputStream(), true));
+    }
+
+}
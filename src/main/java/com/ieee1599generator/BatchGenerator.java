@@ -0,0 +1,553 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Generates, inside a single JVM, one IEEE1599 document for each seed of a
+ * list.
+ * <p>
+ * Each document is formatted by its own Formatter on a work-stealing pool and
+ * saved into its own file, whose name is obtained by replacing the seed
+ * placeholder of a template. The document of each seed is the same as the one
+ * generated by a single run with that seed.
+ * </p>
+ * <p>
+ * In the pipelined mode the documents are generated on the pool but saved by a
+ * single writer thread, which takes the generated scores from a bounded queue:
+ * the generation of the next documents goes on while the previous ones are
+ * written, and the generating threads wait when the queue is full, so that
+ * only a bounded number of scores is kept in memory. The pipeline is made of
+ * whole documents, while the parts of a single document are pipelined by
+ * PartSpooler.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class BatchGenerator {
+
+    private static final Logger logger = LogManager.getLogger(BatchGenerator.class.getName());
+
+    /**
+     * The placeholder of the file name template replaced by the seed
+     */
+    public static final String SEED_PLACEHOLDER = "{seed}";
+
+    /**
+     * The time after which a thread waiting for the full queue checks that the
+     * writer thread is still alive
+     */
+    private static final long WRITER_CHECK_MILLIS = 100;
+
+    /**
+     * The factory of the formatter of each seed
+     */
+    private final LongFunction<Formatter> formatterFactory;
+    /**
+     * The backend writing the documents
+     */
+    private final OutputBackend backend;
+    /**
+     * The compression of the files
+     */
+    private final Compression compression;
+    /**
+     * The template of the file names
+     */
+    private final String fileNameTemplate;
+    /**
+     * The number of documents generated concurrently
+     */
+    private final int parallelism;
+    /**
+     * The number of generated scores waiting to be saved by the writer thread,
+     * or 0 if each document is saved by the thread generating it
+     */
+    private final int queueCapacity;
+    /**
+     * The metrics of the batch, or null if it is not measured
+     */
+    private final GenerationMetrics metrics;
+    /**
+     * The cache of the documents, or null if they are always generated
+     */
+    private final DocumentCache cache;
+
+    /**
+     * @param formatterFactory the factory of the formatter of each seed
+     * @param backend the backend writing the documents
+     * @param fileNameTemplate the template of the file names, containing the
+     * seed placeholder
+     * @param parallelism the number of documents generated concurrently
+     *
+     * @throws IllegalArgumentException if the template does not contain the
+     * seed placeholder or the parallelism is not positive
+     */
+    public BatchGenerator(LongFunction<Formatter> formatterFactory, OutputBackend backend, String fileNameTemplate, int parallelism) {
+        this(formatterFactory, backend, Compression.NONE, fileNameTemplate, parallelism, 0);
+    }
+
+    /**
+     * @param formatterFactory the factory of the formatter of each seed
+     * @param backend the backend writing the documents
+     * @param compression the compression of the files
+     * @param fileNameTemplate the template of the file names, containing the
+     * seed placeholder
+     * @param parallelism the number of documents generated concurrently
+     * @param queueCapacity the number of generated scores waiting to be saved
+     * by the writer thread, or 0 if each document is saved by the thread
+     * generating it
+     *
+     * @throws IllegalArgumentException if the template does not contain the
+     * seed placeholder, the parallelism is not positive or the queue capacity
+     * is negative
+     */
+    public BatchGenerator(LongFunction<Formatter> formatterFactory, OutputBackend backend, Compression compression, String fileNameTemplate, int parallelism, int queueCapacity) {
+        this(formatterFactory, backend, compression, fileNameTemplate, parallelism, queueCapacity, null);
+    }
+
+    /**
+     * @param formatterFactory the factory of the formatter of each seed
+     * @param backend the backend writing the documents
+     * @param compression the compression of the files
+     * @param fileNameTemplate the template of the file names, containing the
+     * seed placeholder
+     * @param parallelism the number of documents generated concurrently
+     * @param queueCapacity the number of generated scores waiting to be saved
+     * by the writer thread, or 0 if each document is saved by the thread
+     * generating it
+     * @param metrics the metrics collecting the phases and the counts of all
+     * the documents, or null if the batch is not measured
+     *
+     * @throws IllegalArgumentException if the template does not contain the
+     * seed placeholder, the parallelism is not positive or the queue capacity
+     * is negative
+     */
+    public BatchGenerator(LongFunction<Formatter> formatterFactory, OutputBackend backend, Compression compression, String fileNameTemplate, int parallelism, int queueCapacity, GenerationMetrics metrics) {
+        this(formatterFactory, backend, compression, fileNameTemplate, parallelism, queueCapacity, metrics, null);
+    }
+
+    /**
+     * @param formatterFactory the factory of the formatter of each seed
+     * @param backend the backend writing the documents
+     * @param compression the compression of the files
+     * @param fileNameTemplate the template of the file names, containing the
+     * seed placeholder
+     * @param parallelism the number of documents generated concurrently
+     * @param queueCapacity the number of generated scores waiting to be saved
+     * by the writer thread, or 0 if each document is saved by the thread
+     * generating it
+     * @param metrics the metrics collecting the phases and the counts of all
+     * the documents, or null if the batch is not measured
+     * @param cache the cache from which the documents already generated are
+     * copied and into which the others are stored, or null if all the
+     * documents are generated
+     *
+     * @throws IllegalArgumentException if the template does not contain the
+     * seed placeholder, the parallelism is not positive or the queue capacity
+     * is negative
+     */
+    public BatchGenerator(LongFunction<Formatter> formatterFactory, OutputBackend backend, Compression compression, String fileNameTemplate, int parallelism, int queueCapacity, GenerationMetrics metrics, DocumentCache cache) {
+        checkParameters(fileNameTemplate, parallelism, queueCapacity);
+        this.formatterFactory = formatterFactory;
+        this.backend = backend;
+        this.compression = compression;
+        this.fileNameTemplate = fileNameTemplate;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+        this.cache = cache;
+    }
+
+    /**
+     * <p>
+     * generates the documents of the input seeds, continuing with the other
+     * seeds if a document cannot be generated
+     * </p>
+     *
+     * @param seeds the seeds of the documents
+     *
+     * @throws IllegalStateException if at least one document cannot be
+     * generated
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the documents
+     */
+    public void generate(long[] seeds) throws InterruptedException {
+        BatchGenerator.logger.info("Batch of {} documents with parallelism {} and compression {}", seeds.length, this.parallelism, this.compression);
+        long start = System.nanoTime();
+
+        LongAdder xmlBytes = new LongAdder();
+        LongAdder fileBytes = new LongAdder();
+        LongAdder cachedBytes = new LongAdder();
+        int failures = this.queueCapacity > 0 ? generatePipelined(seeds, xmlBytes, fileBytes, cachedBytes) : generateConcurrently(seeds, xmlBytes, fileBytes, cachedBytes);
+
+        long elapsedNanos = System.nanoTime() - start;
+        BatchGenerator.logger.info("Batch completed: {} documents generated in {} ms", seeds.length - failures, elapsedNanos / 1_000_000);
+        BatchGenerator.logger.info("{}", () -> sizesSummary(xmlBytes.sum(), fileBytes.sum(), cachedBytes.sum(), elapsedNanos));
+
+        if (failures > 0) {
+            throw new IllegalStateException(" " + failures + " of the " + seeds.length + " documents cannot be generated");
+        }
+    }
+
+    /**
+     * <p>
+     * generates and saves each document in the same thread of the pool
+     * </p>
+     *
+     * @param seeds the seeds of the documents
+     *
+     * @return the number of documents that cannot be generated
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the documents
+     */
+    private int generateConcurrently(long[] seeds, LongAdder xmlBytes, LongAdder fileBytes, LongAdder cachedBytes) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        int failures = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>(seeds.length);
+            for (long seed : seeds) {
+                futures.add(pool.submit(() -> {
+                    if (!copyFromCache(seed, cachedBytes)) {
+                        save(seed, this.formatterFactory.apply(seed).generate(this.metrics), xmlBytes, fileBytes);
+                    }
+                    return null;
+                }));
+            }
+
+            for (int s = 0; s < seeds.length; s++) {
+                try {
+                    futures.get(s).get();
+                } catch (ExecutionException ex) {
+                    BatchGenerator.logger.error("The document of the seed " + seeds[s] + " cannot be generated: " + ex.getCause().getClass() + ":" + ex.getCause().getMessage());
+                    failures++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return failures;
+    }
+
+    /**
+     * <p>
+     * generates the scores of the documents on the pool, while the writer
+     * thread saves them as soon as they are put into the queue
+     * </p>
+     *
+     * @param seeds the seeds of the documents
+     *
+     * @return the number of documents that cannot be generated or saved
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the documents
+     */
+    private int generatePipelined(long[] seeds, LongAdder xmlBytes, LongAdder fileBytes, LongAdder cachedBytes) throws InterruptedException {
+        BatchGenerator.logger.info("Documents saved by a writer thread through a queue of {} scores", this.queueCapacity);
+
+        BlockingQueue<GeneratedScore> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        LongAdder generatingNanos = new LongAdder();
+        LongAdder writingNanos = new LongAdder();
+        AtomicInteger writeFailures = new AtomicInteger();
+        Thread writer = new Thread(() -> writeScores(queue, xmlBytes, fileBytes, writingNanos, writeFailures), "ieee1599-writer");
+        writer.start();
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        int failures = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>(seeds.length);
+            for (long seed : seeds) {
+                futures.add(pool.submit(() -> {
+                    if (copyFromCache(seed, cachedBytes)) {
+                        return null;
+                    }
+                    long start = System.nanoTime();
+                    Score score = this.formatterFactory.apply(seed).generate(this.metrics);
+                    generatingNanos.add(System.nanoTime() - start);
+                    // waits while the writer thread is behind
+                    enqueue(queue, new GeneratedScore(seed, score), writer);
+                    return null;
+                }));
+            }
+
+            for (int s = 0; s < seeds.length; s++) {
+                try {
+                    futures.get(s).get();
+                } catch (ExecutionException ex) {
+                    BatchGenerator.logger.error("The document of the seed " + seeds[s] + " cannot be generated: " + ex.getCause().getClass() + ":" + ex.getCause().getMessage());
+                    failures++;
+                }
+            }
+
+            try {
+                enqueue(queue, GeneratedScore.END, writer);
+            } catch (IllegalStateException ex) {
+                // the scores left in the queue are counted below
+            }
+            writer.join();
+            long unsaved = queue.stream().filter(generated -> generated != GeneratedScore.END).count();
+            if (unsaved > 0) {
+                BatchGenerator.logger.error("The writer thread has stopped, leaving " + unsaved + " documents not saved");
+                failures += unsaved;
+            }
+        } finally {
+            pool.shutdownNow();
+            writer.interrupt();
+        }
+
+        BatchGenerator.logger.info("Generating took {} ms and writing took {} ms over all the threads", generatingNanos.sum() / 1_000_000, writingNanos.sum() / 1_000_000);
+        return failures + writeFailures.get();
+    }
+
+    /**
+     * <p>
+     * puts a generated score into the queue, waiting while it is full as long
+     * as the writer thread is alive
+     * </p>
+     *
+     * @param queue the queue of the generated scores
+     * @param generated the generated score
+     * @param writer the writer thread
+     *
+     * @throws IllegalStateException if the writer thread has stopped, so that
+     * the score would never be saved
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private static void enqueue(BlockingQueue<GeneratedScore> queue, GeneratedScore generated, Thread writer) throws InterruptedException {
+        while (!queue.offer(generated, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                throw new IllegalStateException(" the writer thread has stopped");
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * saves the scores taken from the queue until its end is reached,
+     * continuing with the other scores if a document cannot be saved
+     * </p>
+     *
+     * @param queue the queue of the generated scores
+     * @param xmlBytes the number of bytes of the xml documents
+     * @param fileBytes the number of bytes of the saved files
+     * @param writingNanos the time spent saving the documents
+     * @param failures the number of documents that cannot be saved
+     */
+    private void writeScores(BlockingQueue<GeneratedScore> queue, LongAdder xmlBytes, LongAdder fileBytes, LongAdder writingNanos, AtomicInteger failures) {
+        try {
+            for (GeneratedScore generated = queue.take(); generated != GeneratedScore.END; generated = queue.take()) {
+                long start = System.nanoTime();
+                try {
+                    save(generated.seed, generated.score, xmlBytes, fileBytes);
+                } catch (Throwable ex) {
+                    // even an error of a large score must not stop the writer, or the generating threads would wait forever
+                    BatchGenerator.logger.error("The document of the seed " + generated.seed + " cannot be saved: " + ex.getClass() + ":" + ex.getMessage());
+                    failures.incrementAndGet();
+                }
+                writingNanos.add(System.nanoTime() - start);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * <p>
+     * saves the generated score of a seed, adding its sizes to the totals of
+     * the batch
+     * </p>
+     *
+     * @param seed the seed of the document
+     * @param score the generated score
+     * @param xmlBytes the number of bytes of the xml documents
+     * @param fileBytes the number of bytes of the saved files
+     *
+     * @throws Exception if the document cannot be saved
+     */
+    private void save(long seed, Score score, LongAdder xmlBytes, LongAdder fileBytes) throws Exception {
+        String fileName = fileName(this.fileNameTemplate, seed);
+        xmlBytes.add(FormatterUtils.saveXMLFile(score, this.backend, this.compression, fileName, this.metrics));
+        fileBytes.add(Files.size(Path.of(fileName)));
+        BatchGenerator.logger.info("Document of the seed {} saved into {}", seed, fileName);
+        if (this.cache != null) {
+            this.cache.put(this.cache.key(seed), fileName, this.metrics);
+        }
+    }
+
+    /**
+     * <p>
+     * copies the document of a seed from the cache, if it is there
+     * </p>
+     *
+     * @param seed the seed of the document
+     * @param cachedBytes the number of bytes of the files copied from the
+     * cache
+     *
+     * @return true if the document has been copied, false if it must be
+     * generated
+     *
+     * @throws IOException if the document cannot be copied
+     */
+    private boolean copyFromCache(long seed, LongAdder cachedBytes) throws IOException {
+        String fileName = fileName(this.fileNameTemplate, seed);
+        if (this.cache == null || !this.cache.copyTo(this.cache.key(seed), fileName, this.metrics)) {
+            return false;
+        }
+        cachedBytes.add(Files.size(Path.of(fileName)));
+        BatchGenerator.logger.info("Document of the seed {} copied from the cache into {}", seed, fileName);
+        return true;
+    }
+
+    /**
+     * <p>
+     * describes the sizes of the saved documents and the throughput of the
+     * batch, reporting the files copied from the cache on their own, since
+     * the size of their xml is not known
+     * </p>
+     *
+     * @param xmlBytes the number of bytes of the generated xml documents
+     * @param fileBytes the number of bytes of the files of the generated
+     * documents
+     * @param cachedBytes the number of bytes of the files copied from the
+     * cache
+     * @param elapsedNanos the duration of the batch
+     *
+     * @return the description
+     */
+    private String sizesSummary(long xmlBytes, long fileBytes, long cachedBytes, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        String summary = String.format(Locale.ROOT, "Written %d bytes of xml at %.1f MB/s", xmlBytes, xmlBytes / 1e6 / seconds);
+        if (this.compression != Compression.NONE && fileBytes > 0) {
+            summary += String.format(Locale.ROOT, ", compressed into %d bytes with ratio %.2f", fileBytes, (double) xmlBytes / fileBytes);
+        }
+        if (cachedBytes > 0) {
+            summary += String.format(Locale.ROOT, "; copied %d bytes of files from the cache", cachedBytes);
+        }
+        return summary;
+    }
+
+    /**
+     * <p>
+     * checks the parameters of a batch, before it is generated
+     * </p>
+     *
+     * @param fileNameTemplate the template of the file names, containing the
+     * seed placeholder
+     * @param parallelism the number of documents generated concurrently
+     * @param queueCapacity the number of generated scores waiting to be saved
+     * by the writer thread, or 0 if each document is saved by the thread
+     * generating it
+     *
+     * @throws IllegalArgumentException if the template does not contain the
+     * seed placeholder, the parallelism is not positive or the queue capacity
+     * is negative
+     */
+    protected static void checkParameters(String fileNameTemplate, int parallelism, int queueCapacity) {
+        if (!fileNameTemplate.contains(SEED_PLACEHOLDER)) {
+            BatchGenerator.logger.error("The file name template " + fileNameTemplate + " does not contain " + SEED_PLACEHOLDER);
+            throw new IllegalArgumentException(" the file name template " + fileNameTemplate + " does not contain " + SEED_PLACEHOLDER + ", so all the documents would be saved into the same file");
+        }
+        if (parallelism < 1) {
+            BatchGenerator.logger.error("The parallelism " + parallelism + " is not positive");
+            throw new IllegalArgumentException(" the parallelism must be positive");
+        }
+        if (queueCapacity < 0) {
+            BatchGenerator.logger.error("The queue capacity " + queueCapacity + " is negative");
+            throw new IllegalArgumentException(" the queue capacity must not be negative");
+        }
+    }
+
+    /**
+     * <p>
+     * builds the file name of a seed
+     * </p>
+     *
+     * @param fileNameTemplate the template of the file names
+     * @param seed the seed of the document
+     *
+     * @return the file name
+     */
+    protected static String fileName(String fileNameTemplate, long seed) {
+        return fileNameTemplate.replace(SEED_PLACEHOLDER, "" + seed);
+    }
+
+    /**
+     * <p>
+     * parses a list of seeds, made of comma separated seeds or inclusive
+     * ranges of seeds, like 1..100,250,300..310
+     * </p>
+     *
+     * @param seeds the list of seeds as a string
+     *
+     * @return the seeds, in the input order
+     *
+     * @throws IllegalArgumentException if the list is not well formed
+     */
+    protected static long[] parseSeeds(String seeds) {
+        LongStream.Builder builder = LongStream.builder();
+        for (String item : seeds.split(",")) {
+            item = item.trim();
+            try {
+                int separator = item.indexOf("..");
+                if (separator < 0) {
+                    builder.add(Long.parseLong(item));
+                    continue;
+                }
+                long first = Long.parseLong(item.substring(0, separator).trim());
+                long last = Long.parseLong(item.substring(separator + 2).trim());
+                if (first > last) {
+                    throw new IllegalArgumentException(" the range of seeds " + item + " is empty");
+                }
+                LongStream.rangeClosed(first, last).forEach(builder::add);
+            } catch (NumberFormatException ex) {
+                BatchGenerator.logger.error(ex.getClass() + " : the seeds " + item + " are not well formed");
+                throw new IllegalArgumentException(" the seeds " + item + " are not well formed, please use a list of seeds or of ranges like 1..100,250");
+            }
+        }
+        return builder.build().toArray();
+    }
+
+    /**
+     * Represents a generated score waiting to be saved
+     */
+    private static final class GeneratedScore {
+
+        /**
+         * The element marking the end of the queue
+         */
+        private static final GeneratedScore END = new GeneratedScore(0, null);
+
+        /**
+         * The seed of the document
+         */
+        private final long seed;
+        /**
+         * The generated score
+         */
+        private final Score score;
+
+        private GeneratedScore(long seed, Score score) {
+            this.seed = seed;
+            this.score = score;
+        }
+    }
+
+}
@@ -0,0 +1,737 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Encodes the IEEE1599 document in UTF-8 straight into a byte buffer, which is
+ * written into the output stream whenever it is full.
+ * <p>
+ * The element vocabulary of the document is fixed, so the names of the
+ * elements and attributes are encoded once, and the numbers and the event ids
+ * are encoded digit by digit without building strings. In the pretty mode the
+ * layout and the escaping are the same as the ones of saveXMLFile, while the
+ * compact mode writes no indentation at all. Each writer has a buffer of its
+ * own, so that many writers can be open at the same time on the same thread.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class ByteScoreWriter implements ScoreWriter {
+
+    private static final Logger logger = LogManager.getLogger(ByteScoreWriter.class.getName());
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_LINES_NUMBER = 5;
+    private static final int INDENT_AMOUNT = 3;
+    private static final int MAX_DEPTH = 10;
+
+    private static final byte[] XML_DECLARATION = ascii("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+    private static final byte[] LINE_SEPARATOR = ascii(System.lineSeparator());
+
+    /**
+     * The indentations, one for each depth of the document, of the pretty mode
+     */
+    private static final byte[][] INDENTS = new byte[MAX_DEPTH][];
+
+    static {
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            INDENTS[depth] = ascii(System.lineSeparator() + " ".repeat(depth * INDENT_AMOUNT));
+        }
+    }
+
+    private static final byte[] IEEE1599 = ascii("ieee1599");
+    private static final byte[] GENERAL = ascii("general");
+    private static final byte[] DESCRIPTION = ascii("description");
+    private static final byte[] MAIN_TITLE = ascii("main_title");
+    private static final byte[] AUTHOR = ascii("author");
+    private static final byte[] LOGIC = ascii("logic");
+    private static final byte[] SPINE = ascii("spine");
+    private static final byte[] EVENT = ascii("event");
+    private static final byte[] LOS = ascii("los");
+    private static final byte[] STAFF_LIST = ascii("staff_list");
+    private static final byte[] STAFF = ascii("staff");
+    private static final byte[] TIME_SIGNATURE = ascii("time_signature");
+    private static final byte[] TIME_INDICATION = ascii("time_indication");
+    private static final byte[] CLEF = ascii("clef");
+    private static final byte[] PART = ascii("part");
+    private static final byte[] VOICE_LIST = ascii("voice_list");
+    private static final byte[] VOICE_ITEM = ascii("voice_item");
+    private static final byte[] MEASURE = ascii("measure");
+    private static final byte[] VOICE = ascii("voice");
+    private static final byte[] CHORD = ascii("chord");
+    private static final byte[] REST = ascii("rest");
+    private static final byte[] DURATION = ascii("duration");
+    private static final byte[] TUPLET_RATIO = ascii("tuplet_ratio");
+    private static final byte[] NOTEHEAD = ascii("notehead");
+    private static final byte[] PITCH = ascii("pitch");
+    private static final byte[] PRINTED_ACCIDENTALS = ascii("printed_accidentals");
+
+    private static final byte[] CREATOR_ATTRIBUTE = ascii(" creator=\"");
+    private static final byte[] VERSION_ATTRIBUTE = ascii(" version=\"");
+    private static final byte[] HPOS_ATTRIBUTE = ascii(" hpos=\"");
+    private static final byte[] ID_ATTRIBUTE = ascii(" id=\"");
+    private static final byte[] TIMING_ATTRIBUTE = ascii(" timing=\"");
+    private static final byte[] LINE_NUMBER_ATTRIBUTE = ascii(" line_number=\"");
+    private static final byte[] EVENT_REF_ATTRIBUTE = ascii(" event_ref=\"");
+    private static final byte[] DEN_ATTRIBUTE = ascii(" den=\"");
+    private static final byte[] NUM_ATTRIBUTE = ascii(" num=\"");
+    private static final byte[] OCTAVE_NUM_ATTRIBUTE = ascii(" octave_num=\"");
+    private static final byte[] SHAPE_ATTRIBUTE = ascii(" shape=\"");
+    private static final byte[] STAFF_STEP_ATTRIBUTE = ascii(" staff_step=\"");
+    private static final byte[] STAFF_REF_ATTRIBUTE = ascii(" staff_ref=\"");
+    private static final byte[] NUMBER_ATTRIBUTE = ascii(" number=\"");
+    private static final byte[] VOICE_ITEM_REF_ATTRIBUTE = ascii(" voice_item_ref=\"");
+    private static final byte[] ENTER_DEN_ATTRIBUTE = ascii(" enter_den=\"");
+    private static final byte[] ENTER_NUM_ATTRIBUTE = ascii(" enter_num=\"");
+    private static final byte[] IN_DEN_ATTRIBUTE = ascii(" in_den=\"");
+    private static final byte[] IN_NUM_ATTRIBUTE = ascii(" in_num=\"");
+    private static final byte[] ACTUAL_ACCIDENTAL_ATTRIBUTE = ascii(" actual_accidental=\"");
+    private static final byte[] OCTAVE_ATTRIBUTE = ascii(" octave=\"");
+    private static final byte[] STEP_ATTRIBUTE = ascii(" step=\"");
+
+    private static final byte[] INSTRUMENT_ID = ascii("Instrument_");
+    private static final byte[] VOICE_EVENT_ID = ascii("_voice0_measure");
+    private static final byte[] EVENT_ID = ascii("_ev");
+    private static final byte[] STAFF_ID = ascii("_staff");
+    private static final byte[] VOICE_ID = ascii("_0_voice");
+    private static final byte[] TIME_SIGNATURE_EVENT_ID = ascii("TimeSignature_Instrument_");
+    private static final byte[] CLEF_EVENT_ID = ascii("Clef_Instrument_");
+    private static final byte[] FIRST_EVENT_ID = ascii("_1");
+
+    /**
+     * The output stream of the document
+     */
+    private final OutputStream output;
+    /**
+     * Whether the document is written without indentation
+     */
+    private final boolean compact;
+    /**
+     * The buffer of the encoded bytes not yet written into the output stream
+     */
+    private final byte[] buffer;
+    /**
+     * The number of bytes in the buffer
+     */
+    private int position;
+    /**
+     * Whether the staff_list element is open
+     */
+    private boolean staffListOpen;
+    /**
+     * The instrument of the voice of the actual measure, while the voice
+     * element has not been written yet, or 0
+     */
+    private int pendingVoice;
+
+    /**
+     * @param output the output stream of the document, which is flushed but
+     * not closed at the end of the document
+     * @param compact true to write the document without indentation
+     */
+    public ByteScoreWriter(OutputStream output, boolean compact) {
+        this(output, compact, false);
+    }
+
+    /**
+     * @param output the output stream of the document, which is flushed but
+     * not closed at the end of the document
+     * @param compact true to write the document without indentation
+     * @param fragment true to write only parts, without the xml declaration,
+     * as a fragment appended to a document by appendParts
+     */
+    protected ByteScoreWriter(OutputStream output, boolean compact, boolean fragment) {
+        this.output = output;
+        this.compact = compact;
+        this.buffer = new byte[BUFFER_SIZE];
+        if (!fragment) {
+            write(XML_DECLARATION);
+            if (!compact) {
+                write(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    @Override
+    public void writeGeneralLayer(String creator, double version, String title, String author) {
+        // the root element follows the xml declaration, with no indentation
+        writeByte('<');
+        write(IEEE1599);
+        attribute(CREATOR_ATTRIBUTE, creator == null ? "" : creator);
+        attribute(VERSION_ATTRIBUTE, "" + version);
+        writeByte('>');
+        startElement(1, GENERAL);
+        startElement(2, DESCRIPTION);
+        addTextElement(3, MAIN_TITLE, title);
+        addTextElement(3, AUTHOR, author);
+        endElement(2, DESCRIPTION);
+        endElement(1, GENERAL);
+        startElement(1, LOGIC);
+    }
+
+    @Override
+    public void startSpine() {
+        startElement(2, SPINE);
+    }
+
+    @Override
+    public void addSpineEvent(String id) {
+        startTag(3, EVENT);
+        attribute(HPOS_ATTRIBUTE, 0);
+        attribute(ID_ATTRIBUTE, id);
+        attribute(TIMING_ATTRIBUTE, 0);
+        closeEmptyElement();
+    }
+
+    @Override
+    public void addVoiceEvent(int instrument, int measure, int event, int timing) {
+        startTag(3, EVENT);
+        if (timing != EventRegistry.MISSING) {
+            attribute(HPOS_ATTRIBUTE, timing);
+        }
+        writeVoiceEventIdAttribute(ID_ATTRIBUTE, instrument, measure, event);
+        if (timing != EventRegistry.MISSING) {
+            attribute(TIMING_ATTRIBUTE, timing);
+        }
+        closeEmptyElement();
+    }
+
+    @Override
+    public void startLos() {
+        endElement(2, SPINE);
+        startElement(2, LOS);
+        startElement(3, STAFF_LIST);
+        this.staffListOpen = true;
+    }
+
+    @Override
+    public void addStaff(int instrument, int[] metre, char clefShape, int clefStep) {
+        ByteScoreWriter.logger.debug("Add staff element");
+        startTag(4, STAFF);
+        write(ID_ATTRIBUTE);
+        write(INSTRUMENT_ID);
+        writeInt(instrument);
+        write(STAFF_ID);
+        writeByte('"');
+        attribute(LINE_NUMBER_ATTRIBUTE, DEFAULT_LINES_NUMBER);
+        writeByte('>');
+        startTag(5, TIME_SIGNATURE);
+        write(EVENT_REF_ATTRIBUTE);
+        write(TIME_SIGNATURE_EVENT_ID);
+        writeInt(instrument);
+        write(FIRST_EVENT_ID);
+        writeByte('"');
+        writeByte('>');
+        startTag(6, TIME_INDICATION);
+        attribute(DEN_ATTRIBUTE, metre[1]);
+        attribute(NUM_ATTRIBUTE, metre[0]);
+        closeEmptyElement();
+        endElement(5, TIME_SIGNATURE);
+        startTag(5, CLEF);
+        write(EVENT_REF_ATTRIBUTE);
+        write(CLEF_EVENT_ID);
+        writeInt(instrument);
+        write(FIRST_EVENT_ID);
+        writeByte('"');
+        attribute(OCTAVE_NUM_ATTRIBUTE, 0);
+        attribute(SHAPE_ATTRIBUTE, clefShape);
+        attribute(STAFF_STEP_ATTRIBUTE, clefStep);
+        closeEmptyElement();
+        endElement(4, STAFF);
+    }
+
+    @Override
+    public void startPart(int instrument) {
+        closeStaffList();
+        startTag(3, PART);
+        write(ID_ATTRIBUTE);
+        write(INSTRUMENT_ID);
+        writeInt(instrument - 1);
+        writeByte('"');
+        writeByte('>');
+        startElement(4, VOICE_LIST);
+        startTag(5, VOICE_ITEM);
+        write(ID_ATTRIBUTE);
+        write(INSTRUMENT_ID);
+        writeInt(instrument);
+        write(VOICE_ID);
+        writeByte('"');
+        write(STAFF_REF_ATTRIBUTE);
+        write(INSTRUMENT_ID);
+        writeInt(instrument);
+        write(STAFF_ID);
+        writeByte('"');
+        closeEmptyElement();
+        endElement(4, VOICE_LIST);
+    }
+
+    @Override
+    public void startMeasure(int instrument, int measure) {
+        startTag(4, MEASURE);
+        attribute(NUMBER_ATTRIBUTE, measure);
+        writeByte('>');
+        this.pendingVoice = instrument;
+    }
+
+    @Override
+    public void startChord(int instrument, int measure, int event, int durationNum, int durationDen, int[] tupletRatio) {
+        writePendingVoice(false);
+        startTag(6, CHORD);
+        writeVoiceEventIdAttribute(EVENT_REF_ATTRIBUTE, instrument, measure, event);
+        writeByte('>');
+        startTag(7, DURATION);
+        writeDurationAttributes(durationNum, durationDen);
+        if (tupletRatio == null) {
+            closeEmptyElement();
+        } else {
+            writeByte('>');
+            startTag(8, TUPLET_RATIO);
+            attribute(ENTER_DEN_ATTRIBUTE, tupletRatio[1]);
+            attribute(ENTER_NUM_ATTRIBUTE, tupletRatio[0]);
+            attribute(IN_DEN_ATTRIBUTE, tupletRatio[3]);
+            attribute(IN_NUM_ATTRIBUTE, tupletRatio[2]);
+            closeEmptyElement();
+            endElement(7, DURATION);
+        }
+    }
+
+    @Override
+    public void addNotehead(char step, int octave, String accidental) {
+        startElement(7, NOTEHEAD);
+        startTag(8, PITCH);
+        attribute(ACTUAL_ACCIDENTAL_ATTRIBUTE, accidental);
+        attribute(OCTAVE_ATTRIBUTE, octave);
+        attribute(STEP_ATTRIBUTE, step);
+        closeEmptyElement();
+        startElement(8, PRINTED_ACCIDENTALS);
+        indent(9);
+        writeByte('<');
+        writeAscii(accidental);
+        closeEmptyElement();
+        endElement(8, PRINTED_ACCIDENTALS);
+        endElement(7, NOTEHEAD);
+    }
+
+    @Override
+    public void endChord() {
+        endElement(6, CHORD);
+    }
+
+    @Override
+    public void addRest(int instrument, int measure, int event, int durationNum, int durationDen) {
+        writePendingVoice(false);
+        startTag(6, REST);
+        writeVoiceEventIdAttribute(EVENT_REF_ATTRIBUTE, instrument, measure, event);
+        writeByte('>');
+        startTag(7, DURATION);
+        writeDurationAttributes(durationNum, durationDen);
+        closeEmptyElement();
+        endElement(6, REST);
+    }
+
+    @Override
+    public void endMeasure() {
+        if (this.pendingVoice != 0) {
+            writePendingVoice(true);
+        } else {
+            endElement(5, VOICE);
+        }
+        endElement(4, MEASURE);
+    }
+
+    @Override
+    public void endPart() {
+        endElement(3, PART);
+    }
+
+    @Override
+    public void endDocument() {
+        closeStaffList();
+        endElement(2, LOS);
+        endElement(1, LOGIC);
+        endElement(0, IEEE1599);
+        if (!this.compact) {
+            write(LINE_SEPARATOR);
+        }
+        try {
+            flushBuffer();
+            this.output.flush();
+        } catch (IOException ex) {
+            throw failure(ex);
+        }
+    }
+
+    /**
+     * <p>
+     * writes the parts of a fragment into the output stream, flushing it
+     * without closing it
+     * </p>
+     */
+    protected void endFragment() {
+        try {
+            flushBuffer();
+            this.output.flush();
+        } catch (IOException ex) {
+            throw failure(ex);
+        }
+    }
+
+    /**
+     * <p>
+     * copies the parts of a fragment, written in the same mode after the
+     * staves, into the output stream
+     * </p>
+     *
+     * @param fragment the file of the fragment
+     */
+    protected void appendParts(Path fragment) {
+        closeStaffList();
+        try {
+            flushBuffer();
+            Files.copy(fragment, this.output);
+        } catch (IOException ex) {
+            throw failure(ex);
+        }
+    }
+
+    /**
+     * <p>
+     * closes the staff_list element, if it is still open
+     * </p>
+     */
+    private void closeStaffList() {
+        if (this.staffListOpen) {
+            endElement(3, STAFF_LIST);
+            this.staffListOpen = false;
+        }
+    }
+
+    /**
+     * <p>
+     * writes the voice element of the actual measure, if it has not been
+     * written yet
+     * </p>
+     *
+     * @param empty true if the measure has no chords and rests
+     */
+    private void writePendingVoice(boolean empty) {
+        if (this.pendingVoice != 0) {
+            startTag(5, VOICE);
+            write(VOICE_ITEM_REF_ATTRIBUTE);
+            write(INSTRUMENT_ID);
+            writeInt(this.pendingVoice);
+            write(VOICE_ID);
+            writeByte('"');
+            if (empty) {
+                closeEmptyElement();
+            } else {
+                writeByte('>');
+            }
+            this.pendingVoice = 0;
+        }
+    }
+
+    /**
+     * <p>
+     * writes the attributes of a duration element
+     * </p>
+     *
+     * @param durationNum the duration numerator
+     * @param durationDen the duration denominator
+     */
+    private void writeDurationAttributes(int durationNum, int durationDen) {
+        attribute(DEN_ATTRIBUTE, durationDen);
+        attribute(NUM_ATTRIBUTE, durationNum);
+    }
+
+    /**
+     * <p>
+     * writes an attribute whose value is the id of the event of a voice, the
+     * same as the one built by FormatterUtils.voiceEventId
+     * </p>
+     *
+     * @param name the attribute name, followed by the opening quote
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     */
+    private void writeVoiceEventIdAttribute(byte[] name, int instrument, int measure, int event) {
+        write(name);
+        write(INSTRUMENT_ID);
+        writeInt(instrument);
+        write(VOICE_EVENT_ID);
+        writeInt(measure);
+        write(EVENT_ID);
+        writeInt(event);
+        writeByte('"');
+    }
+
+    private void attribute(byte[] name, int value) {
+        write(name);
+        writeInt(value);
+        writeByte('"');
+    }
+
+    private void attribute(byte[] name, char value) {
+        write(name);
+        if (Character.isLetterOrDigit(value) && value < 0x80) {
+            writeByte(value);
+        } else {
+            writeAttributeValue(String.valueOf(value));
+        }
+        writeByte('"');
+    }
+
+    private void attribute(byte[] name, String value) {
+        write(name);
+        writeAttributeValue(value);
+        writeByte('"');
+    }
+
+    private void startTag(int depth, byte[] name) {
+        indent(depth);
+        writeByte('<');
+        write(name);
+    }
+
+    private void startElement(int depth, byte[] name) {
+        startTag(depth, name);
+        writeByte('>');
+    }
+
+    private void endElement(int depth, byte[] name) {
+        indent(depth);
+        writeByte('<');
+        writeByte('/');
+        write(name);
+        writeByte('>');
+    }
+
+    private void addTextElement(int depth, byte[] name, String text) {
+        if (text == null || text.isEmpty()) {
+            startTag(depth, name);
+            closeEmptyElement();
+        } else {
+            startElement(depth, name);
+            writeText(text);
+            writeByte('<');
+            writeByte('/');
+            write(name);
+            writeByte('>');
+        }
+    }
+
+    private void closeEmptyElement() {
+        writeByte('/');
+        writeByte('>');
+    }
+
+    private void indent(int depth) {
+        if (!this.compact) {
+            write(INDENTS[depth]);
+        }
+    }
+
+    /**
+     * <p>
+     * writes an attribute value escaping it as saveXMLFile does
+     * </p>
+     *
+     * @param value the attribute value
+     */
+    private void writeAttributeValue(String value) {
+        for (int c = 0; c < value.length(); c++) {
+            char character = value.charAt(c);
+            switch (character) {
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '>':
+                    writeAscii("&gt;");
+                    break;
+                case '"':
+                    writeAscii("&quot;");
+                    break;
+                default:
+                    if (character < ' ') {
+                        writeCharacterReference(character);
+                    } else {
+                        c = writeCharacter(value, c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * writes a text content escaping it as saveXMLFile does
+     * </p>
+     *
+     * @param text the text content
+     */
+    private void writeText(String text) {
+        for (int c = 0; c < text.length(); c++) {
+            char character = text.charAt(c);
+            switch (character) {
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '>':
+                    writeAscii("&gt;");
+                    break;
+                case '\t':
+                    writeByte(character);
+                    break;
+                case '\n':
+                    write(LINE_SEPARATOR);
+                    break;
+                default:
+                    if (character < ' ' || (character >= '\u007f' && character <= '\u009f')) {
+                        writeCharacterReference(character);
+                    } else {
+                        c = writeCharacter(text, c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * writes the character at the input index encoded in UTF-8, or as a
+     * character reference if it is outside the basic multilingual plane
+     * </p>
+     *
+     * @param string the string containing the character
+     * @param c the index of the character
+     *
+     * @return the index of the last char of the character
+     */
+    private int writeCharacter(String string, int c) {
+        char character = string.charAt(c);
+        if (character < 0x80) {
+            writeByte(character);
+        } else if (character < 0x800) {
+            writeByte(0xc0 | (character >> 6));
+            writeByte(0x80 | (character & 0x3f));
+        } else if (!Character.isSurrogate(character)) {
+            writeByte(0xe0 | (character >> 12));
+            writeByte(0x80 | ((character >> 6) & 0x3f));
+            writeByte(0x80 | (character & 0x3f));
+        } else if (Character.isHighSurrogate(character) && c + 1 < string.length() && Character.isLowSurrogate(string.charAt(c + 1))) {
+            writeCharacterReference(Character.toCodePoint(character, string.charAt(c + 1)));
+            return c + 1;
+        } else {
+            throw failure(new IOException(" the unpaired surrogate " + (int) character + " cannot be encoded"));
+        }
+        return c;
+    }
+
+    private void writeCharacterReference(int codePoint) {
+        writeByte('&');
+        writeByte('#');
+        writeInt(codePoint);
+        writeByte(';');
+    }
+
+    /**
+     * <p>
+     * writes the decimal digits of an integer
+     * </p>
+     *
+     * @param value the integer
+     */
+    private void writeInt(int value) {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                writeAscii(Integer.toString(value));
+                return;
+            }
+            writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (int power = 10; digits < 10 && value >= power; power *= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int d = this.position + digits - 1; d >= this.position; d--) {
+            this.buffer[d] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.position += digits;
+    }
+
+    private void writeAscii(String string) {
+        ensureCapacity(string.length());
+        for (int c = 0; c < string.length(); c++) {
+            this.buffer[this.position++] = (byte) string.charAt(c);
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        this.buffer[this.position++] = (byte) b;
+    }
+
+    /**
+     * <p>
+     * writes the buffer into the output stream if it has not room for the
+     * input number of bytes
+     * </p>
+     *
+     * @param length the number of bytes to be encoded
+     */
+    private void ensureCapacity(int length) {
+        if (this.position + length > this.buffer.length) {
+            try {
+                flushBuffer();
+            } catch (IOException ex) {
+                throw failure(ex);
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        this.output.write(this.buffer, 0, this.position);
+        this.position = 0;
+    }
+
+    /**
+     * <p>
+     * wraps the input exception, logging it
+     * </p>
+     *
+     * @param ex the exception thrown while writing the document
+     *
+     * @return the exception to throw
+     */
+    private static UncheckedIOException failure(IOException ex) {
+        ByteScoreWriter.logger.error(ex.getClass() + " : the document cannot be written");
+        return new UncheckedIOException(new IOException(" the document cannot be written", ex));
+    }
+
+    private static byte[] ascii(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
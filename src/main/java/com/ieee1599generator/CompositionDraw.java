@@ -0,0 +1,23 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the ways in which the durations filling a measure are chosen
+ * among the compositions of the measure with the events of the instrument
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum CompositionDraw {
+
+    /**
+     * Takes always the composition found by the greedy search over the
+     * durations of the instrument, shuffled in each measure
+     */
+    GREEDY,
+    /**
+     * Draws in each measure one of all the compositions of the measure with
+     * the events of the instrument, each with the same probability, and
+     * shuffles it, taking the greedy composition if there is none
+     */
+    UNIFORM
+}
@@ -0,0 +1,24 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the compressions available to save the IEEE1599 document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum Compression {
+
+    /**
+     * Saves the document as plain xml
+     */
+    NONE,
+    /**
+     * Compresses the document into a single gzip stream
+     */
+    GZIP,
+    /**
+     * Splits the document into blocks compressed concurrently into gzip
+     * members, which are concatenated in order into a valid gzip file
+     */
+    PARALLEL_GZIP
+}
@@ -0,0 +1,46 @@
+package com.ieee1599generator;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written into an output stream
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    /**
+     * The number of bytes written
+     */
+    private long count;
+
+    /**
+     * @param output the output stream receiving the bytes
+     */
+    public CountingOutputStream(OutputStream output) {
+        super(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        this.count += len;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+}
@@ -0,0 +1,360 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the saved documents in a directory, each one named after the hash of
+ * the parameters, the seed and the version of the generator that produced it,
+ * so that a document generated again is copied from the directory instead.
+ * <p>
+ * The documents are copied from and into the directory through file channels,
+ * without passing through the heap. The directory is bounded by a number of
+ * bytes: once it is exceeded, the least recently used documents are deleted.
+ * The order of use survives the JVM as the modification time of the
+ * documents, and the directory can be shared by concurrent processes, each
+ * one bounding the documents it knows.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DocumentCache {
+
+    private static final Logger logger = LogManager.getLogger(DocumentCache.class.getName());
+
+    /**
+     * The extension of the documents of the directory
+     */
+    protected static final String ENTRY_EXTENSION = ".ieee1599";
+
+    /**
+     * The version of the generator, with the time at which its classes were
+     * built, so that the documents of a rebuilt snapshot are not reused
+     */
+    private static final String GENERATOR_VERSION = generatorVersion();
+
+    /**
+     * The directory of the documents
+     */
+    private final Path directory;
+    /**
+     * The maximum number of bytes of the documents
+     */
+    private final long maxBytes;
+    /**
+     * The parameters of the documents, except for the seed
+     */
+    private final String parameters;
+    /**
+     * The size of each document, by key, from the least to the most recently
+     * used
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    /**
+     * The number of bytes of the documents
+     */
+    private long totalBytes;
+
+    /**
+     * @param directory the directory of the documents, created if it does
+     * not exist
+     * @param maxBytes the maximum number of bytes of the documents
+     * @param parameters the canonical description of all the parameters of
+     * the documents, except for the seed
+     *
+     * @throws IllegalArgumentException if the maximum number of bytes is not
+     * positive
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public DocumentCache(Path directory, long maxBytes, String parameters) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException(" the size of the cache must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.parameters = parameters;
+
+        List<Path> documents;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            documents = files.filter(file -> file.getFileName().toString().endsWith(ENTRY_EXTENSION)).collect(Collectors.toList());
+        }
+        // the documents used last were touched last
+        documents.sort(Comparator.comparingLong(document -> document.toFile().lastModified()));
+        for (Path document : documents) {
+            String fileName = document.getFileName().toString();
+            long size = document.toFile().length();
+            this.entries.put(fileName.substring(0, fileName.length() - ENTRY_EXTENSION.length()), size);
+            this.totalBytes += size;
+        }
+        DocumentCache.logger.info("Cache of {} documents and {} bytes in {}, bounded by {} bytes", this.entries.size(), this.totalBytes, this.directory, this.maxBytes);
+        evict(null);
+    }
+
+    /**
+     * <p>
+     * computes the key of the document of a seed, as the SHA-256 hash of the
+     * parameters, the seed and the version of the generator
+     * </p>
+     *
+     * @param seed the seed of the document
+     *
+     * @return the key, in hexadecimal digits
+     */
+    public String key(long seed) {
+        String canonical = this.parameters + "\nseed=" + seed + "\nversion=" + GENERATOR_VERSION + "\n";
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // every JVM provides SHA-256
+            throw new IllegalStateException(" SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * <p>
+     * copies the document of a key into a file, if it is in the cache
+     * </p>
+     *
+     * @param key the key of the document
+     * @param fileName the name of the file
+     * @param metrics the metrics counting the hits and the misses, or null if
+     * they are not measured
+     *
+     * @return true if the document has been copied, false if it is not in the
+     * cache
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public boolean copyTo(String key, String fileName, GenerationMetrics metrics) throws IOException {
+        if (!contains(key, metrics)) {
+            return false;
+        }
+        try (FileChannel target = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return copyTo(key, target, metrics);
+        }
+    }
+
+    /**
+     * <p>
+     * copies the document of a key into a channel, such as the one of the
+     * standard output, if it is in the cache
+     * </p>
+     *
+     * @param key the key of the document
+     * @param target the channel receiving the document
+     * @param metrics the metrics counting the hits and the misses, or null if
+     * they are not measured
+     *
+     * @return true if the document has been copied, false if it is not in the
+     * cache
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public boolean copyTo(String key, WritableByteChannel target, GenerationMetrics metrics) throws IOException {
+        if (!contains(key, metrics)) {
+            return false;
+        }
+        Path document = entry(key);
+        long size;
+        try (FileChannel source = FileChannel.open(document, StandardOpenOption.READ)) {
+            size = source.size();
+            // a file target is filled by the kernel, without copying the bytes into the heap
+            for (long position = 0; position < size;) {
+                position += source.transferTo(position, size - position, target);
+            }
+            Files.setLastModifiedTime(document, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException ex) {
+            // evicted by another process after the lookup
+            remove(key);
+            if (metrics != null) {
+                metrics.addCacheMiss();
+            }
+            return false;
+        }
+        if (metrics != null) {
+            metrics.addCacheHit(size);
+        }
+        DocumentCache.logger.debug("Document {} copied from the cache", key);
+        return true;
+    }
+
+    /**
+     * <p>
+     * copies a saved document into the cache, evicting the least recently
+     * used documents if the cache is full
+     * </p>
+     *
+     * @param key the key of the document
+     * @param fileName the name of the saved file
+     * @param metrics the metrics counting the stored and the evicted
+     * documents, or null if they are not measured
+     *
+     * @throws IOException if the document cannot be copied
+     */
+    public void put(String key, String fileName, GenerationMetrics metrics) throws IOException {
+        Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+        long size;
+        try {
+            try (FileChannel source = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+                    FileChannel target = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                size = source.size();
+                if (size > this.maxBytes) {
+                    DocumentCache.logger.warn("Document {} of {} bytes not cached, since it is larger than the cache", key, size);
+                    return;
+                }
+                for (long position = 0; position < size;) {
+                    position += source.transferTo(position, size - position, target);
+                }
+            }
+            // a concurrent reader never sees a partial document
+            Files.move(temporary, entry(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        int evicted;
+        synchronized (this.entries) {
+            Long previous = this.entries.put(key, size);
+            this.totalBytes += size - (previous != null ? previous : 0);
+            evicted = evict(key);
+        }
+        if (metrics != null) {
+            metrics.addCacheStore(size, evicted);
+        }
+        DocumentCache.logger.debug("Document {} of {} bytes stored into the cache", key, size);
+    }
+
+    /**
+     * <p>
+     * looks a key up, counting a miss if its document is not in the cache
+     * </p>
+     *
+     * @param key the key of the document
+     * @param metrics the metrics counting the misses, or null if they are not
+     * measured
+     *
+     * @return whether the document is in the cache
+     */
+    private boolean contains(String key, GenerationMetrics metrics) {
+        boolean contained;
+        synchronized (this.entries) {
+            // the lookup also makes the document the most recently used one
+            contained = this.entries.get(key) != null;
+        }
+        if (!contained && Files.exists(entry(key))) {
+            // stored by another process
+            contained = true;
+        }
+        if (!contained && metrics != null) {
+            metrics.addCacheMiss();
+        }
+        return contained;
+    }
+
+    /**
+     * <p>
+     * deletes the least recently used documents until the cache is within its
+     * bound
+     * </p>
+     *
+     * @param kept the key of the document that must not be deleted, or null
+     *
+     * @return the number of deleted documents
+     */
+    private int evict(String kept) {
+        int evicted = 0;
+        synchronized (this.entries) {
+            Iterator<Map.Entry<String, Long>> eldest = this.entries.entrySet().iterator();
+            while (this.totalBytes > this.maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(kept)) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(entry(entry.getKey()));
+                } catch (IOException ex) {
+                    DocumentCache.logger.warn("Document {} cannot be evicted from the cache: {}", entry.getKey(), ex.getMessage());
+                    continue;
+                }
+                this.totalBytes -= entry.getValue();
+                eldest.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            DocumentCache.logger.debug("{} documents evicted from the cache", evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * <p>
+     * forgets a document deleted by another process
+     * </p>
+     *
+     * @param key the key of the document
+     */
+    private void remove(String key) {
+        synchronized (this.entries) {
+            Long size = this.entries.remove(key);
+            if (size != null) {
+                this.totalBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * @param key the key of a document
+     *
+     * @return the path of the document
+     */
+    private Path entry(String key) {
+        return this.directory.resolve(key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * @return the version of the jar, or unversioned, followed by the time at
+     * which the classes were last built
+     */
+    private static String generatorVersion() {
+        String version = DocumentCache.class.getPackage().getImplementationVersion();
+        long builtMillis = 0;
+        CodeSource codeSource = DocumentCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null) {
+            try (Stream<Path> classes = Files.walk(Path.of(codeSource.getLocation().toURI()))) {
+                builtMillis = classes.mapToLong(file -> file.toFile().lastModified()).max().orElse(0);
+            } catch (IOException | URISyntaxException | IllegalArgumentException ex) {
+                DocumentCache.logger.warn("The build time of the generator cannot be read: {}", ex.getMessage());
+            }
+        }
+        return (version != null ? version : "unversioned") + "@" + builtMillis;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.ieee1599generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Represents in a Java Flight Recorder recording the generation of the score
+ * of a document, from its start to its end
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@Name("com.ieee1599generator.Document")
+@Label("Document Generation")
+@Category({"IEEE1599 Generator"})
+@Description("Generation of the spine and the parts of a document")
+public class DocumentJfrEvent extends Event {
+
+    @Label("Seed")
+    private long seed;
+
+    @Label("Instruments")
+    private int instruments;
+
+    @Label("Measures")
+    private int measures;
+
+    @Label("Random Streams")
+    private String randomStreams;
+
+    @Label("Spine Order")
+    private String spineOrder;
+
+    @Label("Composition Draw")
+    private String compositionDraw;
+
+    @Label("Spine Events")
+    private int spineEvents;
+
+    /**
+     * <p>
+     * sets the fields of the event once the score is generated
+     * </p>
+     *
+     * @param seed the seed of the document
+     * @param randomStreams the random streams of the parts
+     * @param spineOrder the order of the spine events
+     * @param compositionDraw the way in which the durations are chosen
+     * @param score the generated score
+     */
+    protected void set(long seed, RandomStreams randomStreams, SpineOrder spineOrder, CompositionDraw compositionDraw, Score score) {
+        this.seed = seed;
+        this.instruments = score.getInstrumentsNumber();
+        this.measures = score.getMeasuresNumber();
+        this.randomStreams = randomStreams.name();
+        this.spineOrder = spineOrder.name();
+        this.compositionDraw = compositionDraw.name();
+        this.spineEvents = score.getSpineEventsNumber();
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.ieee1599generator;
+
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Writes the IEEE1599 document into a DOM document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DomScoreWriter implements ScoreWriter {
+
+    private static final Logger logger = LogManager.getLogger(DomScoreWriter.class.getName());
+
+    private static final int DEFAULT_LINES_NUMBER = 5;
+
+    /**
+     * The document object
+     */
+    private final Document document;
+    /**
+     * The ieee1599 element
+     */
+    private Element ieee1599;
+    /**
+     * The logic element
+     */
+    private Element logic;
+    /**
+     * The spine element
+     */
+    private Element spine;
+    /**
+     * The los element
+     */
+    private Element los;
+    /**
+     * The staff_list element
+     */
+    private Element staffList;
+    /**
+     * The actual part element
+     */
+    private Element part;
+    /**
+     * The voice element of the actual measure
+     */
+    private Element voice;
+    /**
+     * The actual chord element
+     */
+    private Element chord;
+
+    /**
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     */
+    public DomScoreWriter() throws ParserConfigurationException {
+        this.document = FormatterUtils.createDocument();
+    }
+
+    @Override
+    public void writeGeneralLayer(String creator, double version, String title, String author) {
+        DomScoreWriter.logger.debug("Add ieee1599 element");
+        this.ieee1599 = FormatterUtils.addIeee1599Element(this.document, creator, version);
+
+        DomScoreWriter.logger.debug("Add general element");
+        Element general = FormatterUtils.addElementAndReturnIt(this.document, this.ieee1599, "general");
+
+        DomScoreWriter.logger.debug("Add description element");
+        Element description = FormatterUtils.addElementAndReturnIt(this.document, general, "description");
+
+        DomScoreWriter.logger.debug("Add main_title element");
+        FormatterUtils.addElementAndSetTextContext(this.document, description, "main_title", title);
+        DomScoreWriter.logger.debug("Add author element");
+        FormatterUtils.addElementAndSetTextContext(this.document, description, "author", author);
+
+        this.logic = FormatterUtils.addElementAndReturnIt(this.document, this.ieee1599, "logic");
+    }
+
+    @Override
+    public void startSpine() {
+        DomScoreWriter.logger.debug("Add spine element");
+        this.spine = FormatterUtils.addElementAndReturnIt(this.document, this.logic, "spine");
+    }
+
+    @Override
+    public void addSpineEvent(String id) {
+        FormatterUtils.addElementAndSetThreeAttributesReturningTheElement(this.document, this.spine, "event", "id", id, "timing", "" + 0, "hpos", "" + 0);
+    }
+
+    @Override
+    public void addVoiceEvent(int instrument, int measure, int event, int timing) {
+        Element element = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, this.spine, "event", "id", FormatterUtils.voiceEventId(instrument, measure, event));
+        if (timing != EventRegistry.MISSING) {
+            FormatterUtils.setAttributeOfElement(element, "timing", "" + timing);
+            FormatterUtils.setAttributeOfElement(element, "hpos", "" + timing);
+        }
+    }
+
+    @Override
+    public void startLos() {
+        this.los = FormatterUtils.addElementAndReturnIt(this.document, this.logic, "los");
+
+        this.staffList = FormatterUtils.addElementAndReturnIt(this.document, this.los, "staff_list");
+    }
+
+    @Override
+    public void addStaff(int instrument, int[] metre, char clefShape, int clefStep) {
+        DomScoreWriter.logger.debug("Add staff element");
+        Element staff = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, this.staffList, "staff", "id", "Instrument_" + instrument + "_staff", "line_number", "" + DEFAULT_LINES_NUMBER);
+
+        DomScoreWriter.logger.debug("Add time_signature element");
+        Element timeSignature = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, staff, "time_signature", "event_ref", FormatterUtils.timeSignatureEventId(instrument));
+
+        DomScoreWriter.logger.debug("Add time_indication element");
+        FormatterUtils.addElementAndSetTwoAttributes(this.document, timeSignature, "time_indication", "den", "" + metre[1], "num", "" + metre[0]);
+
+        DomScoreWriter.logger.debug("Add clef element");
+        FormatterUtils.addElementAndSetFourAttributes(this.document, staff, "clef", "event_ref", FormatterUtils.clefEventId(instrument), "shape", "" + clefShape, "staff_step", "" + clefStep, "octave_num", "" + 0);
+    }
+
+    @Override
+    public void startPart(int instrument) {
+        this.part = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, this.los, "part", "id", "Instrument_" + (instrument - 1));
+
+        DomScoreWriter.logger.debug("Add voice_list element");
+        Element voiceList = FormatterUtils.addElementAndReturnIt(this.document, this.part, "voice_list");
+
+        DomScoreWriter.logger.debug("Add voice_item element");
+        FormatterUtils.addElementAndSetTwoAttributes(this.document, voiceList, "voice_item", "id", "Instrument_" + instrument + "_0_voice", "staff_ref", "Instrument_" + instrument + "_staff");
+    }
+
+    @Override
+    public void startMeasure(int instrument, int measure) {
+        Element measureElement = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, this.part, "measure", "number", "" + measure);
+
+        DomScoreWriter.logger.debug("Add voice element");
+        this.voice = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, measureElement, "voice", "voice_item_ref", "Instrument_" + instrument + "_0_voice");
+    }
+
+    @Override
+    public void startChord(int instrument, int measure, int event, int durationNum, int durationDen, int[] tupletRatio) {
+        DomScoreWriter.logger.debug("Add chord element");
+        this.chord = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, this.voice, "chord", "event_ref", FormatterUtils.voiceEventId(instrument, measure, event));
+
+        DomScoreWriter.logger.debug("Add duration element");
+        Element durationElement = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, this.chord, "duration", "den", "" + durationDen, "num", "" + durationNum);
+
+        if (tupletRatio != null) {
+            DomScoreWriter.logger.debug("Add irregular group elements");
+            FormatterUtils.addElementAndSetFourAttributes(this.document, durationElement, "tuplet_ratio", "enter_num", "" + tupletRatio[0], "enter_den", "" + tupletRatio[1], "in_num", "" + tupletRatio[2], "in_den", "" + tupletRatio[3]);
+        }
+    }
+
+    @Override
+    public void addNotehead(char step, int octave, String accidental) {
+        DomScoreWriter.logger.debug("Add notehead element");
+        Element notehead = FormatterUtils.addElementAndReturnIt(this.document, this.chord, "notehead");
+
+        DomScoreWriter.logger.debug("Add pitch element");
+        FormatterUtils.addElementAndSetThreeAttributesReturningTheElement(this.document, notehead, "pitch", "actual_accidental", accidental, "octave", "" + octave, "step", "" + step);
+
+        DomScoreWriter.logger.debug("Add printed_accidentals element");
+        Element printedAccidentals = FormatterUtils.addElementAndReturnIt(this.document, notehead, "printed_accidentals");
+        FormatterUtils.addElement(this.document, printedAccidentals, accidental);
+    }
+
+    @Override
+    public void endChord() {
+        this.chord = null;
+    }
+
+    @Override
+    public void addRest(int instrument, int measure, int event, int durationNum, int durationDen) {
+        DomScoreWriter.logger.debug("Add rest element");
+        Element rest = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, this.voice, "rest", "event_ref", FormatterUtils.voiceEventId(instrument, measure, event));
+
+        DomScoreWriter.logger.debug("Add duration element");
+        FormatterUtils.addElementAndSetTwoAttributes(this.document, rest, "duration", "den", "" + durationDen, "num", "" + durationNum);
+    }
+
+    @Override
+    public void endMeasure() {
+        this.voice = null;
+    }
+
+    @Override
+    public void endPart() {
+        this.part = null;
+    }
+
+    @Override
+    public void endDocument() {
+    }
+
+    public Document getDocument() {
+        return this.document;
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.ieee1599generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Represents the durations filling a measure with a given number of events of
+ * an instrument.
+ * <p>
+ * The greedy composition is searched once, while the uniform draw counts once,
+ * for each number of events and of units of time, the combinations of
+ * durations using only the first durations of the instrument, so that each
+ * measure only walks back the counts and draws how many times each duration
+ * is taken.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DurationComposition {
+
+    private static final Logger logger = LogManager.getLogger(DurationComposition.class.getName());
+
+    /**
+     * The maximum number of counts of the uniform draw, beyond which the
+     * greedy composition is taken
+     */
+    private static final int MAX_COUNTS_NUMBER = 1 << 22;
+
+    /**
+     * The durations found by the greedy search, before they are shuffled
+     */
+    private final double[] greedy;
+    /**
+     * The durations of the instrument, as the keys of its notes map
+     */
+    private final double[] durations;
+    /**
+     * The units of time of each duration
+     */
+    private final int[] durationUnits;
+    /**
+     * The number of events in a measure
+     */
+    private final int eventsNumber;
+    /**
+     * The units of time of a measure
+     */
+    private final int measureUnits;
+    /**
+     * The number of combinations of events durations filling the units of
+     * time using only the first durations, indexed by counts, or null if the
+     * greedy composition is taken
+     */
+    private final long[] counts;
+
+    /**
+     * @param metreInNumbers the metre converted into numbers
+     * @param instrument the musical instrument
+     * @param notesMapKeysList the list of notes represented as double, in the
+     * order of the greedy search
+     * @param eventsNumberInAMeasure the number of events in a measure
+     * @param compositionDraw the way in which the durations are chosen
+     */
+    protected DurationComposition(int[] metreInNumbers, Instrument instrument, List<Double> notesMapKeysList, int eventsNumberInAMeasure, CompositionDraw compositionDraw) {
+        this.greedy = selectCorrectNotesAndRests(metreInNumbers, instrument, notesMapKeysList, eventsNumberInAMeasure);
+        this.eventsNumber = eventsNumberInAMeasure;
+        this.durations = new double[notesMapKeysList.size()];
+        this.durationUnits = new int[notesMapKeysList.size()];
+
+        // the unit of time is the least common multiple of the denominators, so that every duration is a whole number of units
+        long unit = metreInNumbers[1];
+        for (int k = 0; k < this.durations.length; k++) {
+            this.durations[k] = notesMapKeysList.get(k);
+            unit = lcm(unit, instrument.getNotesMap().get(this.durations[k])[1]);
+        }
+        long measureUnits = metreInNumbers[0] * (unit / metreInNumbers[1]);
+        for (int k = 0; k < this.durations.length; k++) {
+            int[] duration = instrument.getNotesMap().get(this.durations[k]);
+            this.durationUnits[k] = (int) Math.min(duration[0] * (unit / duration[1]), Integer.MAX_VALUE);
+        }
+        this.measureUnits = (int) Math.min(measureUnits, Integer.MAX_VALUE);
+
+        this.counts = compositionDraw == CompositionDraw.UNIFORM ? countCompositions() : null;
+    }
+
+    /**
+     * <p>
+     * draws the durations of a measure, to be shuffled
+     * </p>
+     *
+     * @param randomizer the randomizer object
+     *
+     * @return the durations of the measure
+     */
+    protected List<Double> draw(Randomizer randomizer) {
+        List<Double> correctNotesAndRests = new ArrayList<>(this.eventsNumber);
+        if (this.counts == null) {
+            for (double duration : this.greedy) {
+                correctNotesAndRests.add(duration);
+            }
+            return correctNotesAndRests;
+        }
+
+        int events = this.eventsNumber;
+        int units = this.measureUnits;
+        for (int k = this.durations.length - 1; k >= 0; k--) {
+            // the times the duration is taken are drawn in proportion to the combinations of the first durations left
+            long total = this.counts[index(k + 1, events, units)];
+            long value = total > 1 ? randomizer.getRandomLong(total) : 0;
+            int times = 0;
+            for (long count = this.counts[index(k, events, units)]; value >= count; count = this.counts[index(k, events, units)]) {
+                value -= count;
+                times++;
+                events--;
+                units -= this.durationUnits[k];
+            }
+            for (int t = 0; t < times; t++) {
+                correctNotesAndRests.add(this.durations[k]);
+            }
+        }
+        return correctNotesAndRests;
+    }
+
+    /**
+     * <p>
+     * counts the combinations of durations filling the measure with its
+     * events, using only the first durations of the instrument
+     * </p>
+     *
+     * @return the counts, or null if there is no combination or there are too
+     * many counts
+     */
+    private long[] countCompositions() {
+        long size = (this.durations.length + 1L) * (this.eventsNumber + 1L) * (this.measureUnits + 1L);
+        if (size > MAX_COUNTS_NUMBER) {
+            DurationComposition.logger.warn("The compositions of {} events in a measure of {} units are too many to be counted, the greedy one is taken", this.eventsNumber, this.measureUnits);
+            return null;
+        }
+
+        long[] compositions = new long[(int) size];
+        compositions[index(0, 0, 0)] = 1;
+        try {
+            for (int k = 0; k < this.durations.length; k++) {
+                int durationUnits = this.durationUnits[k];
+                for (int e = 0; e <= this.eventsNumber; e++) {
+                    for (int u = 0; u <= this.measureUnits; u++) {
+                        long count = compositions[index(k, e, u)];
+                        if (e > 0 && u >= durationUnits) {
+                            // the combinations taking the duration once more
+                            count = Math.addExact(count, compositions[index(k + 1, e - 1, u - durationUnits)]);
+                        }
+                        compositions[index(k + 1, e, u)] = count;
+                    }
+                }
+            }
+        } catch (ArithmeticException ex) {
+            DurationComposition.logger.warn("The compositions of {} events in a measure of {} units are too many to be counted, the greedy one is taken", this.eventsNumber, this.measureUnits);
+            return null;
+        }
+
+        long total = compositions[index(this.durations.length, this.eventsNumber, this.measureUnits)];
+        DurationComposition.logger.debug("Compositions of {} events in a measure: {}", this.eventsNumber, total);
+        return total > 0 ? compositions : null;
+    }
+
+    /**
+     * @param k the number of first durations used
+     * @param events the number of events
+     * @param units the units of time
+     *
+     * @return the index of the count in counts
+     */
+    private int index(int k, int events, int units) {
+        return (k * (this.eventsNumber + 1) + events) * (this.measureUnits + 1) + units;
+    }
+
+    /**
+     * <p>
+     * selects the correct notes and rests
+     * </p>
+     *
+     * @param metreInNumbers the metre converted into numbers
+     * @param instrument the musical instrument
+     * @param notesMapKeysList the list of notes represented as double
+     * @param eventsNumberInAMeasure the number of events in the actual measure
+     *
+     * @return the correct notes and rests
+     */
+    private static double[] selectCorrectNotesAndRests(int[] metreInNumbers, Instrument instrument, List<Double> notesMapKeysList, int eventsNumberInAMeasure) {
+        List<Double> correctNotesAndRests;
+        double timesMinDurationInMeasure = ((double) metreInNumbers[0] / metreInNumbers[1]) * instrument.getMinDuration()[1];
+        double timesMaxDurationInMeasure = ((double) metreInNumbers[0] / metreInNumbers[1]) * instrument.getMaxDuration()[1];
+        if (timesMinDurationInMeasure < eventsNumberInAMeasure) {
+            correctNotesAndRests = new ArrayList<>();
+        } else if (timesMaxDurationInMeasure > eventsNumberInAMeasure) {
+            correctNotesAndRests = new ArrayList<>();
+        } else if (timesMinDurationInMeasure == eventsNumberInAMeasure) {
+            correctNotesAndRests = new ArrayList<>(Collections.nCopies(eventsNumberInAMeasure, (double) instrument.getMinDuration()[0] / instrument.getMinDuration()[1]));
+        } else if (timesMaxDurationInMeasure == eventsNumberInAMeasure) {
+            correctNotesAndRests = new ArrayList<>(Collections.nCopies(eventsNumberInAMeasure, (double) instrument.getMaxDuration()[0] / instrument.getMaxDuration()[1]));
+
+        } else {
+            correctNotesAndRests = selectNotes(metreInNumbers, eventsNumberInAMeasure, notesMapKeysList, instrument.getMinDuration()[1]);
+        }
+        return correctNotesAndRests.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * <p>
+     * selects the correct musical figures for the actual measure
+     * </p>
+     *
+     * @param metreInNumbers the metre converted into numbers
+     * @param eventsNumberInAMeasure the number of events in a measure
+     * @param notesMapKeysList the list of notes represented as double
+     * @param minDuration the minimum duration of the musical figures
+     *
+     * @return the list of the selected musical figures
+     */
+    private static List<Double> selectNotes(int[] metreInNumbers, int eventsNumberInAMeasure, List<Double> notesMapKeysList, int minDuration) {
+        List<Double> correctNotes = new ArrayList<>();
+        double remainingDuration = (double) (metreInNumbers[0]) / metreInNumbers[1];
+        int remainingEvents = eventsNumberInAMeasure;
+        int notesMapKeysListIndex = 0;
+
+        while (remainingDuration > 0.001) {
+
+            double noteKey = notesMapKeysList.get(notesMapKeysListIndex);
+            // subtract from remainingDuration the duration of the note being considered
+            remainingDuration -= noteKey;
+            // subtract from remainingEvents an event considered as played
+            remainingEvents--;
+
+            if ((remainingDuration * minDuration) >= remainingEvents) {
+                // case where one or more notes used manage to complete the measure
+                correctNotes.add(noteKey);
+
+            } else {
+                // case where one or more of the notes used fail to complete the measure and the notesMapKeysListIndex, the remainingDuration and the remainingEvents are restored
+                notesMapKeysListIndex++;
+                remainingDuration += noteKey;
+                remainingEvents++;
+            }
+        }
+
+        return correctNotes;
+    }
+
+    /**
+     * @param a the first number
+     * @param b the second number
+     *
+     * @return the least common multiple of the two numbers
+     */
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long r = x % y;
+            x = y;
+            y = r;
+        }
+        return a / x * b;
+    }
+
+}
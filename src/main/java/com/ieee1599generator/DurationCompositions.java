@@ -0,0 +1,66 @@
+package com.ieee1599generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the durations filling a measure for each combination of durations of
+ * an instrument and number of events in a measure, computed the first time
+ * they are needed and then shared by all the instruments and documents with
+ * the same metre, which can be formatted concurrently
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DurationCompositions {
+
+    /**
+     * The metre converted from a string into numbers
+     */
+    private final int[] metreInNumbers;
+    /**
+     * The way in which the durations are chosen
+     */
+    private final CompositionDraw compositionDraw;
+    /**
+     * The compositions, by durations of the instrument and number of events
+     * in a measure
+     */
+    private final ConcurrentMap<String, DurationComposition> compositions = new ConcurrentHashMap<>();
+
+    /**
+     * @param metreInNumbers the metre converted into numbers
+     * @param compositionDraw the way in which the durations are chosen
+     */
+    protected DurationCompositions(int[] metreInNumbers, CompositionDraw compositionDraw) {
+        this.metreInNumbers = metreInNumbers;
+        this.compositionDraw = compositionDraw;
+    }
+
+    /**
+     * <p>
+     * gets the composition of a measure of the instrument, computing it if it
+     * is the first one with its durations and number of events
+     * </p>
+     *
+     * @param instrument the musical instrument
+     * @param eventsNumberInAMeasure the number of events in a measure
+     *
+     * @return the composition of a measure
+     */
+    protected DurationComposition get(Instrument instrument, int eventsNumberInAMeasure) {
+        // the greedy search follows the order of the keys of the notes map, which is part of the key
+        List<Double> notesMapKeysList = new ArrayList<>(instrument.getNotesMap().keySet());
+        String key = notesMapKeysList + " " + Arrays.toString(instrument.getMinDuration()) + " " + Arrays.toString(instrument.getMaxDuration()) + " " + eventsNumberInAMeasure;
+
+        return this.compositions.computeIfAbsent(key, k -> new DurationComposition(this.metreInNumbers, instrument, notesMapKeysList, eventsNumberInAMeasure, this.compositionDraw));
+    }
+
+    public CompositionDraw getCompositionDraw() {
+        return this.compositionDraw;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.ieee1599generator;
+
+import java.util.Arrays;
+
+/**
+ * Indexes an integer value for each event of the voices by instrument,
+ * measure and event index, keeping for each instrument an array with one slot
+ * for each event of each measure
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class EventRegistry {
+
+    /**
+     * The value of the events not registered
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /**
+     * The number of measures of each instrument
+     */
+    private final int measuresNumber;
+    /**
+     * The number of events in a measure for each instrument
+     */
+    private final int[] eventsNumberInAMeasure;
+    /**
+     * The registered values for each instrument
+     */
+    private final int[][] values;
+
+    public EventRegistry(int instrumentsNumber, int measuresNumber) {
+        this.measuresNumber = measuresNumber;
+        this.eventsNumberInAMeasure = new int[instrumentsNumber];
+        this.values = new int[instrumentsNumber][];
+    }
+
+    /**
+     * <p>
+     * sets the number of events in a measure of an instrument, allocating its
+     * slots
+     * </p>
+     *
+     * @param instrument the instrument number, as used in the event id
+     * @param eventsNumberInAMeasure the number of events in a measure
+     */
+    protected void setEventsNumberInAMeasure(int instrument, int eventsNumberInAMeasure) {
+        this.eventsNumberInAMeasure[instrument - 1] = eventsNumberInAMeasure;
+        this.values[instrument - 1] = new int[this.measuresNumber * eventsNumberInAMeasure];
+        Arrays.fill(this.values[instrument - 1], MISSING);
+    }
+
+    /**
+     * <p>
+     * registers the value of an event
+     * </p>
+     *
+     * @param instrument the instrument number, as used in the event id
+     * @param measure the measure number, as used in the event id
+     * @param event the event index in the measure
+     * @param value the value to register
+     *
+     * @throws IllegalStateException if the same event has already been
+     * registered
+     */
+    protected void register(int instrument, int measure, int event, int value) {
+        int slot = slot(instrument, measure, event);
+        if (this.values[instrument - 1][slot] != MISSING) {
+            throw new IllegalStateException(" the event " + event + " corresponding to the instrument " + instrument + " in the measure " + measure + " is already registered");
+        }
+        this.values[instrument - 1][slot] = value;
+    }
+
+    /**
+     * <p>
+     * clears the values of the events of an instrument in a range of
+     * measures, so that they can be registered again
+     * </p>
+     *
+     * @param instrument the instrument number, as used in the event id
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     */
+    protected void clear(int instrument, int firstMeasure, int lastMeasure) {
+        Arrays.fill(this.values[instrument - 1], slot(instrument, firstMeasure, 0), slot(instrument, lastMeasure, 0) + this.eventsNumberInAMeasure[instrument - 1], MISSING);
+    }
+
+    /**
+     * @param instrument the instrument number, as used in the event id
+     *
+     * @return the number of events in a measure of the instrument
+     */
+    protected int getEventsNumberInAMeasure(int instrument) {
+        return this.eventsNumberInAMeasure[instrument - 1];
+    }
+
+    /**
+     * @return the number of measures of each instrument
+     */
+    protected int getMeasuresNumber() {
+        return this.measuresNumber;
+    }
+
+    /**
+     * <p>
+     * gets the value of a registered event
+     * </p>
+     *
+     * @param instrument the instrument number, as used in the event id
+     * @param measure the measure number, as used in the event id
+     * @param event the event index in the measure
+     *
+     * @return the registered value, or MISSING if there is none
+     */
+    protected int get(int instrument, int measure, int event) {
+        // the slot checks the range before the values of the instrument are read
+        int slot = slot(instrument, measure, event);
+        return this.values[instrument - 1][slot];
+    }
+
+    /**
+     * <p>
+     * computes the slot of an event in the array of its instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     *
+     * @return the slot of the event
+     *
+     * @throws IllegalArgumentException if one of the indexes is out of range
+     */
+    private int slot(int instrument, int measure, int event) {
+        if (instrument < 1 || instrument > this.values.length || this.values[instrument - 1] == null
+                || measure < 1 || measure > this.measuresNumber || event < 0 || event >= this.eventsNumberInAMeasure[instrument - 1]) {
+            throw new IllegalArgumentException(" the event " + event + " of the instrument " + instrument + " in the measure " + measure + " is out of range");
+        }
+        return (measure - 1) * this.eventsNumberInAMeasure[instrument - 1] + event;
+    }
+
+}
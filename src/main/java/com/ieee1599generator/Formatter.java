@@ -1,21 +1,28 @@
 package com.ieee1599generator;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
- * Formats the entire IEEE1599 document
+ * Formats the entire IEEE1599 document.
+ * <p>
+ * A formatter generates one document at a time: the formatters of the
+ * documents generated concurrently are created by a GeneratorEngine, sharing
+ * the inputs and the tables computed from them.
+ * </p>
  *
  * @author Federica Paoli', id: 961887, e-mail:
  * federica.paoli1@studenti.unimi.it
@@ -24,25 +31,40 @@ public class Formatter {
 
     private static final Logger logger = LogManager.getLogger(Formatter.class.getName());
 
-    private static final int DEFAULT_LINES_NUMBER = 5;
-    private static final int PITCHES_NUMBER = 12;
-
     /**
-     * The randomizer object
+     * The seed for the random object in order to replicate the same random
+     * values for several app executions
+     */
+    private final long seed;
+    /**
+     * The randomizer object, created again for each formatted document
+     */
+    private Randomizer randomizer;
+    /**
+     * The score being generated
+     */
+    private Score score;
+    /**
+     * The metrics of the document being generated, or null if it is not
+     * measured
+     */
+    private GenerationMetrics metrics;
+    /**
+     * The listener receiving each part as soon as it is formatted, or null
      */
-    private final Randomizer randomizer;
+    private Consumer<ScorePart> partListener;
     /**
-     * The document object
+     * The document object created by the last DOM formatting
      */
     private Document document;
     /**
-     * The list of all events of the document
+     * The random number of events of each instrument
      */
-    private final List<Element> eventsList = new ArrayList<>();
+    private final int[] eventsNumbers;
     /**
-     * The map of random number of events for each instrument
+     * The number of events in a measure of each instrument
      */
-    private final Map<Integer, Integer[]> randomEventsPerInstrumentMap = new HashMap<>();
+    private final int[] eventsNumbersInAMeasure;
     /**
      * The document creator name
      */
@@ -83,6 +105,11 @@ public class Formatter {
      * The map of all notes
      */
     private final Map<Float, List<String>> allNotesMap;
+    /**
+     * The table of the pitches, built from the map of all notes and the map of
+     * accidentals
+     */
+    private final PitchTable pitchTable;
     /**
      * The metre converted from a string into numbers
      */
@@ -95,820 +122,599 @@ public class Formatter {
      * The map of irregular groups
      */
     private final Map<Integer, Integer> irregularGroupsMap;
+    /**
+     * The way in which the random values of the parts are drawn
+     */
+    private final RandomStreams randomStreams;
+    /**
+     * The way in which the events of the voices are ordered in the spine
+     */
+    private final SpineOrder spineOrder;
+    /**
+     * The compositions of the measures, shared by the documents
+     */
+    private final DurationCompositions durationCompositions;
+    /**
+     * The number of threads formatting the parts concurrently, used only if
+     * the random values of each part are drawn from its own stream
+     */
+    private final int partThreads;
+    /**
+     * The pool formatting the parts concurrently, or null to create a new pool
+     * for each document
+     */
+    private final ForkJoinPool partsPool;
 
+    /**
+     * <p>
+     * creates a formatter with SHARED random streams, RANDOM spine order and
+     * GREEDY composition draw, formatting the parts in a single thread, as the
+     * original generator did
+     * </p>
+     */
     public Formatter(long seed, String creator, double docVersion, String title, String author, int instrumentsNumber, List<Instrument> instruments, List<Character> clefs, List<Integer> clefsSteps, Map<String, Float> accidentalMap, Map<Float, List<String>> allNotesMap, int[] metreInNumbers, int measuresNumber, Map<Integer, Integer> irregularGroupsMap) {
+        this(seed, creator, docVersion, title, author, instrumentsNumber, instruments, clefs, clefsSteps, accidentalMap, allNotesMap, metreInNumbers, measuresNumber, irregularGroupsMap, RandomStreams.SHARED, SpineOrder.RANDOM, CompositionDraw.GREEDY, 1);
+    }
+
+    public Formatter(long seed, String creator, double docVersion, String title, String author, int instrumentsNumber, List<Instrument> instruments, List<Character> clefs, List<Integer> clefsSteps, Map<String, Float> accidentalMap, Map<Float, List<String>> allNotesMap, int[] metreInNumbers, int measuresNumber, Map<Integer, Integer> irregularGroupsMap, RandomStreams randomStreams, SpineOrder spineOrder, CompositionDraw compositionDraw, int partThreads) {
 
         Formatter.logger.info("Inputs");
 
-        this.randomizer = new Randomizer(seed);
-        Formatter.logger.info("Randomizer seed: " + seed);
+        this.seed = seed;
+        Formatter.logger.info("Randomizer seed: {}", this.seed);
 
         this.creator = creator;
-        Formatter.logger.info("Creator: " + this.creator);
+        Formatter.logger.info("Creator: {}", this.creator);
 
         this.docVersion = docVersion;
-        Formatter.logger.info("Document version: " + this.docVersion);
+        Formatter.logger.info("Document version: {}", this.docVersion);
 
         this.title = title;
-        Formatter.logger.info("Title: " + this.title);
+        Formatter.logger.info("Title: {}", this.title);
 
         this.author = author;
-        Formatter.logger.info("Author: " + this.author);
+        Formatter.logger.info("Author: {}", this.author);
 
         this.instrumentsNumber = instrumentsNumber;
-        Formatter.logger.info("Number of instruments: " + this.instrumentsNumber);
+        Formatter.logger.info("Number of instruments: {}", this.instrumentsNumber);
+        this.eventsNumbers = new int[instrumentsNumber];
+        this.eventsNumbersInAMeasure = new int[instrumentsNumber];
 
         this.instruments = instruments;
         for (int i = 0; i < this.instrumentsNumber; i++) {
-            Formatter.logger.info("Instrument " + (i + 1) + ": " + this.instruments.get(i).toString());
+            Formatter.logger.info("Instrument {}: {}", i + 1, this.instruments.get(i));
         }
         this.clefs = clefs;
-        Formatter.logger.info("Clefs: " + clefs.stream().map(Object::toString).collect(Collectors.joining(", ")));
+        Formatter.logger.info("Clefs: {}", () -> clefs.stream().map(Object::toString).collect(Collectors.joining(", ")));
 
         this.clefsSteps = clefsSteps;
-        Formatter.logger.info("Clefs steps: " + clefsSteps.stream().map(Object::toString).collect(Collectors.joining(", ")));
+        Formatter.logger.info("Clefs steps: {}", () -> clefsSteps.stream().map(Object::toString).collect(Collectors.joining(", ")));
 
         this.accidentalMap = accidentalMap;
-        Formatter.logger.info("Accidentals map: " + FormatterUtils.mapAsString(this.accidentalMap));
+        Formatter.logger.info("Accidentals map: {}", () -> FormatterUtils.mapAsString(this.accidentalMap));
 
         this.allNotesMap = allNotesMap;
-        Formatter.logger.info("All notes map: " + FormatterUtils.notesMapAsString(this.allNotesMap));
+        Formatter.logger.info("All notes map: {}", () -> FormatterUtils.notesMapAsString(this.allNotesMap));
+
+        this.pitchTable = new PitchTable(allNotesMap, accidentalMap);
 
         this.metreInNumbers = metreInNumbers;
-        Formatter.logger.info("Metre: " + metreInNumbers[0] + ":" + metreInNumbers[1]);
+        Formatter.logger.info("Metre: {}:{}", metreInNumbers[0], metreInNumbers[1]);
 
         this.measuresNumber = measuresNumber;
-        Formatter.logger.info("Measures number: " + this.measuresNumber);
+        Formatter.logger.info("Measures number: {}", this.measuresNumber);
 
         this.irregularGroupsMap = irregularGroupsMap;
-        Formatter.logger.info("Irregular groups map: " + FormatterUtils.mapAsString(this.irregularGroupsMap));
-    }
+        Formatter.logger.info("Irregular groups map: {}", () -> FormatterUtils.mapAsString(this.irregularGroupsMap));
 
-    /**
-     * <p>
-     * formats the IEEE1599 document
-     * </p>
-     *
-     * @throws ParserConfigurationException if there is a configuration error
-     * for the DocumentBuilderFactory class
-     */
-    public void format() throws ParserConfigurationException {
+        this.randomStreams = randomStreams;
+        Formatter.logger.info("Random streams: {}", this.randomStreams);
 
-        Formatter.logger.debug("Create document");
-        this.document = FormatterUtils.createDocument();
+        this.spineOrder = spineOrder;
+        Formatter.logger.info("Spine order: {}", this.spineOrder);
 
-        Formatter.logger.debug("Create general layer");
-        Element ieee1599 = createGeneralLayer();
+        this.durationCompositions = new DurationCompositions(metreInNumbers, compositionDraw);
+        Formatter.logger.info("Composition draw: {}", compositionDraw);
 
-        Formatter.logger.debug("Create logic layer");
-        createLogicLayer(ieee1599);
+        this.partThreads = partThreads;
+        Formatter.logger.info("Part threads: {}", this.partThreads);
+
+        this.partsPool = null;
     }
 
     /**
      * <p>
-     * adds logic layer elements to the IEEE1599 document
+     * creates a formatter with the same inputs as the input one, sharing them
+     * and the tables computed from them without logging them again
      * </p>
      *
-     * @param ieee1599 the element whose logic layer is to be added
-     */
-    private void createLogicLayer(Element ieee1599) {
-        Element logic = FormatterUtils.addElementAndReturnIt(this.document, ieee1599, "logic");
-
-        Formatter.logger.debug("Create spine container");
-        createSpineContainer(logic);
-
-        Formatter.logger.debug("Create los container");
-        createLosContainer(logic);
+     * @param formatter the formatter whose inputs are shared
+     * @param seed the seed for the random object
+     * @param partsPool the pool formatting the parts concurrently, or null to
+     * create a new pool for each document
+     */
+    protected Formatter(Formatter formatter, long seed, ForkJoinPool partsPool) {
+        this.seed = seed;
+        this.creator = formatter.creator;
+        this.docVersion = formatter.docVersion;
+        this.title = formatter.title;
+        this.author = formatter.author;
+        this.instrumentsNumber = formatter.instrumentsNumber;
+        this.eventsNumbers = new int[formatter.instrumentsNumber];
+        this.eventsNumbersInAMeasure = new int[formatter.instrumentsNumber];
+        this.instruments = formatter.instruments;
+        this.clefs = formatter.clefs;
+        this.clefsSteps = formatter.clefsSteps;
+        this.accidentalMap = formatter.accidentalMap;
+        this.allNotesMap = formatter.allNotesMap;
+        this.pitchTable = formatter.pitchTable;
+        this.metreInNumbers = formatter.metreInNumbers;
+        this.measuresNumber = formatter.measuresNumber;
+        this.irregularGroupsMap = formatter.irregularGroupsMap;
+        this.randomStreams = formatter.randomStreams;
+        this.spineOrder = formatter.spineOrder;
+        this.durationCompositions = formatter.durationCompositions;
+        this.partThreads = formatter.partThreads;
+        this.partsPool = partsPool;
     }
 
     /**
      * <p>
-     * adds los container elements to the logic layer of the IEEE1599 document
+     * formats the IEEE1599 document into a DOM document
      * </p>
      *
-     * @param logic the element to be created and whose events are to be added
-     * as attributes
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
      */
-    private void createLosContainer(Element logic) {
-        Element los = FormatterUtils.addElementAndReturnIt(this.document, logic, "los");
-
-        Element staffList = FormatterUtils.addElementAndReturnIt(this.document, los, "staff_list");
-
-        for (int i = 0; i < this.instrumentsNumber; i++) {
-            Formatter.logger.info("INSTRUMENT " + (i + 1));
+    public void format() throws ParserConfigurationException {
 
-            addStaffListComponents(i, staffList);
+        Formatter.logger.debug("Create document");
+        DomScoreWriter domScoreWriter = new DomScoreWriter();
 
-            Formatter.logger.debug("Create part element");
-            createPartElement(i, los);
-        }
+        format(domScoreWriter);
+        this.document = domScoreWriter.getDocument();
     }
 
     /**
      * <p>
-     * creates the part element
+     * formats the IEEE1599 document, passing its elements to the input writer
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param los the element whose child is to be appended
-     *
+     * @param writer the writer receiving the elements of the document
      */
-    private void createPartElement(int i, Element los) {
-        Element part = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, los, "part", "id", "Instrument_" + i);
-
-        Formatter.logger.debug("Create voice list container");
-        createVoiceListContainer(part, i);
-
-        Formatter.logger.debug("Create measure elements");
-        createMeasureElements(part, i);
+    public void format(ScoreWriter writer) {
+        generate().writeTo(writer);
     }
 
     /**
      * <p>
-     * creates the measure elements
+     * generates the score of the IEEE1599 document
      * </p>
      *
-     * @param part the element whose child is to be appended
-     * @param i the index of the instruments number
-     *
+     * @return the generated score
      */
-    private void createMeasureElements(Element part, int i) {
-
-        // random number of notes played by the actual instrument
-        int notesNumber = this.randomizer.getRandomInteger(1, this.instruments.get(i).getMaxNumberOfPlayedNotes());
-        Formatter.logger.info("Notes number: " + notesNumber);
-
-        if (notesNumber > this.randomEventsPerInstrumentMap.get(i)[0]) {
-            notesNumber = this.randomEventsPerInstrumentMap.get(i)[0];
-        }
-
-        // random number of rests of the actual instrument
-        int restsNumber = this.randomEventsPerInstrumentMap.get(i)[0] - notesNumber;
-        Formatter.logger.info("Events number: " + this.randomEventsPerInstrumentMap.get(i)[0]);
-        Formatter.logger.info("Rests number: " + restsNumber);
-
-        List<Character> notesAndRests = createNotesAndRestsList(this.randomEventsPerInstrumentMap.get(i)[0], notesNumber, restsNumber);
-        this.randomizer.shuffleList(notesAndRests);
-        Formatter.logger.info("Total of notes and rests: " + notesAndRests.size());
-
-        for (int j = 1; j <= this.measuresNumber; j++) {
-            Formatter.logger.info("MEASURE " + j);
-
-            Element measure = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, part, "measure", "number", "" + j);
-
-            Formatter.logger.debug("Create voice element");
-            createVoiceElement(i, measure, j, notesAndRests);
-        }
+    public Score generate() {
+        return generate(null);
     }
 
     /**
      * <p>
-     * creates the voice elements
+     * generates the score of the IEEE1599 document, adding the durations and
+     * the allocations of its phases to the input metrics
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param measure the element whose child is to be appended
-     * @param j the index of the measures number
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
      *
+     * @return the generated score
      */
-    private void createVoiceElement(int i, Element measure, int j, List<Character> notesAndRests) {
-        Formatter.logger.debug("Add voice element");
-        Element voice = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, measure, "voice", "voice_item_ref", "Instrument_" + (i + 1) + "_0_voice");
-
-        // pick from allNotesMap the corresponding float to the note name
-        float minHeight = getFloatFromNoteName(this.instruments.get(i).getMinHeight().replaceAll("\\d", ""));
-        float maxHeight = getFloatFromNoteName(this.instruments.get(i).getMaxHeight().replaceAll("\\d", ""));
-
-        float randomPitch = this.randomizer.getRandomFloat(minHeight, maxHeight);
-        Formatter.logger.info("Random pitch: " + randomPitch);
-
-        // random number of notes in a chord
-        int notesInAChord = this.randomizer.getRandomInteger(1, this.instruments.get(i).getMaxNumberOfNotesInAChord());
-        Formatter.logger.info("Notes in a chord: " + notesInAChord);
-
-        // list of notes represented as double
-        List<Double> notesMapKeysList = new ArrayList<>(this.instruments.get(i).getNotesMap().keySet());
-
-        int eventsNumberInAMeasure = this.randomEventsPerInstrumentMap.get(i)[1];
-        Formatter.logger.info("Events number in a measure: " + eventsNumberInAMeasure);
-
-        // compute a selection of the correct musical figures for the actual measure
-        List<Double> correctNotesAndRests = selectCorrectNotesAndRests(i, eventsNumberInAMeasure, notesMapKeysList);
-
-        for (int k = 0; k < eventsNumberInAMeasure; k++) {
-
-            if (!notesAndRests.isEmpty()) {
-                char actualCharacter = notesAndRests.remove(0);
-
-                if (actualCharacter == 'N') {
-                    Formatter.logger.debug("Create chord elements");
-                    createChordElements(i, j, k, voice, notesInAChord, correctNotesAndRests, randomPitch);
-
-                } else {
-                    Formatter.logger.debug("Create rest elements");
-                    createRestElements(i, j, k, voice, correctNotesAndRests);
-                }
-            }
-        }
+    public Score generate(GenerationMetrics metrics) {
+        return generate(metrics, null);
     }
 
     /**
      * <p>
-     * selects the correct notes and rests
+     * generates the score of the IEEE1599 document as the method without
+     * listener, passing each part to the input listener as soon as it is
+     * formatted: in instrument order with SHARED random streams, and in any
+     * order, from the threads formatting them, with SPLIT or KEYED random
+     * streams
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param eventsNumberInAMeasure the number of events in the actual measure
-     * @param notesMapKeysList the list of notes represented as double
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     * @param partListener the listener of the formatted parts, or null
      *
-     * @return the list of correct notes and rests
-     */
-    private List<Double> selectCorrectNotesAndRests(int i, int eventsNumberInAMeasure, List<Double> notesMapKeysList) {
-        List<Double> correctNotesAndRests;
-        double timesMinDurationInMeasure = ((double) this.metreInNumbers[0] / this.metreInNumbers[1]) * this.instruments.get(i).getMinDuration()[1];
-        double timesMaxDurationInMeasure = ((double) this.metreInNumbers[0] / this.metreInNumbers[1]) * this.instruments.get(i).getMaxDuration()[1];
-        if (timesMinDurationInMeasure < eventsNumberInAMeasure) {
-            correctNotesAndRests = new ArrayList<>();
-        } else if (timesMaxDurationInMeasure > eventsNumberInAMeasure) {
-            correctNotesAndRests = new ArrayList<>();
-        } else if (timesMinDurationInMeasure == eventsNumberInAMeasure) {
-            correctNotesAndRests = new ArrayList<>(Collections.nCopies(eventsNumberInAMeasure, (double) this.instruments.get(i).getMinDuration()[0] / this.instruments.get(i).getMinDuration()[1]));
-        } else if (timesMaxDurationInMeasure == eventsNumberInAMeasure) {
-            correctNotesAndRests = new ArrayList<>(Collections.nCopies(eventsNumberInAMeasure, (double) this.instruments.get(i).getMaxDuration()[0] / this.instruments.get(i).getMaxDuration()[1]));
-
-        } else {
-            correctNotesAndRests = selectNotes(eventsNumberInAMeasure, notesMapKeysList, this.instruments.get(i).getMinDuration()[1]);
-        }
-        this.randomizer.shuffleList(correctNotesAndRests);
-        Formatter.logger.info("Correct notes and rests: " + correctNotesAndRests.stream().map(Object::toString).collect(Collectors.joining(", ")));
+     * @return the generated score
+     */
+    public Score generate(GenerationMetrics metrics, Consumer<ScorePart> partListener) {
+        DocumentJfrEvent event = new DocumentJfrEvent();
+        event.begin();
+        this.metrics = metrics;
+        this.partListener = partListener;
+        this.score = new Score(this.creator, this.docVersion, this.title, this.author, this.metreInNumbers, this.instrumentsNumber, this.measuresNumber);
+        this.randomizer = this.randomStreams == RandomStreams.KEYED ? Randomizer.keyed(this.seed) : new Randomizer(this.seed);
 
-        return correctNotesAndRests;
-    }
+        Formatter.logger.debug("Create logic layer");
+        createLogicLayer();
 
-    /**
-     * <p>
-     * gets the float, contained in the allNotesMap, corresponding to the note
-     * name
-     * </p>
-     *
-     * @param minOrMaxHeight the string representing the note name
-     *
-     * @return the height of the input note
-     */
-    private float getFloatFromNoteName(String minOrMaxHeight) {
-        float height = 0f;
-        for (Map.Entry<Float, List<String>> e : this.allNotesMap.entrySet()) {
-            if (e.getValue().contains(minOrMaxHeight)) {
-                height = e.getKey();
-                break;
-            }
+        if (event.shouldCommit()) {
+            event.set(this.seed, this.randomStreams, this.spineOrder, this.durationCompositions.getCompositionDraw(), this.score);
+            event.commit();
         }
-        return height;
+        return this.score;
     }
 
     /**
      * <p>
-     * selects the correct musical figures for the actual measure
+     * generates again a range of measures of the part of an instrument in a
+     * score generated with the same seed, reusing its spine and the other
+     * parts, and replacing the part of the instrument in the score.
      * </p>
-     *
-     * @param eventsNumberInAMeasure the number of events in a measure
-     * @param notesMapKeysList the list of notes represented as double
-     * @param minDuration the minimum duration of the musical figures
-     *
-     * @return the list of the selected musical figures
-     */
-    private List<Double> selectNotes(int eventsNumberInAMeasure, List<Double> notesMapKeysList, int minDuration) {
-        List<Double> correctNotes = new ArrayList<>();
-        double remainingDuration = (double) (this.metreInNumbers[0]) / this.metreInNumbers[1];
-        int remainingEvents = eventsNumberInAMeasure;
-        int notesMapKeysListIndex = 0;
-
-        while (remainingDuration > 0.001) {
-
-            double noteKey = notesMapKeysList.get(notesMapKeysListIndex);
-            // subtract from remainingDuration the duration of the note being considered
-            remainingDuration -= noteKey;
-            // subtract from remainingEvents an event considered as played
-            remainingEvents--;
-
-            if ((remainingDuration * minDuration) >= remainingEvents) {
-                // case where one or more notes used manage to complete the measure
-                correctNotes.add(noteKey);
-
-            } else {
-                // case where one or more of the notes used fail to complete the measure and the notesMapKeysListIndex, the remainingDuration and the remainingEvents are restored
-                notesMapKeysListIndex++;
-                remainingDuration += noteKey;
-                remainingEvents++;
-            }
-        }
-
-        return correctNotes;
-    }
-
-    /**
      * <p>
-     * creates the rest elements
+     * The parameters of the instrument may differ from the ones of the score,
+     * as long as its number of events in a measure does not change, and the
+     * timings of the spine events of the range follow the generated measures.
+     * The entire part can be generated again with SPLIT or KEYED random
+     * streams, while a smaller range needs KEYED random streams, so that it
+     * gets the same measures of the entire part.
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param j the index of the measures number
-     * @param k the index of the events number in the actual measure
-     * @param voice the element whose child is to be appended
-     * @param correctNotesAndRests the correct notes and rests list
+     * @param score the score generated with the same seed and inputs
+     * @param instrument the instrument number
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
      *
-     * @throws NoSuchElementException if there is a configuration error
+     * @return the input score, with the generated part of the instrument
+     *
+     * @throws IllegalArgumentException if the instrument or the range do not
+     * exist, or if the score was not generated with the same seed and numbers
+     * of events in a measure
+     * @throws IllegalStateException if the random streams do not allow the
+     * range to be generated on its own
      */
-    private void createRestElements(int i, int j, int k, Element voice, List<Double> correctNotesAndRests) {
-        String eventRef = "Instrument_" + (i + 1) + "_voice0_measure" + j + "_ev" + k;
+    public Score regenerate(Score score, int instrument, int firstMeasure, int lastMeasure) {
+        if (instrument < 1 || instrument > this.instrumentsNumber) {
+            throw new IllegalArgumentException(" the instrument " + instrument + " does not exist, the instruments are 1 to " + this.instrumentsNumber);
+        }
+        if (firstMeasure < 1 || firstMeasure > lastMeasure || lastMeasure > this.measuresNumber) {
+            throw new IllegalArgumentException(" the measures " + firstMeasure + " to " + lastMeasure + " are not a range of the measures 1 to " + this.measuresNumber);
+        }
+        if (this.randomStreams == RandomStreams.SHARED) {
+            throw new IllegalStateException(" a part can be generated again only with SPLIT or KEYED random streams, since with SHARED random streams it depends on the previous parts");
+        }
+        if (this.randomStreams == RandomStreams.SPLIT && (firstMeasure > 1 || lastMeasure < this.measuresNumber)) {
+            throw new IllegalStateException(" a range of measures can be generated again only with KEYED random streams, since with SPLIT random streams each measure depends on the previous ones");
+        }
+        if (score.getInstrumentsNumber() != this.instrumentsNumber || score.getMeasuresNumber() != this.measuresNumber
+                || !Arrays.equals(score.getMetreInNumbers(), this.metreInNumbers)) {
+            throw new IllegalArgumentException(" the score has " + score.getInstrumentsNumber() + " instruments and " + score.getMeasuresNumber() + " measures, "
+                    + "while the inputs have " + this.instrumentsNumber + " instruments and " + this.measuresNumber + " measures, or the metre is different");
+        }
+        Formatter.logger.info("Generate again the measures {} to {} of the instrument {}", firstMeasure, lastMeasure, instrument);
 
-        // there is only one event that corresponds to the actual instrument in the actual measure, so if everything has been correctly configured, the Optional can never be empty
-        Optional<Element> optionalEvent = this.eventsList.stream().filter(e -> e.getAttribute("id").contains(eventRef)).findAny();
-        if (optionalEvent.isEmpty()) {
-            Formatter.logger.error("The event " + k + " corresponding to the instrument " + (i + 1) + " in the measure " + j + " does not exist");
-            throw new NoSuchElementException(" the event " + k + " corresponding to the instrument " + (i + 1) + " in the measure " + j + " does not exist");
+        // the numbers of events are the first values drawn by the spine, so they are drawn again without the rest of the spine
+        this.randomizer = this.randomStreams == RandomStreams.KEYED ? Randomizer.keyed(this.seed) : new Randomizer(this.seed);
+        defineEventsNumbers();
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            if (score.getEventsNumberInAMeasure(i) != this.eventsNumbersInAMeasure[i - 1]) {
+                throw new IllegalArgumentException(" the instrument " + i + " has " + this.eventsNumbersInAMeasure[i - 1] + " events in a measure, while the spine of the score has "
+                        + score.getEventsNumberInAMeasure(i) + ", so the score was generated with another seed or another minimum duration");
+            }
         }
-        Element event = optionalEvent.get();
-        Formatter.logger.info("Event: " + eventRef);
 
-        if (!correctNotesAndRests.isEmpty()) {
-            Formatter.logger.debug("Add rest element");
-            Element rest = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, voice, "rest", "event_ref", eventRef);
+        Randomizer partRandomizer = null;
+        SplittableRandom streams = new SplittableRandom(this.seed);
+        for (int i = 0; i < instrument; i++) {
+            partRandomizer = createPartRandomizer(streams);
+        }
 
-            double randomNote = correctNotesAndRests.remove(0);
-            Formatter.logger.info("Random note: " + randomNote);
+        this.score = score;
+        ScorePart previousPart = score.getPart(instrument);
+        score.clearEventTimings(instrument, firstMeasure, lastMeasure);
+        PartFormatter partFormatter = createPartFormatter(instrument - 1, partRandomizer);
+        ScorePart part = score.getPart(instrument);
 
-            createRestDurationElement(i, randomNote, rest, k, event);
-        } else {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementToDocument(this.document, "duration");
-            FormatterUtils.setAttributeOfElement(duration, "den", "");
-            FormatterUtils.setAttributeOfElement(duration, "num", "");
+        part.copyMeasures(previousPart, 1, firstMeasure - 1);
+        partFormatter.format(firstMeasure, lastMeasure);
+        part.copyMeasures(previousPart, lastMeasure + 1, this.measuresNumber);
 
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
+        if (this.spineOrder == SpineOrder.TIME) {
+            // the events of the instrument may start at other times
+            score.orderSpineByTime();
         }
+        return score;
     }
 
     /**
      * <p>
-     * creates the duration element for the rest one
+     * adds logic layer elements to the IEEE1599 document
      * </p>
-     *
-     * @param i the index of the instruments number
-     * @param randomNote the index of the notes and rests number
-     * @param rest the element whose child is to be appended
-     * @param k the index of the events number in the actual measure
-     * @param event the element whose attributes are to be added
-     *
      */
-    private void createRestDurationElement(int i, double randomNote, Element rest, int k, Element event) {
-        if (randomNote == 1) {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, rest, "duration", "den", "" + metreInNumbers[1], "num", "" + metreInNumbers[0]);
-
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
-
-        } else {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, rest, "duration", "den", "" + this.instruments.get(i).getNotesMap().get(randomNote)[1], "num", "" + 1);
+    private void createLogicLayer() {
+        Formatter.logger.debug("Create spine container");
+        SpineJfrEvent spineEvent = new SpineJfrEvent();
+        spineEvent.begin();
+        long start = System.nanoTime();
+        long allocated = GenerationMetrics.allocatedBytes();
+        createSpineContainer();
+        addPhase(GenerationMetrics.Phase.SPINE, start, allocated);
+        commit(spineEvent, false);
 
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
+        Formatter.logger.debug("Create los container");
+        start = System.nanoTime();
+        createLosContainer();
+        // the allocations of the parts are added by each part, on the thread formatting it
+        addPhase(GenerationMetrics.Phase.PARTS, start, GenerationMetrics.allocatedBytes());
+
+        if (this.spineOrder == SpineOrder.TIME) {
+            Formatter.logger.debug("Order the spine events by time");
+            SpineJfrEvent orderEvent = new SpineJfrEvent();
+            orderEvent.begin();
+            start = System.nanoTime();
+            allocated = GenerationMetrics.allocatedBytes();
+            this.score.orderSpineByTime();
+            addPhase(GenerationMetrics.Phase.SPINE_ORDER, start, allocated);
+            commit(orderEvent, true);
         }
     }
 
     /**
      * <p>
-     * creates the chord elements
+     * commits the flight recorder event of the spine, if it is recorded
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param j the index of the measures number
-     * @param k the index of the events number in the actual measure
-     * @param voice the element whose child is to be appended
-     * @param notesInAChord the number of notes in a chord
-     * @param correctNotesAndRests the correct notes and rests list
-     * @param randomPitch the random pitch
-     *
-     * @throws NoSuchElementException if there is a configuration error
+     * @param event the event of the spine
+     * @param timeMerge whether the spine events have been merged by time
      */
-    private void createChordElements(int i, int j, int k, Element voice, int notesInAChord, List<Double> correctNotesAndRests, float randomPitch) {
-        String eventRef = "Instrument_" + (i + 1) + "_voice0_measure" + j + "_ev" + k;
-
-        // there is only one event that corresponds to the actual instrument in the actual measure, so if everything has been correctly configured, the Optional can never be empty
-        Optional<Element> optionalEvent = this.eventsList.stream().filter(e -> e.getAttribute("id").contains(eventRef)).findAny();
-        if (optionalEvent.isEmpty()) {
-            Formatter.logger.error("The event " + k + " corresponding to the instrument " + (i + 1) + " in the measure " + j + " does not exist");
-            throw new NoSuchElementException(" the event " + k + " corresponding to the instrument " + (i + 1) + " in the measure " + j + " does not exist");
-        }
-        Element event = optionalEvent.get();
-        Formatter.logger.info("Event: " + eventRef);
-
-        if (!correctNotesAndRests.isEmpty()) {
-            Formatter.logger.debug("Add chord element");
-            Element chord = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, voice, "chord", "event_ref", eventRef);
-
-            double randomNote = correctNotesAndRests.remove(0);
-            Formatter.logger.info("Random note: " + randomNote);
-
-            // random irregular group from the map
-            int irregularGroup = this.randomizer.getRandomIntFromMap(this.irregularGroupsMap);
-            Formatter.logger.info("Irregular group: " + irregularGroup + "/" + this.metreInNumbers[1] * this.irregularGroupsMap.get(irregularGroup));
-
-            createChordDurationElement(i, randomNote, chord, k, event, irregularGroup);
-
-            createNoteheadElements(notesInAChord, chord, randomPitch, i);
-        } else {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementToDocument(this.document, "duration");
-            FormatterUtils.setAttributeOfElement(duration, "den", "");
-            FormatterUtils.setAttributeOfElement(duration, "num", "");
-
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
+    private void commit(SpineJfrEvent event, boolean timeMerge) {
+        if (event.shouldCommit()) {
+            event.set(this.spineOrder, timeMerge, this.score);
+            event.commit();
         }
     }
 
     /**
      * <p>
-     * creates the notehead element
+     * adds the duration and the allocations of a phase to the metrics of the
+     * document, if it is measured
      * </p>
      *
-     * @param notesInAChord the number of notes in a chord
-     * @param chord the element whose child is to be appended
-     * @param randomPitch the random pitch
-     * @param i the index of the instruments number
-     *
+     * @param phase the phase
+     * @param start the time at which the phase started
+     * @param allocated the bytes allocated by the thread when the phase
+     * started
      */
-    private void createNoteheadElements(int notesInAChord, Element chord, float randomPitch, int i) {
-        for (int n = 1; n <= notesInAChord; n++) {
-            Formatter.logger.debug("Add notehead element");
-            Element notehead = FormatterUtils.addElementAndReturnIt(this.document, chord, "notehead");
-
-            Formatter.logger.debug("Add pitch element");
-            addPitchElement(randomPitch, notehead, i);
+    private void addPhase(GenerationMetrics.Phase phase, long start, long allocated) {
+        if (this.metrics != null) {
+            this.metrics.addPhase(phase, System.nanoTime() - start, GenerationMetrics.allocatedBytes() - allocated);
         }
     }
 
     /**
      * <p>
-     * creates the duration element for the chord one
+     * formats the part of an instrument, adding its duration and allocations
+     * to the metrics of the document, if it is measured, and recording its
+     * flight recorder event, if it is recorded
      * </p>
      *
-     * @param i the index of the instruments number
-     * @param randomNote the random note
-     * @param chord the element whose child is to be appended
-     * @param k the index of the events number in the actual measure
-     * @param event the element whose attributes are to be added
-     * @param irregularGroup the irregular group
-     *
+     * @param instrument the instrument number
+     * @param partFormatter the formatter of the part
      */
-    private void createChordDurationElement(int i, double randomNote, Element chord, int k, Element event, int irregularGroup) {
-        if (randomNote == 1) {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, chord, "duration", "den", "" + metreInNumbers[1], "num", "" + metreInNumbers[0]);
-
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
-
-            additionForIrregularGroupsPresence(this.instruments.get(i).getAreIrregularGroupsPresent(), duration, "tuplet_ratio", "enter_num", "" + irregularGroup, "enter_den", "" + this.metreInNumbers[1] * this.irregularGroupsMap.get(irregularGroup), "in_num", "" + 1, "in_den", "" + this.metreInNumbers[1]);
-
+    private void formatPart(int instrument, PartFormatter partFormatter) {
+        PartJfrEvent event = new PartJfrEvent();
+        event.begin();
+        if (this.metrics == null) {
+            partFormatter.format();
         } else {
-            Formatter.logger.debug("Add duration element");
-            Element duration = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, chord, "duration", "den", "" + instruments.get(i).getNotesMap().get(randomNote)[1], "num", "" + 1);
-
-            Formatter.logger.debug("Add event attributes of duration element");
-            addEventAttributes(i, k, event, duration);
+            long start = System.nanoTime();
+            long allocated = GenerationMetrics.allocatedBytes();
+            partFormatter.format();
+            this.metrics.addPart(instrument, System.nanoTime() - start, GenerationMetrics.allocatedBytes() - allocated);
+        }
 
-            additionForIrregularGroupsPresence(this.instruments.get(i).getAreIrregularGroupsPresent(), duration, "tuplet_ratio", "enter_num", "" + irregularGroup, "enter_den", "" + this.metreInNumbers[1] * this.irregularGroupsMap.get(irregularGroup), "in_num", "" + 1, "in_den", "" + this.instruments.get(i).getNotesMap().get(randomNote)[1]);
+        if (event.shouldCommit()) {
+            event.set(instrument, this.instruments.get(instrument - 1), this.eventsNumbers[instrument - 1], this.eventsNumbersInAMeasure[instrument - 1], this.score.getPart(instrument));
+            event.commit();
+        }
+        if (this.partListener != null) {
+            this.partListener.accept(this.score.getPart(instrument));
         }
     }
 
     /**
      * <p>
-     * creates the voice_list container
+     * adds los container elements to the logic layer of the IEEE1599 document
      * </p>
-     *
-     * @param part the element whose voice_list container is to be appended
-     * @param i the index of the instruments number
-     *
      */
-    private void createVoiceListContainer(Element part, int i) {
-        Formatter.logger.debug("Add voice_list element");
-        Element voiceList = FormatterUtils.addElementAndReturnIt(this.document, part, "voice_list");
+    private void createLosContainer() {
+        if (this.randomStreams == RandomStreams.SHARED) {
+            for (int i = 0; i < this.instrumentsNumber; i++) {
+                Formatter.logger.debug("Create part element");
+                formatPart(i + 1, createPartFormatter(i, this.randomizer));
+            }
+            return;
+        }
 
-        Formatter.logger.debug("Add voice_item element");
-        FormatterUtils.addElementAndSetTwoAttributes(this.document, voiceList, "voice_item", "id", "Instrument_" + (i + 1) + "_0_voice", "staff_ref", "Instrument_" + (i + 1) + "_staff");
-    }
+        // the streams are split in instrument order before formatting any part, so that they do not depend on the threads
+        SplittableRandom streams = new SplittableRandom(this.seed);
+        List<Callable<Void>> tasks = new ArrayList<>(this.instrumentsNumber);
+        for (int i = 0; i < this.instrumentsNumber; i++) {
+            int instrument = i + 1;
+            PartFormatter partFormatter = createPartFormatter(i, createPartRandomizer(streams));
+            tasks.add(() -> {
+                formatPart(instrument, partFormatter);
+                return null;
+            });
+        }
 
-    /**
-     * <p>
-     * creates a unique list of notes and rests and rests
-     * </p>
-     *
-     * @param eventsNumber the total number of events
-     * @param notesNumberInAMeasure the total number of notes
-     * @param restsNumberInAMeasure the total number of rests
-     *
-     * @return the list of characters containing notes (denoted with 'N') and
-     * rests (denoted with 'R')
-     */
-    private List<Character> createNotesAndRestsList(int eventsNumber, int notesNumberInAMeasure, int restsNumberInAMeasure) {
-        List<Character> notesAndRests = new ArrayList<>();
-        int countNotes = 0, countRests = 0;
+        Formatter.logger.debug("Create part elements with {} threads", this.partThreads);
+        if (this.partThreads <= 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception ex) {
+                    throw partFailure(ex);
+                }
+            }
+            return;
+        }
 
-        for (int e = 0; e < eventsNumber; e++) {
-            while (countNotes < notesNumberInAMeasure) {
-                notesAndRests.add('N');
-                countNotes++;
+        ForkJoinPool pool = this.partsPool != null ? this.partsPool : new ForkJoinPool(this.partThreads);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
             }
-            while (countRests < restsNumberInAMeasure) {
-                notesAndRests.add('R');
-                countRests++;
+        } catch (ExecutionException ex) {
+            throw partFailure(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw partFailure(ex);
+        } finally {
+            if (pool != this.partsPool) {
+                pool.shutdownNow();
             }
         }
-        return notesAndRests;
     }
 
     /**
      * <p>
-     * adds staff_list components
+     * creates the formatter of the part of an instrument, starting its part in
+     * the score
      * </p>
      *
-     * @param i the index of the instruments
-     * @param staffList the element whose components are to be added
+     * @param i the index of the instruments number
+     * @param randomizer the randomizer of the part
      *
+     * @return the created formatter
      */
-    private void addStaffListComponents(int i, Element staffList) {
-        Formatter.logger.debug("Add staff element");
-        Element staff = FormatterUtils.addElementAndSetTwoAttributesReturningTheElement(this.document, staffList, "staff", "id", "Instrument_" + (i + 1) + "_staff", "line_number", "" + DEFAULT_LINES_NUMBER);
-
-        Formatter.logger.debug("Add time_signature element");
-        Element timeSignature = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, staff, "time_signature", "event_ref", "TimeSignature_Instrument_" + (i + 1) + "_1");
-
-        Formatter.logger.debug("Add time_indication element");
-        FormatterUtils.addElementAndSetTwoAttributes(this.document, timeSignature, "time_indication", "den", "" + this.metreInNumbers[1], "num", "" + this.metreInNumbers[0]);
-
-        Formatter.logger.debug("Add clef element");
-        FormatterUtils.addElementAndSetFourAttributes(this.document, staff, "clef", "event_ref", "Clef_Instrument_" + (i + 1) + "_1", "shape", "" + this.randomizer.getRandomElementFromList(this.clefs), "staff_step", "" + this.randomizer.getRandomElementFromList(this.clefsSteps), "octave_num", "" + 0);
-
+    private PartFormatter createPartFormatter(int i, Randomizer randomizer) {
+        return new PartFormatter(i + 1, this.instruments.get(i), this.eventsNumbers[i], this.eventsNumbersInAMeasure[i], randomizer, this.score.startPart(i + 1), this.clefs, this.clefsSteps, this.pitchTable, this.metreInNumbers, this.measuresNumber, this.irregularGroupsMap, this.durationCompositions);
     }
 
     /**
      * <p>
-     * adds spine container elements to the logic layer of the IEEE1599 document
+     * creates the randomizer of the next part, when the parts do not share the
+     * randomizer of the spine
      * </p>
      *
-     * @param logic the element to be created and whose events are to be added
-     * as attributes
-     */
-    private void createSpineContainer(Element logic) {
-        Formatter.logger.debug("Add spine element");
-        Element spine = FormatterUtils.addElementAndReturnIt(this.document, logic, "spine");
-
-        Formatter.logger.debug("Add the first events to the spine container");
-        defineFirstEvents(spine, "Instrument_", "_voice0_measure1_ev0");
-        defineFirstEvents(spine, "TimeSignature_Instrument_", "_1");
-        defineFirstEvents(spine, "Clef_Instrument_", "_1");
-
-        createEvents(spine);
-    }
-
-    /**
-     * <p>
-     * adds general layer elements to the IEEE1599 document
-     * </p>
+     * @param streams the streams split in instrument order, one for each part
      *
-     * @return the first Element of the General layer
+     * @return the created randomizer
      */
-    private Element createGeneralLayer() {
-        Formatter.logger.debug("Add ieee1599 element");
-        Element ieee1599 = FormatterUtils.addIeee1599Element(this.document, this.creator, this.docVersion);
-
-        Formatter.logger.debug("Add general element");
-        Element general = FormatterUtils.addElementAndReturnIt(this.document, ieee1599, "general");
-
-        Formatter.logger.debug("Add description element");
-        Element description = FormatterUtils.addElementAndReturnIt(this.document, general, "description");
-
-        Formatter.logger.debug("Add main_title element");
-        FormatterUtils.addElementAndSetTextContext(this.document, description, "main_title", this.title);
-        Formatter.logger.debug("Add author element");
-        FormatterUtils.addElementAndSetTextContext(this.document, description, "author", this.author);
-
-        return ieee1599;
+    private Randomizer createPartRandomizer(SplittableRandom streams) {
+        return this.randomStreams == RandomStreams.KEYED ? Randomizer.keyed(this.seed) : new Randomizer(streams.split().nextLong());
     }
 
     /**
      * <p>
-     * adds the irregular groups element
+     * wraps the exception thrown while formatting a part, logging it
      * </p>
      *
-     * @param areIrregularGroupsPresent the boolean that indicates the presence
-     * or absece of the irregular groups
-     * @param element the element whose child is to be appended
-     * @param childName the string constituting the name of the child
-     * @param firstAttributeName the string constituting the first attribute
-     * name
-     * @param firstAttributeValue the string constituting the first attribute
-     * value
-     * @param secondAttributeName the string constituting the second attribute
-     * name
-     * @param secondAttributeValue the string constituting the second attribute
-     * @param thirdAttributeName the string constituting the third attribute
-     * name
-     * @param thirdAttributeValue the string constituting the third attribute
-     * value
-     * @param fourthAttributeName the string constituting the fourth attribute
-     * name
-     * @param fourthAttributeValue the string constituting the fourth attribute
-     * value
+     * @param ex the exception thrown while formatting a part
      *
+     * @return the exception to throw
      */
-    private void additionForIrregularGroupsPresence(boolean areIrregularGroupsPresent, Element element, String childName, String firstAttributeName, String firstAttributeValue, String secondAttributeName, String secondAttributeValue, String thirdAttributeName, String thirdAttributeValue, String fourthAttributeName, String fourthAttributeValue) {
-
-        if (areIrregularGroupsPresent) {
-            Formatter.logger.debug("Add irregular group elements");
-            if (this.randomizer.getRandomBoolean()) {
-                FormatterUtils.addElementAndSetFourAttributes(this.document, element, childName, firstAttributeName, firstAttributeValue, secondAttributeName, secondAttributeValue, thirdAttributeName, thirdAttributeValue, fourthAttributeName, fourthAttributeValue);
-
-            }
+    private static RuntimeException partFailure(Throwable ex) {
+        if (ex instanceof RuntimeException) {
+            return (RuntimeException) ex;
         }
+        Formatter.logger.error(ex.getClass() + " : a part cannot be formatted");
+        return new IllegalStateException(" a part cannot be formatted", ex);
     }
 
     /**
      * <p>
-     * adds attributes of an event
+     * adds spine container elements to the logic layer of the IEEE1599 document
      * </p>
-     *
-     * @param i the index i of the instruments number
-     * @param k the index k of the events number in the actual measure
-     * @param event the element whose attributes are to be added
-     * @param duration the element to use to control the presence or absence of
-     * the attribute "den" to assign the corresponding "timing" and "hpos"
-     *
      */
-    private void addEventAttributes(int i, int k, Element event, Element duration) {
-        if (k > 0 && !"".equals(duration.getAttribute("den"))) {
-            FormatterUtils.setAttributeOfElement(event, "timing", "" + this.instruments.get(i).getMinimumDelay() * (instruments.get(i).getMinDuration()[1] / Integer.parseInt(duration.getAttribute("den"))));
-            FormatterUtils.setAttributeOfElement(event, "hpos", "" + this.instruments.get(i).getMinimumDelay() * (instruments.get(i).getMinDuration()[1] / Integer.parseInt(duration.getAttribute("den"))));
-        } else {
-            FormatterUtils.setAttributeOfElement(event, "timing", "" + 0);
-            FormatterUtils.setAttributeOfElement(event, "hpos", "" + 0);
+    private void createSpineContainer() {
+        Formatter.logger.debug("Add the first events to the spine container");
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            this.score.addVoiceEvent(i, 1, 0);
         }
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            this.score.addTimeSignatureEvent(i);
+        }
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            this.score.addClefEvent(i);
+        }
+
+        createEvents();
     }
 
     /**
      * <p>
-     * adds the pitch element computing it
+     * creates the events for each random instrument
      * </p>
      *
-     * @param randomPitch the randomly selected pitch
-     * @param notehead the element whose whose pitch element is to be added
-     * @param i the index of the instruments number
-     *
      */
-    private void addPitchElement(float randomPitch, Element notehead, int i) {
-
-        String randomAccidental = this.randomizer.getRandomStringFromMap(accidentalMap);
-
-        Element pitch = FormatterUtils.addElementToDocument(this.document, "pitch");
-
-        int randomOctave = this.randomizer.getRandomInteger(Integer.parseInt(this.instruments.get(i).getMinHeight().replaceAll("[^\\d-]", "")), Integer.parseInt(this.instruments.get(i).getMaxHeight().replaceAll("[^\\d-]", "")));
-
-        randomPitch += this.accidentalMap.get(randomAccidental);
-        randomPitch %= PITCHES_NUMBER;
-        if (randomPitch < 0) {
-            randomPitch += PITCHES_NUMBER;
+    private void createEvents() {
+        defineEventsNumbers();
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            this.score.setEventsNumberInAMeasure(i, this.eventsNumbersInAMeasure[i - 1]);
         }
-
-        // get from the allNotesMap the corresponding maximum height for the actual random pitch
-        float maxHeightPitch = getFloatFromNoteName(this.instruments.get(i).getMaxHeight().replaceAll("\\d", ""));
-
-        // change octave if the random pitch is higher than the input maximum height
-        if (randomPitch > maxHeightPitch) {
-            randomOctave = this.randomizer.getRandomInteger(Integer.parseInt(this.instruments.get(i).getMinHeight().replaceAll("[^\\d-]", "")), (int) (randomPitch - maxHeightPitch));
+        if (this.spineOrder == SpineOrder.TIME) {
+            // the events are added in time order once the parts have set their timings
+            return;
         }
 
-        // get the true pitch from which the random one has the minimum distance
-        float key = getMinimumDistancePitchKey(randomPitch);
+        // instruments whose events of the actual measure can still be picked, in ascending order, and the next event of each instrument
+        int[] measureInstruments = new int[this.instrumentsNumber];
+        int[] nextEvents = new int[this.instrumentsNumber];
 
-        // get a random note name corresponding to the actual pitch
-        String randomStringFromAllNotesMap = this.randomizer.getRandomElementFromList(this.allNotesMap.get(key));
-
-        String actualAccidental;
-        if (randomStringFromAllNotesMap.contains("_")) {
-            actualAccidental = randomStringFromAllNotesMap.substring(2);
-        } else {
-            actualAccidental = "natural";
-        }
-
-        Formatter.logger.info("Pitch: " + key);
-
-        FormatterUtils.setAttributeOfElement(pitch, "actual_accidental", "" + actualAccidental);
-        Formatter.logger.info("Actual accidental: " + actualAccidental);
-
-        FormatterUtils.setAttributeOfElement(pitch, "octave", "" + randomOctave);
-        Formatter.logger.info("Octave: " + randomOctave);
-
-        FormatterUtils.setAttributeOfElement(pitch, "step", "" + randomStringFromAllNotesMap.charAt(0));
-        Formatter.logger.info("Note name: " + randomStringFromAllNotesMap.charAt(0));
-
-        FormatterUtils.appendChildToElement(notehead, pitch);
+        // add event elements to the document mixing them
+        for (int j = 0; j < this.measuresNumber; j++) {
+            this.randomizer.key(0, j + 1, Randomizer.ALL_EVENTS);
 
-        Formatter.logger.debug("Add printed_accidentals element");
-        Element printedAccidentals = FormatterUtils.addElementAndReturnIt(this.document, notehead, "printed_accidentals");
-        FormatterUtils.addElement(this.document, printedAccidentals, actualAccidental);
+            for (int i = 0; i < this.instrumentsNumber; i++) {
+                measureInstruments[i] = i + 1;
+                // the first event of the first measure has already been added
+                nextEvents[i] = j == 0 ? 1 : 0;
+            }
+            int measureInstrumentsNumber = this.instrumentsNumber;
 
-    }
+            while (measureInstrumentsNumber > 0) {
+                int index = this.randomizer.getRandomIndex(measureInstrumentsNumber);
+                int key = measureInstruments[index];
 
-    /**
-     * <p>
-     * gets the pitch key that has the minimum distance with the input random
-     * pitch
-     * </p>
-     *
-     * @param randomPitch the random pitch
-     *
-     * @return the key to get the pitch in the corresponding map
-     */
-    private float getMinimumDistancePitchKey(float randomPitch) {
-        float minimumDistance = 0f;
-        float key = 0f;
+                if (nextEvents[key - 1] >= this.eventsNumbersInAMeasure[key - 1]) {
+                    // an instrument is removed only once it is picked without events left, keeping the order of the others
+                    System.arraycopy(measureInstruments, index + 1, measureInstruments, index, measureInstrumentsNumber - index - 1);
+                    measureInstrumentsNumber--;
+                    continue;
+                }
 
-        for (Map.Entry<Float, List<String>> e : this.allNotesMap.entrySet()) {
-            if (e.getKey() == 0f) {
-                minimumDistance = Math.abs(e.getKey() - randomPitch);
-                key = e.getKey();
-            }
-            if (Math.abs(e.getKey() - randomPitch) < minimumDistance) {
-                minimumDistance = Math.abs(e.getKey() - randomPitch);
-                key = e.getKey();
+                this.score.addVoiceEvent(key, j + 1, nextEvents[key - 1]++);
             }
         }
-        return key;
+
     }
 
     /**
      * <p>
-     * creates the events for each random instrument
+     * draws the number of events of each instrument, as the first values of
+     * the spine
      * </p>
-     *
-     * @param spine the element whose children are to be appended
-     *
      */
-    private void createEvents(Element spine) {
+    private void defineEventsNumbers() {
+        // the spine is keyed as the instrument 0, which is not used by the parts
+        this.randomizer.key(0, 0, Randomizer.ALL_EVENTS);
         List<Integer> randomInstruments = this.randomizer.getRandomNonRepeatingIntegers(instrumentsNumber, 0, instrumentsNumber - 1);
 
         Formatter.logger.debug("Add all the events to the spine container");
-        Map<Integer, List<List<Integer>>> events = defineOtherEvents(randomInstruments);
-        Map<Integer, List<Integer>> measuresEvents = new HashMap<>();
-
-        
-        // add event elements to the document mixing them
-        for (int j = 0; j < this.measuresNumber; j++) {
-
-            // for each instrument, retrieve the corresponding key and list of events for the current measure
-            for (Integer key : events.keySet()) {
-                measuresEvents.put(key, events.get(key).get(j));
-            }
-
-            int ev;
-            int key;
-            
-            while (!measuresEvents.isEmpty()) {
-                key = this.randomizer.getRandomIntFromMap(measuresEvents);
-                List<Integer> singleInstrumentEvents = measuresEvents.get(key);
-                
-                if (singleInstrumentEvents.isEmpty()) {
-                    measuresEvents.remove(key);
-                    continue;
-                }
-                ev = singleInstrumentEvents.remove(0);
-
-                Element event = FormatterUtils.addElementAndSetOneAttributeReturningTheElement(this.document, spine, "event", "id", "Instrument_" + key + "_voice0_measure" + (j + 1) + "_ev" + ev);
-                this.eventsList.add(event);
-            }
-        }
-
+        defineOtherEvents(randomInstruments);
     }
 
     /**
      * <p>
-     * defines the other events of the IEEE1599 document
+     * defines the number of events of each instrument of the IEEE1599 document
      * </p>
      *
      * @param randomInstruments the list of random instruments
-     * @param spine the element whose child is to be appended
      *
      */
-    private Map<Integer, List<List<Integer>>> defineOtherEvents(List<Integer> randomInstruments) {
-        // map with key equal to the instrument i and value equal to a list of j lists of k events, where j is the number of measure 
-        // for the instrument i and k is the number of events for the measure j of the instrument i
-        Map<Integer, List<List<Integer>>> events = new HashMap<>();
-
+    private void defineOtherEvents(List<Integer> randomInstruments) {
         for (int i = 0; i < randomInstruments.size(); i++) {
 
             // number of events concerning the actual instrument in the actual measure
@@ -916,59 +722,28 @@ public class Formatter {
             if (eventsNumber < this.measuresNumber) {
                 eventsNumber = this.measuresNumber;
             }
-            Formatter.logger.info("Events number for the instrument " + (i + 1) + " :" + eventsNumber);
+            Formatter.logger.info("Events number for the instrument {} :{}", i + 1, eventsNumber);
 
             int eventsNumberInAMeasure = eventsNumber / this.measuresNumber;
 
-            this.randomEventsPerInstrumentMap.put(randomInstruments.get(i), new Integer[]{eventsNumber, eventsNumberInAMeasure});
-
-            int kIndex;
-
-            List<List<Integer>> singleEventsList = new ArrayList<>();
-            for (int j = 1; j <= this.measuresNumber; j++) {
-
-                // two indexes to differentiate differentiate between adding events after the first and adding events from 0 onwards
-                if (j == 1) {
-                    kIndex = 1;
-                } else {
-                    kIndex = 0;
-                }
-
-                List<Integer> singleEvents = new ArrayList<>();
-                for (int k = kIndex; k < eventsNumberInAMeasure; k++) {
-                    singleEvents.add(k);
-                }
-                
-                singleEventsList.add(singleEvents);
-                events.put(randomInstruments.get(i) + 1, singleEventsList);
-            }
+            this.eventsNumbers[randomInstruments.get(i)] = eventsNumber;
+            this.eventsNumbersInAMeasure[randomInstruments.get(i)] = eventsNumberInAMeasure;
         }
-
-        return events;
     }
 
-    /**
-     * <p>
-     * defines the first events of the IEEE1599 document
-     * </p>
-     *
-     * @param spine the element whose child is to be appended
-     * @param firstPartOfTheFirstAttributeValue the string constituting the
-     * first part of the first attribute value
-     * @param secondPartOfTheFirstAttributeValue the string constituting the
-     * second part of the first attribute value
-     *
-     */
-    private void defineFirstEvents(Element spine, String firstPartOfTheFirstAttributeValue, String secondPartOfTheFirstAttributeValue) {
-        for (int i = 1; i <= this.instrumentsNumber; i++) {
+    public Document getDocument() {
+        return this.document;
+    }
 
-            Element event = FormatterUtils.addElementAndSetThreeAttributesReturningTheElement(this.document, spine, "event", "id", firstPartOfTheFirstAttributeValue + i + secondPartOfTheFirstAttributeValue, "timing", "" + 0, "hpos", "" + 0);
+    public RandomStreams getRandomStreams() {
+        return this.randomStreams;
+    }
 
-            this.eventsList.add(event);
-        }
+    public int getPartThreads() {
+        return this.partThreads;
     }
 
-    public Document getDocument() {
-        return this.document;
+    public int getInstrumentsNumber() {
+        return this.instrumentsNumber;
     }
 }
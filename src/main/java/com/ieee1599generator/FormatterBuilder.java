@@ -68,6 +68,22 @@ public class FormatterBuilder {
      * The map of irregular groups
      */
     private Map<Integer, Integer> irregularGroupsMap;
+    /**
+     * The way in which the random values of the parts are drawn
+     */
+    private RandomStreams randomStreams = RandomStreams.SHARED;
+    /**
+     * The way in which the events of the voices are ordered in the spine
+     */
+    private SpineOrder spineOrder = SpineOrder.RANDOM;
+    /**
+     * The way in which the durations filling a measure are chosen
+     */
+    private CompositionDraw compositionDraw = CompositionDraw.GREEDY;
+    /**
+     * The number of threads formatting the parts concurrently
+     */
+    private int partThreads = 1;
 
     private FormatterBuilder() {
     }
@@ -146,8 +162,39 @@ public class FormatterBuilder {
         return this;
     }
 
+    public FormatterBuilder randomStreams(RandomStreams randomStreams) {
+        this.randomStreams = randomStreams;
+        return this;
+    }
+
+    public FormatterBuilder spineOrder(SpineOrder spineOrder) {
+        this.spineOrder = spineOrder;
+        return this;
+    }
+
+    public FormatterBuilder compositionDraw(CompositionDraw compositionDraw) {
+        this.compositionDraw = compositionDraw;
+        return this;
+    }
+
+    public FormatterBuilder partThreads(int partThreads) {
+        this.partThreads = partThreads;
+        return this;
+    }
+
     public Formatter build() {
-        return new Formatter(seed, creator, docVersion, title, author, instrumentsNumber, instruments, clefs, clefsSteps, accidentalMap, allNotesMap, metreInNumbers, measuresNumber, irregularGroupsMap);
+        return new Formatter(seed, creator, docVersion, title, author, instrumentsNumber, instruments, clefs, clefsSteps, accidentalMap, allNotesMap, metreInNumbers, measuresNumber, irregularGroupsMap, randomStreams, spineOrder, compositionDraw, partThreads);
+    }
+
+    /**
+     * <p>
+     * builds an engine generating the documents of these inputs with any seed
+     * </p>
+     *
+     * @return the built engine
+     */
+    public GeneratorEngine buildEngine() {
+        return new GeneratorEngine(build());
     }
 
 }
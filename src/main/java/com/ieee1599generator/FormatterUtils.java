@@ -1,12 +1,25 @@
 package com.ieee1599generator;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
@@ -22,7 +35,12 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
- * Contains utility methods to format the entire IEEE1599 document
+ * Contains utility methods to format the entire IEEE1599 document.
+ * <p>
+ * The xml factories are looked up only once, and each thread keeps its own
+ * document builder, transformer and stream factory, which are reused for all
+ * the documents that it formats.
+ * </p>
  *
  * @author Federica Paoli', id: 961887, e-mail:
  * federica.paoli1@studenti.unimi.it
@@ -31,6 +49,36 @@ public class FormatterUtils {
 
     private static final Logger logger = LogManager.getLogger(FormatterUtils.class.getName());
 
+    /**
+     * The name of the xml file written by a single run
+     */
+    protected static final String DEFAULT_FILE_NAME = "ieee1599.xml";
+
+    /**
+     * The file name standing for the standard output
+     */
+    protected static final String STANDARD_OUTPUT = "-";
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+    /**
+     * The document builder of each thread
+     */
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+    /**
+     * The transformer of each thread, with the output properties already set
+     */
+    private static final ThreadLocal<Transformer> TRANSFORMERS = new ThreadLocal<>();
+    /**
+     * The stream factory of each thread
+     */
+    private static final ThreadLocal<XMLOutputFactory> XML_OUTPUT_FACTORIES = ThreadLocal.withInitial(XMLOutputFactory::newInstance);
+
     /**
      * <p>
      * adds a child element to the input element setting four attributes of the
@@ -326,13 +374,18 @@ public class FormatterUtils {
      */
     protected static Document createDocument() throws ParserConfigurationException {
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder;
-        try {
-            docBuilder = docFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException ex) {
-            logger.error(ex.getClass() + " : the document cannot be created due to a configuration error");
-            throw new ParserConfigurationException(" the document cannot be created due to a configuration error");
+        DocumentBuilder docBuilder = DOCUMENT_BUILDERS.get();
+        if (docBuilder == null) {
+            try {
+                // the factory is not thread-safe, while each builder is used by a single thread
+                synchronized (DOCUMENT_BUILDER_FACTORY) {
+                    docBuilder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException ex) {
+                logger.error(ex.getClass() + " : the document cannot be created due to a configuration error");
+                throw new ParserConfigurationException(" the document cannot be created due to a configuration error");
+            }
+            DOCUMENT_BUILDERS.set(docBuilder);
         }
         return docBuilder.newDocument();
 
@@ -351,24 +404,621 @@ public class FormatterUtils {
      * DocumentBuilderFactory class
      */
     protected static void saveXMLFile(Document document) throws TransformerConfigurationException, TransformerException {
-        Result output = new StreamResult(new File("ieee1599.xml"));
+        saveXMLFile(document, DEFAULT_FILE_NAME);
+    }
+
+    /**
+     * <p>
+     * saves document into the xml file with the input name
+     * </p>
+     *
+     * @param document the document to save
+     * @param fileName the name of the xml file
+     *
+     * @throws TransformerConfigurationException if there is a configuration
+     * error for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * DocumentBuilderFactory class
+     */
+    protected static void saveXMLFile(Document document, String fileName) throws TransformerConfigurationException, TransformerException {
+        transform(document, new StreamResult(new File(fileName)));
+    }
+
+    /**
+     * <p>
+     * saves document into the output stream
+     * </p>
+     *
+     * @param document the input document
+     * @param output the output stream of the document
+     *
+     * @throws TransformerConfigurationException if there is a configuration
+     * error for the TransformerFactory class
+     * @throws TransformerException if the document cannot be transformed
+     */
+    protected static void saveXMLFile(Document document, OutputStream output) throws TransformerConfigurationException, TransformerException {
+        transform(document, new StreamResult(output));
+    }
+
+    /**
+     * <p>
+     * transforms the document into the output result with the transformer of
+     * the actual thread
+     * </p>
+     *
+     * @param document the input document
+     * @param output the output result
+     *
+     * @throws TransformerConfigurationException if there is a configuration
+     * error for the TransformerFactory class
+     * @throws TransformerException if the document cannot be transformed
+     */
+    private static void transform(Document document, Result output) throws TransformerConfigurationException, TransformerException {
         Source input = new DOMSource(document);
         try {
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer t;
-            t = tf.newTransformer();
-            t.setOutputProperty(OutputKeys.INDENT, "yes");
-            t.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "3");
+            Transformer t = TRANSFORMERS.get();
+            if (t == null) {
+                // the factory is not thread-safe, while each transformer is used by a single thread
+                synchronized (TRANSFORMER_FACTORY) {
+                    t = TRANSFORMER_FACTORY.newTransformer();
+                }
+                t.setOutputProperty(OutputKeys.INDENT, "yes");
+                t.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "3");
+                TRANSFORMERS.set(t);
+            }
             t.transform(input, output);
         } catch (TransformerConfigurationException ex) {
             logger.error(ex.getClass() + " : the document cannot be created due to a configuration error");
             throw new TransformerConfigurationException(" the document cannot be created due to a configuration error");
         } catch (TransformerException ex) {
+            // a transformer interrupted by an error is not reused
+            TRANSFORMERS.remove();
             logger.error(ex.getClass() + " : the document cannot be created due to a configuration error");
             throw new TransformerException(" the document cannot be created due to a configuration error");
         }
     }
 
+    /**
+     * <p>
+     * formats the document and saves it into the xml file with the input name
+     * through the input backend
+     * </p>
+     *
+     * @param formatter the formatter of the document to save
+     * @param backend the backend writing the document
+     * @param fileName the name of the xml file
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static void saveXMLFile(Formatter formatter, OutputBackend backend, String fileName) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        saveXMLFile(formatter.generate(), backend, Compression.NONE, fileName);
+    }
+
+    /**
+     * <p>
+     * formats the document and saves it into the file with the input name
+     * through the input backend and compression
+     * </p>
+     *
+     * @param formatter the formatter of the document to save
+     * @param backend the backend writing the document
+     * @param compression the compression of the file
+     * @param fileName the name of the file
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long saveXMLFile(Formatter formatter, OutputBackend backend, Compression compression, String fileName) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return saveXMLFile(formatter.generate(), backend, compression, fileName);
+    }
+
+    /**
+     * <p>
+     * saves an already generated score into the file with the input name
+     * through the input backend and compression
+     * </p>
+     *
+     * @param score the score of the document to save
+     * @param backend the backend writing the document
+     * @param compression the compression of the file
+     * @param fileName the name of the file
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long saveXMLFile(Score score, OutputBackend backend, Compression compression, String fileName) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return saveXMLFile(score, backend, compression, fileName, null);
+    }
+
+    /**
+     * <p>
+     * saves an already generated score into the file with the input name
+     * through the input backend and compression, adding the duration of the
+     * serialization and the counts of the document to the input metrics
+     * </p>
+     *
+     * @param score the score of the document to save
+     * @param backend the backend writing the document
+     * @param compression the compression of the file
+     * @param fileName the name of the file
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long saveXMLFile(Score score, OutputBackend backend, Compression compression, String fileName, GenerationMetrics metrics) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        try (OutputStream output = new FileOutputStream(fileName)) {
+            return writeXML(score, backend, compression, output, metrics);
+        }
+    }
+
+    /**
+     * <p>
+     * formats the document and writes it into the output stream through the
+     * input backend, without closing the stream
+     * </p>
+     *
+     * @param formatter the formatter of the document
+     * @param backend the backend writing the document
+     * @param output the output stream of the document
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static void writeXML(Formatter formatter, OutputBackend backend, OutputStream output) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        writeXML(formatter.generate(), backend, Compression.NONE, output);
+    }
+
+    /**
+     * <p>
+     * writes an already generated score into the output stream through the
+     * input backend, without closing the stream
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param output the output stream of the document
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static void writeXML(Score score, OutputBackend backend, OutputStream output) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        switch (backend) {
+            case STAX:
+                // the stream writer encodes one byte at a time
+                BufferedOutputStream buffered = new BufferedOutputStream(output);
+                score.writeTo(new StaxScoreWriter(buffered));
+                buffered.flush();
+                break;
+            case DIRECT:
+            case COMPACT:
+                score.writeTo(new ByteScoreWriter(output, backend == OutputBackend.COMPACT));
+                break;
+            default:
+                DomScoreWriter domScoreWriter = new DomScoreWriter();
+                score.writeTo(domScoreWriter);
+                saveXMLFile(domScoreWriter.getDocument(), output);
+        }
+    }
+
+    /**
+     * <p>
+     * writes an already generated score into the output stream through the
+     * input backend and compression, finishing the compression and flushing
+     * the stream without closing it
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param output the output stream receiving the possibly compressed
+     * document
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long writeXML(Score score, OutputBackend backend, Compression compression, OutputStream output) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return writeCompressed(score, backend, compression, output, null);
+    }
+
+    /**
+     * <p>
+     * writes an already generated score into the output stream through the
+     * input backend and compression, appending the parts serialized by the
+     * input spooler, if any
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param output the output stream receiving the possibly compressed
+     * document
+     * @param spooler the spooler of the serialized parts, or null to
+     * serialize them through the backend
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    private static long writeCompressed(Score score, OutputBackend backend, Compression compression, OutputStream output, PartSpooler spooler) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        SerializationJfrEvent event = new SerializationJfrEvent();
+        event.begin();
+        // the bytes after compression are counted only while the event is recorded
+        CountingOutputStream compressed = event.isEnabled() ? new CountingOutputStream(output) : null;
+        OutputStream target = compressed != null ? compressed : output;
+
+        CountingOutputStream xml;
+        switch (compression) {
+            case GZIP:
+                ReleasableGzipOutputStream gzip = new ReleasableGzipOutputStream(target);
+                try {
+                    xml = new CountingOutputStream(gzip);
+                    writeBody(score, backend, xml, spooler);
+                    gzip.finish();
+                } finally {
+                    // the stream of the caller is left open, so the deflater is released without closing it
+                    gzip.release();
+                }
+                break;
+            case PARALLEL_GZIP:
+                ParallelGzipOutputStream parallelGzip = new ParallelGzipOutputStream(target);
+                try {
+                    xml = new CountingOutputStream(parallelGzip);
+                    writeBody(score, backend, xml, spooler);
+                    parallelGzip.finish();
+                } finally {
+                    // the blocks of a document that cannot be written are not compressed any longer
+                    parallelGzip.abort();
+                }
+                break;
+            default:
+                xml = new CountingOutputStream(target);
+                writeBody(score, backend, xml, spooler);
+        }
+        output.flush();
+
+        if (event.shouldCommit()) {
+            event.set(backend, compression, xml.getCount(), compressed != null ? compressed.getCount() : 0);
+            event.commit();
+        }
+        return xml.getCount();
+    }
+
+    /**
+     * <p>
+     * writes an already generated score into the output stream through the
+     * input backend and compression, as the method without metrics, adding
+     * the duration of the serialization and the counts of the document to the
+     * input metrics
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param output the output stream receiving the possibly compressed
+     * document
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long writeXML(Score score, OutputBackend backend, Compression compression, OutputStream output, GenerationMetrics metrics) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return writeXML(score, backend, compression, output, metrics, null);
+    }
+
+    /**
+     * <p>
+     * writes an already generated score into the output stream as the method
+     * with metrics, appending the parts serialized by the input spooler, if
+     * any, whose duration and allocations are also added to the serialization
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param output the output stream receiving the possibly compressed
+     * document
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     * @param spooler the spooler of the serialized parts, or null to
+     * serialize them through the backend
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    private static long writeXML(Score score, OutputBackend backend, Compression compression, OutputStream output, GenerationMetrics metrics, PartSpooler spooler) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        if (metrics == null) {
+            return writeCompressed(score, backend, compression, output, spooler);
+        }
+        long start = System.nanoTime();
+        long allocated = GenerationMetrics.allocatedBytes();
+        CountingOutputStream counted = new CountingOutputStream(output);
+        long xmlBytes = writeCompressed(score, backend, compression, counted, spooler);
+        long nanos = System.nanoTime() - start;
+        long allocatedBytes = GenerationMetrics.allocatedBytes() - allocated;
+        if (spooler != null) {
+            nanos += spooler.getWritingNanos();
+            allocatedBytes += spooler.getWritingAllocatedBytes();
+        }
+        metrics.addPhase(GenerationMetrics.Phase.SERIALIZATION, nanos, allocatedBytes);
+        metrics.addDocument(score, xmlBytes, counted.getCount());
+        return xmlBytes;
+    }
+
+    /**
+     * <p>
+     * formats the document and writes it into the output stream through the
+     * DIRECT or COMPACT backend and the input compression, as writeXML of a
+     * score with metrics, while a writer thread serializes each formatted
+     * part into a spool file, which is appended after the staves
+     * </p>
+     *
+     * @param formatter the formatter of the document
+     * @param backend the backend writing the document, DIRECT or COMPACT
+     * @param compression the compression of the document
+     * @param output the output stream receiving the possibly compressed
+     * document
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws IllegalArgumentException if the backend is not DIRECT or
+     * COMPACT
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the parts cannot be spooled, or the document
+     * cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long writeXMLPipelined(Formatter formatter, OutputBackend backend, Compression compression, OutputStream output, GenerationMetrics metrics) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        if (backend != OutputBackend.DIRECT && backend != OutputBackend.COMPACT) {
+            throw new IllegalArgumentException(" the parts can be pipelined only by the DIRECT and COMPACT backends, not by " + backend);
+        }
+        try (PartSpooler spooler = new PartSpooler(formatter.getInstrumentsNumber(), backend == OutputBackend.COMPACT)) {
+            Score score = formatter.generate(metrics, spooler);
+            return writeXML(score, backend, compression, output, metrics, spooler);
+        }
+    }
+
+    /**
+     * <p>
+     * formats the document and saves it into the file with the input name as
+     * writeXMLPipelined
+     * </p>
+     *
+     * @param formatter the formatter of the document
+     * @param backend the backend writing the document, DIRECT or COMPACT
+     * @param compression the compression of the file
+     * @param fileName the name of the file
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws IllegalArgumentException if the backend is not DIRECT or
+     * COMPACT
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the parts cannot be spooled, or the file cannot
+     * be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static long saveXMLFilePipelined(Formatter formatter, OutputBackend backend, Compression compression, String fileName, GenerationMetrics metrics) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        try (OutputStream output = new FileOutputStream(fileName)) {
+            return writeXMLPipelined(formatter, backend, compression, output, metrics);
+        }
+    }
+
+    /**
+     * <p>
+     * writes the xml document of the score through the input backend, or
+     * through the spooler of its serialized parts
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     * @param xml the output stream of the xml document
+     * @param spooler the spooler of the serialized parts, or null to
+     * serialize them through the backend
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    private static void writeBody(Score score, OutputBackend backend, OutputStream xml, PartSpooler spooler) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        if (spooler != null) {
+            spooler.writeTo(score, xml);
+        } else {
+            writeXML(score, backend, xml);
+        }
+    }
+
+    /**
+     * <p>
+     * reads back the score of a document saved by the app into the file with
+     * the input name, or from the standard input, uncompressing it if it is
+     * compressed with gzip
+     * </p>
+     *
+     * @param fileName the name of the file, or the standard output
+     * placeholder to read the standard input
+     *
+     * @return the read score
+     *
+     * @throws IOException if the file cannot be read
+     * @throws XMLStreamException if the document is not well formed, or if
+     * there is a configuration error for the XMLInputFactory class
+     */
+    protected static Score readXMLFile(String fileName) throws IOException, XMLStreamException {
+        InputStream file = STANDARD_OUTPUT.equals(fileName) ? new FileInputStream(FileDescriptor.in) : new FileInputStream(fileName);
+        try (InputStream input = new BufferedInputStream(file, GZIP_BUFFER_SIZE)) {
+            input.mark(2);
+            boolean gzip = input.read() == (GZIPInputStream.GZIP_MAGIC & 0xff) && input.read() == (GZIPInputStream.GZIP_MAGIC >>> 8);
+            input.reset();
+            // the gzip stream reads all the members of a parallel gzip file
+            return ScoreReader.read(gzip ? new GZIPInputStream(input, GZIP_BUFFER_SIZE) : input);
+        }
+    }
+
+    /**
+     * <p>
+     * appends the gzip extension to the file name if the file is compressed
+     * and the name does not end with it yet
+     * </p>
+     *
+     * @param fileName the name of the file
+     * @param compression the compression of the file
+     *
+     * @return the name of the compressed file, or the standard output
+     * placeholder unchanged
+     */
+    protected static String compressedFileName(String fileName, Compression compression) {
+        if (compression == Compression.NONE || fileName.endsWith(GZIP_EXTENSION) || STANDARD_OUTPUT.equals(fileName)) {
+            return fileName;
+        }
+        return fileName + GZIP_EXTENSION;
+    }
+
+    /**
+     * <p>
+     * creates a writer streaming xml content encoded in UTF-8 into the output
+     * stream
+     * </p>
+     *
+     * @param output the output stream
+     *
+     * @return the created writer
+     *
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    protected static XMLStreamWriter createXMLStreamWriter(OutputStream output) throws XMLStreamException {
+        try {
+            return XML_OUTPUT_FACTORIES.get().createXMLStreamWriter(output, "UTF-8");
+        } catch (XMLStreamException ex) {
+            logger.error(ex.getClass() + " : the document cannot be created due to a configuration error");
+            throw new XMLStreamException(" the document cannot be created due to a configuration error");
+        }
+    }
+
+    /**
+     * <p>
+     * builds the id of the event of a voice
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     *
+     * @return the event id
+     */
+    protected static String voiceEventId(int instrument, int measure, int event) {
+        return "Instrument_" + instrument + "_voice0_measure" + measure + "_ev" + event;
+    }
+
+    /**
+     * <p>
+     * builds the id of the time signature event of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     *
+     * @return the event id
+     */
+    protected static String timeSignatureEventId(int instrument) {
+        return "TimeSignature_Instrument_" + instrument + "_1";
+    }
+
+    /**
+     * <p>
+     * builds the id of the clef event of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     *
+     * @return the event id
+     */
+    protected static String clefEventId(int instrument) {
+        return "Clef_Instrument_" + instrument + "_1";
+    }
+
     /**
      * <p>
      * converts the input map content into a string
@@ -419,4 +1069,30 @@ public class FormatterUtils {
         return mapAsString;
     }
 
+    /**
+     * Compresses the written bytes in gzip format, and releases its deflater
+     * without closing the output stream
+     */
+    private static final class ReleasableGzipOutputStream extends GZIPOutputStream {
+
+        /**
+         * @param output the output stream receiving the compressed bytes
+         *
+         * @throws IOException if the gzip header cannot be written
+         */
+        private ReleasableGzipOutputStream(OutputStream output) throws IOException {
+            super(output, GZIP_BUFFER_SIZE);
+        }
+
+        /**
+         * <p>
+         * releases the memory of the deflater, after which no bytes can be
+         * compressed
+         * </p>
+         */
+        private void release() {
+            this.def.end();
+        }
+    }
+
 }
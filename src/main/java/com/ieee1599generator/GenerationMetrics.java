@@ -0,0 +1,396 @@
+package com.ieee1599generator;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the durations, the allocations and the counts of the phases of the
+ * generation of one or more documents, and reports them as JSON.
+ * <p>
+ * The metrics can be shared by the documents generated concurrently, even
+ * with different numbers of instruments, and nothing is measured while
+ * generating a document without metrics. The
+ * allocations are the bytes allocated by the threads running each phase, and
+ * those of the parts phase are the sum of the ones of the parts, which may run
+ * on other threads.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class GenerationMetrics {
+
+    /**
+     * The bean measuring the bytes allocated by each thread, or null if the
+     * JVM does not measure them
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    /**
+     * Represents the measured phases of the generation of a document
+     */
+    public enum Phase {
+
+        /**
+         * Adds the events of the voices to the spine
+         */
+        SPINE("spine"),
+        /**
+         * Generates the part of each instrument
+         */
+        PARTS("parts"),
+        /**
+         * Orders the spine events by the time at which they start
+         */
+        SPINE_ORDER("spineOrder"),
+        /**
+         * Writes the general layer, the spine and the parts through the
+         * backend and the compression
+         */
+        SERIALIZATION("serialization");
+
+        /**
+         * The name of the phase in the report
+         */
+        private final String reportName;
+
+        Phase(String reportName) {
+            this.reportName = reportName;
+        }
+    }
+
+    /**
+     * The time at which the metrics were created
+     */
+    private final long startNanos = System.nanoTime();
+    /**
+     * The duration of each phase, summed over the documents
+     */
+    private final LongAdder[] phaseNanos = adders(Phase.values().length);
+    /**
+     * The bytes allocated by each phase, summed over the documents
+     */
+    private final LongAdder[] phaseAllocatedBytes = adders(Phase.values().length);
+    /**
+     * The duration and the allocated bytes of the part of each instrument,
+     * summed over the documents, by instrument number
+     */
+    private final ConcurrentMap<Integer, LongAdder[]> parts = new ConcurrentSkipListMap<>();
+    /**
+     * The number of written documents
+     */
+    private final LongAdder documents = new LongAdder();
+    /**
+     * The number of spine events
+     */
+    private final LongAdder spineEvents = new LongAdder();
+    /**
+     * The number of chords
+     */
+    private final LongAdder chords = new LongAdder();
+    /**
+     * The number of rests
+     */
+    private final LongAdder rests = new LongAdder();
+    /**
+     * The number of noteheads
+     */
+    private final LongAdder noteheads = new LongAdder();
+    /**
+     * The number of bytes of the xml documents, before compression
+     */
+    private final LongAdder xmlBytes = new LongAdder();
+    /**
+     * The number of bytes written into the outputs, after compression
+     */
+    private final LongAdder outputBytes = new LongAdder();
+    /**
+     * The number of documents copied from the cache
+     */
+    private final LongAdder cacheHits = new LongAdder();
+    /**
+     * The number of documents not found in the cache
+     */
+    private final LongAdder cacheMisses = new LongAdder();
+    /**
+     * The number of bytes copied from the cache
+     */
+    private final LongAdder cacheHitBytes = new LongAdder();
+    /**
+     * The number of documents stored into the cache
+     */
+    private final LongAdder cacheStores = new LongAdder();
+    /**
+     * The number of bytes stored into the cache
+     */
+    private final LongAdder cacheStoredBytes = new LongAdder();
+    /**
+     * The number of documents evicted from the cache
+     */
+    private final LongAdder cacheEvictions = new LongAdder();
+
+    /**
+     * <p>
+     * provides the bytes allocated so far by the actual thread
+     * </p>
+     *
+     * @return the allocated bytes, or 0 if the JVM does not measure them
+     */
+    protected static long allocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * <p>
+     * adds the duration and the allocations of a phase of a document
+     * </p>
+     *
+     * @param phase the phase
+     * @param nanos the duration of the phase
+     * @param allocatedBytes the bytes allocated by the phase
+     */
+    protected void addPhase(Phase phase, long nanos, long allocatedBytes) {
+        this.phaseNanos[phase.ordinal()].add(nanos);
+        this.phaseAllocatedBytes[phase.ordinal()].add(allocatedBytes);
+    }
+
+    /**
+     * <p>
+     * adds the duration and the allocations of the part of an instrument,
+     * adding the allocations to the parts phase
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param nanos the duration of the part
+     * @param allocatedBytes the bytes allocated by the part
+     */
+    protected void addPart(int instrument, long nanos, long allocatedBytes) {
+        LongAdder[] part = this.parts.computeIfAbsent(instrument, i -> adders(2));
+        part[0].add(nanos);
+        part[1].add(allocatedBytes);
+        this.phaseAllocatedBytes[Phase.PARTS.ordinal()].add(allocatedBytes);
+    }
+
+    /**
+     * <p>
+     * adds the metrics collected by the input ones, such as the ones of a
+     * single job, except for their elapsed time
+     * </p>
+     *
+     * @param metrics the metrics to add
+     */
+    protected void add(GenerationMetrics metrics) {
+        for (int p = 0; p < this.phaseNanos.length; p++) {
+            this.phaseNanos[p].add(metrics.phaseNanos[p].sum());
+            this.phaseAllocatedBytes[p].add(metrics.phaseAllocatedBytes[p].sum());
+        }
+        metrics.parts.forEach((instrument, part) -> {
+            LongAdder[] sum = this.parts.computeIfAbsent(instrument, i -> adders(2));
+            sum[0].add(part[0].sum());
+            sum[1].add(part[1].sum());
+        });
+        this.documents.add(metrics.documents.sum());
+        this.spineEvents.add(metrics.spineEvents.sum());
+        this.chords.add(metrics.chords.sum());
+        this.rests.add(metrics.rests.sum());
+        this.noteheads.add(metrics.noteheads.sum());
+        this.xmlBytes.add(metrics.xmlBytes.sum());
+        this.outputBytes.add(metrics.outputBytes.sum());
+        this.cacheHits.add(metrics.cacheHits.sum());
+        this.cacheMisses.add(metrics.cacheMisses.sum());
+        this.cacheHitBytes.add(metrics.cacheHitBytes.sum());
+        this.cacheStores.add(metrics.cacheStores.sum());
+        this.cacheStoredBytes.add(metrics.cacheStoredBytes.sum());
+        this.cacheEvictions.add(metrics.cacheEvictions.sum());
+    }
+
+    /**
+     * <p>
+     * adds the counts of a written document
+     * </p>
+     *
+     * @param score the score of the document
+     * @param xmlBytes the number of bytes of the xml document
+     * @param outputBytes the number of bytes written into the output
+     */
+    protected void addDocument(Score score, long xmlBytes, long outputBytes) {
+        this.documents.increment();
+        this.spineEvents.add(score.getSpineEventsNumber());
+        for (int i = 1; i <= score.getInstrumentsNumber(); i++) {
+            ScorePart part = score.getPart(i);
+            this.chords.add(part.getChordsNumber());
+            this.rests.add(part.getRestsNumber());
+            this.noteheads.add(part.getNoteheadsNumber());
+        }
+        this.xmlBytes.add(xmlBytes);
+        this.outputBytes.add(outputBytes);
+    }
+
+    /**
+     * <p>
+     * adds a document copied from the cache
+     * </p>
+     *
+     * @param bytes the number of bytes of the document
+     */
+    protected void addCacheHit(long bytes) {
+        this.cacheHits.increment();
+        this.cacheHitBytes.add(bytes);
+    }
+
+    /**
+     * <p>
+     * adds a document not found in the cache
+     * </p>
+     */
+    protected void addCacheMiss() {
+        this.cacheMisses.increment();
+    }
+
+    /**
+     * <p>
+     * adds a document stored into the cache and the documents it evicted
+     * </p>
+     *
+     * @param bytes the number of bytes of the document
+     * @param evicted the number of evicted documents
+     */
+    protected void addCacheStore(long bytes, int evicted) {
+        this.cacheStores.increment();
+        this.cacheStoredBytes.add(bytes);
+        this.cacheEvictions.add(evicted);
+    }
+
+    /**
+     * <p>
+     * reports the metrics collected so far as a JSON object, with the
+     * throughput over the time elapsed since the metrics were created
+     * </p>
+     *
+     * @return the JSON report
+     */
+    public String toJson() {
+        long elapsedNanos = Math.max(System.nanoTime() - this.startNanos, 1);
+        long events = this.chords.sum() + this.rests.sum();
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"version\": ").append(quote(GenerationMetrics.class.getPackage().getImplementationVersion())).append(",\n");
+        json.append("  \"allocationsMeasured\": ").append(THREADS != null).append(",\n");
+        json.append("  \"documents\": ").append(this.documents.sum()).append(",\n");
+        json.append("  \"elapsedNanos\": ").append(elapsedNanos).append(",\n");
+
+        json.append("  \"phases\": {\n");
+        Phase[] phases = Phase.values();
+        for (Phase phase : phases) {
+            json.append("    \"").append(phase.reportName).append("\": {");
+            appendTimes(json, this.phaseNanos[phase.ordinal()].sum(), this.phaseAllocatedBytes[phase.ordinal()].sum());
+            json.append(phase.ordinal() < phases.length - 1 ? "},\n" : "}\n");
+        }
+        json.append("  },\n");
+
+        json.append("  \"parts\": [");
+        String separator = "\n";
+        for (Map.Entry<Integer, LongAdder[]> part : this.parts.entrySet()) {
+            json.append(separator).append("    {\"instrument\": ").append(part.getKey()).append(", ");
+            appendTimes(json, part.getValue()[0].sum(), part.getValue()[1].sum());
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"counts\": {\n");
+        json.append("    \"spineEvents\": ").append(this.spineEvents.sum()).append(",\n");
+        json.append("    \"events\": ").append(events).append(",\n");
+        json.append("    \"chords\": ").append(this.chords.sum()).append(",\n");
+        json.append("    \"rests\": ").append(this.rests.sum()).append(",\n");
+        json.append("    \"noteheads\": ").append(this.noteheads.sum()).append(",\n");
+        json.append("    \"xmlBytes\": ").append(this.xmlBytes.sum()).append(",\n");
+        json.append("    \"outputBytes\": ").append(this.outputBytes.sum()).append("\n");
+        json.append("  },\n");
+
+        long lookups = this.cacheHits.sum() + this.cacheMisses.sum();
+        json.append("  \"cache\": {\n");
+        json.append("    \"hits\": ").append(this.cacheHits.sum()).append(",\n");
+        json.append("    \"misses\": ").append(this.cacheMisses.sum()).append(",\n");
+        json.append("    \"hitPercentage\": ").append(decimal(lookups > 0 ? 100.0 * this.cacheHits.sum() / lookups : 0)).append(",\n");
+        json.append("    \"hitBytes\": ").append(this.cacheHitBytes.sum()).append(",\n");
+        json.append("    \"stores\": ").append(this.cacheStores.sum()).append(",\n");
+        json.append("    \"storedBytes\": ").append(this.cacheStoredBytes.sum()).append(",\n");
+        json.append("    \"evictions\": ").append(this.cacheEvictions.sum()).append("\n");
+        json.append("  },\n");
+
+        double seconds = elapsedNanos / 1e9;
+        json.append("  \"throughput\": {\n");
+        json.append("    \"eventsPerSecond\": ").append(decimal(events / seconds)).append(",\n");
+        json.append("    \"xmlBytesPerSecond\": ").append(decimal(this.xmlBytes.sum() / seconds)).append(",\n");
+        json.append("    \"xmlBytesPerEvent\": ").append(decimal(events > 0 ? (double) this.xmlBytes.sum() / events : 0)).append("\n");
+        json.append("  }\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * <p>
+     * appends the duration and the allocations of a phase or a part
+     * </p>
+     *
+     * @param json the report being built
+     * @param nanos the duration
+     * @param allocatedBytes the allocated bytes
+     */
+    private static void appendTimes(StringBuilder json, long nanos, long allocatedBytes) {
+        json.append("\"nanos\": ").append(nanos).append(", \"allocatedBytes\": ").append(allocatedBytes);
+    }
+
+    /**
+     * @param value the value of a JSON string, or null
+     *
+     * @return the JSON string, or null
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * @param value the value of a JSON number
+     *
+     * @return the JSON number, with one decimal digit
+     */
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * @param size the number of adders
+     *
+     * @return the adders
+     */
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int a = 0; a < size; a++) {
+            adders[a] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * @return the bean measuring the bytes allocated by each thread, or null
+     * if the JVM does not measure them
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads : null;
+    }
+
+}
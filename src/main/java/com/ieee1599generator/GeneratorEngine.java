@@ -0,0 +1,253 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+
+/**
+ * Generates IEEE1599 documents with the same inputs and different seeds, and
+ * can be called concurrently by many threads.
+ * <p>
+ * The inputs, and the tables computed from them, are validated and logged
+ * once and then shared by the formatters of all the documents, so that
+ * starting a new document only resets its own state. The parts are formatted
+ * on a single pool owned by the engine, which must be closed once it is no
+ * longer needed.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class GeneratorEngine implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(GeneratorEngine.class.getName());
+
+    /**
+     * The formatter whose inputs are shared by all the documents
+     */
+    private final Formatter formatter;
+    /**
+     * The pool formatting the parts concurrently, or null if the parts are
+     * formatted by the thread generating the document
+     */
+    private final ForkJoinPool partsPool;
+
+    /**
+     * @param formatter the formatter whose inputs are shared by all the
+     * documents
+     */
+    protected GeneratorEngine(Formatter formatter) {
+        this.formatter = formatter;
+        if (formatter.getRandomStreams() != RandomStreams.SHARED && formatter.getPartThreads() > 1) {
+            this.partsPool = new ForkJoinPool(formatter.getPartThreads());
+        } else {
+            this.partsPool = null;
+        }
+        GeneratorEngine.logger.info("Engine ready");
+    }
+
+    /**
+     * <p>
+     * creates the formatter of the document with the input seed
+     * </p>
+     *
+     * @param seed the seed for the random object
+     *
+     * @return the created formatter
+     */
+    public Formatter newFormatter(long seed) {
+        return new Formatter(this.formatter, seed, this.partsPool);
+    }
+
+    /**
+     * <p>
+     * generates the score of the document with the input seed
+     * </p>
+     *
+     * @param seed the seed for the random object
+     *
+     * @return the generated score
+     */
+    public Score generate(long seed) {
+        return newFormatter(seed).generate();
+    }
+
+    /**
+     * <p>
+     * generates again a range of measures of the part of an instrument in the
+     * score generated with the input seed, reusing its spine and the other
+     * parts
+     * </p>
+     *
+     * @param seed the seed the score was generated with
+     * @param score the score generated with the same seed and inputs
+     * @param instrument the instrument number
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     *
+     * @return the input score, with the generated part of the instrument
+     */
+    public Score regenerate(long seed, Score score, int instrument, int firstMeasure, int lastMeasure) {
+        return newFormatter(seed).regenerate(score, instrument, firstMeasure, lastMeasure);
+    }
+
+    /**
+     * <p>
+     * formats the document with the input seed into a DOM document
+     * </p>
+     *
+     * @param seed the seed for the random object
+     *
+     * @return the DOM document
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     */
+    public Document format(long seed) throws ParserConfigurationException {
+        Formatter seedFormatter = newFormatter(seed);
+        seedFormatter.format();
+        return seedFormatter.getDocument();
+    }
+
+    /**
+     * <p>
+     * writes the document with the input seed into the output stream through
+     * the input backend, without closing the stream
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param backend the backend writing the document
+     * @param output the output stream of the document
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public void write(long seed, OutputBackend backend, OutputStream output) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        FormatterUtils.writeXML(newFormatter(seed), backend, output);
+    }
+
+    /**
+     * <p>
+     * writes the document with the input seed into the output stream through
+     * the input backend and compression, flushing the stream without closing
+     * it
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param output the output stream of the document
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public long write(long seed, OutputBackend backend, Compression compression, OutputStream output) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return FormatterUtils.writeXML(newFormatter(seed).generate(), backend, compression, output);
+    }
+
+    /**
+     * <p>
+     * writes the document with the input seed into the channel through the
+     * input backend and compression, without closing the channel
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param channel the blocking channel of the document
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the document cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public long write(long seed, OutputBackend backend, Compression compression, WritableByteChannel channel) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        // the stream of the channel is not closed, since closing it would close the channel
+        return write(seed, backend, compression, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * <p>
+     * saves the document with the input seed into the xml file with the input
+     * name through the input backend
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param backend the backend writing the document
+     * @param fileName the name of the xml file
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public void save(long seed, OutputBackend backend, String fileName) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        FormatterUtils.saveXMLFile(newFormatter(seed), backend, fileName);
+    }
+
+    /**
+     * <p>
+     * saves the document with the input seed into the file with the input
+     * name through the input backend and compression
+     * </p>
+     *
+     * @param seed the seed for the random object
+     * @param backend the backend writing the document
+     * @param compression the compression of the file
+     * @param fileName the name of the file
+     *
+     * @return the number of bytes of the xml document, before compression
+     *
+     * @throws ParserConfigurationException if there is a configuration error
+     * for the DocumentBuilderFactory class
+     * @throws TransformerException if there is a configuration error for the
+     * TransformerFactory class
+     * @throws IOException if the file cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public long save(long seed, OutputBackend backend, Compression compression, String fileName) throws ParserConfigurationException, TransformerException, IOException, XMLStreamException {
+        return FormatterUtils.saveXMLFile(newFormatter(seed), backend, compression, fileName);
+    }
+
+    /**
+     * <p>
+     * shuts down the pool formatting the parts
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (this.partsPool != null) {
+            this.partsPool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the height of a musical figure, parsed once from its note name
+ * and octave number
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public final class Height {
+
+    /**
+     * The Anglo-Saxon note name of the natural note, that is the pitch class
+     * without accidentals
+     */
+    private final char step;
+    /**
+     * The accidental
+     */
+    private final String accidental;
+    /**
+     * The pitch offset of the accidental
+     */
+    private final float accidentalOffset;
+    /**
+     * The octave number
+     */
+    private final int octave;
+    /**
+     * The note name, made of the step and the possible accidental
+     */
+    private final String noteName;
+    /**
+     * The height as it was written
+     */
+    private final String text;
+
+    public Height(char step, String accidental, float accidentalOffset, int octave, String text) {
+        this.step = step;
+        this.accidental = accidental;
+        this.accidentalOffset = accidentalOffset;
+        this.octave = octave;
+        this.noteName = "natural".equals(accidental) ? String.valueOf(step) : step + "_" + accidental;
+        this.text = text;
+    }
+
+    public char getStep() {
+        return this.step;
+    }
+
+    public String getAccidental() {
+        return this.accidental;
+    }
+
+    public float getAccidentalOffset() {
+        return this.accidentalOffset;
+    }
+
+    public int getOctave() {
+        return this.octave;
+    }
+
+    public String getNoteName() {
+        return this.noteName;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+}
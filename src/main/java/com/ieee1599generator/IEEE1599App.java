@@ -1,14 +1,34 @@
 package com.ieee1599generator;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
@@ -21,7 +41,7 @@ import picocli.CommandLine.Option;
  * federica.paoli1@studenti.unimi.it
  */
 @Command(mixinStandardHelpOptions = true)
-public class IEEE1599App implements Callable<Void> {
+public class IEEE1599App implements Callable<Integer> {
 
     private static final Logger logger = LogManager.getLogger(IEEE1599App.class.getName());
 
@@ -46,7 +66,7 @@ public class IEEE1599App implements Callable<Void> {
     @Option(names = {"--instruments-number"}, description = "number of instruments")
     private int instrumentsNumber;
 
-    @ArgGroup(exclusive = false, multiplicity = "1..*")
+    @ArgGroup(exclusive = false, multiplicity = "0..*")
     List<InstrumentParams> instrumentsParams;
 
     static class InstrumentParams {
@@ -72,13 +92,89 @@ public class IEEE1599App implements Callable<Void> {
     @Option(names = {"--seed"}, defaultValue = "1234", description = "seed for random object (default: ${DEFAULT-VALUE})")
     private long seed;
 
-    private final float docVersion = 1.0f;    // document version
+    @Option(names = {"--backend"}, defaultValue = "DOM", description = "backend writing the document, DOM, STAX, DIRECT or COMPACT (default: ${DEFAULT-VALUE})")
+    private OutputBackend backend;
 
-    private final List<Character> clefs = List.of('G', 'F', 'C');
+    @Option(names = {"--compression"}, defaultValue = "NONE", description = "compression of the saved files, NONE, GZIP or PARALLEL_GZIP compressing blocks of the document on all the processors, adding the .gz extension to the file names (default: ${DEFAULT-VALUE})")
+    private Compression compression;
 
-    private final List<Integer> clefsSteps = List.of(2, 4, 6);
+    @Option(names = {"-o", "--output"}, defaultValue = FormatterUtils.DEFAULT_FILE_NAME, description = "file name of the document of a single run, or " + FormatterUtils.STANDARD_OUTPUT + " to stream it to the standard output while the console logs go to the standard error (default: ${DEFAULT-VALUE})")
+    private String output;
 
-    private final Map<String, Float> accidentalMap = new HashMap<String, Float>() {
+    @Option(names = {"--random-streams"}, defaultValue = "SHARED", description = "random streams of the parts, SHARED with the spine, SPLIT from the seed for each instrument, allowing the parts to be generated concurrently, or KEYED by the seed, instrument, measure and event, so that each measure does not depend on the others (default: ${DEFAULT-VALUE})")
+    private RandomStreams randomStreams;
+
+    @Option(names = {"--spine-order"}, defaultValue = "RANDOM", description = "order of the events of the voices in the spine, RANDOM interleaving the instruments in each measure, or TIME ordering the events of all the instruments by the time at which they start, so that the spine can be read in a single pass (default: ${DEFAULT-VALUE})")
+    private SpineOrder spineOrder;
+
+    @Option(names = {"--composition-draw"}, defaultValue = "GREEDY", description = "durations filling each measure, GREEDY always taking the composition found by a greedy search, or UNIFORM drawing one of all the compositions of the measure with the same probability (default: ${DEFAULT-VALUE})")
+    private CompositionDraw compositionDraw;
+
+    @Option(names = {"--part-threads"}, description = "number of threads generating the parts concurrently with SPLIT or KEYED random streams (default: number of available processors)")
+    private int partThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--seeds"}, description = "seeds of a batch of documents, one for each seed, as a list of seeds or of ranges like 1..100,250")
+    private String seeds;
+
+    @Option(names = {"--parallelism"}, description = "number of documents of the batch generated concurrently (default: number of available processors)")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--file-name-template"}, defaultValue = "ieee1599_" + BatchGenerator.SEED_PLACEHOLDER + ".xml", description = "file name of each document of the batch, where " + BatchGenerator.SEED_PLACEHOLDER + " is replaced by the seed (default: ${DEFAULT-VALUE})")
+    private String fileNameTemplate;
+
+    @Option(names = {"--log-level"}, defaultValue = "DEBUG", description = "lowest level of the logged messages, OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE or ALL (default: ${DEFAULT-VALUE})")
+    private String logLevel;
+
+    @Option(names = {"--quiet"}, description = "log only the errors, as --log-level=ERROR")
+    private boolean quiet;
+
+    @Option(names = {"--queue-capacity"}, defaultValue = "0", description = "number of generated documents of the batch waiting to be saved by a dedicated writer thread, overlapping generation and file writing, or 0 to save each document in the thread generating it (default: ${DEFAULT-VALUE})")
+    private int queueCapacity;
+
+    @Option(names = {"--regenerate"}, description = "document generated with the same seed and inputs, or " + FormatterUtils.STANDARD_OUTPUT + " to read it from the standard input, whose part of an instrument is generated again with SPLIT or KEYED random streams, keeping its spine and the other parts, and saved as the output document; the parameters of the instrument may change, as long as its number of events in a measure does not")
+    private String regenerate;
+
+    @Option(names = {"--regenerate-instrument"}, description = "number, from 1, of the instrument whose part is generated again")
+    private int regenerateInstrument;
+
+    @Option(names = {"--regenerate-measures"}, description = "range of the measures generated again, like 10..20, with KEYED random streams (default: all the measures)")
+    private String regenerateMeasures;
+
+    @Option(names = {"--pipeline-parts"}, description = "serialize each part of a single document into a spool file on a writer thread as soon as it is generated, while the next parts are generated, appending the spool file after the spine; only with the DIRECT or COMPACT backend")
+    private boolean pipelineParts;
+
+    @Option(names = {"--metrics-out"}, description = "file into which the durations and allocations of the phases of the generation, the counts of events, chords, rests, noteheads and bytes, and the throughput are saved as JSON")
+    private String metricsOut;
+
+    @Option(names = {"--job-file"}, description = "properties file of many jobs, each with the parameters of the app as <parameter>=<value>, the ones of the instruments as instrument.<number or *>.<parameter>=<value>, and the ones of a single job prefixed by job.<name>., which are all validated before any document is generated and then run concurrently")
+    private String jobFile;
+
+    @Option(names = {"--jobs-parallelism"}, description = "number of jobs of the job file run concurrently (default: number of available processors)")
+    private int jobsParallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--cache-dir"}, description = "directory keeping the saved documents by a hash of all their parameters, the seed and the version of the generator, so that a document generated again is copied from it instead; the regenerated documents are not cached")
+    private String cacheDir;
+
+    @Option(names = {"--cache-size"}, defaultValue = "1024", description = "size of the cache directory in MiB, beyond which the least recently used documents are deleted (default: ${DEFAULT-VALUE})")
+    private long cacheSize;
+
+    /**
+     * The initialized parameters of the instruments, once the parameters are
+     * validated
+     */
+    private Initializer initializer;
+    /**
+     * The seeds of the batch, once the parameters are validated
+     */
+    private long[] batchSeeds;
+
+    protected static final float DOC_VERSION = 1.0f;    // document version
+
+    protected static final List<Character> CLEFS = List.of('G', 'F', 'C');
+
+    protected static final List<Integer> CLEFS_STEPS = List.of(2, 4, 6);
+
+    protected static final Map<String, Float> ACCIDENTAL_MAP = new HashMap<String, Float>() {
         {
             put("natural", 0f);
             put("sharp", 1.0f);
@@ -92,7 +188,7 @@ public class IEEE1599App implements Callable<Void> {
         }
     };
 
-    private final Map<Float, List<String>> allNotesMap = new HashMap<Float, List<String>>() {
+    protected static final Map<Float, List<String>> ALL_NOTES_MAP = new HashMap<Float, List<String>>() {
         {
             put(0f, List.of("C", "D_double_flat", "B_sharp"));
             put(0.25f, List.of("C_demisharp", "D_sharp_and_a_half"));
@@ -137,48 +233,431 @@ public class IEEE1599App implements Callable<Void> {
      * document in IEEE1599 format.
      * </p>
      *
+     * @return the exit status, 0 if all the documents are saved and 1 if the
+     * program terminated due to an exception, so that the batches and the
+     * jobs can be checked by the scripts running them
+     *
      * @throws Exception if there is an exception that causes the end of the program
      */
     @Override
-    public Void call() throws Exception {
+    public Integer call() throws Exception {
+        OutputStream standardOutput = jobFile == null && seeds == null && FormatterUtils.STANDARD_OUTPUT.equals(output) ? redirectStandardOutput() : null;
+        try {
+            // the level is checked before the messages are built, so the messages below it cost almost nothing
+            Configurator.setRootLevel(quiet ? Level.ERROR : Level.valueOf(logLevel));
+
+            generate(null, standardOutput, metricsOut != null ? new GenerationMetrics() : null);
+        } catch (IllegalArgumentException | NoSuchElementException | IllegalStateException | ParserConfigurationException | TransformerException | XMLStreamException | IOException | UncheckedIOException | InterruptedException exceptionThrown) {
+            IEEE1599App.logger.error(exceptionThrown.getClass() + ":" + exceptionThrown.getMessage());
+            return CommandLine.ExitCode.SOFTWARE;
+        } catch (Exception exception) {
+            IEEE1599App.logger.error("The program terminated due to the exception " + exception.getClass());
+            return CommandLine.ExitCode.SOFTWARE;
+        }
+        return CommandLine.ExitCode.OK;
+    }
+
+    /**
+     * <p>
+     * validates the parsed parameters, initializing the instruments, so that
+     * a job can be checked before any document is generated
+     * </p>
+     *
+     * @param directory the directory of the relative file names, or null for
+     * the working directory of the app, whose standard streams are the only
+     * ones that can be used
+     *
+     * @throws IllegalArgumentException if the parameters are not valid
+     */
+    protected void validate(Path directory) {
+        // without a job file, the instruments and the track are required as the argument group once required them
+        if (instrumentsNumber < 1) {
+            throw new IllegalArgumentException(" number of instruments not valid, please try again by entering at least one instrument "
+                    + "with --instruments-number, or the jobs with --job-file");
+        }
+        if (trackLength < 1 || bpm < 1 || metre == null) {
+            throw new IllegalArgumentException(" missing track, please try again by entering a positive --track-length and --bpm, and a --metre");
+        }
+        int instrumentsParamsNumber = instrumentsParams != null ? instrumentsParams.size() : 0;
+        if (instrumentsParamsNumber != instrumentsNumber) {
+            throw new IllegalArgumentException(" number of instrumentsParams different from number of instruments, "
+                    + "please try again by entering the same number of instrumentsParams for as many instruments as there are");
+        }
+        if (directory != null && (FormatterUtils.STANDARD_OUTPUT.equals(output) || FormatterUtils.STANDARD_OUTPUT.equals(regenerate))) {
+            throw new IllegalArgumentException(" the standard streams are available only to the app, please use files");
+        }
+
+        Initializer instrumentsInitializer = new Initializer(trackLength, metre, bpm);
+
+        for (int i = 0; i < instrumentsNumber; i++) {
+            InstrumentParams instrumentParams = instrumentsParams.get(i);
+            instrumentsInitializer.initializeInstrumentsParams(instrumentParams.maxNumberOfPlayedNotes, instrumentParams.minDuration, instrumentParams.maxDuration, instrumentParams.minHeight, instrumentParams.maxHeight, instrumentParams.maxNumberOfNotesInAChord, instrumentParams.areIrregularGroupsPresent, instrumentParams.minimumDelay);
+        }
+
+        if (cacheDir != null && cacheSize < 1) {
+            throw new IllegalArgumentException(" the size of the cache must be positive");
+        }
+        if (pipelineParts && (backend != OutputBackend.DIRECT && backend != OutputBackend.COMPACT || seeds != null || regenerate != null)) {
+            throw new IllegalArgumentException(" the parts can be pipelined only for a single generated document with the DIRECT or COMPACT backend, "
+                    + "please remove --pipeline-parts or use --queue-capacity for a batch");
+        }
+        if (seeds != null) {
+            this.batchSeeds = BatchGenerator.parseSeeds(seeds);
+            BatchGenerator.checkParameters(fileNameTemplate, parallelism, queueCapacity);
+        }
+        this.initializer = instrumentsInitializer;
+    }
+
+    /**
+     * <p>
+     * generates and saves the documents of the parsed parameters, or the jobs
+     * of the job file, resolving the relative file names against the input
+     * directory
+     * </p>
+     *
+     * @param directory the directory of the relative file names, or null for
+     * the working directory of the app, whose standard streams are the only
+     * ones that can be used
+     * @param standardOutput the standard output receiving the document, or
+     * null if the document is saved into a file
+     * @param metrics the metrics of the generation, or null if it is not
+     * measured
+     *
+     * @return the names of the saved files
+     *
+     * @throws IllegalArgumentException if the parameters are not valid
+     * @throws Exception if a document cannot be generated or saved
+     */
+    protected List<String> generate(Path directory, OutputStream standardOutput, GenerationMetrics metrics) throws Exception {
+        if (jobFile != null) {
+            return generateJobs(directory, metrics);
+        }
+        if (this.initializer == null) {
+            validate(directory);
+        }
+
+        // a regenerated document also depends on the input document
+        DocumentCache cache = cacheDir != null && regenerate == null ? new DocumentCache(Path.of(resolve(directory, cacheDir)), cacheSize * 1024 * 1024, documentParameters()) : null;
+        List<String> fileNames = new ArrayList<>();
+        if (seeds != null) {
+            String template = resolve(directory, FormatterUtils.compressedFileName(fileNameTemplate, compression));
+            try (GeneratorEngine engine = createFormatterBuilder(this.initializer).buildEngine()) {
+                new BatchGenerator(engine::newFormatter, backend, compression, template, parallelism, queueCapacity, metrics, cache).generate(this.batchSeeds);
+            }
+            for (long batchSeed : this.batchSeeds) {
+                fileNames.add(BatchGenerator.fileName(template, batchSeed));
+            }
+        } else if (regenerate != null) {
+            Score score = FormatterUtils.readXMLFile(resolve(directory, regenerate));
+            int[] measures = parseMeasures(regenerateMeasures, score.getMeasuresNumber());
+            createFormatterBuilder(this.initializer).seed(seed).build().regenerate(score, regenerateInstrument, measures[0], measures[1]);
+            if (standardOutput != null) {
+                FormatterUtils.writeXML(score, backend, compression, standardOutput, metrics);
+            } else {
+                fileNames.add(resolve(directory, FormatterUtils.compressedFileName(output, compression)));
+                FormatterUtils.saveXMLFile(score, backend, compression, fileNames.get(0), metrics);
+            }
+        } else if (standardOutput != null) {
+            // the streamed documents are copied from the cache, but not stored into it
+            if (cache == null || !cache.copyTo(cache.key(seed), Channels.newChannel(standardOutput), metrics)) {
+                Formatter formatter = createFormatterBuilder(this.initializer).seed(seed).build();
+                if (pipelineParts) {
+                    FormatterUtils.writeXMLPipelined(formatter, backend, compression, standardOutput, metrics);
+                } else {
+                    FormatterUtils.writeXML(formatter.generate(metrics), backend, compression, standardOutput, metrics);
+                }
+            }
+        } else {
+            fileNames.add(resolve(directory, FormatterUtils.compressedFileName(output, compression)));
+            if (cache == null || !cache.copyTo(cache.key(seed), fileNames.get(0), metrics)) {
+                Formatter formatter = createFormatterBuilder(this.initializer).seed(seed).build();
+                if (pipelineParts) {
+                    FormatterUtils.saveXMLFilePipelined(formatter, backend, compression, fileNames.get(0), metrics);
+                } else {
+                    FormatterUtils.saveXMLFile(formatter.generate(metrics), backend, compression, fileNames.get(0), metrics);
+                }
+                if (cache != null) {
+                    cache.put(cache.key(seed), fileNames.get(0), metrics);
+                }
+            } else {
+                IEEE1599App.logger.info("Document copied from the cache into {}", fileNames.get(0));
+            }
+        }
+
+        if (metricsOut != null && metrics != null) {
+            Files.writeString(Path.of(resolve(directory, metricsOut)), metrics.toJson());
+            IEEE1599App.logger.info("Metrics saved into {}", metricsOut);
+        }
+        return fileNames;
+    }
+
+    /**
+     * <p>
+     * generates the jobs of the job file concurrently, after parsing and
+     * validating all of them, and continuing with the other jobs if a job
+     * fails
+     * </p>
+     *
+     * @param directory the directory of the relative file names, or null for
+     * the working directory of the app
+     * @param metrics the metrics summing the ones of all the jobs, or null if
+     * they are not measured
+     *
+     * @return the names of the files saved by all the jobs, in the order of
+     * the jobs
+     *
+     * @throws IllegalArgumentException if a job is not valid, or two jobs
+     * write the same file
+     * @throws IllegalStateException if at least one job fails
+     * @throws IOException if the job file cannot be read
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the jobs
+     */
+    private List<String> generateJobs(Path directory, GenerationMetrics metrics) throws IOException, InterruptedException {
+        if (jobsParallelism < 1) {
+            throw new IllegalArgumentException(" the parallelism of the jobs must be positive");
+        }
+        // the jobs never use the standard streams, which they would share
+        Path jobsDirectory = directory != null ? directory : Path.of("");
+        Map<String, List<String>> jobs = JobFile.read(jobsDirectory.resolve(jobFile)).getJobs();
+
+        Map<String, IEEE1599App> apps = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> job : jobs.entrySet()) {
+            IEEE1599App app = new IEEE1599App();
+            try {
+                new CommandLine(app).parseArgs(job.getValue().toArray(new String[0]));
+                if (app.jobFile != null) {
+                    throw new IllegalArgumentException(" a job cannot run another job file");
+                }
+                app.validate(jobsDirectory);
+            } catch (RuntimeException ex) {
+                // the picocli errors and the missing or wrong parameters of the instruments
+                throw new IllegalArgumentException(" the job " + job.getKey() + " of " + jobFile + " is not valid:" + ex.getMessage(), ex);
+            }
+            apps.put(job.getKey(), app);
+        }
+        checkOutputFiles(jobsDirectory, apps);
+        IEEE1599App.logger.info("{} jobs of {} validated, running {} at a time", apps.size(), jobFile, jobsParallelism);
+
+        ExecutorService pool = Executors.newFixedThreadPool(jobsParallelism);
+        List<String> fileNames = new ArrayList<>();
+        int failures = 0;
         try {
-            if (instrumentsParams.size() != instrumentsNumber) {
-                throw new IllegalArgumentException(" number of instrumentsParams different from number of instruments, "
-                        + "please try again by entering the same number of instrumentsParams for as many instruments as there are");
+            Map<String, Future<List<String>>> futures = new LinkedHashMap<>();
+            apps.forEach((name, app) -> futures.put(name, pool.submit(() -> {
+                GenerationMetrics jobMetrics = new GenerationMetrics();
+                List<String> jobFileNames = app.generate(jobsDirectory, null, jobMetrics);
+                if (metrics != null) {
+                    metrics.add(jobMetrics);
+                }
+                IEEE1599App.logger.info("Job {} completed", name);
+                return jobFileNames;
+            })));
+
+            for (Map.Entry<String, Future<List<String>>> future : futures.entrySet()) {
+                try {
+                    fileNames.addAll(future.getValue().get());
+                } catch (ExecutionException ex) {
+                    IEEE1599App.logger.error("The job " + future.getKey() + " failed: " + ex.getCause().getClass() + ":" + ex.getCause().getMessage());
+                    failures++;
+                }
             }
+        } finally {
+            pool.shutdownNow();
+        }
 
-            Initializer initializer = new Initializer(trackLength, metre, bpm);
+        if (failures > 0) {
+            throw new IllegalStateException(" " + failures + " of the " + apps.size() + " jobs of " + jobFile + " failed");
+        }
+        if (metricsOut != null && metrics != null) {
+            Files.writeString(jobsDirectory.resolve(metricsOut), metrics.toJson());
+            IEEE1599App.logger.info("Metrics saved into {}", metricsOut);
+        }
+        return fileNames;
+    }
 
-            for (int i = 0; i < instrumentsNumber; i++) {
-                InstrumentParams instrumentParams = instrumentsParams.get(i);
-                initializer.initializeInstrumentsParams(instrumentParams.maxNumberOfPlayedNotes, instrumentParams.minDuration, instrumentParams.maxDuration, instrumentParams.minHeight, instrumentParams.maxHeight, instrumentParams.maxNumberOfNotesInAChord, instrumentParams.areIrregularGroupsPresent, instrumentParams.minimumDelay);
+    /**
+     * <p>
+     * checks that no two jobs write the same file, since their documents
+     * would overwrite each other while the jobs run concurrently
+     * </p>
+     *
+     * @param jobsDirectory the directory of the relative file names of the
+     * jobs
+     * @param apps the validated apps of the jobs, by job name
+     *
+     * @throws IllegalArgumentException if two jobs, or a job and the metrics
+     * of the job file, write the same file
+     */
+    private void checkOutputFiles(Path jobsDirectory, Map<String, IEEE1599App> apps) {
+        Map<Path, String> writers = new HashMap<>();
+        if (metricsOut != null) {
+            writers.put(jobsDirectory.resolve(metricsOut).toAbsolutePath().normalize(), "the metrics of the job file");
+        }
+        for (Map.Entry<String, IEEE1599App> app : apps.entrySet()) {
+            String writer = "the job " + app.getKey();
+            for (Path file : app.getValue().outputFiles(jobsDirectory)) {
+                String previousWriter = writers.putIfAbsent(file, writer);
+                if (previousWriter != null) {
+                    throw new IllegalArgumentException(" " + previousWriter + " and " + writer + " of " + jobFile + " both write " + file + ", please give them different file names");
+                }
             }
+        }
+    }
 
-            Formatter formatter = FormatterBuilder.newBuilder()
-                    .seed(seed)
-                    .creator(creator)
-                    .docVersion(docVersion)
-                    .title(title)
-                    .author(author)
-                    .instrumentsNumber(instrumentsNumber)
-                    .instruments(initializer.getInstruments())
-                    .clefs(clefs)
-                    .clefsSteps(clefsSteps)
-                    .accidentalMap(accidentalMap)
-                    .allNotesMap(allNotesMap)
-                    .metreInNumbers(initializer.getMetreInNumbers())
-                    .measuresNumber(initializer.getMeasuresNumber())
-                    .irregularGroupsMap(initializer.getIrregularGroupsMap())
-                    .build();
-
-            formatter.format();
-            FormatterUtils.saveXMLFile(formatter.getDocument());
-        } catch (IllegalArgumentException | NoSuchElementException | ParserConfigurationException | TransformerException exceptionThrown) {
-            IEEE1599App.logger.error(exceptionThrown.getClass() + ":" + exceptionThrown.getMessage());
-        } catch (Exception exception) {
-            IEEE1599App.logger.error("The program terminated due to the exception " + exception.getClass());
+    /**
+     * <p>
+     * resolves the files written by the validated parameters against the
+     * input directory: the output file or the files of the batch, and the
+     * metrics file
+     * </p>
+     *
+     * @param directory the directory of the relative file names
+     *
+     * @return the absolute and normalized paths of the files, without
+     * duplicates
+     */
+    private Set<Path> outputFiles(Path directory) {
+        Set<Path> files = new LinkedHashSet<>();
+        if (seeds != null) {
+            String template = FormatterUtils.compressedFileName(fileNameTemplate, compression);
+            for (long batchSeed : this.batchSeeds) {
+                files.add(directory.resolve(BatchGenerator.fileName(template, batchSeed)).toAbsolutePath().normalize());
+            }
+        } else {
+            files.add(directory.resolve(FormatterUtils.compressedFileName(output, compression)).toAbsolutePath().normalize());
+        }
+        if (metricsOut != null) {
+            files.add(directory.resolve(metricsOut).toAbsolutePath().normalize());
+        }
+        return files;
+    }
+
+    /**
+     * <p>
+     * describes all the parameters on which the bytes of a document depend,
+     * except for the seed, one per line in a fixed order, so that the same
+     * parameters always give the same description
+     * </p>
+     *
+     * @return the description of the parameters
+     */
+    private String documentParameters() {
+        StringBuilder parameters = new StringBuilder(256 + 256 * instrumentsNumber);
+        parameters.append("creator=").append(creator)
+                .append("\ntitle=").append(title)
+                .append("\nauthor=").append(author)
+                .append("\ntrackLength=").append(trackLength)
+                .append("\nbpm=").append(bpm)
+                .append("\nmetre=").append(metre)
+                .append("\ninstrumentsNumber=").append(instrumentsNumber);
+        for (int i = 0; i < instrumentsNumber; i++) {
+            InstrumentParams instrumentParams = instrumentsParams.get(i);
+            parameters.append("\ninstrument=").append(i + 1)
+                    .append(' ').append(instrumentParams.maxNumberOfPlayedNotes)
+                    .append(' ').append(Arrays.toString(instrumentParams.minDuration))
+                    .append(' ').append(Arrays.toString(instrumentParams.maxDuration))
+                    .append(' ').append(instrumentParams.minHeight)
+                    .append(' ').append(instrumentParams.maxHeight)
+                    .append(' ').append(instrumentParams.maxNumberOfNotesInAChord)
+                    .append(' ').append(instrumentParams.areIrregularGroupsPresent)
+                    .append(' ').append(instrumentParams.minimumDelay);
         }
-        return null;
+        parameters.append("\nbackend=").append(backend)
+                .append("\ncompression=").append(compression)
+                .append("\nrandomStreams=").append(randomStreams)
+                .append("\nspineOrder=").append(spineOrder)
+                .append("\ncompositionDraw=").append(compositionDraw);
+        return parameters.toString();
+    }
+
+    /**
+     * <p>
+     * resolves a file name against the input directory
+     * </p>
+     *
+     * @param directory the directory of the relative file names, or null to
+     * leave them unchanged
+     * @param fileName the file name
+     *
+     * @return the resolved file name
+     */
+    private static String resolve(Path directory, String fileName) {
+        return directory != null ? directory.resolve(fileName).toString() : fileName;
+    }
+
+    /**
+     * <p>
+     * creates the builder of the formatter with the input parameters, except
+     * for the seed
+     * </p>
+     *
+     * @param initializer the initializer of the parameters of the document
+     *
+     * @return the created builder
+     */
+    private FormatterBuilder createFormatterBuilder(Initializer initializer) {
+        return FormatterBuilder.newBuilder()
+                .creator(creator)
+                .docVersion(DOC_VERSION)
+                .title(title)
+                .author(author)
+                .instrumentsNumber(instrumentsNumber)
+                .instruments(initializer.getInstruments())
+                .clefs(CLEFS)
+                .clefsSteps(CLEFS_STEPS)
+                .accidentalMap(ACCIDENTAL_MAP)
+                .allNotesMap(ALL_NOTES_MAP)
+                .metreInNumbers(initializer.getMetreInNumbers())
+                .measuresNumber(initializer.getMeasuresNumber())
+                .irregularGroupsMap(initializer.getIrregularGroupsMap())
+                .randomStreams(randomStreams)
+                .spineOrder(spineOrder)
+                .compositionDraw(compositionDraw)
+                .partThreads(partThreads);
+    }
+
+    /**
+     * <p>
+     * parses a range of measures like 10..20, or a single measure
+     * </p>
+     *
+     * @param measures the range of measures, or null for all the measures
+     * @param measuresNumber the number of measures of the score
+     *
+     * @return the first and the last measure number of the range
+     *
+     * @throws IllegalArgumentException if the range is not made of numbers
+     */
+    private static int[] parseMeasures(String measures, int measuresNumber) {
+        if (measures == null) {
+            return new int[]{1, measuresNumber};
+        }
+        int separator = measures.indexOf("..");
+        try {
+            if (separator < 0) {
+                int measure = Integer.parseInt(measures.trim());
+                return new int[]{measure, measure};
+            }
+            return new int[]{Integer.parseInt(measures.substring(0, separator).trim()), Integer.parseInt(measures.substring(separator + 2).trim())};
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(" the range of measures " + measures + " is not like <first measure>..<last measure>", ex);
+        }
+    }
+
+    /**
+     * <p>
+     * takes the standard output for the document, redirecting System.out to
+     * the standard error, so that the console logs do not mix with it
+     * </p>
+     *
+     * @return the stream writing into the standard output
+     */
+    private static OutputStream redirectStandardOutput() {
+        OutputStream standardOutput = new FileOutputStream(FileDescriptor.out);
+        System.out.flush();
+        System.setOut(System.err);
+        return standardOutput;
     }
 
     public static void main(String... args) {
@@ -0,0 +1,102 @@
+package com.ieee1599generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Submits a job to the daemon listening on the local socket and prints its
+ * answer.
+ * <p>
+ * The client only uses the classes of the JDK, so that it starts quickly: its
+ * parameters are the ones of the app, whose relative file names are resolved
+ * against the working directory of the client, together with --daemon-port to
+ * choose the port of the daemon, or only --shutdown to stop the daemon. The
+ * exit status is 0 if the job is completed, 1 if it failed and 2 if the
+ * daemon cannot be reached.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class IEEE1599Client {
+
+    private static final String PORT_OPTION = "--daemon-port=";
+    private static final String SHUTDOWN_OPTION = "--shutdown";
+
+    /**
+     * <p>
+     * sends the request to the daemon and prints its answer, the saved files
+     * and the metrics on the standard output, or the error on the standard
+     * error
+     * </p>
+     *
+     * @param args the parameters of the app, with the options of the client
+     *
+     * @return the exit status
+     */
+    protected static int submit(String... args) {
+        int port = IEEE1599Daemon.DEFAULT_PORT;
+        boolean shutdown = false;
+        List<String> parameters = new ArrayList<>(args.length);
+        for (String arg : args) {
+            if (arg.startsWith(PORT_OPTION)) {
+                try {
+                    port = Integer.parseInt(arg.substring(PORT_OPTION.length()));
+                } catch (NumberFormatException ex) {
+                    System.err.println("The port " + arg.substring(PORT_OPTION.length()) + " is not a number");
+                    return 2;
+                }
+            } else if (SHUTDOWN_OPTION.equals(arg)) {
+                shutdown = true;
+            } else if (arg.indexOf('\n') >= 0 || arg.indexOf('\r') >= 0) {
+                System.err.println("The parameter " + arg + " contains a line break");
+                return 2;
+            } else {
+                parameters.add(arg);
+            }
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            if (shutdown) {
+                output.write(IEEE1599Daemon.SHUTDOWN_REQUEST + "\n");
+            } else {
+                output.write(IEEE1599Daemon.JOB_REQUEST + "\n" + System.getProperty("user.dir") + "\n" + parameters.size() + "\n");
+                for (String parameter : parameters) {
+                    output.write(parameter + "\n");
+                }
+            }
+            output.flush();
+
+            String status = input.readLine();
+            if (status == null || !status.equals(IEEE1599Daemon.OK_ANSWER)) {
+                System.err.println(status != null ? status : IEEE1599Daemon.ERROR_ANSWER + " the daemon closed the connection without answering");
+                return 1;
+            }
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                System.out.println(line);
+            }
+            return 0;
+        } catch (ConnectException ex) {
+            System.err.println("No daemon is listening on the port " + port + ", please start it with com.ieee1599generator.IEEE1599Daemon");
+            return 2;
+        } catch (IOException ex) {
+            System.err.println("The daemon cannot be reached: " + ex.getMessage());
+            return 2;
+        }
+    }
+
+    public static void main(String... args) {
+        System.exit(submit(args));
+    }
+}
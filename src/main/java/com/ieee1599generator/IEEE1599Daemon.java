@@ -0,0 +1,468 @@
+package com.ieee1599generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Runs the jobs of the app in a long running JVM, so that each job starts on
+ * classes already loaded and compiled.
+ * <p>
+ * A job is made of the parameters of the app, and is received either from a
+ * client connected to a local socket, as a JOB line followed by the working
+ * directory of the client, the number of parameters and one parameter per
+ * line, or from a file with the job extension put into the spool directory,
+ * with one parameter per line. The relative file names of a job are resolved
+ * against the working directory of the client or against the spool directory.
+ * The answer, sent to the client or saved into a file with the result
+ * extension, starts with an OK line followed by an output line for each saved
+ * file and by the JSON metrics of the job, or with an ERROR line.
+ * </p>
+ * <p>
+ * The requests of the clients are read on their own threads, so that a slow
+ * or idle client never holds a thread of the jobs, and a shutdown request
+ * stops the daemon once all the received jobs have completed.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@Command(mixinStandardHelpOptions = true)
+public class IEEE1599Daemon implements Callable<Void> {
+
+    private static final Logger logger = LogManager.getLogger(IEEE1599Daemon.class.getName());
+
+    /**
+     * The port of the socket when none is specified
+     */
+    protected static final int DEFAULT_PORT = 15990;
+    /**
+     * The request of a job
+     */
+    protected static final String JOB_REQUEST = "JOB";
+    /**
+     * The request stopping the daemon
+     */
+    protected static final String SHUTDOWN_REQUEST = "SHUTDOWN";
+    /**
+     * The first line of the answer of a completed job
+     */
+    protected static final String OK_ANSWER = "OK";
+    /**
+     * The first word of the answer of a failed job
+     */
+    protected static final String ERROR_ANSWER = "ERROR";
+    /**
+     * The extension of the job files of the spool directory
+     */
+    protected static final String JOB_EXTENSION = ".job";
+    /**
+     * The extension of the result files of the spool directory
+     */
+    protected static final String RESULT_EXTENSION = ".result";
+
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    @Option(names = {"--port"}, defaultValue = "" + DEFAULT_PORT, description = "port of the local socket receiving the jobs, or 0 to receive them only from the spool directory (default: ${DEFAULT-VALUE})")
+    private int port;
+
+    @Option(names = {"--spool-dir"}, description = "directory watched for job files, with the " + JOB_EXTENSION + " extension and one parameter of the app per line, whose results are saved next to them with the " + RESULT_EXTENSION + " extension")
+    private Path spoolDir;
+
+    @Option(names = {"--threads"}, description = "number of jobs run concurrently (default: number of available processors)")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--log-level"}, defaultValue = "INFO", description = "lowest level of the logged messages of all the jobs, OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE or ALL (default: ${DEFAULT-VALUE})")
+    private String logLevel;
+
+    @Option(names = {"--quiet"}, description = "log only the errors, as --log-level=ERROR")
+    private boolean quiet;
+
+    /**
+     * The pool running the jobs
+     */
+    private ExecutorService jobs;
+    /**
+     * The pool reading the requests of the clients and answering them
+     */
+    private ExecutorService connections;
+    /**
+     * The socket receiving the clients, or null if there is none
+     */
+    private ServerSocket serverSocket;
+    /**
+     * Whether the daemon is still receiving jobs
+     */
+    private volatile boolean running = true;
+    /**
+     * The job files of the spool directory submitted and not completed yet
+     */
+    private final Set<Path> spoolJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * <p>
+     * receives the jobs until a client asks the daemon to stop
+     * </p>
+     *
+     * @throws Exception if the socket or the spool directory cannot be used
+     */
+    @Override
+    public Void call() throws Exception {
+        Configurator.setRootLevel(quiet ? Level.ERROR : Level.valueOf(logLevel));
+        if (port < 0 || (port == 0 && spoolDir == null)) {
+            throw new IllegalArgumentException(" the daemon needs a positive port or a spool directory");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException(" the number of threads must be positive");
+        }
+
+        this.jobs = Executors.newFixedThreadPool(threads);
+        this.connections = Executors.newCachedThreadPool();
+        Thread spoolWatcher = null;
+        try {
+            if (port > 0) {
+                this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+            }
+            if (spoolDir != null) {
+                spoolWatcher = new Thread(() -> watchSpool(spoolDir.toAbsolutePath()), "ieee1599-spool");
+                spoolWatcher.setDaemon(true);
+                spoolWatcher.start();
+            }
+            IEEE1599Daemon.logger.info("Daemon ready with {} threads, port {}, spool directory {}", threads, port, spoolDir);
+
+            if (this.serverSocket != null) {
+                acceptClients();
+            } else {
+                spoolWatcher.join();
+            }
+        } finally {
+            this.running = false;
+            if (spoolWatcher != null) {
+                spoolWatcher.interrupt();
+            }
+            // the received jobs complete and their clients get the answers before the daemon stops
+            this.jobs.shutdown();
+            awaitTermination(this.jobs, "jobs");
+            this.connections.shutdown();
+            awaitTermination(this.connections, "answers");
+        }
+        IEEE1599Daemon.logger.info("Daemon stopped");
+        return null;
+    }
+
+    /**
+     * <p>
+     * accepts the clients of the socket, handling each one on the pool of the
+     * connections, until the socket is closed
+     * </p>
+     *
+     * @throws IOException if the socket cannot accept the clients
+     */
+    private void acceptClients() throws IOException {
+        try (ServerSocket server = this.serverSocket) {
+            while (this.running) {
+                Socket client;
+                try {
+                    client = server.accept();
+                } catch (SocketException ex) {
+                    if (!this.running) {
+                        // the socket has been closed by a shutdown request
+                        return;
+                    }
+                    throw ex;
+                }
+                this.connections.execute(() -> handleClient(client));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * reads the request of a client and answers it, with an error if the
+     * request is not well formed
+     * </p>
+     *
+     * @param client the socket of the client
+     */
+    private void handleClient(Socket client) {
+        try (Socket socket = client;
+                BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            String answer;
+            try {
+                answer = answer(input);
+            } catch (IOException | RuntimeException ex) {
+                IEEE1599Daemon.logger.error(ex.getClass() + " : the request of a client is not valid:" + ex.getMessage());
+                answer = ERROR_ANSWER + " " + ex.getClass().getName() + ":" + ex.getMessage() + "\n";
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                answer = ERROR_ANSWER + " the daemon stopped before the job completed\n";
+            }
+            output.write(answer);
+        } catch (IOException ex) {
+            IEEE1599Daemon.logger.error(ex.getClass() + " : the request of a client cannot be answered: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * <p>
+     * reads the request of a client and runs it, waiting for the pool of the
+     * jobs to complete a job
+     * </p>
+     *
+     * @param input the reader of the request
+     *
+     * @return the answer of the request
+     *
+     * @throws IOException if the request cannot be read
+     * @throws IllegalArgumentException if the request is not well formed
+     * @throws RejectedExecutionException if the daemon is stopping
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the job
+     */
+    private String answer(BufferedReader input) throws IOException, InterruptedException {
+        String request = input.readLine();
+        if (SHUTDOWN_REQUEST.equals(request)) {
+            IEEE1599Daemon.logger.info("Shutdown requested");
+            shutdown();
+            return OK_ANSWER + "\n";
+        }
+        if (!JOB_REQUEST.equals(request)) {
+            return ERROR_ANSWER + " the request " + request + " is not " + JOB_REQUEST + " or " + SHUTDOWN_REQUEST + "\n";
+        }
+
+        Path directory = Path.of(readRequestLine(input, "working directory"));
+        String parametersNumber = readRequestLine(input, "number of parameters");
+        if (!parametersNumber.matches("\\d{1,9}")) {
+            throw new IllegalArgumentException(" the number of parameters " + parametersNumber + " is not a number");
+        }
+        List<String> parameters = new ArrayList<>();
+        for (int p = 0; p < Integer.parseInt(parametersNumber); p++) {
+            parameters.add(readRequestLine(input, "parameter " + (p + 1) + " of " + parametersNumber));
+        }
+        try {
+            return this.jobs.submit(() -> runJob(directory, parameters)).get();
+        } catch (ExecutionException ex) {
+            // runJob answers all its failures
+            throw new IllegalStateException(" the job failed", ex.getCause());
+        }
+    }
+
+    /**
+     * <p>
+     * reads a line of a request
+     * </p>
+     *
+     * @param input the reader of the request
+     * @param line the description of the line, used by the messages
+     *
+     * @return the read line
+     *
+     * @throws IOException if the line cannot be read
+     * @throws IllegalArgumentException if the request ends before the line
+     */
+    private static String readRequestLine(BufferedReader input, String line) throws IOException {
+        String read = input.readLine();
+        if (read == null) {
+            throw new IllegalArgumentException(" the request ends before the " + line);
+        }
+        return read;
+    }
+
+    /**
+     * <p>
+     * stops receiving the jobs, letting the running ones complete
+     * </p>
+     */
+    private void shutdown() {
+        this.running = false;
+        try {
+            if (this.serverSocket != null) {
+                this.serverSocket.close();
+            }
+        } catch (IOException ex) {
+            IEEE1599Daemon.logger.error(ex.getClass() + " : the socket cannot be closed");
+        }
+    }
+
+    /**
+     * <p>
+     * submits the job files of the spool directory, first the ones already in
+     * it and then the ones put into it, until the daemon stops
+     * </p>
+     *
+     * @param spool the spool directory
+     */
+    private void watchSpool(Path spool) {
+        try (WatchService watcher = spool.getFileSystem().newWatchService()) {
+            // the directory is registered before being listed, so that no job is missed between the two
+            spool.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            submitSpoolJobs(spool);
+
+            while (this.running) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        submitSpoolJobs(spool);
+                    } else {
+                        submitSpoolJob(spool.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            IEEE1599Daemon.logger.error(ex.getClass() + " : the spool directory " + spool + " cannot be watched: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * <p>
+     * submits all the job files in the spool directory
+     * </p>
+     *
+     * @param spool the spool directory
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    private void submitSpoolJobs(Path spool) throws IOException {
+        try (DirectoryStream<Path> jobFiles = Files.newDirectoryStream(spool, "*" + JOB_EXTENSION)) {
+            for (Path jobFile : jobFiles) {
+                submitSpoolJob(jobFile);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * submits a job file of the spool directory, unless it is already
+     * submitted, and saves its result next to it once it is completed,
+     * deleting it
+     * </p>
+     *
+     * @param jobFile the job file
+     */
+    private void submitSpoolJob(Path jobFile) {
+        String fileName = jobFile.getFileName().toString();
+        if (!fileName.endsWith(JOB_EXTENSION) || !this.spoolJobs.add(jobFile)) {
+            return;
+        }
+        this.jobs.execute(() -> {
+            try {
+                List<String> parameters = new ArrayList<>();
+                for (String line : Files.readAllLines(jobFile, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        parameters.add(line.trim());
+                    }
+                }
+                String answer = runJob(jobFile.getParent(), parameters);
+
+                // the result appears at once, so that its readers never see it partially written
+                Path resultFile = jobFile.resolveSibling(fileName.substring(0, fileName.length() - JOB_EXTENSION.length()) + RESULT_EXTENSION);
+                Path temporaryFile = jobFile.resolveSibling(resultFile.getFileName() + ".tmp");
+                Files.writeString(temporaryFile, answer, StandardCharsets.UTF_8);
+                Files.move(temporaryFile, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(jobFile);
+            } catch (IOException | RuntimeException ex) {
+                IEEE1599Daemon.logger.error(ex.getClass() + " : the job file " + jobFile + " cannot be run: " + ex.getMessage());
+            } finally {
+                this.spoolJobs.remove(jobFile);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * runs a job with the parameters of the app, measuring it
+     * </p>
+     *
+     * @param directory the directory of the relative file names of the job
+     * @param parameters the parameters of the app
+     *
+     * @return the answer, with the saved files and the metrics of the job or
+     * the error that stopped it
+     */
+    protected static String runJob(Path directory, List<String> parameters) {
+        long start = System.nanoTime();
+        IEEE1599App app = new IEEE1599App();
+        CommandLine commandLine = new CommandLine(app);
+        try {
+            CommandLine.ParseResult parseResult = commandLine.parseArgs(parameters.toArray(new String[0]));
+            if (parseResult.isUsageHelpRequested() || parseResult.isVersionHelpRequested()) {
+                return OK_ANSWER + "\n" + commandLine.getUsageMessage();
+            }
+
+            GenerationMetrics metrics = new GenerationMetrics();
+            List<String> fileNames = app.generate(directory, null, metrics);
+
+            StringBuilder answer = new StringBuilder(OK_ANSWER).append('\n');
+            for (String fileName : fileNames) {
+                answer.append("output ").append(fileName).append('\n');
+            }
+            answer.append(metrics.toJson());
+            IEEE1599Daemon.logger.info("Job completed in {} ms, saving {} files", (System.nanoTime() - start) / 1_000_000, fileNames.size());
+            return answer.toString();
+        } catch (CommandLine.ParameterException ex) {
+            IEEE1599Daemon.logger.error("The parameters of a job are not valid: " + ex.getMessage());
+            return ERROR_ANSWER + " " + ex.getMessage() + "\n";
+        } catch (Exception ex) {
+            IEEE1599Daemon.logger.error("A job failed: " + ex.getClass() + ":" + ex.getMessage());
+            return ERROR_ANSWER + " " + ex.getClass().getName() + ":" + ex.getMessage() + "\n";
+        }
+    }
+
+    /**
+     * <p>
+     * waits for the termination of a pool, however long its tasks take
+     * </p>
+     *
+     * @param pool the shut down pool
+     * @param tasks the description of the tasks of the pool, used by the
+     * messages
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private static void awaitTermination(ExecutorService pool, String tasks) throws InterruptedException {
+        while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+            IEEE1599Daemon.logger.info("Waiting for the running {} to complete", tasks);
+        }
+    }
+
+    public static void main(String... args) {
+        System.exit(new CommandLine(new IEEE1599Daemon()).execute(args));
+    }
+}
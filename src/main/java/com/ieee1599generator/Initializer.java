@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Initializes some of the input parameters
@@ -13,6 +15,12 @@ import java.util.Map;
  */
 public class Initializer {
 
+    /**
+     * The pattern of a height: the Anglo-Saxon note name, the possible
+     * accidental and the octave number, possibly preceded by an underscore
+     */
+    private static final Pattern HEIGHT_PATTERN = Pattern.compile("([A-G])(?:_([a-z]+(?:_[a-z]+)*))?_?(-?\\d+)");
+
     /**
      * The list of musical instruments, each with its own parameters
      */
@@ -79,9 +87,14 @@ public class Initializer {
      * groups
      * @param minimumDelay the minimum delay, expressed in VTU, after which the
      * next note will sound
+     *
+     * @throws IllegalArgumentException if a height is not valid
      */
     public void initializeInstrumentsParams(int maxNumberOfPlayedNotes, int[] minDuration, int[] maxDuration, String minHeight, String maxHeight, int maxNumberOfNotesInAChord, boolean areIrregularGroupsPresent, int minimumDelay) {
 
+        Height parsedMinHeight = parseHeight(minHeight);
+        Height parsedMaxHeight = parseHeight(maxHeight);
+
         // fill the map of the notes from from that of maximum duration to that of minimum duration
         Map<Double, int[]> notesMap = new HashMap<>();
         for (int i = maxDuration[1]; i <= minDuration[1]; i *= 2) {
@@ -92,8 +105,35 @@ public class Initializer {
         int maxNumberOfEvents = (int) ((((double) 1 / this.metreInNumbers[1]) / ((double) minDuration[0] / minDuration[1])) * this.metreInNumbers[0]) * this.measuresNumber;
 
         // create a new instrument with the initialized parameters
-        instruments.add(new Instrument(maxNumberOfPlayedNotes, minDuration, maxDuration, minHeight, maxHeight, maxNumberOfNotesInAChord, areIrregularGroupsPresent, minimumDelay, notesMap, maxNumberOfEvents));
+        instruments.add(new Instrument(maxNumberOfPlayedNotes, minDuration, maxDuration, parsedMinHeight, parsedMaxHeight, maxNumberOfNotesInAChord, areIrregularGroupsPresent, minimumDelay, notesMap, maxNumberOfEvents));
+
+    }
 
+    /**
+     * <p>
+     * parses a height into its note name, accidental and octave number
+     * </p>
+     *
+     * @param height the height, as note name, possible accidental and octave
+     * number
+     *
+     * @return the parsed height
+     *
+     * @throws IllegalArgumentException if the height is not valid
+     */
+    private Height parseHeight(String height) {
+        Matcher matcher = HEIGHT_PATTERN.matcher(height == null ? "" : height);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(" height " + height + " not valid, please try again by entering "
+                    + "<Anglo-Saxon note name>_<possible accidental><octave number>");
+        }
+        String accidental = matcher.group(2) == null ? "natural" : matcher.group(2);
+        Float accidentalOffset = IEEE1599App.ACCIDENTAL_MAP.get(accidental);
+        if (accidentalOffset == null) {
+            throw new IllegalArgumentException(" accidental " + accidental + " of the height " + height + " not valid, "
+                    + "please try again by entering one of " + String.join(", ", IEEE1599App.ACCIDENTAL_MAP.keySet()));
+        }
+        return new Height(matcher.group(1).charAt(0), accidental, accidentalOffset, Integer.parseInt(matcher.group(3)), height);
     }
 
     /**
@@ -26,11 +26,11 @@ public class Instrument {
     /**
      * The minimum height of musical figures
      */
-    private final String minHeight;
+    private final Height minHeight;
     /**
      * The maximum height of musical figures
      */
-    private final String maxHeight;
+    private final Height maxHeight;
     /**
      * The maximum number of notes in a chord
      */
@@ -52,7 +52,7 @@ public class Instrument {
      */
     private final int maxNumberOfEvents;
 
-    public Instrument(int maxNumberOfPlayedNotes, int[] minDuration, int[] maxDuration, String minHeight, String maxHeight, int maxNumberOfNotesInAChord, boolean areIrregularGroupsPresent, int minimumDelay, Map<Double, int[]> notesMap, int maxNumberOfEvents) {
+    public Instrument(int maxNumberOfPlayedNotes, int[] minDuration, int[] maxDuration, Height minHeight, Height maxHeight, int maxNumberOfNotesInAChord, boolean areIrregularGroupsPresent, int minimumDelay, Map<Double, int[]> notesMap, int maxNumberOfEvents) {
         this.maxNumberOfPlayedNotes = maxNumberOfPlayedNotes;
         this.minDuration = minDuration;
         this.maxDuration = maxDuration;
@@ -77,11 +77,11 @@ public class Instrument {
         return this.maxDuration;
     }
 
-    public String getMinHeight() {
+    public Height getMinHeight() {
         return this.minHeight;
     }
 
-    public String getMaxHeight() {
+    public Height getMaxHeight() {
         return this.maxHeight;
     }
 
@@ -0,0 +1,231 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Model.OptionSpec;
+
+/**
+ * Reads the jobs of a properties file and turns each one into the parameters
+ * of the app.
+ * <p>
+ * The keys are the names of the options of the app without the leading
+ * dashes: the ones of the app, like track-length=60, are shared by all the
+ * jobs, the ones of the instruments are prefixed by instrument.* for all the
+ * instruments or by instrument.&lt;number&gt;. for a single instrument, from
+ * 1, and any key prefixed by job.&lt;name&gt;. only belongs to the named job,
+ * overriding the shared one. A file without job keys holds a single job.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class JobFile {
+
+    private static final Logger logger = LogManager.getLogger(JobFile.class.getName());
+
+    /**
+     * The prefix of the keys of a single job
+     */
+    protected static final String JOB_PREFIX = "job.";
+    /**
+     * The prefix of the keys of the instruments
+     */
+    protected static final String INSTRUMENT_PREFIX = "instrument.";
+    /**
+     * The instrument number of the keys of all the instruments
+     */
+    protected static final String ALL_INSTRUMENTS = "*";
+    /**
+     * The name of the job of a file without job keys
+     */
+    protected static final String SINGLE_JOB = "job";
+
+    /**
+     * The options of the app
+     */
+    private static final CommandSpec APP_SPEC = new CommandLine(new IEEE1599App()).getCommandSpec();
+
+    /**
+     * The order of the job names, numerically when both are numbers
+     */
+    private static final Comparator<String> JOB_NAMES_ORDER = (first, second) -> {
+        if (first.matches("\\d{1,18}") && second.matches("\\d{1,18}")) {
+            return Long.compare(Long.parseLong(first), Long.parseLong(second));
+        }
+        return first.compareTo(second);
+    };
+
+    /**
+     * The name of the file, used by the messages
+     */
+    private final String fileName;
+    /**
+     * The keys shared by all the jobs
+     */
+    private final Map<String, String> sharedKeys = new TreeMap<>();
+    /**
+     * The keys of each job, by job name
+     */
+    private final Map<String, Map<String, String>> jobKeys = new TreeMap<>(JOB_NAMES_ORDER);
+
+    /**
+     * @param fileName the name of the file, used by the messages
+     * @param properties the keys and values of the file
+     *
+     * @throws IllegalArgumentException if a job key has no name
+     */
+    protected JobFile(String fileName, Properties properties) {
+        this.fileName = fileName;
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.startsWith(JOB_PREFIX)) {
+                int separator = key.indexOf('.', JOB_PREFIX.length());
+                if (separator <= JOB_PREFIX.length() || separator == key.length() - 1) {
+                    throw new IllegalArgumentException(" the key " + key + " of " + fileName + " is not well formed, please use " + JOB_PREFIX + "<name>.<parameter>");
+                }
+                this.jobKeys.computeIfAbsent(key.substring(JOB_PREFIX.length(), separator), name -> new TreeMap<>()).put(key.substring(separator + 1), value);
+            } else {
+                this.sharedKeys.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * reads the jobs of a properties file
+     * </p>
+     *
+     * @param path the path of the file
+     *
+     * @return the jobs of the file
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a job key has no name
+     */
+    protected static JobFile read(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        JobFile jobFile = new JobFile(path.toString(), properties);
+        JobFile.logger.info("{} jobs read from {}", jobFile.jobKeys.isEmpty() ? 1 : jobFile.jobKeys.size(), path);
+        return jobFile;
+    }
+
+    /**
+     * <p>
+     * provides the parameters of the app of each job, with the shared keys
+     * overridden by the ones of the job and the instruments in order
+     * </p>
+     *
+     * @return the parameters of each job, by job name, ordered by job name
+     *
+     * @throws IllegalArgumentException if a key is not an option of the app
+     * or of the instruments, or an instrument is beyond the number of
+     * instruments
+     */
+    protected Map<String, List<String>> getJobs() {
+        Map<String, List<String>> jobs = new LinkedHashMap<>();
+        if (this.jobKeys.isEmpty()) {
+            jobs.put(SINGLE_JOB, toParameters(SINGLE_JOB, this.sharedKeys));
+        }
+        for (Map.Entry<String, Map<String, String>> job : this.jobKeys.entrySet()) {
+            Map<String, String> keys = new TreeMap<>(this.sharedKeys);
+            keys.putAll(job.getValue());
+            jobs.put(job.getKey(), toParameters(job.getKey(), keys));
+        }
+        return jobs;
+    }
+
+    /**
+     * <p>
+     * turns the keys of a job into the parameters of the app, the options of
+     * the app first and then the ones of each instrument
+     * </p>
+     *
+     * @param jobName the name of the job, used by the messages
+     * @param keys the keys of the job
+     *
+     * @return the parameters of the app
+     *
+     * @throws IllegalArgumentException if a key is not an option of the app
+     * or of the instruments, or an instrument is beyond the number of
+     * instruments
+     */
+    private List<String> toParameters(String jobName, Map<String, String> keys) {
+        List<String> parameters = new ArrayList<>();
+        Map<String, String> allInstrumentsKeys = new TreeMap<>();
+        TreeMap<Integer, Map<String, String>> instrumentKeys = new TreeMap<>();
+
+        for (Map.Entry<String, String> key : keys.entrySet()) {
+            if (!key.getKey().startsWith(INSTRUMENT_PREFIX)) {
+                addParameter(parameters, jobName, key.getKey(), key.getValue(), false);
+                continue;
+            }
+            int separator = key.getKey().indexOf('.', INSTRUMENT_PREFIX.length());
+            if (separator < 0) {
+                throw new IllegalArgumentException(" the key " + key.getKey() + " of the job " + jobName + " of " + this.fileName + " is not well formed, please use " + INSTRUMENT_PREFIX + "<number or " + ALL_INSTRUMENTS + ">.<parameter>");
+            }
+            String instrument = key.getKey().substring(INSTRUMENT_PREFIX.length(), separator);
+            String option = key.getKey().substring(separator + 1);
+            if (ALL_INSTRUMENTS.equals(instrument)) {
+                allInstrumentsKeys.put(option, key.getValue());
+            } else if (instrument.matches("\\d{1,9}") && Integer.parseInt(instrument) > 0) {
+                instrumentKeys.computeIfAbsent(Integer.parseInt(instrument), i -> new TreeMap<>()).put(option, key.getValue());
+            } else {
+                throw new IllegalArgumentException(" the instrument " + instrument + " of the job " + jobName + " of " + this.fileName + " is not a positive number or " + ALL_INSTRUMENTS);
+            }
+        }
+
+        String instrumentsNumberValue = keys.getOrDefault("instruments-number", "0");
+        int instrumentsNumber = instrumentsNumberValue.matches("\\d{1,9}") ? Integer.parseInt(instrumentsNumberValue) : 0;
+        if (!instrumentKeys.isEmpty() && instrumentKeys.lastKey() > instrumentsNumber) {
+            throw new IllegalArgumentException(" the instrument " + instrumentKeys.lastKey() + " of the job " + jobName + " of " + this.fileName + " is beyond the " + instrumentsNumber + " instruments");
+        }
+        for (int i = 1; i <= instrumentsNumber; i++) {
+            Map<String, String> instrumentOptions = new TreeMap<>(allInstrumentsKeys);
+            instrumentOptions.putAll(instrumentKeys.getOrDefault(i, Map.of()));
+            for (Map.Entry<String, String> option : instrumentOptions.entrySet()) {
+                addParameter(parameters, jobName, option.getKey(), option.getValue(), true);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * <p>
+     * adds the parameter of an option of the app or of an instrument
+     * </p>
+     *
+     * @param parameters the parameters of the app
+     * @param jobName the name of the job, used by the messages
+     * @param name the name of the option, without the leading dashes
+     * @param value the value of the option
+     * @param instrument whether the option belongs to an instrument
+     *
+     * @throws IllegalArgumentException if the option is not an option of the
+     * app or of the instruments
+     */
+    private void addParameter(List<String> parameters, String jobName, String name, String value, boolean instrument) {
+        OptionSpec option = APP_SPEC.findOption("--" + name);
+        if (option == null || option.usageHelp() || option.versionHelp() || (option.group() != null) != instrument) {
+            throw new IllegalArgumentException(" the key " + name + " of the job " + jobName + " of " + this.fileName + " is not a parameter of the " + (instrument ? "instruments" : "app"));
+        }
+        parameters.add("--" + name + "=" + value);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the schedule of the notes and rests of an instrument, consumed
+ * one event at a time in the order of the voices
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class NotesAndRests {
+
+    private static final char NOTE = 'N';
+    private static final char REST = 'R';
+
+    /**
+     * The notes, denoted with 'N', and the rests, denoted with 'R'
+     */
+    private final char[] events;
+    /**
+     * The index of the next event to be placed
+     */
+    private int next;
+
+    /**
+     * @param notesNumber the total number of notes
+     * @param restsNumber the total number of rests
+     */
+    protected NotesAndRests(int notesNumber, int restsNumber) {
+        this.events = new char[notesNumber + restsNumber];
+        for (int e = 0; e < this.events.length; e++) {
+            this.events[e] = e < notesNumber ? NOTE : REST;
+        }
+    }
+
+    /**
+     * <p>
+     * mixes the notes and rests still to be placed
+     * </p>
+     *
+     * @param randomizer the randomizer object
+     */
+    protected void shuffle(Randomizer randomizer) {
+        randomizer.shuffleArray(this.events);
+    }
+
+    /**
+     * @return true if there are notes or rests still to be placed
+     */
+    protected boolean hasNext() {
+        return this.next < this.events.length;
+    }
+
+    /**
+     * <p>
+     * consumes the next event to be placed
+     * </p>
+     *
+     * @return true if the event is a note, false if it is a rest
+     */
+    protected boolean nextIsNote() {
+        return this.events[this.next++] == NOTE;
+    }
+
+    /**
+     * <p>
+     * skips the events placed in the measures before the actual one, without
+     * consuming them
+     * </p>
+     *
+     * @param eventsNumber the number of events to skip
+     */
+    protected void skip(int eventsNumber) {
+        this.next = Math.min(this.next + eventsNumber, this.events.length);
+    }
+
+    /**
+     * @return the total number of notes and rests
+     */
+    protected int size() {
+        return this.events.length;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the backends available to write the IEEE1599 document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum OutputBackend {
+
+    /**
+     * Builds the whole DOM document and then saves it
+     */
+    DOM,
+    /**
+     * Streams the document through a XMLStreamWriter while it is generated
+     */
+    STAX,
+    /**
+     * Encodes the document straight into a byte buffer, with the same layout
+     * as DOM
+     */
+    DIRECT,
+    /**
+     * Encodes the document straight into a byte buffer, without indentation
+     */
+    COMPACT
+}
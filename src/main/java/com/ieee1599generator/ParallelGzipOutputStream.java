@@ -0,0 +1,271 @@
+package com.ieee1599generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the written bytes in gzip format, using many threads.
+ * <p>
+ * The bytes are collected into blocks of fixed size, and each full block is
+ * compressed on the pool into a complete gzip member. The members are written
+ * into the output stream in the order of their blocks, and their
+ * concatenation is a valid gzip file, which is decompressed into the written
+ * bytes. At most twice as many blocks as the threads of the pool are
+ * compressed at the same time, so that the writing thread waits for the
+ * oldest member when the pool is behind.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * The default size of the blocks
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private static final int MEMBER_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The output stream receiving the gzip members
+     */
+    private final OutputStream output;
+    /**
+     * The pool compressing the blocks
+     */
+    private final ExecutorService pool;
+    /**
+     * The size of the blocks
+     */
+    private final int blockSize;
+    /**
+     * The maximum number of blocks being compressed at the same time
+     */
+    private final int maxPendingBlocks;
+    /**
+     * The members being compressed, in the order of their blocks
+     */
+    private final Deque<Future<byte[]>> pendingMembers = new ArrayDeque<>();
+    /**
+     * The block being filled
+     */
+    private byte[] block;
+    /**
+     * The number of bytes of the block being filled
+     */
+    private int blockLength;
+    /**
+     * The number of members submitted to the pool
+     */
+    private long membersNumber;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * @param output the output stream receiving the gzip members
+     */
+    public ParallelGzipOutputStream(OutputStream output) {
+        this(output, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param output the output stream receiving the gzip members
+     * @param pool the pool compressing the blocks
+     * @param threads the number of threads of the pool
+     * @param blockSize the size of the blocks
+     *
+     * @throws IllegalArgumentException if the number of threads or the size
+     * of the blocks is not positive
+     */
+    public ParallelGzipOutputStream(OutputStream output, ExecutorService pool, int threads, int blockSize) {
+        if (threads < 1 || blockSize < 1) {
+            throw new IllegalArgumentException(" the number of threads and the size of the blocks must be positive");
+        }
+        this.output = output;
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = 2 * threads;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureNotFinished();
+        if (this.blockLength == this.blockSize) {
+            submitBlock();
+        }
+        this.block[this.blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureNotFinished();
+        while (len > 0) {
+            if (this.blockLength == this.blockSize) {
+                submitBlock();
+            }
+            int copied = Math.min(len, this.blockSize - this.blockLength);
+            System.arraycopy(b, off, this.block, this.blockLength, copied);
+            this.blockLength += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    /**
+     * <p>
+     * writes the members already compressed and flushes the output stream,
+     * while the block being filled is compressed only when it is full or the
+     * stream is closed
+     * </p>
+     *
+     * @throws IOException if a block cannot be compressed or written
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!this.pendingMembers.isEmpty() && this.pendingMembers.peekFirst().isDone()) {
+            writeOldestMember();
+        }
+        this.output.flush();
+    }
+
+    /**
+     * <p>
+     * compresses the last block and writes all the members, without closing
+     * the output stream
+     * </p>
+     *
+     * @throws IOException if a block cannot be compressed or written
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        this.finished = true;
+        // an empty stream is still written as a gzip member, since a gzip file cannot be empty
+        if (this.blockLength > 0 || this.membersNumber == 0) {
+            submitBlock();
+        }
+        while (!this.pendingMembers.isEmpty()) {
+            writeOldestMember();
+        }
+    }
+
+    /**
+     * <p>
+     * finishes the compression and closes the output stream
+     * </p>
+     *
+     * @throws IOException if a block cannot be compressed or written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            finish();
+        } finally {
+            abort();
+            this.output.close();
+        }
+    }
+
+    /**
+     * <p>
+     * stops the compression of a document that cannot be completed, cancelling
+     * the blocks still being compressed and discarding the written bytes,
+     * without writing into or closing the output stream; once the compression
+     * is finished, it does nothing
+     * </p>
+     */
+    public void abort() {
+        this.finished = true;
+        for (Future<byte[]> member : this.pendingMembers) {
+            member.cancel(true);
+        }
+        this.pendingMembers.clear();
+        this.block = null;
+    }
+
+    /**
+     * @throws IOException if the compression is already finished
+     */
+    private void ensureNotFinished() throws IOException {
+        if (this.finished) {
+            throw new IOException(" the compression is already finished");
+        }
+    }
+
+    /**
+     * <p>
+     * submits the block being filled to the pool and starts a new one, waiting
+     * for the oldest member if too many blocks are being compressed
+     * </p>
+     *
+     * @throws IOException if a block cannot be compressed or written
+     */
+    private void submitBlock() throws IOException {
+        byte[] data = this.block;
+        int length = this.blockLength;
+        this.pendingMembers.addLast(this.pool.submit(() -> compress(data, length)));
+        this.membersNumber++;
+        this.block = new byte[this.blockSize];
+        this.blockLength = 0;
+
+        while (this.pendingMembers.size() > this.maxPendingBlocks) {
+            writeOldestMember();
+        }
+    }
+
+    /**
+     * <p>
+     * waits for the oldest member and writes it into the output stream
+     * </p>
+     *
+     * @throws IOException if the block cannot be compressed or written
+     */
+    private void writeOldestMember() throws IOException {
+        try {
+            this.output.write(this.pendingMembers.peekFirst().get());
+            this.pendingMembers.removeFirst();
+        } catch (ExecutionException ex) {
+            throw new IOException(" a block cannot be compressed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(" interrupted while compressing a block");
+        }
+    }
+
+    /**
+     * <p>
+     * compresses a block into a complete gzip member
+     * </p>
+     *
+     * @param data the bytes of the block
+     * @param length the number of bytes of the block
+     *
+     * @return the gzip member
+     *
+     * @throws IOException if the block cannot be compressed
+     */
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member, MEMBER_BUFFER_SIZE)) {
+            gzip.write(data, 0, length);
+        }
+        return member.toByteArray();
+    }
+
+}
@@ -0,0 +1,473 @@
+package com.ieee1599generator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Formats the staff and the part of a single instrument.
+ * <p>
+ * Each instance draws its random values from its own Randomizer and fills its
+ * own ScorePart, so that the parts of different instruments can be formatted
+ * concurrently.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class PartFormatter {
+
+    private static final Logger logger = LogManager.getLogger(PartFormatter.class.getName());
+
+    private static final int PITCHES_NUMBER = 12;
+
+    /**
+     * The instrument number
+     */
+    private final int instrumentNumber;
+    /**
+     * The musical instrument, with its own parameters
+     */
+    private final Instrument instrument;
+    /**
+     * The number of events of the instrument
+     */
+    private final int eventsNumber;
+    /**
+     * The number of events in a measure of the instrument
+     */
+    private final int eventsNumberInAMeasure;
+    /**
+     * The randomizer object
+     */
+    private final Randomizer randomizer;
+    /**
+     * The part being formatted
+     */
+    private final ScorePart part;
+    /**
+     * The list of clefs
+     */
+    private final List<Character> clefs;
+    /**
+     * The list of clefs steps
+     */
+    private final List<Integer> clefsSteps;
+    /**
+     * The table of the pitches
+     */
+    private final PitchTable pitchTable;
+    /**
+     * The pitch of the minimum height of the instrument
+     */
+    private final float minHeightPitch;
+    /**
+     * The pitch of the maximum height of the instrument
+     */
+    private final float maxHeightPitch;
+    /**
+     * The metre converted from a string into numbers
+     */
+    private final int[] metreInNumbers;
+    /**
+     * The number of available measures
+     */
+    private final int measuresNumber;
+    /**
+     * The map of irregular groups
+     */
+    private final Map<Integer, Integer> irregularGroupsMap;
+    /**
+     * The irregular groups, in the iteration order of their map
+     */
+    private final int[] irregularGroups;
+    /**
+     * The compositions of the measures, shared by the instruments
+     */
+    private final DurationCompositions durationCompositions;
+    /**
+     * The composition of the measures of the instrument
+     */
+    private DurationComposition durationComposition;
+
+    public PartFormatter(int instrumentNumber, Instrument instrument, int eventsNumber, int eventsNumberInAMeasure, Randomizer randomizer, ScorePart part, List<Character> clefs, List<Integer> clefsSteps, PitchTable pitchTable, int[] metreInNumbers, int measuresNumber, Map<Integer, Integer> irregularGroupsMap, DurationCompositions durationCompositions) {
+        this.instrumentNumber = instrumentNumber;
+        this.instrument = instrument;
+        this.eventsNumber = eventsNumber;
+        this.eventsNumberInAMeasure = eventsNumberInAMeasure;
+        this.randomizer = randomizer;
+        this.part = part;
+        this.clefs = clefs;
+        this.clefsSteps = clefsSteps;
+        this.pitchTable = pitchTable;
+        this.minHeightPitch = pitchTable.getPitch(instrument.getMinHeight().getNoteName());
+        this.maxHeightPitch = pitchTable.getPitch(instrument.getMaxHeight().getNoteName());
+        this.metreInNumbers = metreInNumbers;
+        this.measuresNumber = measuresNumber;
+        this.irregularGroupsMap = irregularGroupsMap;
+        this.irregularGroups = irregularGroupsMap.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.durationCompositions = durationCompositions;
+    }
+
+    /**
+     * <p>
+     * formats the staff and the part of the instrument
+     * </p>
+     */
+    public void format() {
+        format(1, this.measuresNumber);
+    }
+
+    /**
+     * <p>
+     * formats the staff and a range of measures of the part of the
+     * instrument, which are the same measures of the entire part only if the
+     * randomizer is keyed, since each measure then draws its own random values
+     * </p>
+     *
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     */
+    public void format(int firstMeasure, int lastMeasure) {
+        PartFormatter.logger.info("INSTRUMENT {}", this.instrumentNumber);
+
+        this.randomizer.key(this.instrumentNumber, 0, Randomizer.ALL_EVENTS);
+        addStaffListComponents();
+
+        PartFormatter.logger.debug("Create measure elements");
+        createMeasureElements(firstMeasure, lastMeasure);
+    }
+
+    /**
+     * <p>
+     * adds staff_list components
+     * </p>
+     */
+    private void addStaffListComponents() {
+        char clefShape = this.randomizer.getRandomElementFromList(this.clefs);
+        int clefStep = this.randomizer.getRandomElementFromList(this.clefsSteps);
+
+        PartFormatter.logger.debug("Add staff element");
+        this.part.setStaff(clefShape, clefStep);
+    }
+
+    /**
+     * <p>
+     * creates the measure elements
+     * </p>
+     *
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     */
+    private void createMeasureElements(int firstMeasure, int lastMeasure) {
+
+        // random number of notes played by the actual instrument
+        int notesNumber = this.randomizer.getRandomInteger(1, this.instrument.getMaxNumberOfPlayedNotes());
+        PartFormatter.logger.info("Notes number: {}", notesNumber);
+
+        if (notesNumber > this.eventsNumber) {
+            notesNumber = this.eventsNumber;
+        }
+
+        // random number of rests of the actual instrument
+        int restsNumber = this.eventsNumber - notesNumber;
+        PartFormatter.logger.info("Events number: {}", this.eventsNumber);
+        PartFormatter.logger.info("Rests number: {}", restsNumber);
+
+        // the measures of the instrument have the same number of events, so they are all filled by the same composition
+        this.durationComposition = this.durationCompositions.get(this.instrument, this.eventsNumberInAMeasure);
+
+        NotesAndRests notesAndRests = new NotesAndRests(notesNumber, restsNumber);
+        notesAndRests.shuffle(this.randomizer);
+        PartFormatter.logger.info("Total of notes and rests: {}", notesAndRests.size());
+
+        // each measure before the range would have placed its events, while there were any
+        notesAndRests.skip((firstMeasure - 1) * this.eventsNumberInAMeasure);
+
+        for (int j = firstMeasure; j <= lastMeasure; j++) {
+            PartFormatter.logger.info("MEASURE {}", j);
+
+            PartFormatter.logger.debug("Create voice element");
+            createVoiceElement(j, notesAndRests);
+        }
+    }
+
+    /**
+     * <p>
+     * creates the voice elements
+     * </p>
+     *
+     * @param j the index of the measures number
+     * @param notesAndRests the notes and rests still to be placed
+     *
+     */
+    private void createVoiceElement(int j, NotesAndRests notesAndRests) {
+        PartFormatter.logger.debug("Add voice element");
+        this.part.startMeasure(j);
+
+        this.randomizer.key(this.instrumentNumber, j, Randomizer.ALL_EVENTS);
+
+        float randomPitch = this.randomizer.getRandomFloat(this.minHeightPitch, this.maxHeightPitch);
+        PartFormatter.logger.info("Random pitch: {}", randomPitch);
+
+        // random number of notes in a chord
+        int notesInAChord = this.randomizer.getRandomInteger(1, this.instrument.getMaxNumberOfNotesInAChord());
+        PartFormatter.logger.info("Notes in a chord: {}", notesInAChord);
+
+        PartFormatter.logger.info("Events number in a measure: {}", this.eventsNumberInAMeasure);
+
+        // draw a selection of the correct musical figures for the actual measure
+        List<Double> correctNotesAndRests = selectCorrectNotesAndRests();
+
+        for (int k = 0; k < this.eventsNumberInAMeasure; k++) {
+
+            if (notesAndRests.hasNext()) {
+                this.randomizer.key(this.instrumentNumber, j, k);
+
+                if (notesAndRests.nextIsNote()) {
+                    PartFormatter.logger.debug("Create chord elements");
+                    createChordElements(j, k, notesInAChord, correctNotesAndRests, randomPitch);
+
+                } else {
+                    PartFormatter.logger.debug("Create rest elements");
+                    createRestElements(j, k, correctNotesAndRests);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * selects the correct notes and rests
+     * </p>
+     *
+     * @return the list of correct notes and rests
+     */
+    private List<Double> selectCorrectNotesAndRests() {
+        List<Double> correctNotesAndRests = this.durationComposition.draw(this.randomizer);
+        this.randomizer.shuffleList(correctNotesAndRests);
+        PartFormatter.logger.info("Correct notes and rests: {}", () -> correctNotesAndRests.stream().map(Object::toString).collect(Collectors.joining(", ")));
+
+        return correctNotesAndRests;
+    }
+
+    /**
+     * <p>
+     * creates the rest elements
+     * </p>
+     *
+     * @param j the index of the measures number
+     * @param k the index of the events number in the actual measure
+     * @param correctNotesAndRests the correct notes and rests list
+     *
+     */
+    private void createRestElements(int j, int k, List<Double> correctNotesAndRests) {
+        // the event id and the boxed values are built only if they are logged, since this is done for each event
+        if (PartFormatter.logger.isInfoEnabled()) {
+            PartFormatter.logger.info("Event: {}", FormatterUtils.voiceEventId(this.instrumentNumber, j, k));
+        }
+
+        if (!correctNotesAndRests.isEmpty()) {
+            double randomNote = correctNotesAndRests.remove(0);
+            if (PartFormatter.logger.isInfoEnabled()) {
+                PartFormatter.logger.info("Random note: {}", randomNote);
+            }
+
+            int[] duration = computeDuration(randomNote);
+
+            PartFormatter.logger.debug("Add rest element");
+            this.part.addRest(k, duration);
+
+            PartFormatter.logger.debug("Add event attributes of duration element");
+            addEventAttributes(j, k, duration);
+        } else {
+            PartFormatter.logger.debug("Add event attributes of duration element");
+            addEventAttributes(j, k, null);
+        }
+    }
+
+    /**
+     * <p>
+     * computes the duration of a chord or a rest
+     * </p>
+     *
+     * @param randomNote the random note
+     *
+     * @return the duration as numerator and denominator
+     */
+    private int[] computeDuration(double randomNote) {
+        if (randomNote == 1) {
+            return new int[]{this.metreInNumbers[0], this.metreInNumbers[1]};
+        }
+        return new int[]{1, this.instrument.getNotesMap().get(randomNote)[1]};
+    }
+
+    /**
+     * <p>
+     * creates the chord elements
+     * </p>
+     *
+     * @param j the index of the measures number
+     * @param k the index of the events number in the actual measure
+     * @param notesInAChord the number of notes in a chord
+     * @param correctNotesAndRests the correct notes and rests list
+     * @param randomPitch the random pitch
+     *
+     */
+    private void createChordElements(int j, int k, int notesInAChord, List<Double> correctNotesAndRests, float randomPitch) {
+        if (PartFormatter.logger.isInfoEnabled()) {
+            PartFormatter.logger.info("Event: {}", FormatterUtils.voiceEventId(this.instrumentNumber, j, k));
+        }
+
+        if (!correctNotesAndRests.isEmpty()) {
+            double randomNote = correctNotesAndRests.remove(0);
+            if (PartFormatter.logger.isInfoEnabled()) {
+                PartFormatter.logger.info("Random note: {}", randomNote);
+            }
+
+            // random irregular group from the map
+            int irregularGroup = this.randomizer.getRandomIntFromArray(this.irregularGroups);
+            if (PartFormatter.logger.isInfoEnabled()) {
+                PartFormatter.logger.info("Irregular group: {}/{}", irregularGroup, this.metreInNumbers[1] * this.irregularGroupsMap.get(irregularGroup));
+            }
+
+            createChordDurationElement(j, k, randomNote, irregularGroup);
+
+            createNoteheadElements(notesInAChord, randomPitch);
+        } else {
+            PartFormatter.logger.debug("Add event attributes of duration element");
+            addEventAttributes(j, k, null);
+        }
+    }
+
+    /**
+     * <p>
+     * creates the notehead element
+     * </p>
+     *
+     * @param notesInAChord the number of notes in a chord
+     * @param randomPitch the random pitch
+     *
+     */
+    private void createNoteheadElements(int notesInAChord, float randomPitch) {
+        for (int n = 1; n <= notesInAChord; n++) {
+            PartFormatter.logger.debug("Add pitch element");
+            addPitchElement(randomPitch);
+        }
+    }
+
+    /**
+     * <p>
+     * creates the duration element for the chord one
+     * </p>
+     *
+     * @param j the index of the measures number
+     * @param k the index of the events number in the actual measure
+     * @param randomNote the random note
+     * @param irregularGroup the irregular group
+     *
+     */
+    private void createChordDurationElement(int j, int k, double randomNote, int irregularGroup) {
+        int[] duration = computeDuration(randomNote);
+
+        PartFormatter.logger.debug("Add event attributes of duration element");
+        addEventAttributes(j, k, duration);
+
+        int[] tupletRatio = additionForIrregularGroupsPresence(this.instrument.getAreIrregularGroupsPresent(), irregularGroup, this.metreInNumbers[1] * this.irregularGroupsMap.get(irregularGroup), 1, duration[1]);
+
+        PartFormatter.logger.debug("Add chord element");
+        this.part.addChord(k, duration, tupletRatio);
+    }
+
+    /**
+     * <p>
+     * computes the tuplet ratio of the irregular groups element
+     * </p>
+     *
+     * @param areIrregularGroupsPresent the boolean that indicates the presence
+     * or absece of the irregular groups
+     * @param enterNum the value of the enter_num attribute
+     * @param enterDen the value of the enter_den attribute
+     * @param inNum the value of the in_num attribute
+     * @param inDen the value of the in_den attribute
+     *
+     * @return the tuplet ratio, or null if no irregular group is to be added
+     */
+    private int[] additionForIrregularGroupsPresence(boolean areIrregularGroupsPresent, int enterNum, int enterDen, int inNum, int inDen) {
+
+        if (areIrregularGroupsPresent) {
+            PartFormatter.logger.debug("Add irregular group elements");
+            if (this.randomizer.getRandomBoolean()) {
+                return new int[]{enterNum, enterDen, inNum, inDen};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * adds attributes of an event
+     * </p>
+     *
+     * @param j the index j of the measures number
+     * @param k the index k of the events number in the actual measure
+     * @param duration the duration of the event used to assign the
+     * corresponding "timing" and "hpos", or null if the event has no duration
+     *
+     */
+    private void addEventAttributes(int j, int k, int[] duration) {
+        if (k > 0 && duration != null) {
+            this.part.setEventTiming(j, k, this.instrument.getMinimumDelay() * (this.instrument.getMinDuration()[1] / duration[1]));
+        } else {
+            this.part.setEventTiming(j, k, 0);
+        }
+    }
+
+    /**
+     * <p>
+     * adds the pitch element computing it
+     * </p>
+     *
+     * @param randomPitch the randomly selected pitch
+     *
+     */
+    private void addPitchElement(float randomPitch) {
+
+        int randomAccidental = this.randomizer.getRandomIndex(this.pitchTable.getAccidentalsNumber());
+
+        int randomOctave = this.randomizer.getRandomInteger(this.instrument.getMinHeight().getOctave(), this.instrument.getMaxHeight().getOctave());
+
+        randomPitch += this.pitchTable.getAccidentalOffset(randomAccidental);
+        randomPitch %= PITCHES_NUMBER;
+        if (randomPitch < 0) {
+            randomPitch += PITCHES_NUMBER;
+        }
+
+        // change octave if the random pitch is higher than the input maximum height
+        if (randomPitch > this.maxHeightPitch) {
+            randomOctave = this.randomizer.getRandomInteger(this.instrument.getMinHeight().getOctave(), (int) (randomPitch - this.maxHeightPitch));
+        }
+
+        // get the true pitch from which the random one has the minimum distance
+        int keyIndex = this.pitchTable.getNearestKeyIndex(randomPitch);
+
+        // get a random note name corresponding to the actual pitch
+        int noteNameIndex = this.randomizer.getRandomIndex(this.pitchTable.getNoteNamesNumber(keyIndex));
+        char step = this.pitchTable.getStep(keyIndex, noteNameIndex);
+        String actualAccidental = this.pitchTable.getNoteNameAccidental(keyIndex, noteNameIndex);
+
+        if (PartFormatter.logger.isInfoEnabled()) {
+            PartFormatter.logger.info("Pitch: {}", this.pitchTable.getKey(keyIndex));
+            PartFormatter.logger.info("Actual accidental: {}", actualAccidental);
+            PartFormatter.logger.info("Octave: {}", randomOctave);
+            PartFormatter.logger.info("Note name: {}", step);
+        }
+
+        PartFormatter.logger.debug("Add notehead element");
+        this.part.addNotehead(step, randomOctave, actualAccidental);
+
+    }
+
+}
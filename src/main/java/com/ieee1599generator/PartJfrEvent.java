@@ -0,0 +1,76 @@
+package com.ieee1599generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Represents in a Java Flight Recorder recording the generation of the part
+ * of an instrument, with the parameters making it more or less expensive
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@Name("com.ieee1599generator.Part")
+@Label("Part Generation")
+@Category({"IEEE1599 Generator"})
+@Description("Generation of the staff and the part of an instrument")
+public class PartJfrEvent extends Event {
+
+    @Label("Instrument")
+    private int instrument;
+
+    @Label("Events")
+    private int events;
+
+    @Label("Events In A Measure")
+    private int eventsInAMeasure;
+
+    @Label("Chords")
+    private int chords;
+
+    @Label("Rests")
+    private int rests;
+
+    @Label("Noteheads")
+    private int noteheads;
+
+    @Label("Minimum Duration")
+    private String minDuration;
+
+    @Label("Maximum Duration")
+    private String maxDuration;
+
+    @Label("Maximum Notes In A Chord")
+    private int maxNotesInAChord;
+
+    @Label("Irregular Groups")
+    private boolean irregularGroups;
+
+    /**
+     * <p>
+     * sets the fields of the event once the part is generated
+     * </p>
+     *
+     * @param instrumentNumber the instrument number
+     * @param instrument the musical instrument
+     * @param eventsNumber the number of events of the instrument
+     * @param eventsNumberInAMeasure the number of events in a measure
+     * @param part the generated part
+     */
+    protected void set(int instrumentNumber, Instrument instrument, int eventsNumber, int eventsNumberInAMeasure, ScorePart part) {
+        this.instrument = instrumentNumber;
+        this.events = eventsNumber;
+        this.eventsInAMeasure = eventsNumberInAMeasure;
+        this.rests = part.getRestsNumber();
+        this.chords = part.getChordsNumber();
+        this.noteheads = part.getNoteheadsNumber();
+        this.minDuration = instrument.getMinDuration()[0] + "/" + instrument.getMinDuration()[1];
+        this.maxDuration = instrument.getMaxDuration()[0] + "/" + instrument.getMaxDuration()[1];
+        this.maxNotesInAChord = instrument.getMaxNumberOfNotesInAChord();
+        this.irregularGroups = instrument.getAreIrregularGroupsPresent();
+    }
+
+}
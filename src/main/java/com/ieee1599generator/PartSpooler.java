@@ -0,0 +1,199 @@
+package com.ieee1599generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Pipelines the parts of a single document: each part is serialized by a
+ * writer thread into a spool file as soon as it is formatted, while the next
+ * parts are formatted, and the spool file is appended to the document after
+ * the spine and the staves.
+ * <p>
+ * The parts are serialized in instrument order, whatever the order in which
+ * they are formatted, by a ByteScoreWriter writing only parts, so that the
+ * document is the same as the one written in a single pass by the DIRECT or
+ * COMPACT backend. The spool file is deleted when the spooler is closed.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class PartSpooler implements Consumer<ScorePart>, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(PartSpooler.class.getName());
+
+    /**
+     * The number of parts of the document
+     */
+    private final int partsNumber;
+    /**
+     * Whether the document is written without indentation
+     */
+    private final boolean compact;
+    /**
+     * The spool file of the serialized parts
+     */
+    private final Path spool;
+    /**
+     * The formatted parts not yet taken by the writer thread
+     */
+    private final BlockingQueue<ScorePart> formattedParts = new LinkedBlockingQueue<>();
+    /**
+     * The thread serializing the parts into the spool file
+     */
+    private final Thread writer;
+    /**
+     * The failure of the writer thread, or null
+     */
+    private volatile Throwable failure;
+    /**
+     * The time spent by the writer thread serializing the parts, read once it
+     * has ended
+     */
+    private long writingNanos;
+    /**
+     * The bytes allocated by the writer thread, read once it has ended
+     */
+    private long writingAllocatedBytes;
+
+    /**
+     * @param partsNumber the number of parts of the document
+     * @param compact true to write the document without indentation
+     *
+     * @throws IOException if the spool file cannot be created
+     */
+    protected PartSpooler(int partsNumber, boolean compact) throws IOException {
+        this.partsNumber = partsNumber;
+        this.compact = compact;
+        this.spool = Files.createTempFile("ieee1599-los", ".xml");
+        this.writer = new Thread(this::writeParts, "ieee1599-part-writer");
+        this.writer.start();
+    }
+
+    /**
+     * <p>
+     * hands a formatted part to the writer thread, from any thread
+     * </p>
+     *
+     * @param part the formatted part
+     */
+    @Override
+    public void accept(ScorePart part) {
+        this.formattedParts.add(part);
+    }
+
+    /**
+     * <p>
+     * waits for all the parts to be serialized, and then writes the document
+     * of the score into the output stream, copying the spool file after the
+     * staves, and flushing the stream without closing it
+     * </p>
+     *
+     * @param score the generated score, whose parts have all been handed to
+     * the spooler
+     * @param output the output stream of the document
+     *
+     * @throws IOException if the parts cannot be serialized, or the document
+     * cannot be written
+     */
+    protected void writeTo(Score score, OutputStream output) throws IOException {
+        try {
+            this.writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(" interrupted while waiting for the parts to be serialized");
+        }
+        if (this.failure != null) {
+            throw new IOException(" the parts cannot be serialized into " + this.spool, this.failure);
+        }
+        ByteScoreWriter scoreWriter = new ByteScoreWriter(output, this.compact);
+        score.writeHeadTo(scoreWriter);
+        scoreWriter.appendParts(this.spool);
+        scoreWriter.endDocument();
+    }
+
+    /**
+     * @return the time spent by the writer thread serializing the parts
+     */
+    protected long getWritingNanos() {
+        return this.writingNanos;
+    }
+
+    /**
+     * @return the bytes allocated by the writer thread
+     */
+    protected long getWritingAllocatedBytes() {
+        return this.writingAllocatedBytes;
+    }
+
+    /**
+     * <p>
+     * stops the writer thread, if the generation has failed before handing
+     * all the parts, and deletes the spool file
+     * </p>
+     *
+     * @throws IOException if the spool file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.interrupt();
+        boolean interrupted = false;
+        while (this.writer.isAlive()) {
+            try {
+                this.writer.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Files.deleteIfExists(this.spool);
+    }
+
+    /**
+     * <p>
+     * serializes the formatted parts into the spool file in instrument order,
+     * keeping the parts formatted ahead of their turn until the previous ones
+     * arrive
+     * </p>
+     */
+    private void writeParts() {
+        long allocated = GenerationMetrics.allocatedBytes();
+        Map<Integer, ScorePart> waitingParts = new HashMap<>();
+        int nextInstrument = 1;
+        try (OutputStream output = Files.newOutputStream(this.spool)) {
+            ByteScoreWriter fragmentWriter = new ByteScoreWriter(output, this.compact, true);
+            while (nextInstrument <= this.partsNumber) {
+                ScorePart part = this.formattedParts.take();
+                waitingParts.put(part.getInstrument(), part);
+                for (part = waitingParts.remove(nextInstrument); part != null; part = waitingParts.remove(nextInstrument)) {
+                    long start = System.nanoTime();
+                    part.writeTo(fragmentWriter);
+                    this.writingNanos += System.nanoTime() - start;
+                    nextInstrument++;
+                }
+            }
+            fragmentWriter.endFragment();
+        } catch (InterruptedException ex) {
+            PartSpooler.logger.debug("Part writer stopped after {} of {} parts", nextInstrument - 1, this.partsNumber);
+            this.failure = ex;
+        } catch (Throwable ex) {
+            PartSpooler.logger.error(ex.getClass() + " : the parts cannot be serialized into " + this.spool);
+            this.failure = ex;
+        }
+        this.writingAllocatedBytes = GenerationMetrics.allocatedBytes() - allocated;
+    }
+
+}
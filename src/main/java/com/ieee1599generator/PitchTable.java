@@ -0,0 +1,213 @@
+package com.ieee1599generator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the immutable table of the pitches, built once from the map of
+ * all notes and the map of accidentals.
+ * <p>
+ * The note names are resolved with a single lookup, and a pitch is quantized
+ * to the nearest key of the map of all notes by indexing a precomputed array
+ * of eighth tones. Ties and duplicated note names are resolved as the scans of
+ * the maps did, following their iteration order.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class PitchTable {
+
+    private static final int PITCHES_NUMBER = 12;
+
+    /**
+     * The number of cells of the quantization table in a semitone, such that
+     * every key and every middle point between two keys is a cell boundary
+     */
+    private static final int CELLS_PER_PITCH = 8;
+
+    /**
+     * The pitch of each note name
+     */
+    private final Map<String, Float> noteNamePitches;
+    /**
+     * The keys of the map of all notes, in its iteration order
+     */
+    private final float[] keys;
+    /**
+     * The steps of the note names of each key
+     */
+    private final char[][] steps;
+    /**
+     * The accidentals of the note names of each key
+     */
+    private final String[][] noteNameAccidentals;
+    /**
+     * The accidentals, in the iteration order of the map of accidentals
+     */
+    private final String[] accidentals;
+    /**
+     * The pitch offset of each accidental
+     */
+    private final float[] accidentalOffsets;
+    /**
+     * The index of the nearest key to each cell boundary
+     */
+    private final int[] nearestKeysAtBoundary;
+    /**
+     * The index of the nearest key to the pitches inside each cell
+     */
+    private final int[] nearestKeysInCell;
+
+    /**
+     * @param allNotesMap the map of all notes
+     * @param accidentalMap the map of accidentals
+     */
+    public PitchTable(Map<Float, List<String>> allNotesMap, Map<String, Float> accidentalMap) {
+        this.noteNamePitches = new HashMap<>();
+        this.keys = new float[allNotesMap.size()];
+        this.steps = new char[allNotesMap.size()][];
+        this.noteNameAccidentals = new String[allNotesMap.size()][];
+        int k = 0;
+        for (Map.Entry<Float, List<String>> e : allNotesMap.entrySet()) {
+            this.keys[k] = e.getKey();
+            List<String> noteNames = e.getValue();
+            this.steps[k] = new char[noteNames.size()];
+            this.noteNameAccidentals[k] = new String[noteNames.size()];
+            for (int n = 0; n < noteNames.size(); n++) {
+                String noteName = noteNames.get(n);
+                // the first key containing a note name is the one of the note name
+                this.noteNamePitches.putIfAbsent(noteName, e.getKey());
+                this.steps[k][n] = noteName.charAt(0);
+                this.noteNameAccidentals[k][n] = noteName.contains("_") ? noteName.substring(2) : "natural";
+            }
+            k++;
+        }
+
+        this.accidentals = accidentalMap.keySet().toArray(new String[0]);
+        this.accidentalOffsets = new float[this.accidentals.length];
+        for (int a = 0; a < this.accidentals.length; a++) {
+            this.accidentalOffsets[a] = accidentalMap.get(this.accidentals[a]);
+        }
+
+        int cellsNumber = PITCHES_NUMBER * CELLS_PER_PITCH + 1;
+        this.nearestKeysAtBoundary = new int[cellsNumber];
+        this.nearestKeysInCell = new int[cellsNumber];
+        for (int c = 0; c < cellsNumber; c++) {
+            this.nearestKeysAtBoundary[c] = scanNearestKeyIndex((float) c / CELLS_PER_PITCH);
+            this.nearestKeysInCell[c] = scanNearestKeyIndex((c + 0.5f) / CELLS_PER_PITCH);
+        }
+    }
+
+    /**
+     * <p>
+     * gets the key index that has the minimum distance with the input pitch,
+     * scanning all the keys
+     * </p>
+     *
+     * @param pitch the pitch
+     *
+     * @return the index of the nearest key
+     */
+    private int scanNearestKeyIndex(float pitch) {
+        float minimumDistance = 0f;
+        int keyIndex = 0;
+
+        for (int k = 0; k < this.keys.length; k++) {
+            if (this.keys[k] == 0f) {
+                minimumDistance = Math.abs(this.keys[k] - pitch);
+                keyIndex = k;
+            }
+            if (Math.abs(this.keys[k] - pitch) < minimumDistance) {
+                minimumDistance = Math.abs(this.keys[k] - pitch);
+                keyIndex = k;
+            }
+        }
+        return keyIndex;
+    }
+
+    /**
+     * <p>
+     * gets the pitch corresponding to the note name
+     * </p>
+     *
+     * @param noteName the note name, without the octave
+     *
+     * @return the pitch of the note name, or 0 if the note name is unknown
+     */
+    protected float getPitch(String noteName) {
+        return this.noteNamePitches.getOrDefault(noteName, 0f);
+    }
+
+    /**
+     * <p>
+     * gets the index of the key that has the minimum distance with the input
+     * pitch
+     * </p>
+     *
+     * @param pitch the pitch, between 0 and 12
+     *
+     * @return the index of the nearest key
+     */
+    protected int getNearestKeyIndex(float pitch) {
+        float scaledPitch = pitch * CELLS_PER_PITCH;
+        int cell = Math.max(0, Math.min((int) scaledPitch, this.nearestKeysInCell.length - 1));
+        return scaledPitch == cell ? this.nearestKeysAtBoundary[cell] : this.nearestKeysInCell[cell];
+    }
+
+    /**
+     * @param keyIndex the index of the key
+     *
+     * @return the key of the map of all notes
+     */
+    protected float getKey(int keyIndex) {
+        return this.keys[keyIndex];
+    }
+
+    /**
+     * @param keyIndex the index of the key
+     *
+     * @return the number of note names of the key
+     */
+    protected int getNoteNamesNumber(int keyIndex) {
+        return this.steps[keyIndex].length;
+    }
+
+    /**
+     * @param keyIndex the index of the key
+     * @param noteNameIndex the index of the note name of the key
+     *
+     * @return the step of the note name
+     */
+    protected char getStep(int keyIndex, int noteNameIndex) {
+        return this.steps[keyIndex][noteNameIndex];
+    }
+
+    /**
+     * @param keyIndex the index of the key
+     * @param noteNameIndex the index of the note name of the key
+     *
+     * @return the accidental of the note name
+     */
+    protected String getNoteNameAccidental(int keyIndex, int noteNameIndex) {
+        return this.noteNameAccidentals[keyIndex][noteNameIndex];
+    }
+
+    /**
+     * @return the number of accidentals
+     */
+    protected int getAccidentalsNumber() {
+        return this.accidentals.length;
+    }
+
+    /**
+     * @param accidentalIndex the index of the accidental
+     *
+     * @return the pitch offset of the accidental
+     */
+    protected float getAccidentalOffset(int accidentalIndex) {
+        return this.accidentalOffsets[accidentalIndex];
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the ways in which the random values of the parts of the
+ * instruments are drawn
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum RandomStreams {
+
+    /**
+     * Draws the random values of all the parts, one after another, from the
+     * same stream used for the spine
+     */
+    SHARED,
+    /**
+     * Draws the random values of each part from its own stream, split from the
+     * seed in instrument order, so that the parts can be formatted
+     * concurrently with the same output for any number of threads
+     */
+    SPLIT,
+    /**
+     * Draws the random values of the spine, of each part, of each measure and
+     * of each event from its own stream, derived only from the seed and from
+     * the instrument, measure and event numbers, so that any measure can be
+     * generated alone, in any order or concurrently, with the same output
+     */
+    KEYED
+}
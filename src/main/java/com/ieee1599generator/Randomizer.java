@@ -2,25 +2,117 @@ package com.ieee1599generator;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
 /**
- * Contains all the random methods
+ * Contains all the random methods.
+ * <p>
+ * The methods drawing from arrays do not allocate, and every method consumes
+ * the random values in the same order as before, so that the same seed keeps
+ * producing the same document.
+ * </p>
  *
  * @author Federica Paoli', id: 961887, e-mail:
  * federica.paoli1@studenti.unimi.it
  */
 public class Randomizer {
 
+    /**
+     * The event index of the key of the values drawn once for a whole measure,
+     * or for a whole part or spine with the measure number 0
+     */
+    protected static final int ALL_EVENTS = -1;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
     /**
      * The random object
      */
     private final Random random;
+    /**
+     * The seed from which the stream of each key is derived
+     */
+    private final long seed;
+    /**
+     * Whether the stream is restarted from its key before each group of values
+     */
+    private final boolean keyed;
 
     public Randomizer(long seed) {
+        this(seed, false);
+    }
+
+    private Randomizer(long seed, boolean keyed) {
         this.random = new Random(seed);
+        this.seed = seed;
+        this.keyed = keyed;
+    }
+
+    /**
+     * <p>
+     * creates a randomizer whose values, after each call of key, are drawn
+     * from a stream derived only from the seed and that key
+     * </p>
+     *
+     * @param seed the seed from which the stream of each key is derived
+     *
+     * @return the created randomizer
+     */
+    protected static Randomizer keyed(long seed) {
+        return new Randomizer(seed, true);
+    }
+
+    /**
+     * <p>
+     * restarts the stream from the input key if the randomizer is keyed, so
+     * that the values drawn until the next key do not depend on the ones drawn
+     * before, and does nothing otherwise
+     * </p>
+     *
+     * @param instrument the instrument number, or 0 for the spine
+     * @param measure the measure number, or 0 for the whole part or spine
+     * @param event the event index in the measure, or ALL_EVENTS for the
+     * whole measure
+     */
+    protected void key(int instrument, int measure, int event) {
+        if (this.keyed) {
+            this.random.setSeed(keySeed(this.seed, instrument, measure, event));
+        }
+    }
+
+    /**
+     * <p>
+     * derives the seed of the stream of a key by mixing its components one
+     * after another with the finalizer of SplitMix64, which must never change
+     * since it defines the documents of the keyed streams
+     * </p>
+     *
+     * @param seed the seed of the document
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     *
+     * @return the seed of the stream of the key
+     */
+    protected static long keySeed(long seed, int instrument, int measure, int event) {
+        long key = mix(seed + GOLDEN_GAMMA);
+        key = mix(key + GOLDEN_GAMMA * (instrument + 1L));
+        key = mix(key + GOLDEN_GAMMA * (measure + 1L));
+        return mix(key + GOLDEN_GAMMA * (event + 2L));
+    }
+
+    /**
+     * @param z the value to mix
+     *
+     * @return the mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     /**
@@ -43,6 +135,39 @@ public class Randomizer {
         return this.random.nextInt((max - min) + 1) + min;
     }
 
+    /**
+     * <p>
+     * provides a random index of an array or a list
+     * </p>
+     *
+     * @param size the size of the array or the list
+     *
+     * @return a random index between 0, included, and size, excluded
+     */
+    protected int getRandomIndex(int size) {
+        return this.random.nextInt(size);
+    }
+
+    /**
+     * <p>
+     * provides a random long, with the same probability for each value
+     * </p>
+     *
+     * @param bound the number of values
+     *
+     * @return a random long between 0, included, and bound, excluded
+     */
+    protected long getRandomLong(long bound) {
+        long bits;
+        long value;
+        do {
+            // the values of the last incomplete block of bound values are discarded, as nextInt does
+            bits = this.random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
     /**
      * <p>
      * provides a random float
@@ -71,6 +196,19 @@ public class Randomizer {
         return strings[this.random.nextInt(strings.length)];
     }
 
+    /**
+     * <p>
+     * provides a random integer from the input array
+     * </p>
+     *
+     * @param ints the array of integers
+     *
+     * @return a random integer from the array of integers parameter
+     */
+    protected int getRandomIntFromArray(int[] ints) {
+        return ints[this.random.nextInt(ints.length)];
+    }
+
     /**
      * <p>
      * provides a random boolean
@@ -129,11 +267,18 @@ public class Randomizer {
      * minimum and maximum
      */
     protected List<Integer> getRandomNonRepeatingIntegers(int size, int min, int max) {
-        List<Integer> numbers = new ArrayList();
+        if (min > max) {
+            int swap = min;
+            min = max;
+            max = swap;
+        }
+        List<Integer> numbers = new ArrayList<>(size);
+        boolean[] drawn = new boolean[max - min + 1];
         while (numbers.size() < size) {
             int randomNumber = getRandomInteger(min, max);
             //Check for duplicate values
-            if (!numbers.contains(randomNumber)) {
+            if (!drawn[randomNumber - min]) {
+                drawn[randomNumber - min] = true;
                 numbers.add(randomNumber);
             }
         }
@@ -150,19 +295,17 @@ public class Randomizer {
      * @return a random list of non repeating characters from the input list
      */
     protected List<Character> getRandomNonRepeatingChars(List<Character> chars) {
-        List<Character> randomizedChars = new ArrayList();
-        int min = 0;
-        int max = chars.size() - 1;
-        while (randomizedChars.size() < chars.size()) {
-            int randomIndex = getRandomInteger(min, max);
-            char c = chars.get(randomIndex);
+        char[] randomizedChars = new char[chars.size()];
+        for (int c = 0; c < randomizedChars.length; c++) {
+            randomizedChars[c] = chars.get(c);
+        }
+        shuffleArray(randomizedChars);
 
-            //Check for duplicate values
-            if (!randomizedChars.contains(c)) {
-                randomizedChars.add(c);
-            }
+        List<Character> randomizedCharsList = new ArrayList<>(randomizedChars.length);
+        for (char c : randomizedChars) {
+            randomizedCharsList.add(c);
         }
-        return randomizedChars;
+        return randomizedCharsList;
     }
 
     /**
@@ -178,6 +321,24 @@ public class Randomizer {
         Collections.shuffle(inputList, this.random);
     }
 
+    /**
+     * <p>
+     * mixes the elements of the input array with the Fisher-Yates algorithm,
+     * drawing the same random values as shuffleList on a list of the same size
+     * </p>
+     *
+     * @param inputArray the input array
+     *
+     */
+    protected void shuffleArray(char[] inputArray) {
+        for (int i = inputArray.length; i > 1; i--) {
+            int j = this.random.nextInt(i);
+            char swap = inputArray[i - 1];
+            inputArray[i - 1] = inputArray[j];
+            inputArray[j] = swap;
+        }
+    }
+
     /**
      * <p>
      * provides a random string from the input map
@@ -188,9 +349,13 @@ public class Randomizer {
      * @return a random string from the input map
      */
     protected String getRandomStringFromMap(Map<String, Float> inputMap) {
-        String[] keySetArray = inputMap.keySet().toArray(new String[inputMap.keySet().size()]);
-        int randomIndex = this.random.nextInt(inputMap.keySet().size());
-        return keySetArray[randomIndex];
+        int randomIndex = this.random.nextInt(inputMap.size());
+        for (String key : inputMap.keySet()) {
+            if (randomIndex-- == 0) {
+                return key;
+            }
+        }
+        throw new ConcurrentModificationException(" the map has been modified while drawing from it");
     }
 
     /**
@@ -204,9 +369,13 @@ public class Randomizer {
      * @return a random integer from the input map
      */
     protected <T> int getRandomIntFromMap(Map<Integer, T> inputMap) {
-        Integer[] keySetArray = inputMap.keySet().toArray(new Integer[inputMap.keySet().size()]);
-        int randomIndex = this.random.nextInt(inputMap.keySet().size());
-        return keySetArray[randomIndex];
+        int randomIndex = this.random.nextInt(inputMap.size());
+        for (Integer key : inputMap.keySet()) {
+            if (randomIndex-- == 0) {
+                return key;
+            }
+        }
+        throw new ConcurrentModificationException(" the map has been modified while drawing from it");
     }
     
 }
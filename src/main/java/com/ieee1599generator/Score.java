@@ -0,0 +1,351 @@
+package com.ieee1599generator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Represents the generated score, independently of the format in which it is
+ * written.
+ * <p>
+ * The spine events are kept in parallel arrays of primitives, in the order in
+ * which they are generated, while the chords and rests of each instrument are
+ * kept in its ScorePart. The score is then written in document order into a
+ * ScoreWriter, when the timing of every spine event is already known.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class Score {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final byte VOICE_EVENT = 0;
+    private static final byte TIME_SIGNATURE_EVENT = 1;
+    private static final byte CLEF_EVENT = 2;
+
+    /**
+     * The document creator name
+     */
+    private final String creator;
+    /**
+     * The document version
+     */
+    private final double docVersion;
+    /**
+     * The document title name
+     */
+    private final String title;
+    /**
+     * The document author name
+     */
+    private final String author;
+    /**
+     * The metre converted from a string into numbers
+     */
+    private final int[] metreInNumbers;
+
+    /**
+     * The kind of each spine event
+     */
+    private byte[] spineKinds = new byte[INITIAL_CAPACITY];
+    /**
+     * The instrument number of each spine event
+     */
+    private int[] spineInstruments = new int[INITIAL_CAPACITY];
+    /**
+     * The measure number of each spine event
+     */
+    private int[] spineMeasures = new int[INITIAL_CAPACITY];
+    /**
+     * The event index in the measure of each spine event
+     */
+    private int[] spineEvents = new int[INITIAL_CAPACITY];
+    /**
+     * The number of spine events
+     */
+    private int spineEventsNumber;
+    /**
+     * The timings of the events of the voices
+     */
+    private final EventRegistry timings;
+
+    /**
+     * The part of each instrument
+     */
+    private final ScorePart[] parts;
+
+    public Score(String creator, double docVersion, String title, String author, int[] metreInNumbers, int instrumentsNumber, int measuresNumber) {
+        this.creator = creator;
+        this.docVersion = docVersion;
+        this.title = title;
+        this.author = author;
+        this.metreInNumbers = metreInNumbers;
+        this.timings = new EventRegistry(instrumentsNumber, measuresNumber);
+        this.parts = new ScorePart[instrumentsNumber];
+    }
+
+    /**
+     * <p>
+     * adds to the spine the event of a voice
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     */
+    protected void addVoiceEvent(int instrument, int measure, int event) {
+        addSpineEvent(VOICE_EVENT, instrument, measure, event);
+    }
+
+    /**
+     * <p>
+     * adds to the spine the time signature event of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     */
+    protected void addTimeSignatureEvent(int instrument) {
+        addSpineEvent(TIME_SIGNATURE_EVENT, instrument, 1, 0);
+    }
+
+    /**
+     * <p>
+     * adds to the spine the clef event of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     */
+    protected void addClefEvent(int instrument) {
+        addSpineEvent(CLEF_EVENT, instrument, 1, 0);
+    }
+
+    /**
+     * <p>
+     * sets the number of events in each measure of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param eventsNumberInAMeasure the number of events in a measure
+     */
+    protected void setEventsNumberInAMeasure(int instrument, int eventsNumberInAMeasure) {
+        this.timings.setEventsNumberInAMeasure(instrument, eventsNumberInAMeasure);
+    }
+
+    /**
+     * <p>
+     * starts the part of an instrument
+     * </p>
+     *
+     * @param instrument the instrument number
+     *
+     * @return the part, to be filled by the formatter of the instrument
+     */
+    protected ScorePart startPart(int instrument) {
+        ScorePart part = new ScorePart(instrument, this.timings);
+        this.parts[instrument - 1] = part;
+        return part;
+    }
+
+    /**
+     * <p>
+     * sets timing and hpos of an event of a voice, as read from a document
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     * @param timing the timing, expressed in VTU
+     */
+    protected void setEventTiming(int instrument, int measure, int event, int timing) {
+        this.timings.register(instrument, measure, event, timing);
+    }
+
+    /**
+     * <p>
+     * clears the timings of the events of an instrument in a range of
+     * measures, before the range is generated again
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     */
+    protected void clearEventTimings(int instrument, int firstMeasure, int lastMeasure) {
+        this.timings.clear(instrument, firstMeasure, lastMeasure);
+    }
+
+    /**
+     * @param instrument the instrument number
+     *
+     * @return the part of the instrument
+     */
+    protected ScorePart getPart(int instrument) {
+        return this.parts[instrument - 1];
+    }
+
+    /**
+     * @param instrument the instrument number
+     *
+     * @return the number of events in a measure of the instrument
+     */
+    protected int getEventsNumberInAMeasure(int instrument) {
+        return this.timings.getEventsNumberInAMeasure(instrument);
+    }
+
+    /**
+     * @return the number of spine events
+     */
+    protected int getSpineEventsNumber() {
+        return this.spineEventsNumber;
+    }
+
+    public int getInstrumentsNumber() {
+        return this.parts.length;
+    }
+
+    public int getMeasuresNumber() {
+        return this.timings.getMeasuresNumber();
+    }
+
+    public int[] getMetreInNumbers() {
+        return this.metreInNumbers;
+    }
+
+    /**
+     * <p>
+     * orders again the spine events by the time at which they start, merging
+     * the events of the instruments, each already in time order, through a
+     * priority queue of the instruments by the start of their next event
+     * </p>
+     */
+    protected void orderSpineByTime() {
+        int instrumentsNumber = this.parts.length;
+        int measuresNumber = this.timings.getMeasuresNumber();
+
+        this.spineEventsNumber = 0;
+        for (int i = 1; i <= instrumentsNumber; i++) {
+            addVoiceEvent(i, 1, 0);
+        }
+        for (int i = 1; i <= instrumentsNumber; i++) {
+            addTimeSignatureEvent(i);
+        }
+        for (int i = 1; i <= instrumentsNumber; i++) {
+            addClefEvent(i);
+        }
+
+        // the index of the next event of each instrument, counting the events of all its measures, and the time at which it starts
+        int[] nextEvents = new int[instrumentsNumber];
+        long[] starts = new long[instrumentsNumber];
+        PriorityQueue<Integer> instruments = new PriorityQueue<>(Math.max(1, instrumentsNumber), Comparator.<Integer>comparingLong(i -> starts[i - 1]).thenComparingInt(i -> i));
+        for (int i = 1; i <= instrumentsNumber; i++) {
+            // the first event of each instrument starts at 0 and has already been added
+            nextEvents[i - 1] = 1;
+            starts[i - 1] = timing(i, 1, 0);
+            if (getEventsNumberInAMeasure(i) * measuresNumber > 1) {
+                instruments.add(i);
+            }
+        }
+
+        while (!instruments.isEmpty()) {
+            int instrument = instruments.poll();
+            int eventsNumberInAMeasure = getEventsNumberInAMeasure(instrument);
+            int event = nextEvents[instrument - 1]++;
+            int measure = event / eventsNumberInAMeasure + 1;
+            addVoiceEvent(instrument, measure, event % eventsNumberInAMeasure);
+
+            if (event + 1 < eventsNumberInAMeasure * measuresNumber) {
+                starts[instrument - 1] += timing(instrument, measure, event % eventsNumberInAMeasure);
+                instruments.add(instrument);
+            }
+        }
+    }
+
+    /**
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     *
+     * @return the timing of the event, or 0 if it has none
+     */
+    private int timing(int instrument, int measure, int event) {
+        int timing = this.timings.get(instrument, measure, event);
+        return timing == EventRegistry.MISSING ? 0 : timing;
+    }
+
+    /**
+     * <p>
+     * writes the score, in document order, into the input writer
+     * </p>
+     *
+     * @param writer the writer receiving the elements of the document
+     */
+    public void writeTo(ScoreWriter writer) {
+        writeHeadTo(writer);
+        for (ScorePart part : this.parts) {
+            part.writeTo(writer);
+        }
+
+        writer.endDocument();
+    }
+
+    /**
+     * <p>
+     * writes the score up to the staves, which are all the elements before the
+     * parts, into the input writer
+     * </p>
+     *
+     * @param writer the writer receiving the elements of the document
+     */
+    protected void writeHeadTo(ScoreWriter writer) {
+        writer.writeGeneralLayer(this.creator, this.docVersion, this.title, this.author);
+
+        writer.startSpine();
+        for (int s = 0; s < this.spineEventsNumber; s++) {
+            int instrument = this.spineInstruments[s];
+            switch (this.spineKinds[s]) {
+                case TIME_SIGNATURE_EVENT:
+                    writer.addSpineEvent(FormatterUtils.timeSignatureEventId(instrument));
+                    break;
+                case CLEF_EVENT:
+                    writer.addSpineEvent(FormatterUtils.clefEventId(instrument));
+                    break;
+                default:
+                    writer.addVoiceEvent(instrument, this.spineMeasures[s], this.spineEvents[s], this.timings.get(instrument, this.spineMeasures[s], this.spineEvents[s]));
+            }
+        }
+
+        writer.startLos();
+        for (ScorePart part : this.parts) {
+            part.writeStaffTo(writer, this.metreInNumbers);
+        }
+    }
+
+    /**
+     * <p>
+     * adds an event to the spine
+     * </p>
+     *
+     * @param kind the kind of the event
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     */
+    private void addSpineEvent(byte kind, int instrument, int measure, int event) {
+        if (this.spineEventsNumber == this.spineKinds.length) {
+            int capacity = 2 * this.spineEventsNumber;
+            this.spineKinds = Arrays.copyOf(this.spineKinds, capacity);
+            this.spineInstruments = Arrays.copyOf(this.spineInstruments, capacity);
+            this.spineMeasures = Arrays.copyOf(this.spineMeasures, capacity);
+            this.spineEvents = Arrays.copyOf(this.spineEvents, capacity);
+        }
+        this.spineKinds[this.spineEventsNumber] = kind;
+        this.spineInstruments[this.spineEventsNumber] = instrument;
+        this.spineMeasures[this.spineEventsNumber] = measure;
+        this.spineEvents[this.spineEventsNumber] = event;
+        this.spineEventsNumber++;
+    }
+
+
+}
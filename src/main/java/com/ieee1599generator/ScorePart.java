@@ -0,0 +1,393 @@
+package com.ieee1599generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents the generated part of an instrument, together with its staff.
+ * <p>
+ * Measures, chords, rests and noteheads are kept in parallel arrays of
+ * primitives, in the order in which they are generated. The timings of the
+ * events are stored into the registry of the score, in the slots of the
+ * instrument, so that the parts of different instruments can be filled
+ * concurrently.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class ScorePart {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte CHORD = 0;
+    private static final byte REST = 1;
+
+    /**
+     * The instrument number
+     */
+    private final int instrument;
+    /**
+     * The timings of the events of the voices of the score
+     */
+    private final EventRegistry timings;
+
+    /**
+     * The clef shape
+     */
+    private char clefShape;
+    /**
+     * The clef staff step
+     */
+    private int clefStep;
+
+    /**
+     * The number of each measure
+     */
+    private int[] measureNumbers = new int[INITIAL_CAPACITY];
+    /**
+     * The index of the first chord or rest of each measure
+     */
+    private int[] measureStarts = new int[INITIAL_CAPACITY];
+    /**
+     * The number of measures
+     */
+    private int measuresSize;
+
+    /**
+     * The kind, chord or rest, of each chord or rest
+     */
+    private byte[] eventKinds = new byte[INITIAL_CAPACITY];
+    /**
+     * The event index in the measure of each chord or rest
+     */
+    private int[] eventIndexes = new int[INITIAL_CAPACITY];
+    /**
+     * The duration numerator of each chord or rest
+     */
+    private int[] durationNums = new int[INITIAL_CAPACITY];
+    /**
+     * The duration denominator of each chord or rest
+     */
+    private int[] durationDens = new int[INITIAL_CAPACITY];
+    /**
+     * The index in tupletRatios of the tuplet ratio of each chord, or -1 if the
+     * chord is not part of an irregular group
+     */
+    private int[] tupletRatioStarts = new int[INITIAL_CAPACITY];
+    /**
+     * The index of the first notehead of each chord or rest
+     */
+    private int[] noteheadStarts = new int[INITIAL_CAPACITY];
+    /**
+     * The number of chords and rests
+     */
+    private int eventsSize;
+
+    /**
+     * The tuplet ratios, each one as enter_num, enter_den, in_num and in_den
+     */
+    private int[] tupletRatios = new int[INITIAL_CAPACITY];
+    /**
+     * The number of used slots of tupletRatios
+     */
+    private int tupletRatiosSize;
+
+    /**
+     * The note name of each notehead
+     */
+    private char[] steps = new char[INITIAL_CAPACITY];
+    /**
+     * The octave of each notehead
+     */
+    private int[] octaves = new int[INITIAL_CAPACITY];
+    /**
+     * The index in accidentalNames of the accidental of each notehead
+     */
+    private byte[] accidentals = new byte[INITIAL_CAPACITY];
+    /**
+     * The number of noteheads
+     */
+    private int noteheadsSize;
+    /**
+     * The names of the accidentals used by the noteheads
+     */
+    private final List<String> accidentalNames = new ArrayList<>();
+
+    /**
+     * @param instrument the instrument number
+     * @param timings the timings of the events of the voices of the score
+     */
+    protected ScorePart(int instrument, EventRegistry timings) {
+        this.instrument = instrument;
+        this.timings = timings;
+    }
+
+    /**
+     * <p>
+     * sets the clef of the staff
+     * </p>
+     *
+     * @param clefShape the clef shape
+     * @param clefStep the clef staff step
+     */
+    protected void setStaff(char clefShape, int clefStep) {
+        this.clefShape = clefShape;
+        this.clefStep = clefStep;
+    }
+
+    /**
+     * <p>
+     * sets timing and hpos of the event of the voice
+     * </p>
+     *
+     * @param measure the measure number
+     * @param event the event index in the measure
+     * @param timing the timing, expressed in VTU
+     */
+    protected void setEventTiming(int measure, int event, int timing) {
+        this.timings.register(this.instrument, measure, event, timing);
+    }
+
+    /**
+     * <p>
+     * starts a measure of the part
+     * </p>
+     *
+     * @param measure the measure number
+     */
+    protected void startMeasure(int measure) {
+        if (this.measuresSize == this.measureNumbers.length) {
+            int capacity = 2 * this.measuresSize;
+            this.measureNumbers = Arrays.copyOf(this.measureNumbers, capacity);
+            this.measureStarts = Arrays.copyOf(this.measureStarts, capacity);
+        }
+        this.measureNumbers[this.measuresSize] = measure;
+        this.measureStarts[this.measuresSize] = this.eventsSize;
+        this.measuresSize++;
+    }
+
+    /**
+     * <p>
+     * adds a chord to the actual measure, whose noteheads are added by
+     * addNotehead
+     * </p>
+     *
+     * @param event the event index in the measure
+     * @param duration the duration as numerator and denominator
+     * @param tupletRatio the tuplet ratio as enter_num, enter_den, in_num and
+     * in_den, or null if the chord is not part of an irregular group
+     */
+    protected void addChord(int event, int[] duration, int[] tupletRatio) {
+        int tupletRatioStart = -1;
+        if (tupletRatio != null) {
+            if (this.tupletRatiosSize + 4 > this.tupletRatios.length) {
+                this.tupletRatios = Arrays.copyOf(this.tupletRatios, 2 * this.tupletRatios.length);
+            }
+            tupletRatioStart = this.tupletRatiosSize;
+            System.arraycopy(tupletRatio, 0, this.tupletRatios, tupletRatioStart, 4);
+            this.tupletRatiosSize += 4;
+        }
+        addEvent(CHORD, event, duration, tupletRatioStart);
+    }
+
+    /**
+     * <p>
+     * adds a notehead to the last chord
+     * </p>
+     *
+     * @param step the note name
+     * @param octave the octave
+     * @param accidental the accidental
+     */
+    protected void addNotehead(char step, int octave, String accidental) {
+        if (this.noteheadsSize == this.steps.length) {
+            int capacity = 2 * this.noteheadsSize;
+            this.steps = Arrays.copyOf(this.steps, capacity);
+            this.octaves = Arrays.copyOf(this.octaves, capacity);
+            this.accidentals = Arrays.copyOf(this.accidentals, capacity);
+        }
+        int accidentalIndex = this.accidentalNames.indexOf(accidental);
+        if (accidentalIndex < 0) {
+            accidentalIndex = this.accidentalNames.size();
+            this.accidentalNames.add(accidental);
+        }
+        this.steps[this.noteheadsSize] = step;
+        this.octaves[this.noteheadsSize] = octave;
+        this.accidentals[this.noteheadsSize] = (byte) accidentalIndex;
+        this.noteheadsSize++;
+    }
+
+    /**
+     * <p>
+     * adds a rest to the actual measure
+     * </p>
+     *
+     * @param event the event index in the measure
+     * @param duration the duration as numerator and denominator
+     */
+    protected void addRest(int event, int[] duration) {
+        addEvent(REST, event, duration, -1);
+    }
+
+    /**
+     * <p>
+     * appends the measures of another part of the same instrument in a range
+     * of measure numbers, with their chords, rests and noteheads, while their
+     * timings stay in the registry of the score
+     * </p>
+     *
+     * @param source the part whose measures are copied
+     * @param firstMeasure the first measure number of the range
+     * @param lastMeasure the last measure number of the range
+     */
+    protected void copyMeasures(ScorePart source, int firstMeasure, int lastMeasure) {
+        int[] duration = new int[2];
+        int[] tupletRatio = new int[4];
+
+        for (int m = 0; m < source.measuresSize; m++) {
+            int measure = source.measureNumbers[m];
+            if (measure < firstMeasure || measure > lastMeasure) {
+                continue;
+            }
+            startMeasure(measure);
+
+            int lastEvent = m + 1 < source.measuresSize ? source.measureStarts[m + 1] : source.eventsSize;
+            for (int e = source.measureStarts[m]; e < lastEvent; e++) {
+                duration[0] = source.durationNums[e];
+                duration[1] = source.durationDens[e];
+                if (source.eventKinds[e] == REST) {
+                    addRest(source.eventIndexes[e], duration);
+                    continue;
+                }
+
+                int tupletRatioStart = source.tupletRatioStarts[e];
+                if (tupletRatioStart >= 0) {
+                    System.arraycopy(source.tupletRatios, tupletRatioStart, tupletRatio, 0, 4);
+                }
+                addChord(source.eventIndexes[e], duration, tupletRatioStart >= 0 ? tupletRatio : null);
+
+                int lastNotehead = e + 1 < source.eventsSize ? source.noteheadStarts[e + 1] : source.noteheadsSize;
+                for (int n = source.noteheadStarts[e]; n < lastNotehead; n++) {
+                    addNotehead(source.steps[n], source.octaves[n], source.accidentalNames.get(source.accidentals[n]));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the instrument number
+     */
+    protected int getInstrument() {
+        return this.instrument;
+    }
+
+    /**
+     * @return the number of chords
+     */
+    protected int getChordsNumber() {
+        return this.eventsSize - getRestsNumber();
+    }
+
+    /**
+     * @return the number of rests
+     */
+    protected int getRestsNumber() {
+        int restsNumber = 0;
+        for (int e = 0; e < this.eventsSize; e++) {
+            if (this.eventKinds[e] == REST) {
+                restsNumber++;
+            }
+        }
+        return restsNumber;
+    }
+
+    /**
+     * @return the number of noteheads
+     */
+    protected int getNoteheadsNumber() {
+        return this.noteheadsSize;
+    }
+
+    /**
+     * <p>
+     * writes the staff into the input writer
+     * </p>
+     *
+     * @param writer the writer receiving the elements of the document
+     * @param metreInNumbers the metre converted into numbers
+     */
+    protected void writeStaffTo(ScoreWriter writer, int[] metreInNumbers) {
+        writer.addStaff(this.instrument, metreInNumbers, this.clefShape, this.clefStep);
+    }
+
+    /**
+     * <p>
+     * writes the part, in document order, into the input writer
+     * </p>
+     *
+     * @param writer the writer receiving the elements of the document
+     */
+    protected void writeTo(ScoreWriter writer) {
+        int[] tupletRatio = new int[4];
+        writer.startPart(this.instrument);
+
+        for (int m = 0; m < this.measuresSize; m++) {
+            int measure = this.measureNumbers[m];
+            writer.startMeasure(this.instrument, measure);
+
+            int lastEvent = m + 1 < this.measuresSize ? this.measureStarts[m + 1] : this.eventsSize;
+            for (int e = this.measureStarts[m]; e < lastEvent; e++) {
+                if (this.eventKinds[e] == REST) {
+                    writer.addRest(this.instrument, measure, this.eventIndexes[e], this.durationNums[e], this.durationDens[e]);
+                    continue;
+                }
+
+                int tupletRatioStart = this.tupletRatioStarts[e];
+                if (tupletRatioStart >= 0) {
+                    System.arraycopy(this.tupletRatios, tupletRatioStart, tupletRatio, 0, 4);
+                }
+                writer.startChord(this.instrument, measure, this.eventIndexes[e], this.durationNums[e], this.durationDens[e], tupletRatioStart >= 0 ? tupletRatio : null);
+
+                int lastNotehead = e + 1 < this.eventsSize ? this.noteheadStarts[e + 1] : this.noteheadsSize;
+                for (int n = this.noteheadStarts[e]; n < lastNotehead; n++) {
+                    writer.addNotehead(this.steps[n], this.octaves[n], this.accidentalNames.get(this.accidentals[n]));
+                }
+                writer.endChord();
+            }
+            writer.endMeasure();
+        }
+        writer.endPart();
+    }
+
+    /**
+     * <p>
+     * adds a chord or a rest to the actual measure
+     * </p>
+     *
+     * @param kind the kind, chord or rest, of the event
+     * @param event the event index in the measure
+     * @param duration the duration as numerator and denominator
+     * @param tupletRatioStart the index of the tuplet ratio, or -1
+     */
+    private void addEvent(byte kind, int event, int[] duration, int tupletRatioStart) {
+        if (this.eventsSize == this.eventKinds.length) {
+            int capacity = 2 * this.eventsSize;
+            this.eventKinds = Arrays.copyOf(this.eventKinds, capacity);
+            this.eventIndexes = Arrays.copyOf(this.eventIndexes, capacity);
+            this.durationNums = Arrays.copyOf(this.durationNums, capacity);
+            this.durationDens = Arrays.copyOf(this.durationDens, capacity);
+            this.tupletRatioStarts = Arrays.copyOf(this.tupletRatioStarts, capacity);
+            this.noteheadStarts = Arrays.copyOf(this.noteheadStarts, capacity);
+        }
+        this.eventKinds[this.eventsSize] = kind;
+        this.eventIndexes[this.eventsSize] = event;
+        this.durationNums[this.eventsSize] = duration[0];
+        this.durationDens[this.eventsSize] = duration[1];
+        this.tupletRatioStarts[this.eventsSize] = tupletRatioStart;
+        this.noteheadStarts[this.eventsSize] = this.noteheadsSize;
+        this.eventsSize++;
+    }
+
+}
@@ -0,0 +1,380 @@
+package com.ieee1599generator;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads back a document generated by the app into a Score.
+ * <p>
+ * The document is read as a stream of StAX events, in one pass: the spine is
+ * kept aside until the first time signature gives the metre, then the score is
+ * created with the timings of the spine, and the staffs and parts are added to
+ * it, so that a part can be generated again and the score written with any
+ * backend.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class ScoreReader {
+
+    private static final Logger logger = LogManager.getLogger(ScoreReader.class.getName());
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final String INSTRUMENT_PREFIX = "Instrument_";
+    private static final String TIME_SIGNATURE_PREFIX = "TimeSignature_Instrument_";
+    private static final String CLEF_PREFIX = "Clef_Instrument_";
+    private static final String MEASURE_INFIX = "_voice0_measure";
+    private static final String EVENT_INFIX = "_ev";
+
+    private static final byte VOICE_EVENT = 0;
+    private static final byte TIME_SIGNATURE_EVENT = 1;
+    private static final byte CLEF_EVENT = 2;
+
+    /**
+     * The reader of the StAX events of the document
+     */
+    private final XMLStreamReader reader;
+
+    /**
+     * The document creator name
+     */
+    private String creator;
+    /**
+     * The document version
+     */
+    private double docVersion;
+    /**
+     * The document title name
+     */
+    private String title;
+    /**
+     * The document author name
+     */
+    private String author;
+    /**
+     * The score being read, created at the first time signature
+     */
+    private Score score;
+
+    /**
+     * The kind of each spine event, until the score is created
+     */
+    private byte[] spineKinds = new byte[INITIAL_CAPACITY];
+    /**
+     * The instrument, measure, event index and timing of each spine event,
+     * until the score is created
+     */
+    private int[] spineValues = new int[4 * INITIAL_CAPACITY];
+    /**
+     * The number of spine events
+     */
+    private int spineEventsNumber;
+    /**
+     * The number of instruments, as the greatest instrument number of the
+     * spine
+     */
+    private int instrumentsNumber;
+    /**
+     * The number of measures, as the greatest measure number of the spine
+     */
+    private int measuresNumber;
+    /**
+     * The number of events in a measure of each instrument, as the greatest
+     * event index of the spine plus one
+     */
+    private int[] eventsNumbersInAMeasure = new int[1];
+
+    /**
+     * The clef shape of each staff
+     */
+    private char[] clefShapes;
+    /**
+     * The clef staff step of each staff
+     */
+    private int[] clefSteps;
+    /**
+     * The instrument number of the actual staff
+     */
+    private int staffInstrument;
+
+    /**
+     * The part being read
+     */
+    private ScorePart part;
+    /**
+     * The event index of the actual chord or rest
+     */
+    private int event;
+    /**
+     * Whether the actual event is a chord rather than a rest
+     */
+    private boolean chord;
+    /**
+     * The duration of the actual chord or rest
+     */
+    private final int[] duration = new int[2];
+    /**
+     * The tuplet ratio of the actual chord, or null
+     */
+    private int[] tupletRatio;
+
+    private ScoreReader(XMLStreamReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * <p>
+     * reads the document from the input stream, without closing it
+     * </p>
+     *
+     * @param input the input stream of the document
+     *
+     * @return the read score
+     *
+     * @throws XMLStreamException if the document is not well formed, or if
+     * there is a configuration error for the XMLInputFactory class
+     * @throws IllegalArgumentException if the document was not generated by
+     * the app
+     */
+    public static Score read(InputStream input) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        XMLStreamReader reader = factory.createXMLStreamReader(input);
+        try {
+            return new ScoreReader(reader).readDocument();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * <p>
+     * reads the elements of the document in document order
+     * </p>
+     *
+     * @return the read score
+     *
+     * @throws XMLStreamException if the document is not well formed
+     */
+    private Score readDocument() throws XMLStreamException {
+        while (this.reader.hasNext()) {
+            int eventType = this.reader.next();
+            if (eventType == XMLStreamConstants.START_ELEMENT) {
+                startElement(this.reader.getLocalName());
+            } else if (eventType == XMLStreamConstants.END_ELEMENT && "duration".equals(this.reader.getLocalName())) {
+                addEvent();
+            }
+        }
+        if (this.score == null) {
+            throw new IllegalArgumentException(" the document has no time signature, so it was not generated by the app");
+        }
+        ScoreReader.logger.info("Read {} instruments and {} measures", this.instrumentsNumber, this.measuresNumber);
+        return this.score;
+    }
+
+    /**
+     * <p>
+     * reads the attributes of a starting element
+     * </p>
+     *
+     * @param name the local name of the element
+     *
+     * @throws XMLStreamException if the document is not well formed
+     */
+    private void startElement(String name) throws XMLStreamException {
+        switch (name) {
+            case "ieee1599":
+                this.creator = attribute("creator");
+                this.docVersion = Double.parseDouble(attribute("version"));
+                break;
+            case "main_title":
+                this.title = this.reader.getElementText();
+                break;
+            case "author":
+                this.author = this.reader.getElementText();
+                break;
+            case "event":
+                addSpineEvent(attribute("id"), attribute("timing"));
+                break;
+            case "time_indication":
+                if (this.score == null) {
+                    createScore(new int[]{intAttribute("num"), intAttribute("den")});
+                }
+                break;
+            case "staff":
+                this.staffInstrument = number(attribute("id"), INSTRUMENT_PREFIX.length(), attribute("id").lastIndexOf('_'));
+                break;
+            case "clef":
+                this.clefShapes[this.staffInstrument - 1] = attribute("shape").charAt(0);
+                this.clefSteps[this.staffInstrument - 1] = intAttribute("staff_step");
+                break;
+            case "part":
+                // the part id counts the instruments from 0
+                int instrument = number(attribute("id"), INSTRUMENT_PREFIX.length(), attribute("id").length()) + 1;
+                this.part = this.score.startPart(instrument);
+                this.part.setStaff(this.clefShapes[instrument - 1], this.clefSteps[instrument - 1]);
+                break;
+            case "measure":
+                this.part.startMeasure(intAttribute("number"));
+                break;
+            case "chord":
+            case "rest":
+                String eventRef = attribute("event_ref");
+                this.event = number(eventRef, eventRef.lastIndexOf(EVENT_INFIX) + EVENT_INFIX.length(), eventRef.length());
+                this.chord = "chord".equals(name);
+                this.tupletRatio = null;
+                break;
+            case "duration":
+                this.duration[0] = intAttribute("num");
+                this.duration[1] = intAttribute("den");
+                break;
+            case "tuplet_ratio":
+                this.tupletRatio = new int[]{intAttribute("enter_num"), intAttribute("enter_den"), intAttribute("in_num"), intAttribute("in_den")};
+                break;
+            case "pitch":
+                this.part.addNotehead(attribute("step").charAt(0), intAttribute("octave"), attribute("actual_accidental"));
+                break;
+            default:
+        }
+    }
+
+    /**
+     * <p>
+     * adds the actual chord or rest to the part, once its duration is read
+     * </p>
+     */
+    private void addEvent() {
+        if (this.chord) {
+            this.part.addChord(this.event, this.duration, this.tupletRatio);
+        } else {
+            this.part.addRest(this.event, this.duration);
+        }
+    }
+
+    /**
+     * <p>
+     * keeps aside a spine event, parsing its id
+     * </p>
+     *
+     * @param id the id of the event
+     * @param timing the timing of the event, or null if it has none
+     */
+    private void addSpineEvent(String id, String timing) {
+        if (this.spineEventsNumber == this.spineKinds.length) {
+            this.spineKinds = Arrays.copyOf(this.spineKinds, 2 * this.spineEventsNumber);
+            this.spineValues = Arrays.copyOf(this.spineValues, 8 * this.spineEventsNumber);
+        }
+        int s = this.spineEventsNumber++;
+        int instrument;
+        int measure = 1;
+        int eventIndex = 0;
+
+        if (id.startsWith(TIME_SIGNATURE_PREFIX)) {
+            this.spineKinds[s] = TIME_SIGNATURE_EVENT;
+            instrument = number(id, TIME_SIGNATURE_PREFIX.length(), id.lastIndexOf('_'));
+        } else if (id.startsWith(CLEF_PREFIX)) {
+            this.spineKinds[s] = CLEF_EVENT;
+            instrument = number(id, CLEF_PREFIX.length(), id.lastIndexOf('_'));
+        } else if (id.startsWith(INSTRUMENT_PREFIX) && id.contains(MEASURE_INFIX) && id.contains(EVENT_INFIX)) {
+            this.spineKinds[s] = VOICE_EVENT;
+            instrument = number(id, INSTRUMENT_PREFIX.length(), id.indexOf(MEASURE_INFIX));
+            measure = number(id, id.indexOf(MEASURE_INFIX) + MEASURE_INFIX.length(), id.lastIndexOf(EVENT_INFIX));
+            eventIndex = number(id, id.lastIndexOf(EVENT_INFIX) + EVENT_INFIX.length(), id.length());
+        } else {
+            throw new IllegalArgumentException(" the spine event " + id + " was not generated by the app");
+        }
+
+        this.spineValues[4 * s] = instrument;
+        this.spineValues[4 * s + 1] = measure;
+        this.spineValues[4 * s + 2] = eventIndex;
+        this.spineValues[4 * s + 3] = timing == null ? EventRegistry.MISSING : Integer.parseInt(timing);
+
+        if (instrument > this.eventsNumbersInAMeasure.length) {
+            this.eventsNumbersInAMeasure = Arrays.copyOf(this.eventsNumbersInAMeasure, Math.max(instrument, 2 * this.eventsNumbersInAMeasure.length));
+        }
+        this.instrumentsNumber = Math.max(this.instrumentsNumber, instrument);
+        this.measuresNumber = Math.max(this.measuresNumber, measure);
+        this.eventsNumbersInAMeasure[instrument - 1] = Math.max(this.eventsNumbersInAMeasure[instrument - 1], eventIndex + 1);
+    }
+
+    /**
+     * <p>
+     * creates the score once the metre is known, adding the spine events kept
+     * aside and their timings
+     * </p>
+     *
+     * @param metreInNumbers the metre converted into numbers
+     */
+    private void createScore(int[] metreInNumbers) {
+        this.score = new Score(this.creator, this.docVersion, this.title, this.author, metreInNumbers, this.instrumentsNumber, this.measuresNumber);
+        for (int i = 1; i <= this.instrumentsNumber; i++) {
+            this.score.setEventsNumberInAMeasure(i, this.eventsNumbersInAMeasure[i - 1]);
+        }
+
+        for (int s = 0; s < this.spineEventsNumber; s++) {
+            int instrument = this.spineValues[4 * s];
+            switch (this.spineKinds[s]) {
+                case TIME_SIGNATURE_EVENT:
+                    this.score.addTimeSignatureEvent(instrument);
+                    break;
+                case CLEF_EVENT:
+                    this.score.addClefEvent(instrument);
+                    break;
+                default:
+                    this.score.addVoiceEvent(instrument, this.spineValues[4 * s + 1], this.spineValues[4 * s + 2]);
+                    if (this.spineValues[4 * s + 3] != EventRegistry.MISSING) {
+                        this.score.setEventTiming(instrument, this.spineValues[4 * s + 1], this.spineValues[4 * s + 2], this.spineValues[4 * s + 3]);
+                    }
+            }
+        }
+        this.spineKinds = null;
+        this.spineValues = null;
+
+        this.clefShapes = new char[this.instrumentsNumber];
+        this.clefSteps = new int[this.instrumentsNumber];
+    }
+
+    /**
+     * @param name the name of the attribute
+     *
+     * @return the value of the attribute of the actual element, or null
+     */
+    private String attribute(String name) {
+        return this.reader.getAttributeValue(null, name);
+    }
+
+    /**
+     * @param name the name of the attribute
+     *
+     * @return the integer value of the attribute of the actual element
+     */
+    private int intAttribute(String name) {
+        return Integer.parseInt(attribute(name));
+    }
+
+    /**
+     * <p>
+     * parses the number in a slice of an id
+     * </p>
+     *
+     * @param id the id
+     * @param begin the index of the first digit
+     * @param end the index after the last digit
+     *
+     * @return the parsed number
+     */
+    private static int number(String id, int begin, int end) {
+        return Integer.parseInt(id, begin, end, 10);
+    }
+
+}
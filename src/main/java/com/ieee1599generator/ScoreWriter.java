@@ -0,0 +1,159 @@
+package com.ieee1599generator;
+
+/**
+ * Receives the elements of the IEEE1599 document in document order
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public interface ScoreWriter {
+
+    /**
+     * <p>
+     * writes the general layer and opens the logic layer
+     * </p>
+     *
+     * @param creator the value of the creator attribute of the ieee1599 element
+     * @param version the value of the version attribute of the ieee1599 element
+     * @param title the piece title
+     * @param author the piece author
+     */
+    void writeGeneralLayer(String creator, double version, String title, String author);
+
+    /**
+     * <p>
+     * opens the spine container
+     * </p>
+     */
+    void startSpine();
+
+    /**
+     * <p>
+     * adds to the spine an event not belonging to a voice, whose timing and
+     * hpos are both 0
+     * </p>
+     *
+     * @param id the event id
+     */
+    void addSpineEvent(String id);
+
+    /**
+     * <p>
+     * adds to the spine the event of a voice
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     * @param timing the timing and hpos, expressed in VTU, or
+     * EventRegistry.MISSING if the event has no timing
+     */
+    void addVoiceEvent(int instrument, int measure, int event, int timing);
+
+    /**
+     * <p>
+     * opens the los container
+     * </p>
+     */
+    void startLos();
+
+    /**
+     * <p>
+     * adds a staff to the staff_list of the los container, before any part
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param metre the metre converted into numbers
+     * @param clefShape the clef shape
+     * @param clefStep the clef staff step
+     */
+    void addStaff(int instrument, int[] metre, char clefShape, int clefStep);
+
+    /**
+     * <p>
+     * opens the part of an instrument, together with its voice_list
+     * </p>
+     *
+     * @param instrument the instrument number
+     */
+    void startPart(int instrument);
+
+    /**
+     * <p>
+     * opens a measure of the actual part, together with its voice
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     */
+    void startMeasure(int instrument, int measure);
+
+    /**
+     * <p>
+     * opens a chord of the actual measure, together with its duration
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     * @param durationNum the duration numerator
+     * @param durationDen the duration denominator
+     * @param tupletRatio the tuplet ratio as enter_num, enter_den, in_num and
+     * in_den, valid only during the call, or null if the chord is not part of
+     * an irregular group
+     */
+    void startChord(int instrument, int measure, int event, int durationNum, int durationDen, int[] tupletRatio);
+
+    /**
+     * <p>
+     * adds a notehead to the actual chord
+     * </p>
+     *
+     * @param step the note name
+     * @param octave the octave
+     * @param accidental the accidental
+     */
+    void addNotehead(char step, int octave, String accidental);
+
+    /**
+     * <p>
+     * closes the actual chord
+     * </p>
+     */
+    void endChord();
+
+    /**
+     * <p>
+     * adds a rest to the actual measure
+     * </p>
+     *
+     * @param instrument the instrument number
+     * @param measure the measure number
+     * @param event the event index in the measure
+     * @param durationNum the duration numerator
+     * @param durationDen the duration denominator
+     */
+    void addRest(int instrument, int measure, int event, int durationNum, int durationDen);
+
+    /**
+     * <p>
+     * closes the actual measure
+     * </p>
+     */
+    void endMeasure();
+
+    /**
+     * <p>
+     * closes the actual part
+     * </p>
+     */
+    void endPart();
+
+    /**
+     * <p>
+     * closes the document
+     * </p>
+     */
+    void endDocument();
+
+}
@@ -0,0 +1,55 @@
+package com.ieee1599generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Represents in a Java Flight Recorder recording the writing of a generated
+ * score through a backend and a compression
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@Name("com.ieee1599generator.Serialization")
+@Label("Serialization")
+@Category({"IEEE1599 Generator"})
+@Description("Writing of the general layer, the spine and the parts of a document")
+public class SerializationJfrEvent extends Event {
+
+    @Label("Backend")
+    private String backend;
+
+    @Label("Compression")
+    private String compression;
+
+    @Label("XML Bytes")
+    @DataAmount
+    private long xmlBytes;
+
+    @Label("Output Bytes")
+    @Description("Bytes written into the output after compression, or 0 if the recording started while writing")
+    @DataAmount
+    private long outputBytes;
+
+    /**
+     * <p>
+     * sets the fields of the event once the document is written
+     * </p>
+     *
+     * @param backend the backend writing the document
+     * @param compression the compression of the document
+     * @param xmlBytes the number of bytes of the xml document
+     * @param outputBytes the number of bytes written into the output
+     */
+    protected void set(OutputBackend backend, Compression compression, long xmlBytes, long outputBytes) {
+        this.backend = backend.name();
+        this.compression = compression.name();
+        this.xmlBytes = xmlBytes;
+        this.outputBytes = outputBytes;
+    }
+
+}
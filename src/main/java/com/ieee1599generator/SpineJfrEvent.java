@@ -0,0 +1,51 @@
+package com.ieee1599generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Represents in a Java Flight Recorder recording the building of the spine of
+ * a document, or its ordering by time once the parts are generated
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+@Name("com.ieee1599generator.Spine")
+@Label("Spine Build")
+@Category({"IEEE1599 Generator"})
+@Description("Drawing of the numbers of events and building of the spine, or its ordering by time")
+public class SpineJfrEvent extends Event {
+
+    @Label("Spine Order")
+    private String spineOrder;
+
+    @Label("Time Merge")
+    @Description("Whether the spine events are merged by time after the parts are generated")
+    private boolean timeMerge;
+
+    @Label("Instruments")
+    private int instruments;
+
+    @Label("Spine Events")
+    private int spineEvents;
+
+    /**
+     * <p>
+     * sets the fields of the event once the spine is built or ordered
+     * </p>
+     *
+     * @param spineOrder the order of the spine events
+     * @param timeMerge whether the spine events are merged by time
+     * @param score the score being generated
+     */
+    protected void set(SpineOrder spineOrder, boolean timeMerge, Score score) {
+        this.spineOrder = spineOrder.name();
+        this.timeMerge = timeMerge;
+        this.instruments = score.getInstrumentsNumber();
+        this.spineEvents = score.getSpineEventsNumber();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.ieee1599generator;
+
+/**
+ * Represents the ways in which the events of the voices of the instruments
+ * are ordered in the spine
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum SpineOrder {
+
+    /**
+     * Interleaves the events of the instruments in each measure in a random
+     * order, drawn from the random stream of the spine
+     */
+    RANDOM,
+    /**
+     * Orders the events of all the instruments by the time at which they
+     * start, as the sum of the timings of the previous events of their
+     * instrument, once the parts have set them, so that the spine can be read
+     * in a single pass in time order
+     */
+    TIME
+}
@@ -0,0 +1,378 @@
+package com.ieee1599generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Streams the IEEE1599 document into an output stream through a
+ * XMLStreamWriter, without building the DOM document.
+ * <p>
+ * The elements are written as soon as they are received, in document order,
+ * with the same layout as the one of saveXMLFile.
+ * </p>
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class StaxScoreWriter implements ScoreWriter {
+
+    private static final Logger logger = LogManager.getLogger(StaxScoreWriter.class.getName());
+
+    private static final int DEFAULT_LINES_NUMBER = 5;
+    private static final int INDENT_AMOUNT = 3;
+    private static final int MAX_DEPTH = 10;
+
+    /**
+     * The xml declaration, the same as the one written by saveXMLFile
+     */
+    private static final byte[] XML_DECLARATION = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The indentations, one for each depth of the document
+     */
+    private static final String[] INDENTS = new String[MAX_DEPTH];
+
+    static {
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            INDENTS[depth] = System.lineSeparator() + " ".repeat(depth * INDENT_AMOUNT);
+        }
+    }
+
+    /**
+     * The writer of the document
+     */
+    private final XMLStreamWriter xml;
+    /**
+     * Whether the staff_list element is open
+     */
+    private boolean staffListOpen;
+    /**
+     * The voice_item_ref of the voice of the actual measure, while the voice
+     * element has not been written yet
+     */
+    private String pendingVoice;
+
+    /**
+     * @param output the output stream of the document
+     *
+     * @throws IOException if the xml declaration cannot be written
+     * @throws XMLStreamException if there is a configuration error for the
+     * XMLOutputFactory class
+     */
+    public StaxScoreWriter(OutputStream output) throws IOException, XMLStreamException {
+        output.write(XML_DECLARATION);
+        this.xml = FormatterUtils.createXMLStreamWriter(output);
+    }
+
+    @Override
+    public void writeGeneralLayer(String creator, double version, String title, String author) {
+        try {
+            this.xml.writeStartElement("ieee1599");
+            this.xml.writeAttribute("creator", creator == null ? "" : creator);
+            this.xml.writeAttribute("version", "" + version);
+            startElement(this.xml, 1, "general");
+            startElement(this.xml, 2, "description");
+            addTextElement(this.xml, 3, "main_title", title);
+            addTextElement(this.xml, 3, "author", author);
+            endElement(this.xml, 2);
+            endElement(this.xml, 1);
+            startElement(this.xml, 1, "logic");
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void startSpine() {
+        try {
+            startElement(this.xml, 2, "spine");
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void addSpineEvent(String id) {
+        try {
+            addEmptyElement(this.xml, 3, "event");
+            this.xml.writeAttribute("hpos", "" + 0);
+            this.xml.writeAttribute("id", id);
+            this.xml.writeAttribute("timing", "" + 0);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void addVoiceEvent(int instrument, int measure, int event, int timing) {
+        try {
+            addEmptyElement(this.xml, 3, "event");
+            if (timing != EventRegistry.MISSING) {
+                this.xml.writeAttribute("hpos", "" + timing);
+            }
+            this.xml.writeAttribute("id", FormatterUtils.voiceEventId(instrument, measure, event));
+            if (timing != EventRegistry.MISSING) {
+                this.xml.writeAttribute("timing", "" + timing);
+            }
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void startLos() {
+        try {
+            endElement(this.xml, 2);
+            startElement(this.xml, 2, "los");
+            startElement(this.xml, 3, "staff_list");
+            this.staffListOpen = true;
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void addStaff(int instrument, int[] metre, char clefShape, int clefStep) {
+        try {
+            StaxScoreWriter.logger.debug("Add staff element");
+            startElement(this.xml, 4, "staff");
+            this.xml.writeAttribute("id", "Instrument_" + instrument + "_staff");
+            this.xml.writeAttribute("line_number", "" + DEFAULT_LINES_NUMBER);
+            startElement(this.xml, 5, "time_signature");
+            this.xml.writeAttribute("event_ref", FormatterUtils.timeSignatureEventId(instrument));
+            addEmptyElement(this.xml, 6, "time_indication");
+            this.xml.writeAttribute("den", "" + metre[1]);
+            this.xml.writeAttribute("num", "" + metre[0]);
+            endElement(this.xml, 5);
+            addEmptyElement(this.xml, 5, "clef");
+            this.xml.writeAttribute("event_ref", FormatterUtils.clefEventId(instrument));
+            this.xml.writeAttribute("octave_num", "" + 0);
+            this.xml.writeAttribute("shape", "" + clefShape);
+            this.xml.writeAttribute("staff_step", "" + clefStep);
+            endElement(this.xml, 4);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void startPart(int instrument) {
+        try {
+            closeStaffList();
+            startElement(this.xml, 3, "part");
+            this.xml.writeAttribute("id", "Instrument_" + (instrument - 1));
+            startElement(this.xml, 4, "voice_list");
+            addEmptyElement(this.xml, 5, "voice_item");
+            this.xml.writeAttribute("id", "Instrument_" + instrument + "_0_voice");
+            this.xml.writeAttribute("staff_ref", "Instrument_" + instrument + "_staff");
+            endElement(this.xml, 4);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void startMeasure(int instrument, int measure) {
+        try {
+            startElement(this.xml, 4, "measure");
+            this.xml.writeAttribute("number", "" + measure);
+            this.pendingVoice = "Instrument_" + instrument + "_0_voice";
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void startChord(int instrument, int measure, int event, int durationNum, int durationDen, int[] tupletRatio) {
+        try {
+            writePendingVoice();
+            startElement(this.xml, 6, "chord");
+            this.xml.writeAttribute("event_ref", FormatterUtils.voiceEventId(instrument, measure, event));
+            if (tupletRatio == null) {
+                addEmptyElement(this.xml, 7, "duration");
+                addDurationAttributes(durationNum, durationDen);
+            } else {
+                startElement(this.xml, 7, "duration");
+                addDurationAttributes(durationNum, durationDen);
+                addEmptyElement(this.xml, 8, "tuplet_ratio");
+                this.xml.writeAttribute("enter_den", "" + tupletRatio[1]);
+                this.xml.writeAttribute("enter_num", "" + tupletRatio[0]);
+                this.xml.writeAttribute("in_den", "" + tupletRatio[3]);
+                this.xml.writeAttribute("in_num", "" + tupletRatio[2]);
+                endElement(this.xml, 7);
+            }
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void addNotehead(char step, int octave, String accidental) {
+        try {
+            startElement(this.xml, 7, "notehead");
+            addEmptyElement(this.xml, 8, "pitch");
+            this.xml.writeAttribute("actual_accidental", accidental);
+            this.xml.writeAttribute("octave", "" + octave);
+            this.xml.writeAttribute("step", "" + step);
+            startElement(this.xml, 8, "printed_accidentals");
+            addEmptyElement(this.xml, 9, accidental);
+            endElement(this.xml, 8);
+            endElement(this.xml, 7);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void endChord() {
+        try {
+            endElement(this.xml, 6);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void addRest(int instrument, int measure, int event, int durationNum, int durationDen) {
+        try {
+            writePendingVoice();
+            startElement(this.xml, 6, "rest");
+            this.xml.writeAttribute("event_ref", FormatterUtils.voiceEventId(instrument, measure, event));
+            addEmptyElement(this.xml, 7, "duration");
+            addDurationAttributes(durationNum, durationDen);
+            endElement(this.xml, 6);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void endMeasure() {
+        try {
+            if (this.pendingVoice != null) {
+                addEmptyElement(this.xml, 5, "voice");
+                this.xml.writeAttribute("voice_item_ref", this.pendingVoice);
+                this.pendingVoice = null;
+            } else {
+                endElement(this.xml, 5);
+            }
+            endElement(this.xml, 4);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void endPart() {
+        try {
+            endElement(this.xml, 3);
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    @Override
+    public void endDocument() {
+        try {
+            closeStaffList();
+            endElement(this.xml, 2);
+            endElement(this.xml, 1);
+            endElement(this.xml, 0);
+            this.xml.writeCharacters(System.lineSeparator());
+            this.xml.flush();
+        } catch (XMLStreamException ex) {
+            throw failure(ex);
+        }
+    }
+
+    /**
+     * <p>
+     * closes the staff_list element, if it is still open
+     * </p>
+     *
+     * @throws XMLStreamException if the staff_list cannot be closed
+     */
+    private void closeStaffList() throws XMLStreamException {
+        if (this.staffListOpen) {
+            endElement(this.xml, 3);
+            this.staffListOpen = false;
+        }
+    }
+
+    /**
+     * <p>
+     * writes the voice element of the actual measure, if it has not been
+     * written yet
+     * </p>
+     *
+     * @throws XMLStreamException if the voice cannot be written
+     */
+    private void writePendingVoice() throws XMLStreamException {
+        if (this.pendingVoice != null) {
+            startElement(this.xml, 5, "voice");
+            this.xml.writeAttribute("voice_item_ref", this.pendingVoice);
+            this.pendingVoice = null;
+        }
+    }
+
+    /**
+     * <p>
+     * adds the attributes of a duration element
+     * </p>
+     *
+     * @param durationNum the duration numerator
+     * @param durationDen the duration denominator
+     *
+     * @throws XMLStreamException if the attributes cannot be written
+     */
+    private void addDurationAttributes(int durationNum, int durationDen) throws XMLStreamException {
+        this.xml.writeAttribute("den", "" + durationDen);
+        this.xml.writeAttribute("num", "" + durationNum);
+    }
+
+    /**
+     * <p>
+     * wraps the input exception, logging it
+     * </p>
+     *
+     * @param ex the exception thrown while writing the document
+     *
+     * @return the exception to throw
+     */
+    private static UncheckedIOException failure(Exception ex) {
+        StaxScoreWriter.logger.error(ex.getClass() + " : the document cannot be written");
+        return new UncheckedIOException(new IOException(" the document cannot be written", ex));
+    }
+
+    private static void startElement(XMLStreamWriter writer, int depth, String name) throws XMLStreamException {
+        writer.writeCharacters(INDENTS[depth]);
+        writer.writeStartElement(name);
+    }
+
+    private static void addEmptyElement(XMLStreamWriter writer, int depth, String name) throws XMLStreamException {
+        writer.writeCharacters(INDENTS[depth]);
+        writer.writeEmptyElement(name);
+    }
+
+    private static void addTextElement(XMLStreamWriter writer, int depth, String name, String text) throws XMLStreamException {
+        if (text == null || text.isEmpty()) {
+            addEmptyElement(writer, depth, name);
+        } else {
+            startElement(writer, depth, name);
+            writer.writeCharacters(text);
+            writer.writeEndElement();
+        }
+    }
+
+    private static void endElement(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters(INDENTS[depth]);
+        writer.writeEndElement();
+    }
+
+}
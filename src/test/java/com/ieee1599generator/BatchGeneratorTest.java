@@ -0,0 +1,94 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the document of each seed of a batch is the same as the one of
+ * a single run with that seed, and that a failing seed does not stop the
+ * others
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class BatchGeneratorTest {
+
+    private static final long[] SEEDS = {1, 2, 3, 4, 5, 6, 42};
+
+    @Test
+    public void concurrentBatchWritesTheSingleDocuments(@TempDir Path directory) throws Exception {
+        String template = directory.resolve("ieee1599_" + BatchGenerator.SEED_PLACEHOLDER + ".xml").toString();
+        new BatchGenerator(seed -> TestProfile.FIVE_INSTRUMENTS.newBuilder(seed).build(), OutputBackend.DIRECT, template, 3).generate(SEEDS);
+
+        assertSingleDocuments(directory);
+    }
+
+    @Test
+    public void pipelinedBatchWritesTheSingleDocuments(@TempDir Path directory) throws Exception {
+        String template = directory.resolve("ieee1599_" + BatchGenerator.SEED_PLACEHOLDER + ".xml").toString();
+        new BatchGenerator(seed -> TestProfile.FIVE_INSTRUMENTS.newBuilder(seed).build(), OutputBackend.DIRECT, Compression.NONE, template, 3, 2).generate(SEEDS);
+
+        assertSingleDocuments(directory);
+    }
+
+    @Test
+    public void failingSeedDoesNotStopTheOthers(@TempDir Path directory) throws Exception {
+        String template = directory.resolve("ieee1599_" + BatchGenerator.SEED_PLACEHOLDER + ".xml").toString();
+        BatchGenerator batch = new BatchGenerator(seed -> {
+            if (seed == 3) {
+                throw new IllegalStateException(" the seed 3 fails");
+            }
+            return TestProfile.FIVE_INSTRUMENTS.newBuilder(seed).build();
+        }, OutputBackend.DIRECT, template, 3);
+
+        assertThrows(IllegalStateException.class, () -> batch.generate(SEEDS));
+        assertFalse(Files.exists(directory.resolve("ieee1599_3.xml")));
+        for (long seed : SEEDS) {
+            if (seed != 3) {
+                assertTrue(Files.exists(directory.resolve("ieee1599_" + seed + ".xml")), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    public void seedsAreParsed() {
+        assertArrayEquals(new long[]{1, 2, 3, 250, 7, 8}, BatchGenerator.parseSeeds("1..3, 250,7 .. 8"));
+        assertArrayEquals(new long[]{-2, -1, 0}, BatchGenerator.parseSeeds("-2..0"));
+
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.parseSeeds("3..1"));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.parseSeeds("1,,2"));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.parseSeeds("1..x"));
+    }
+
+    @Test
+    public void parametersAreChecked() {
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.checkParameters("ieee1599.xml", 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.checkParameters("ieee1599_{seed}.xml", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.checkParameters("ieee1599_{seed}.xml", 1, -1));
+    }
+
+    /**
+     * <p>
+     * checks that the file of each seed in the directory holds the document of
+     * a single run with that seed
+     * </p>
+     *
+     * @param directory the directory of the files of the batch
+     *
+     * @throws Exception if a document cannot be written or read
+     */
+    private static void assertSingleDocuments(Path directory) throws Exception {
+        for (long seed : SEEDS) {
+            byte[] single = TestProfile.write(TestProfile.FIVE_INSTRUMENTS.newBuilder(seed).build().generate(), OutputBackend.DIRECT);
+            assertArrayEquals(single, Files.readAllBytes(directory.resolve("ieee1599_" + seed + ".xml")), "seed " + seed);
+        }
+    }
+
+}
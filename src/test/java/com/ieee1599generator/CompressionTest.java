@@ -0,0 +1,193 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the compressed documents, and the blocks compressed
+ * concurrently, are decompressed into the plain ones, and that the
+ * compression of a document that cannot be written is stopped
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class CompressionTest {
+
+    private static final int BLOCK_SIZE = 1000;
+    private static final int THREADS = 3;
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    public void startPool() {
+        this.pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void stopPool() {
+        this.pool.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Compression.class, names = {"GZIP", "PARALLEL_GZIP"})
+    public void compressedDocumentIsThePlainOne(Compression compression) throws Exception {
+        Score score = TestProfile.FIVE_INSTRUMENTS.newBuilder(1234).build().generate();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long xmlBytes = FormatterUtils.writeXML(score, OutputBackend.DIRECT, compression, output);
+
+        byte[] document = decompress(output.toByteArray());
+        assertArrayEquals(TestProfile.write(score, OutputBackend.DIRECT), document);
+        assertEquals(document.length, xmlBytes);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 20 * BLOCK_SIZE + 7})
+    public void parallelBlocksAreDecompressedInOrder(int length) throws Exception {
+        byte[] data = new byte[length];
+        SplittableRandom random = new SplittableRandom(length);
+        for (int i = 0; i < length; i++) {
+            // a small alphabet, so that the blocks are actually compressed
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, this.pool, THREADS, BLOCK_SIZE)) {
+            // single bytes and arrays crossing the blocks
+            int i = 0;
+            while (i < length) {
+                if (i % 3 == 0) {
+                    gzip.write(data[i++]);
+                } else {
+                    int len = Math.min(length - i, 1 + random.nextInt(2 * BLOCK_SIZE));
+                    gzip.write(data, i, len);
+                    i += len;
+                }
+            }
+        }
+
+        assertArrayEquals(data, decompress(output.toByteArray()));
+    }
+
+    @Test
+    public void finishedStreamIsNotWritten() throws Exception {
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(new ByteArrayOutputStream(), this.pool, THREADS, BLOCK_SIZE);
+        gzip.write(1);
+        gzip.finish();
+
+        assertThrows(IOException.class, () -> gzip.write(2));
+        assertThrows(IOException.class, () -> gzip.write(new byte[]{2}, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(new ByteArrayOutputStream(), this.pool, 0, BLOCK_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(new ByteArrayOutputStream(), this.pool, THREADS, 0));
+    }
+
+    @Test
+    public void abortedStreamCancelsItsBlocks() throws Exception {
+        ThreadPoolExecutor busyPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch busy = new CountDownLatch(1);
+        try {
+            busyPool.submit(() -> {
+                busy.await();
+                return null;
+            });
+            TrackedOutputStream output = new TrackedOutputStream(Integer.MAX_VALUE);
+            ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, busyPool, 1, BLOCK_SIZE);
+            // two full blocks waiting for the pool, and the block being filled
+            gzip.write(new byte[2 * BLOCK_SIZE + 1]);
+
+            gzip.abort();
+
+            assertEquals(2, busyPool.getQueue().size());
+            assertTrue(busyPool.getQueue().stream().allMatch(block -> ((Future<?>) block).isCancelled()));
+            assertEquals(0, output.size);
+            assertFalse(output.closed);
+            assertThrows(IOException.class, () -> gzip.write(1));
+        } finally {
+            busy.countDown();
+            busyPool.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Compression.class, names = {"GZIP", "PARALLEL_GZIP"})
+    public void failedDocumentLeavesTheStreamOpen(Compression compression) throws Exception {
+        Score score = TestProfile.FIVE_INSTRUMENTS.newBuilder(1234).build().generate();
+        TrackedOutputStream output = new TrackedOutputStream(100);
+
+        // the backends writing while the document is built report the errors of the stream unchecked
+        Exception exception = assertThrows(Exception.class, () -> FormatterUtils.writeXML(score, OutputBackend.DIRECT, compression, output));
+        assertTrue(exception instanceof IOException || exception instanceof UncheckedIOException, exception.toString());
+        assertFalse(output.closed);
+    }
+
+    @Test
+    public void compressedFileNamesEndWithTheGzipExtension() {
+        assertEquals("ieee1599.xml", FormatterUtils.compressedFileName("ieee1599.xml", Compression.NONE));
+        assertEquals("ieee1599.xml.gz", FormatterUtils.compressedFileName("ieee1599.xml", Compression.GZIP));
+        assertEquals("ieee1599.xml.gz", FormatterUtils.compressedFileName("ieee1599.xml.gz", Compression.PARALLEL_GZIP));
+        assertEquals(FormatterUtils.STANDARD_OUTPUT, FormatterUtils.compressedFileName(FormatterUtils.STANDARD_OUTPUT, Compression.GZIP));
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return input.readAllBytes();
+        }
+    }
+
+    /**
+     * Represents an output stream failing once it is full, and recording
+     * whether it is closed
+     */
+    private static final class TrackedOutputStream extends OutputStream {
+
+        private final int capacity;
+        private int size;
+        private boolean closed;
+
+        private TrackedOutputStream(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (this.size + len > this.capacity) {
+                throw new IOException(" the stream is full");
+            }
+            this.size += len;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+}
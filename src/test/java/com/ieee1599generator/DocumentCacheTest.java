@@ -0,0 +1,141 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the cache gives back the stored documents by the hash of their
+ * parameters and seed, and evicts the least recently used ones once it is
+ * full
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DocumentCacheTest {
+
+    private static final String PARAMETERS = "metre=4:4\nbpm=108";
+    private static final int DOCUMENT_BYTES = 100;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void keysDependOnTheParametersAndTheSeed() throws Exception {
+        DocumentCache cache = cache(1000);
+
+        assertEquals(cache.key(1), cache(1000).key(1));
+        assertNotEquals(cache.key(1), cache.key(2));
+        assertNotEquals(cache.key(1), new DocumentCache(this.directory.resolve("cache"), 1000, PARAMETERS + "\ntitle=Other").key(1));
+        assertTrue(cache.key(1).matches("[0-9a-f]{64}"));
+    }
+
+    @Test
+    public void storedDocumentIsCopied() throws Exception {
+        DocumentCache cache = cache(1000);
+        GenerationMetrics metrics = new GenerationMetrics();
+        Path copy = this.directory.resolve("copy.xml");
+
+        assertFalse(cache.copyTo(cache.key(1), copy.toString(), metrics));
+        assertFalse(Files.exists(copy));
+        cache.put(cache.key(1), document("first", 1).toString(), metrics);
+        assertTrue(cache.copyTo(cache.key(1), copy.toString(), metrics));
+        assertArrayEquals(Files.readAllBytes(document("first", 1)), Files.readAllBytes(copy));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(cache.copyTo(cache.key(1), Channels.newChannel(output), metrics));
+        assertArrayEquals(Files.readAllBytes(document("first", 1)), output.toByteArray());
+
+        String json = metrics.toJson();
+        assertEquals(2, count(json, "hits"));
+        assertEquals(1, count(json, "misses"));
+        assertEquals(1, count(json, "stores"));
+        assertEquals(2 * DOCUMENT_BYTES, count(json, "hitBytes"));
+    }
+
+    @Test
+    public void leastRecentlyUsedDocumentIsEvicted() throws Exception {
+        DocumentCache cache = cache(DOCUMENT_BYTES * 5 / 2);
+        GenerationMetrics metrics = new GenerationMetrics();
+        cache.put(cache.key(1), document("first", 1).toString(), metrics);
+        cache.put(cache.key(2), document("second", 2).toString(), metrics);
+        // the first document is used again, so the second one is the least recently used
+        assertTrue(cache.copyTo(cache.key(1), this.directory.resolve("copy.xml").toString(), metrics));
+        cache.put(cache.key(3), document("third", 3).toString(), metrics);
+
+        assertTrue(cache.copyTo(cache.key(1), this.directory.resolve("copy.xml").toString(), null));
+        assertFalse(cache.copyTo(cache.key(2), this.directory.resolve("copy.xml").toString(), null));
+        assertTrue(cache.copyTo(cache.key(3), this.directory.resolve("copy.xml").toString(), null));
+        assertEquals(1, count(metrics.toJson(), "evictions"));
+    }
+
+    @Test
+    public void orderOfUseSurvivesTheCache() throws Exception {
+        DocumentCache cache = cache(1000);
+        cache.put(cache.key(1), document("first", 1).toString(), null);
+        cache.put(cache.key(2), document("second", 2).toString(), null);
+        // the first document was used after the second one
+        Path entries = this.directory.resolve("cache");
+        Files.setLastModifiedTime(entries.resolve(cache.key(2) + DocumentCache.ENTRY_EXTENSION), FileTime.fromMillis(1_000_000));
+        Files.setLastModifiedTime(entries.resolve(cache.key(1) + DocumentCache.ENTRY_EXTENSION), FileTime.fromMillis(2_000_000));
+
+        DocumentCache reopened = cache(DOCUMENT_BYTES * 3 / 2);
+        assertTrue(reopened.copyTo(reopened.key(1), this.directory.resolve("copy.xml").toString(), null));
+        assertFalse(reopened.copyTo(reopened.key(2), this.directory.resolve("copy.xml").toString(), null));
+    }
+
+    @Test
+    public void documentLargerThanTheCacheIsNotStored() throws Exception {
+        DocumentCache cache = cache(DOCUMENT_BYTES / 2);
+        cache.put(cache.key(1), document("first", 1).toString(), null);
+
+        assertFalse(cache.copyTo(cache.key(1), this.directory.resolve("copy.xml").toString(), null));
+        try (var files = Files.list(this.directory.resolve("cache"))) {
+            assertEquals(0, files.count());
+        }
+        assertThrows(IllegalArgumentException.class, () -> cache(0));
+    }
+
+    private DocumentCache cache(long maxBytes) throws Exception {
+        return new DocumentCache(this.directory.resolve("cache"), maxBytes, PARAMETERS);
+    }
+
+    /**
+     * @param name the name of the document
+     * @param value the value of all its bytes
+     *
+     * @return the path of a document of DOCUMENT_BYTES bytes
+     *
+     * @throws Exception if the document cannot be written
+     */
+    private Path document(String name, int value) throws Exception {
+        Path document = this.directory.resolve(name + ".xml");
+        if (!Files.exists(document)) {
+            byte[] bytes = new byte[DOCUMENT_BYTES];
+            Arrays.fill(bytes, (byte) value);
+            Files.write(document, bytes);
+        }
+        return document;
+    }
+
+    private static long count(String json, String name) {
+        Matcher matcher = Pattern.compile("\"" + name + "\": (\\d+)").matcher(json);
+        assertTrue(matcher.find(), name + " is not reported");
+        return Long.parseLong(matcher.group(1));
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.security.MessageDigest;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks that the documents of the default modes do not change: the score
+ * model, the backends and the faster primitives must write the documents of
+ * the original generator byte by byte, also through its constructor
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DocumentDigestTest {
+
+    /**
+     * <p>
+     * checks the SHA-256 digest of a document; the digests of ONE_INSTRUMENT
+     * and COMPOUND_METRE are the ones of the original generator, while WALTZ
+     * and FIVE_INSTRUMENTS have heights, like "A_sharp_5" or "B-1", which it
+     * resolved to pitch 0
+     * </p>
+     *
+     * @param profile the profile of the document
+     * @param seed the seed of the document
+     * @param digest the expected digest, in hexadecimal
+     *
+     * @throws Exception if the document cannot be written
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "ONE_INSTRUMENT, 42, 373208ecdec3c646552a613709b7a25fa7924496a417b19e432540fc6705daea",
+        "ONE_INSTRUMENT, 1234, eee178a31e7f60cba93b8b0bdd86d586d326b0d5df6002665e244a54cad6f3fb",
+        "WALTZ, 42, c3f3cf27c4f5a7ddfd8c01f14794de22aa08231cc5d167763391a506d5396d60",
+        "WALTZ, 1234, 9aff44f670e253fd66c53def152f2c4c77f88f78ce84d2630e4d273b74b8cf60",
+        "FIVE_INSTRUMENTS, 42, 4911495c6b8869ef9cc354f9dbc0885b99d4f7696af1f709cd3ce751f959b2da",
+        "FIVE_INSTRUMENTS, 1234, a881b499d05831072babd6d96474c74fe8c78faab98897bc92c392e872df293b",
+        "COMPOUND_METRE, 42, 98358214083f5a9839525605134409f71d4f170ce41bcc070358824ff976d546",
+        "COMPOUND_METRE, 1234, 3a1097a7a4fe436917b77ba0cceb7f1402dc045b89d826af8bc10621dad689b9"
+    })
+    public void documentsDoNotChange(TestProfile profile, long seed, String digest) throws Exception {
+        byte[] document = TestProfile.write(profile.newBuilder(seed).build().generate(), OutputBackend.DIRECT);
+
+        assertEquals(digest, hex(MessageDigest.getInstance("SHA-256").digest(document)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"42", "1234"})
+    public void originalConstructorWritesTheDefaultDocuments(long seed) throws Exception {
+        Initializer initializer = new Initializer(120, "4:4", 108);
+        initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, "C-1", "A4", 3, false, 256);
+        Formatter formatter = new Formatter(seed, "Federica", IEEE1599App.DOC_VERSION, "Title", "Author", 1, initializer.getInstruments(), IEEE1599App.CLEFS, IEEE1599App.CLEFS_STEPS,
+                IEEE1599App.ACCIDENTAL_MAP, IEEE1599App.ALL_NOTES_MAP, initializer.getMetreInNumbers(), initializer.getMeasuresNumber(), initializer.getIrregularGroupsMap());
+
+        assertArrayEquals(TestProfile.write(TestProfile.ONE_INSTRUMENT.newBuilder(seed).build().generate(), OutputBackend.DIRECT), TestProfile.write(formatter.generate(), OutputBackend.DIRECT));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+}
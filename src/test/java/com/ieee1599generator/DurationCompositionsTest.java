@@ -0,0 +1,115 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the durations filling a measure are computed once for each
+ * combination of durations and number of events, and that each draw fills
+ * the measure
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class DurationCompositionsTest {
+
+    private static final int[] METRE = {4, 4};
+    private static final double MEASURE = 1.0;
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void compositionsAreComputedOnce() {
+        List<Instrument> instruments = instruments(new int[]{1, 8}, new int[]{1, 8}, new int[]{1, 16});
+        DurationCompositions compositions = new DurationCompositions(METRE, CompositionDraw.GREEDY);
+
+        DurationComposition first = compositions.get(instruments.get(0), 4);
+        assertSame(first, compositions.get(instruments.get(0), 4));
+        // the instruments with the same durations share their compositions
+        assertSame(first, compositions.get(instruments.get(1), 4));
+        assertNotSame(first, compositions.get(instruments.get(0), 5));
+        assertNotSame(first, compositions.get(instruments.get(2), 4));
+    }
+
+    @Test
+    public void greedyDrawsAreAlwaysTheSame() {
+        Instrument instrument = instruments(new int[]{1, 16}).get(0);
+        DurationComposition composition = new DurationCompositions(METRE, CompositionDraw.GREEDY).get(instrument, 6);
+        Randomizer randomizer = new Randomizer(1234);
+
+        List<Double> greedy = composition.draw(randomizer);
+        assertEquals(6, greedy.size());
+        assertEquals(MEASURE, sum(greedy), EPSILON);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(greedy, composition.draw(randomizer));
+        }
+    }
+
+    @Test
+    public void uniformDrawsFillTheMeasure() {
+        Instrument instrument = instruments(new int[]{1, 16}).get(0);
+        DurationCompositions compositions = new DurationCompositions(METRE, CompositionDraw.UNIFORM);
+        Randomizer randomizer = new Randomizer(1234);
+
+        for (int events = 1; events <= 16; events++) {
+            DurationComposition composition = compositions.get(instrument, events);
+            for (int i = 0; i < 100; i++) {
+                List<Double> durations = composition.draw(randomizer);
+                assertEquals(events, durations.size());
+                assertEquals(MEASURE, sum(durations), EPSILON, events + " events");
+            }
+        }
+    }
+
+    @Test
+    public void uniformDrawsTakeEachCompositionWithTheSameProbability() {
+        // four events from 1/8 to 1/1 fill a measure of 4:4 in two ways: four quarters, or a half, a quarter and two eighths
+        Instrument instrument = instruments(new int[]{1, 8}).get(0);
+        DurationComposition composition = new DurationCompositions(METRE, CompositionDraw.UNIFORM).get(instrument, 4);
+        Randomizer randomizer = new Randomizer(1234);
+
+        Map<List<Double>, Integer> draws = new HashMap<>();
+        int drawsNumber = 10_000;
+        for (int i = 0; i < drawsNumber; i++) {
+            List<Double> durations = new ArrayList<>(composition.draw(randomizer));
+            Collections.sort(durations);
+            draws.merge(durations, 1, Integer::sum);
+        }
+
+        assertEquals(2, draws.size());
+        for (int count : draws.values()) {
+            assertTrue(Math.abs(count - drawsNumber / 2) < drawsNumber / 20, "drawn " + count + " times out of " + drawsNumber);
+        }
+    }
+
+    /**
+     * @param minDurations the minimum duration of each instrument, whose
+     * maximum duration is 1/1
+     *
+     * @return the instruments
+     */
+    private static List<Instrument> instruments(int[]... minDurations) {
+        Initializer initializer = new Initializer(120, "4:4", 120);
+        for (int[] minDuration : minDurations) {
+            initializer.initializeInstrumentsParams(100, minDuration, new int[]{1, 1}, "C2", "A6", 3, false, 256);
+        }
+        return initializer.getInstruments();
+    }
+
+    private static double sum(List<Double> durations) {
+        double sum = 0;
+        for (double duration : durations) {
+            sum += duration;
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the registry finds the value of each event by its instrument,
+ * measure and index, and rejects the events out of range or registered twice
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class EventRegistryTest {
+
+    @Test
+    public void eventsAreFoundByPosition() {
+        EventRegistry registry = registry();
+        for (int i = 1; i <= 2; i++) {
+            for (int j = 1; j <= 3; j++) {
+                for (int k = 0; k < registry.getEventsNumberInAMeasure(i); k++) {
+                    registry.register(i, j, k, value(i, j, k));
+                }
+            }
+        }
+
+        for (int i = 1; i <= 2; i++) {
+            for (int j = 1; j <= 3; j++) {
+                for (int k = 0; k < registry.getEventsNumberInAMeasure(i); k++) {
+                    assertEquals(value(i, j, k), registry.get(i, j, k));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unregisteredEventsAreMissing() {
+        EventRegistry registry = registry();
+        registry.register(1, 2, 1, 0);
+
+        assertEquals(0, registry.get(1, 2, 1));
+        assertEquals(EventRegistry.MISSING, registry.get(1, 2, 0));
+        assertEquals(EventRegistry.MISSING, registry.get(2, 2, 1));
+    }
+
+    @Test
+    public void clearedMeasuresAreMissing() {
+        EventRegistry registry = registry();
+        for (int j = 1; j <= 3; j++) {
+            for (int k = 0; k < 4; k++) {
+                registry.register(1, j, k, value(1, j, k));
+            }
+        }
+        registry.clear(1, 2, 2);
+
+        for (int k = 0; k < 4; k++) {
+            assertEquals(value(1, 1, k), registry.get(1, 1, k));
+            assertEquals(EventRegistry.MISSING, registry.get(1, 2, k));
+            assertEquals(value(1, 3, k), registry.get(1, 3, k));
+        }
+        // a cleared event can be registered again
+        registry.register(1, 2, 0, 7);
+        assertEquals(7, registry.get(1, 2, 0));
+    }
+
+    @Test
+    public void eventsAreRegisteredOnce() {
+        EventRegistry registry = registry();
+        registry.register(2, 3, 1, 5);
+
+        assertThrows(IllegalStateException.class, () -> registry.register(2, 3, 1, 5));
+    }
+
+    @Test
+    public void eventsOutOfRangeAreRejected() {
+        EventRegistry registry = registry();
+
+        assertThrows(IllegalArgumentException.class, () -> registry.get(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(3, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(1, 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(1, 1, 4));
+        assertThrows(IllegalArgumentException.class, () -> registry.get(2, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(1, 1, -1, 0));
+    }
+
+    /**
+     * @return a registry of 3 measures, with 4 events in a measure for the
+     * first instrument and 2 for the second one
+     */
+    private static EventRegistry registry() {
+        EventRegistry registry = new EventRegistry(2, 3);
+        registry.setEventsNumberInAMeasure(1, 4);
+        registry.setEventsNumberInAMeasure(2, 2);
+        return registry;
+    }
+
+    private static int value(int instrument, int measure, int event) {
+        return 100 * instrument + 10 * measure + event;
+    }
+
+}
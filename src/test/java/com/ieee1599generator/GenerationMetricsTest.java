@@ -0,0 +1,122 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that the metrics of a generation count the elements and the bytes of
+ * the written document, and measure each phase and each part
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class GenerationMetricsTest {
+
+    private static final long SEED = 1234;
+    /**
+     * The names of the phases in the report
+     */
+    private static final String[] PHASES = {"spine", "parts", "spineOrder", "serialization"};
+
+    @ParameterizedTest
+    @EnumSource(TestProfile.class)
+    public void countsMatchTheDocument(TestProfile profile) throws Exception {
+        GenerationMetrics metrics = new GenerationMetrics();
+        Score score = profile.newBuilder(SEED).spineOrder(SpineOrder.TIME).build().generate(metrics);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = FormatterUtils.writeXML(score, OutputBackend.DIRECT, Compression.NONE, output, metrics);
+        String document = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        String json = metrics.toJson();
+
+        assertEquals(1, count(json, "documents"));
+        assertEquals(output.size(), written);
+        assertEquals(output.size(), count(json, "xmlBytes"));
+        assertEquals(output.size(), count(json, "outputBytes"));
+        assertEquals(occurrences(document.substring(document.indexOf("<spine>"), document.indexOf("</spine>")), "<event "), count(json, "spineEvents"));
+        assertEquals(occurrences(document, "<chord "), count(json, "chords"));
+        assertEquals(occurrences(document, "<rest"), count(json, "rests"));
+        assertEquals(occurrences(document, "<notehead>"), count(json, "noteheads"));
+        assertEquals(count(json, "chords") + count(json, "rests"), count(json, "events"));
+
+        for (String phase : PHASES) {
+            assertTrue(phaseNanos(json, phase) > 0, phase + " is not measured");
+        }
+        for (int i = 1; i <= score.getInstrumentsNumber(); i++) {
+            assertTrue(json.contains("{\"instrument\": " + i + ", \"nanos\": "), "part " + i + " is not measured");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TestProfile.class, names = {"ONE_INSTRUMENT", "FIVE_INSTRUMENTS"})
+    public void outputBytesAreCompressed(TestProfile profile) throws Exception {
+        GenerationMetrics metrics = new GenerationMetrics();
+        Score score = profile.newBuilder(SEED).build().generate(metrics);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FormatterUtils.writeXML(score, OutputBackend.DIRECT, Compression.GZIP, output, metrics);
+        byte[] document;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            document = input.readAllBytes();
+        }
+        String json = metrics.toJson();
+
+        assertEquals(document.length, count(json, "xmlBytes"));
+        assertEquals(output.size(), count(json, "outputBytes"));
+        assertTrue(output.size() < document.length);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TestProfile.class, names = {"ONE_INSTRUMENT", "FIVE_INSTRUMENTS"})
+    public void metricsOfManyDocumentsAreSummed(TestProfile profile) throws Exception {
+        GenerationMetrics total = new GenerationMetrics();
+        long xmlBytes = 0;
+        long chords = 0;
+        for (long seed = 1; seed <= 3; seed++) {
+            GenerationMetrics metrics = new GenerationMetrics();
+            Score score = profile.newBuilder(seed).build().generate(metrics);
+            FormatterUtils.writeXML(score, OutputBackend.DIRECT, Compression.NONE, new ByteArrayOutputStream(), metrics);
+            xmlBytes += count(metrics.toJson(), "xmlBytes");
+            chords += count(metrics.toJson(), "chords");
+            total.add(metrics);
+        }
+
+        assertEquals(3, count(total.toJson(), "documents"));
+        assertEquals(xmlBytes, count(total.toJson(), "xmlBytes"));
+        assertEquals(chords, count(total.toJson(), "chords"));
+    }
+
+    /**
+     * @param json the report of the metrics
+     * @param name the name of a count of the report
+     *
+     * @return the count
+     */
+    private static long count(String json, String name) {
+        Matcher matcher = Pattern.compile("\"" + name + "\": (\\d+)").matcher(json);
+        assertTrue(matcher.find(), name + " is not reported");
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long phaseNanos(String json, String phase) {
+        Matcher matcher = Pattern.compile("\"" + phase + "\": \\{\"nanos\": (\\d+)").matcher(json);
+        assertTrue(matcher.find(), phase + " is not reported");
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static int occurrences(String text, String element) {
+        int occurrences = 0;
+        for (int i = text.indexOf(element); i >= 0; i = text.indexOf(element, i + 1)) {
+            occurrences++;
+        }
+        return occurrences;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks that an engine called concurrently by many threads writes the same
+ * documents as a formatter of each seed
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class GeneratorEngineTest {
+
+    private static final int SEEDS_NUMBER = 24;
+    private static final int THREADS = 8;
+
+    @ParameterizedTest
+    @CsvSource({
+        "FIVE_INSTRUMENTS, SHARED, 1",
+        "FIVE_INSTRUMENTS, SPLIT, 4",
+        "COMPOUND_METRE, KEYED, 2",
+        "WALTZ, SHARED, 1"
+    })
+    public void concurrentDocumentsAreTheSingleOnes(TestProfile profile, RandomStreams randomStreams, int partThreads) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try (GeneratorEngine engine = profile.newBuilder(0).randomStreams(randomStreams).partThreads(partThreads).buildEngine()) {
+            List<Future<byte[]>> documents = new ArrayList<>();
+            for (long seed = 1; seed <= SEEDS_NUMBER; seed++) {
+                long documentSeed = seed;
+                documents.add(threads.submit(() -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    engine.write(documentSeed, OutputBackend.DIRECT, output);
+                    return output.toByteArray();
+                }));
+            }
+
+            for (long seed = 1; seed <= SEEDS_NUMBER; seed++) {
+                Score score = profile.newBuilder(seed).randomStreams(randomStreams).partThreads(1).build().generate();
+                assertArrayEquals(TestProfile.write(score, OutputBackend.DIRECT), documents.get((int) seed - 1).get(), "seed " + seed);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+}
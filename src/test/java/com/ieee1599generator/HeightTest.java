@@ -0,0 +1,107 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the heights of an instrument are parsed once into their note
+ * name, accidental and octave number, and that the heights not valid are
+ * rejected
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class HeightTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "C4, C, natural, 0.0, 4, C",
+        "B-1, B, natural, 0.0, -1, B",
+        "A_sharp_5, A, sharp, 1.0, 5, A_sharp",
+        "A_sharp5, A, sharp, 1.0, 5, A_sharp",
+        "D_double_flat_3, D, double_flat, -2.0, 3, D_double_flat",
+        "E_sharp_and_a_half_-2, E, sharp_and_a_half, 0.75, -2, E_sharp_and_a_half",
+        "G_12, G, natural, 0.0, 12, G"
+    })
+    public void heightIsParsed(String text, char step, String accidental, float accidentalOffset, int octave, String noteName) {
+        Height height = minHeight(text);
+
+        assertEquals(step, height.getStep());
+        assertEquals(accidental, height.getAccidental());
+        assertEquals(accidentalOffset, height.getAccidentalOffset());
+        assertEquals(octave, height.getOctave());
+        assertEquals(noteName, height.getNoteName());
+        assertEquals(text, height.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "C", "H4", "c4", "A_bogus_4", "A_sharp", "4", "C4 ", "C+4"})
+    public void invalidHeightIsRejected(String text) {
+        assertThrows(IllegalArgumentException.class, () -> minHeight(text));
+    }
+
+    @Test
+    public void missingHeightIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> minHeight(null));
+    }
+
+    @Test
+    public void noteNamesHaveAPitch() {
+        PitchTable table = new PitchTable(IEEE1599App.ALL_NOTES_MAP, IEEE1599App.ACCIDENTAL_MAP);
+
+        assertEquals(10f, table.getPitch(minHeight("A_sharp_5").getNoteName()));
+        assertEquals(11f, table.getPitch(minHeight("B-1").getNoteName()));
+        assertEquals(2f, table.getPitch(minHeight("D4").getNoteName()));
+    }
+
+    @Test
+    public void heightsWithoutTheirDigitsFellBackToPitchZero() {
+        PitchTable table = new PitchTable(IEEE1599App.ALL_NOTES_MAP, IEEE1599App.ACCIDENTAL_MAP);
+
+        // the original generator looked up the heights with only their digits removed
+        assertEquals(0f, table.getPitch("B-1".replaceAll("\\d", "")));
+        assertEquals(0f, table.getPitch("A_sharp_5".replaceAll("\\d", "")));
+        assertEquals(10f, table.getPitch("A_sharp5".replaceAll("\\d", "")));
+        // the parsed note names have their own pitch
+        assertEquals(11f, table.getPitch(minHeight("B-1").getNoteName()));
+        assertEquals(10f, table.getPitch(minHeight("A_sharp_5").getNoteName()));
+    }
+
+    @Test
+    public void spellingsOfAHeightWriteTheSameDocument() throws Exception {
+        assertArrayEquals(waltz("A_sharp5"), waltz("A_sharp_5"));
+    }
+
+    /**
+     * @param maxHeight the maximum height of the instrument
+     *
+     * @return the document of a single instrument in 3:4 with the input
+     * maximum height
+     *
+     * @throws Exception if the document cannot be written
+     */
+    private static byte[] waltz(String maxHeight) throws Exception {
+        Initializer initializer = new Initializer(120, "3:4", 108);
+        initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, "C_flat_and_a_half2", maxHeight, 3, true, 256);
+        Score score = TestProfile.WALTZ.newBuilder(42).instruments(initializer.getInstruments()).build().generate();
+        return TestProfile.write(score, OutputBackend.DIRECT);
+    }
+
+    /**
+     * @param text the minimum height of the instrument
+     *
+     * @return the parsed minimum height of the instrument
+     */
+    private static Height minHeight(String text) {
+        Initializer initializer = new Initializer(120, "4:4", 108);
+        initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, text, "A4", 3, false, 256);
+        return initializer.getInstruments().get(0).getMinHeight();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import picocli.CommandLine;
+
+/**
+ * Checks that the app rejects the runs without a job file that miss their
+ * instruments or their track, before any document is written, and that its
+ * exit status reports the documents that cannot be generated
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class IEEE1599AppTest {
+
+    /**
+     * The track of the first usage example
+     */
+    private static final List<String> TRACK = List.of("--track-length=120", "--bpm=108", "--metre=4:4");
+
+    /**
+     * The parameters of a single instrument, as in the first usage example
+     */
+    private static final List<String> INSTRUMENT = List.of("--max-notes-number=150", "--min-duration=1/8", "--max-duration=1/1", "--min-height=C-1", "--max-height=A4",
+            "--max-notes-number-chord=3", "--irregular-groups=false", "--min-delay=256");
+
+    @Test
+    public void completeRunIsValid(@TempDir Path directory) {
+        app(args(TRACK, List.of("--instruments-number=1"), INSTRUMENT)).validate(directory);
+    }
+
+    @Test
+    public void runWithoutArgumentsIsRejected(@TempDir Path directory) {
+        IEEE1599App app = app(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> app.validate(directory));
+    }
+
+    @Test
+    public void runWithoutInstrumentsIsRejected(@TempDir Path directory) {
+        IEEE1599App app = app(args(TRACK, List.of("--instruments-number=0", "-o", "ieee1599.xml")));
+
+        assertThrows(IllegalArgumentException.class, () -> app.generate(directory, null, null));
+        assertFalse(Files.exists(directory.resolve("ieee1599.xml")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"--track-length=120", "--bpm=108", "--metre=4:4"})
+    public void runWithoutTheTrackIsRejected(String missing, @TempDir Path directory) {
+        List<String> track = new ArrayList<>(TRACK);
+        track.remove(missing);
+        IEEE1599App app = app(args(track, List.of("--instruments-number=1"), INSTRUMENT));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> app.validate(directory));
+        assertEquals(" missing track, please try again by entering a positive --track-length and --bpm, and a --metre", exception.getMessage());
+    }
+
+    @Test
+    public void savedDocumentExitsWithZero(@TempDir Path directory) {
+        Path file = directory.resolve("ieee1599.xml");
+
+        assertEquals(0, execute(args(TRACK, List.of("--instruments-number=1"), INSTRUMENT, List.of("-o", file.toString()))));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void invalidRunExitsWithOne() {
+        assertEquals(1, execute(List.of()));
+    }
+
+    @Test
+    public void failedBatchExitsWithOne(@TempDir Path directory) {
+        String template = directory.resolve("missing").resolve("d_" + BatchGenerator.SEED_PLACEHOLDER + ".xml").toString();
+
+        assertEquals(1, execute(args(TRACK, List.of("--instruments-number=1"), INSTRUMENT, List.of("--seeds=1..3", "--file-name-template=" + template))));
+    }
+
+    @Test
+    public void failedJobExitsWithOne(@TempDir Path directory) throws Exception {
+        Path jobFile = directory.resolve("jobs.properties");
+        Files.writeString(jobFile, "track-length=120\nbpm=108\nmetre=4:4\ninstruments-number=1\n"
+                + "instrument.*.max-notes-number=150\ninstrument.*.min-duration=1/8\ninstrument.*.max-duration=1/1\ninstrument.*.min-height=C-1\n"
+                + "instrument.*.max-height=A4\ninstrument.*.max-notes-number-chord=3\ninstrument.*.irregular-groups=false\ninstrument.*.min-delay=256\n"
+                + "job.saved.output=" + directory.resolve("saved.xml").toString().replace("\\", "/") + "\n"
+                + "job.failed.output=" + directory.resolve("missing").resolve("failed.xml").toString().replace("\\", "/") + "\n");
+
+        assertEquals(1, execute(List.of("--job-file=" + jobFile)));
+        // the other jobs still save their documents
+        assertTrue(Files.exists(directory.resolve("saved.xml")));
+    }
+
+    @SafeVarargs
+    private static List<String> args(List<String>... groups) {
+        List<String> args = new ArrayList<>();
+        for (List<String> group : groups) {
+            args.addAll(group);
+        }
+        return args;
+    }
+
+    /**
+     * @param args the arguments of the app, which only logs its errors
+     *
+     * @return the exit status of the app
+     */
+    private static int execute(List<String> args) {
+        List<String> quietArgs = new ArrayList<>(args);
+        quietArgs.add("--quiet");
+        return new CommandLine(new IEEE1599App()).execute(quietArgs.toArray(new String[0]));
+    }
+
+    private static IEEE1599App app(List<String> args) {
+        IEEE1599App app = new IEEE1599App();
+        new CommandLine(app).parseArgs(args.toArray(new String[0]));
+        return app;
+    }
+
+}
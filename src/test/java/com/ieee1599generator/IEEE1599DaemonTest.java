@@ -0,0 +1,165 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Checks that the daemon answers each job with its saved files or with its
+ * error, answers the malformed requests, and completes the received jobs
+ * before it stops
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class IEEE1599DaemonTest {
+
+    /**
+     * The parameters of a single instrument, as in the first usage example
+     */
+    private static final List<String> ONE_INSTRUMENT = List.of("--creator=Federica", "--track-length=120", "--bpm=108", "--metre=4:4", "--instruments-number=1", "--backend=DIRECT",
+            "--max-notes-number=150", "--min-duration=1/8", "--max-duration=1/1", "--min-height=C-1", "--max-height=A4", "--max-notes-number-chord=3", "--irregular-groups=false", "--min-delay=256");
+
+    @Test
+    public void jobAnswersItsFilesAndMetrics(@TempDir Path directory) throws Exception {
+        String answer = IEEE1599Daemon.runJob(directory, parameters("--seed=42", "-o", "first.xml"));
+
+        Path file = directory.resolve("first.xml");
+        assertTrue(answer.startsWith(IEEE1599Daemon.OK_ANSWER + "\noutput " + file + "\n{"), answer);
+        assertTrue(answer.contains("\"documents\": 1"), answer);
+        assertArrayEquals(single(42), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void invalidJobAnswersItsError(@TempDir Path directory) {
+        assertTrue(IEEE1599Daemon.runJob(directory, parameters("--bpm=fast")).startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+        assertTrue(IEEE1599Daemon.runJob(directory, parameters("--instruments-number=2")).startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+        assertTrue(IEEE1599Daemon.runJob(directory, parameters("-o", "-")).startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+    }
+
+    @Test
+    public void clientsAreAnsweredUntilTheDaemonStops(@TempDir Path directory) throws Exception {
+        int port = freePort();
+        ExecutorService threads = Executors.newCachedThreadPool();
+        try {
+            // a single thread of the jobs, so that the jobs wait for each other
+            Future<Integer> daemon = threads.submit(() -> new CommandLine(new IEEE1599Daemon()).execute("--port=" + port, "--threads=1", "--quiet"));
+            awaitDaemon(port);
+
+            assertTrue(request(port, "HELLO").startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+            assertTrue(request(port, IEEE1599Daemon.JOB_REQUEST, directory.toString()).startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+            assertTrue(request(port, IEEE1599Daemon.JOB_REQUEST, directory.toString(), "many").startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+            assertTrue(request(port, IEEE1599Daemon.JOB_REQUEST, directory.toString(), "2", "--seed=1").startsWith(IEEE1599Daemon.ERROR_ANSWER + " "));
+
+            List<Future<String>> jobs = new ArrayList<>();
+            for (long seed : new long[]{1, 2, 3}) {
+                jobs.add(threads.submit(() -> job(port, directory, parameters("--seed=" + seed, "-o", "ieee1599_" + seed + ".xml"))));
+            }
+            // the shutdown is answered at once, while the jobs are still running or waiting
+            Thread.sleep(200);
+            assertEquals(IEEE1599Daemon.OK_ANSWER + "\n", request(port, IEEE1599Daemon.SHUTDOWN_REQUEST));
+
+            for (int i = 0; i < jobs.size(); i++) {
+                long seed = i + 1;
+                assertTrue(jobs.get(i).get(1, TimeUnit.MINUTES).startsWith(IEEE1599Daemon.OK_ANSWER + "\n"), "seed " + seed);
+                assertArrayEquals(single(seed), Files.readAllBytes(directory.resolve("ieee1599_" + seed + ".xml")), "seed " + seed);
+            }
+            assertEquals(0, daemon.get(1, TimeUnit.MINUTES));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static List<String> parameters(String... parameters) {
+        List<String> all = new ArrayList<>(ONE_INSTRUMENT);
+        all.addAll(List.of(parameters));
+        return all;
+    }
+
+    private static byte[] single(long seed) throws Exception {
+        return TestProfile.write(TestProfile.ONE_INSTRUMENT.newBuilder(seed).build().generate(), OutputBackend.DIRECT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * <p>
+     * waits until the daemon accepts the clients
+     * </p>
+     *
+     * @param port the port of the daemon
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private static void awaitDaemon(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                // an empty request, answered with an error
+                new Socket(InetAddress.getLoopbackAddress(), port).close();
+                return;
+            } catch (IOException ex) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException(" the daemon is not listening on the port " + port);
+    }
+
+    private static String job(int port, Path directory, List<String> parameters) throws IOException {
+        List<String> lines = new ArrayList<>(List.of(IEEE1599Daemon.JOB_REQUEST, directory.toString(), "" + parameters.size()));
+        lines.addAll(parameters);
+        return request(port, lines.toArray(new String[0]));
+    }
+
+    /**
+     * <p>
+     * sends the lines of a request to the daemon, closing the output, and
+     * reads the answer
+     * </p>
+     *
+     * @param port the port of the daemon
+     * @param lines the lines of the request
+     *
+     * @return the answer, with a line feed after each line
+     *
+     * @throws IOException if the daemon cannot be reached
+     */
+    private static String request(int port, String... lines) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            for (String line : lines) {
+                output.write(line + "\n");
+            }
+            output.flush();
+            socket.shutdownOutput();
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            return input.lines().map(line -> line + "\n").collect(Collectors.joining());
+        }
+    }
+
+}
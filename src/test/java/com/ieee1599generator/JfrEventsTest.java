@@ -0,0 +1,115 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a recording of the flight recorder holds an event for the
+ * document, for each part, for the spine and for the serialization, with the
+ * counts of the generated score
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class JfrEventsTest {
+
+    private static final long SEED = 1234;
+
+    private static final String DOCUMENT = "com.ieee1599generator.Document";
+    private static final String PART = "com.ieee1599generator.Part";
+    private static final String SPINE = "com.ieee1599generator.Spine";
+    private static final String SERIALIZATION = "com.ieee1599generator.Serialization";
+
+    @Test
+    public void generationIsRecorded(@TempDir Path directory) throws Exception {
+        Score score;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Path recordingFile = directory.resolve("generation.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{DOCUMENT, PART, SPINE, SERIALIZATION}) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            score = TestProfile.FIVE_INSTRUMENTS.newBuilder(SEED).randomStreams(RandomStreams.SPLIT).spineOrder(SpineOrder.TIME).partThreads(3).build().generate();
+            FormatterUtils.writeXML(score, OutputBackend.DIRECT, Compression.GZIP, output);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        List<RecordedEvent> documents = events(events, DOCUMENT);
+        assertEquals(1, documents.size());
+        RecordedEvent document = documents.get(0);
+        assertEquals(SEED, document.getLong("seed"));
+        assertEquals(score.getInstrumentsNumber(), document.getInt("instruments"));
+        assertEquals(score.getMeasuresNumber(), document.getInt("measures"));
+        assertEquals(score.getSpineEventsNumber(), document.getInt("spineEvents"));
+        assertEquals("SPLIT", document.getString("randomStreams"));
+        assertEquals("TIME", document.getString("spineOrder"));
+
+        List<RecordedEvent> parts = events(events, PART);
+        assertEquals(score.getInstrumentsNumber(), parts.size());
+        for (RecordedEvent part : parts) {
+            ScorePart scorePart = score.getPart(part.getInt("instrument"));
+            assertEquals(scorePart.getChordsNumber(), part.getInt("chords"));
+            assertEquals(scorePart.getRestsNumber(), part.getInt("rests"));
+            assertEquals(scorePart.getNoteheadsNumber(), part.getInt("noteheads"));
+            // the events of the instrument are divided evenly among the measures
+            assertEquals(part.getInt("eventsInAMeasure") * score.getMeasuresNumber(), part.getInt("chords") + part.getInt("rests"));
+            assertTrue(part.getInt("eventsInAMeasure") * score.getMeasuresNumber() <= part.getInt("events"));
+        }
+        assertEquals(score.getInstrumentsNumber(), parts.stream().mapToInt(part -> part.getInt("instrument")).distinct().count());
+
+        // the spine is built, then ordered by time once the parts have set their timings
+        List<RecordedEvent> spines = events(events, SPINE);
+        assertEquals(2, spines.size());
+        assertFalse(spines.get(0).getBoolean("timeMerge"));
+        assertTrue(spines.get(1).getBoolean("timeMerge"));
+        assertEquals(score.getSpineEventsNumber(), spines.get(1).getInt("spineEvents"));
+
+        List<RecordedEvent> serializations = events(events, SERIALIZATION);
+        assertEquals(1, serializations.size());
+        RecordedEvent serialization = serializations.get(0);
+        byte[] xml;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            xml = input.readAllBytes();
+        }
+        assertEquals("DIRECT", serialization.getString("backend"));
+        assertEquals("GZIP", serialization.getString("compression"));
+        assertEquals(xml.length, serialization.getLong("xmlBytes"));
+        assertEquals(output.size(), serialization.getLong("outputBytes"));
+    }
+
+    /**
+     * @param events the recorded events
+     * @param name the name of the events
+     *
+     * @return the recorded events of the input name, in the order in which
+     * they started
+     */
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> named = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                named.add(event);
+            }
+        }
+        named.sort((first, second) -> first.getStartTime().compareTo(second.getStartTime()));
+        return named;
+    }
+
+}
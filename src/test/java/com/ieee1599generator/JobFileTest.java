@@ -0,0 +1,134 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Checks that the jobs of a job file get the parameters of the app, and that
+ * the jobs are validated, and their files checked, before any document is
+ * generated
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class JobFileTest {
+
+    /**
+     * The keys of a single instrument, as in the first usage example
+     */
+    private static final String ONE_INSTRUMENT = "creator=Federica\ntrack-length=120\nbpm=108\nmetre=4:4\ninstruments-number=1\nbackend=DIRECT\n"
+            + "instrument.*.max-notes-number=150\ninstrument.*.min-duration=1/8\ninstrument.*.max-duration=1/1\ninstrument.*.min-height=C-1\n"
+            + "instrument.*.max-height=A4\ninstrument.*.max-notes-number-chord=3\ninstrument.*.irregular-groups=false\ninstrument.*.min-delay=256\n";
+
+    @Test
+    public void jobsOverrideTheSharedKeys() {
+        Map<String, List<String>> jobs = jobFile("bpm=108", "instruments-number=2", "instrument.*.max-notes-number=150", "instrument.2.max-notes-number=200",
+                "job.10.seed=10", "job.9.seed=9", "job.9.bpm=90").getJobs();
+
+        assertEquals(List.of("9", "10"), List.copyOf(jobs.keySet()));
+        assertEquals(List.of("--bpm=90", "--instruments-number=2", "--seed=9", "--max-notes-number=150", "--max-notes-number=200"), jobs.get("9"));
+        assertEquals(List.of("--bpm=108", "--instruments-number=2", "--seed=10", "--max-notes-number=150", "--max-notes-number=200"), jobs.get("10"));
+    }
+
+    @Test
+    public void fileWithoutJobKeysIsASingleJob() {
+        Map<String, List<String>> jobs = jobFile("bpm=108", "seed=5").getJobs();
+
+        assertEquals(Map.of(JobFile.SINGLE_JOB, List.of("--bpm=108", "--seed=5")), jobs);
+    }
+
+    @Test
+    public void wrongKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> jobFile("job.seed=1"));
+        assertThrows(IllegalArgumentException.class, () -> jobFile("unknown=1").getJobs());
+        // an option of the instruments is not an option of the app, and the other way round
+        assertThrows(IllegalArgumentException.class, () -> jobFile("min-delay=1").getJobs());
+        assertThrows(IllegalArgumentException.class, () -> jobFile("instruments-number=1", "instrument.1.bpm=1").getJobs());
+        assertThrows(IllegalArgumentException.class, () -> jobFile("instruments-number=1", "instrument.2.min-delay=1").getJobs());
+        assertThrows(IllegalArgumentException.class, () -> jobFile("instruments-number=1", "instrument.0.min-delay=1").getJobs());
+        assertThrows(IllegalArgumentException.class, () -> jobFile("instruments-number=1", "instrument.min-delay=1").getJobs());
+    }
+
+    @Test
+    public void jobsWriteTheSingleDocuments(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("jobs.properties"), ONE_INSTRUMENT
+                + "job.first.seed=42\njob.first.output=first.xml\n"
+                + "job.second.seed=1234\njob.second.output=second.xml\n");
+
+        List<String> fileNames = app().generate(directory, null, new GenerationMetrics());
+
+        assertEquals(2, fileNames.size());
+        assertArrayEquals(single(42), Files.readAllBytes(directory.resolve("first.xml")));
+        assertArrayEquals(single(1234), Files.readAllBytes(directory.resolve("second.xml")));
+    }
+
+    @Test
+    public void jobsWritingTheSameFileAreRejected(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("jobs.properties"), ONE_INSTRUMENT
+                + "job.first.seed=42\njob.first.output=same.xml\n"
+                + "job.second.seed=1234\njob.second.output=./same.xml\n"
+                + "job.third.seed=7\njob.third.output=third.xml\n");
+
+        IEEE1599App app = app();
+        assertThrows(IllegalArgumentException.class, () -> app.generate(directory, null, null));
+        // no job runs once a file is written twice
+        assertFalse(Files.exists(directory.resolve("same.xml")));
+        assertFalse(Files.exists(directory.resolve("third.xml")));
+    }
+
+    @Test
+    public void jobsWritingTheSameBatchFileAreRejected(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("jobs.properties"), ONE_INSTRUMENT
+                + "job.first.seeds=1..3\n"
+                + "job.second.seeds=3..5\njob.second.compression=GZIP\n"
+                + "job.third.seed=3\njob.third.output=ieee1599_3.xml.gz\n");
+
+        assertThrows(IllegalArgumentException.class, () -> app().generate(directory, null, null));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.allMatch(file -> file.getFileName().toString().equals("jobs.properties")));
+        }
+    }
+
+    @Test
+    public void invalidJobIsRejectedBeforeAnyDocument(@TempDir Path directory) throws Exception {
+        Files.writeString(directory.resolve("jobs.properties"), ONE_INSTRUMENT
+                + "job.first.seed=42\njob.first.output=first.xml\n"
+                + "job.second.seeds=5..1\n");
+
+        assertThrows(IllegalArgumentException.class, () -> app().generate(directory, null, null));
+        assertFalse(Files.exists(directory.resolve("first.xml")));
+    }
+
+    private static JobFile jobFile(String... keys) {
+        Properties properties = new Properties();
+        for (String key : keys) {
+            int separator = key.indexOf('=');
+            properties.setProperty(key.substring(0, separator), key.substring(separator + 1));
+        }
+        return new JobFile("jobs.properties", properties);
+    }
+
+    private static IEEE1599App app() {
+        IEEE1599App app = new IEEE1599App();
+        new CommandLine(app).parseArgs("--job-file=jobs.properties");
+        return app;
+    }
+
+    private static byte[] single(long seed) throws Exception {
+        return TestProfile.write(TestProfile.ONE_INSTRUMENT.newBuilder(seed).build().generate(), OutputBackend.DIRECT);
+    }
+
+}
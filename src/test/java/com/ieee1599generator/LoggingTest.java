@@ -0,0 +1,134 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.Property;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+/**
+ * Checks that the messages of the generation are logged only at the enabled
+ * levels, without changing the documents, and that the app sets the level of
+ * its options
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class LoggingTest {
+
+    private static final String LOGGER_NAME = "com.ieee1599generator";
+    private static final long SEED = 42;
+
+    private final RecordingAppender appender = new RecordingAppender();
+
+    @BeforeEach
+    public void recordTheMessages() {
+        this.appender.start();
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        Configuration configuration = context.getConfiguration();
+        // the messages of the app are recorded, and not written to the console of the tests
+        LoggerConfig loggerConfig = new LoggerConfig(LOGGER_NAME, Level.ERROR, false);
+        loggerConfig.addAppender(this.appender, null, null);
+        configuration.addLogger(LOGGER_NAME, loggerConfig);
+        context.updateLoggers();
+    }
+
+    @AfterEach
+    public void stopRecording() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getConfiguration().removeLogger(LOGGER_NAME);
+        context.updateLoggers();
+        this.appender.stop();
+        Configurator.setRootLevel(Level.ERROR);
+    }
+
+    @Test
+    public void messagesAreLoggedOnlyAtTheEnabledLevels() throws Exception {
+        Configurator.setLevel(LOGGER_NAME, Level.ERROR);
+        byte[] quiet = TestProfile.write(TestProfile.ONE_INSTRUMENT.newBuilder(SEED).build().generate(), OutputBackend.DIRECT);
+        assertEquals(List.of(), this.appender.messages);
+
+        Configurator.setLevel(LOGGER_NAME, Level.INFO);
+        byte[] logged = TestProfile.write(TestProfile.ONE_INSTRUMENT.newBuilder(SEED).build().generate(), OutputBackend.DIRECT);
+
+        // the logging does not draw random values
+        assertArrayEquals(quiet, logged);
+        List<String> messages = this.appender.messages;
+        assertTrue(messages.contains("INSTRUMENT 1"), "no instrument message");
+        assertTrue(messages.contains("MEASURE 1"), "no measure message");
+        int notesNumber = number(messages, "Notes number: ");
+        int restsNumber = number(messages, "Rests number: ");
+        assertEquals(notesNumber + restsNumber, number(messages, "Total of notes and rests: "));
+    }
+
+    @Test
+    public void optionsSetTheRootLevel(@TempDir Path directory) {
+        run(directory, "--quiet");
+        assertEquals(Level.ERROR, LogManager.getRootLogger().getLevel());
+
+        run(directory, "--log-level=WARN");
+        assertEquals(Level.WARN, LogManager.getRootLogger().getLevel());
+
+        // --quiet wins over the level
+        run(directory, "--log-level=TRACE", "--quiet");
+        assertEquals(Level.ERROR, LogManager.getRootLogger().getLevel());
+    }
+
+    private static void run(Path directory, String... options) {
+        List<String> args = new ArrayList<>(List.of("--creator=Federica", "--track-length=120", "--bpm=108", "--metre=4:4", "--instruments-number=1", "--backend=DIRECT",
+                "--max-notes-number=150", "--min-duration=1/8", "--max-duration=1/1", "--min-height=C-1", "--max-height=A4", "--max-notes-number-chord=3", "--irregular-groups=false", "--min-delay=256",
+                "--seed=" + SEED, "-o", directory.resolve("ieee1599.xml").toString()));
+        Collections.addAll(args, options);
+        new CommandLine(new IEEE1599App()).execute(args.toArray(new String[0]));
+    }
+
+    /**
+     * @param messages the logged messages
+     * @param prefix the text before the number
+     *
+     * @return the number of the first message starting with the prefix
+     */
+    private static int number(List<String> messages, String prefix) {
+        for (String message : messages) {
+            if (message.startsWith(prefix)) {
+                return Integer.parseInt(message.substring(prefix.length()));
+            }
+        }
+        throw new AssertionError(" no message starting with " + prefix);
+    }
+
+    /**
+     * Represents an appender recording the formatted messages
+     */
+    private static final class RecordingAppender extends AbstractAppender {
+
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingAppender() {
+            super("Recording", null, null, true, Property.EMPTY_ARRAY);
+        }
+
+        @Override
+        public void append(LogEvent event) {
+            this.messages.add(event.getMessage().getFormattedMessage());
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the schedule of the notes and rests places them in the order of
+ * the shuffled list of characters it replaces
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class NotesAndRestsTest {
+
+    private static final long[] SEEDS = {1, 42, 1234};
+
+    @Test
+    public void eventsAreTheShuffledList() {
+        for (long seed : SEEDS) {
+            for (int notesNumber = 0; notesNumber <= 20; notesNumber += 4) {
+                for (int restsNumber = 0; restsNumber <= 9; restsNumber += 3) {
+                    NotesAndRests notesAndRests = new NotesAndRests(notesNumber, restsNumber);
+                    notesAndRests.shuffle(new Randomizer(seed));
+                    List<Character> list = list(notesNumber, restsNumber);
+                    Collections.shuffle(list, new Random(seed));
+
+                    assertEquals(notesNumber + restsNumber, notesAndRests.size());
+                    while (!list.isEmpty()) {
+                        assertTrue(notesAndRests.hasNext());
+                        assertEquals(list.remove(0) == 'N', notesAndRests.nextIsNote(), "seed " + seed);
+                    }
+                    assertFalse(notesAndRests.hasNext());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void skippedEventsAreNotPlaced() {
+        NotesAndRests notesAndRests = new NotesAndRests(6, 4);
+        notesAndRests.shuffle(new Randomizer(42));
+        List<Character> list = list(6, 4);
+        Collections.shuffle(list, new Random(42));
+
+        notesAndRests.skip(3);
+        list.subList(0, 3).clear();
+        assertEquals(list.remove(0) == 'N', notesAndRests.nextIsNote());
+        assertEquals(list.remove(0) == 'N', notesAndRests.nextIsNote());
+
+        // the events beyond the last one are not skipped
+        notesAndRests.skip(100);
+        assertFalse(notesAndRests.hasNext());
+        assertEquals(10, notesAndRests.size());
+    }
+
+    @Test
+    public void unshuffledNotesComeFirst() {
+        NotesAndRests notesAndRests = new NotesAndRests(2, 1);
+
+        assertTrue(notesAndRests.nextIsNote());
+        assertTrue(notesAndRests.nextIsNote());
+        assertFalse(notesAndRests.nextIsNote());
+    }
+
+    private static List<Character> list(int notesNumber, int restsNumber) {
+        List<Character> list = new ArrayList<>(Collections.nCopies(notesNumber, 'N'));
+        list.addAll(Collections.nCopies(restsNumber, 'R'));
+        return list;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks that all the backends write the same document of a score: DOM, STAX
+ * and DIRECT byte by byte, and COMPACT once the indentation is removed, also
+ * while other documents are written on the same thread
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class OutputBackendTest {
+
+    private static final long[] SEEDS = {1, 42, 1234};
+
+    static Stream<Arguments> documents() {
+        List<Arguments> documents = new ArrayList<>();
+        for (TestProfile profile : TestProfile.values()) {
+            for (long seed : SEEDS) {
+                documents.add(Arguments.of(profile, seed));
+            }
+        }
+        return documents.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void staxWritesTheDomDocument(TestProfile profile, long seed) throws Exception {
+        Score score = profile.newBuilder(seed).build().generate();
+
+        assertArrayEquals(TestProfile.write(score, OutputBackend.DOM), TestProfile.write(score, OutputBackend.STAX));
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void directWritesTheDomDocument(TestProfile profile, long seed) throws Exception {
+        Score score = profile.newBuilder(seed).build().generate();
+
+        assertArrayEquals(TestProfile.write(score, OutputBackend.DOM), TestProfile.write(score, OutputBackend.DIRECT));
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void compactWritesTheDirectDocumentWithoutIndentation(TestProfile profile, long seed) throws Exception {
+        Score score = profile.newBuilder(seed).build().generate();
+        String direct = new String(TestProfile.write(score, OutputBackend.DIRECT), StandardCharsets.UTF_8);
+        String compact = new String(TestProfile.write(score, OutputBackend.COMPACT), StandardCharsets.UTF_8);
+
+        assertTrue(compact.length() < direct.length());
+        assertEquals(direct.replaceAll(">\\s+<", "><").strip(), compact);
+    }
+
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void directWritersOfTheSameThreadDoNotShareTheirBytes(TestProfile profile, long seed) throws Exception {
+        Score score = profile.newBuilder(seed).build().generate();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ScoreWriter firstWriter = new ByteScoreWriter(first, false);
+        ScoreWriter secondWriter = new ByteScoreWriter(second, false);
+        // both the writers are open, and receive each element in turn
+        ScoreWriter bothWriters = (ScoreWriter) Proxy.newProxyInstance(ScoreWriter.class.getClassLoader(), new Class<?>[]{ScoreWriter.class}, (proxy, method, args) -> {
+            method.invoke(firstWriter, args);
+            return method.invoke(secondWriter, args);
+        });
+
+        score.writeTo(bothWriters);
+
+        byte[] document = TestProfile.write(score, OutputBackend.DIRECT);
+        assertArrayEquals(document, first.toByteArray());
+        assertArrayEquals(document, second.toByteArray());
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that a document is written the same into a file, a stream or a
+ * channel, which are flushed but left open to the caller
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class OutputSinkTest {
+
+    private static final long SEED = 1234;
+
+    @ParameterizedTest
+    @EnumSource(Compression.class)
+    public void streamIsFlushedAndLeftOpen(Compression compression) throws Exception {
+        TrackedOutputStream output = new TrackedOutputStream();
+        try (GeneratorEngine engine = TestProfile.FIVE_INSTRUMENTS.newBuilder(SEED).buildEngine()) {
+            long xmlBytes = engine.write(SEED, OutputBackend.DIRECT, compression, output);
+
+            byte[] document = compression == Compression.NONE ? output.toByteArray() : decompress(output.toByteArray());
+            assertArrayEquals(single(), document);
+            assertEquals(document.length, xmlBytes);
+        }
+        assertTrue(output.flushed);
+        assertFalse(output.closed);
+    }
+
+    @Test
+    public void channelIsLeftOpen(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("ieee1599.xml");
+        byte[] trailer = {'\n'};
+        try (GeneratorEngine engine = TestProfile.FIVE_INSTRUMENTS.newBuilder(SEED).buildEngine();
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            engine.write(SEED, OutputBackend.DIRECT, Compression.NONE, channel);
+
+            assertTrue(channel.isOpen());
+            channel.write(ByteBuffer.wrap(trailer));
+        }
+
+        byte[] document = Files.readAllBytes(file);
+        assertArrayEquals(single(), Arrays.copyOf(document, document.length - trailer.length));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Compression.class)
+    public void fileHoldsTheStreamedDocument(Compression compression, @TempDir Path directory) throws Exception {
+        String fileName = directory.resolve(FormatterUtils.compressedFileName("ieee1599.xml", compression)).toString();
+        try (GeneratorEngine engine = TestProfile.FIVE_INSTRUMENTS.newBuilder(SEED).buildEngine()) {
+            engine.save(SEED, OutputBackend.DIRECT, compression, fileName);
+        }
+
+        byte[] file = Files.readAllBytes(Path.of(fileName));
+        assertArrayEquals(single(), compression == Compression.NONE ? file : decompress(file));
+    }
+
+    private static byte[] single() throws Exception {
+        return TestProfile.write(TestProfile.FIVE_INSTRUMENTS.newBuilder(SEED).build().generate(), OutputBackend.DIRECT);
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return input.readAllBytes();
+        }
+    }
+
+    /**
+     * Represents an output stream recording whether it is flushed or closed
+     */
+    private static final class TrackedOutputStream extends ByteArrayOutputStream {
+
+        private boolean flushed;
+        private boolean closed;
+
+        @Override
+        public void flush() {
+            this.flushed = true;
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+
+}
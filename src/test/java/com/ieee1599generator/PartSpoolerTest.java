@@ -0,0 +1,66 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that a document whose parts are serialized by the writer thread
+ * while the next ones are formatted is the same as the one written once the
+ * whole score is formatted
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class PartSpoolerTest {
+
+    private static final long SEED = 1234;
+
+    @ParameterizedTest
+    @CsvSource({
+        "FIVE_INSTRUMENTS, DIRECT, SHARED, 1",
+        "FIVE_INSTRUMENTS, COMPACT, SHARED, 1",
+        "FIVE_INSTRUMENTS, DIRECT, SPLIT, 3",
+        "FIVE_INSTRUMENTS, COMPACT, KEYED, 8",
+        "COMPOUND_METRE, DIRECT, SPLIT, 2",
+        "WALTZ, DIRECT, SHARED, 1"
+    })
+    public void pipelinedPartsWriteTheSameDocument(TestProfile profile, OutputBackend backend, RandomStreams randomStreams, int partThreads) throws Exception {
+        ByteArrayOutputStream pipelined = new ByteArrayOutputStream();
+        long xmlBytes = FormatterUtils.writeXMLPipelined(formatter(profile, randomStreams, partThreads), backend, Compression.NONE, pipelined, null);
+
+        assertArrayEquals(TestProfile.write(formatter(profile, randomStreams, partThreads).generate(), backend), pipelined.toByteArray());
+        assertEquals(pipelined.size(), xmlBytes);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Compression.class, names = {"GZIP", "PARALLEL_GZIP"})
+    public void pipelinedPartsAreCompressed(Compression compression) throws Exception {
+        ByteArrayOutputStream pipelined = new ByteArrayOutputStream();
+        FormatterUtils.writeXMLPipelined(formatter(TestProfile.FIVE_INSTRUMENTS, RandomStreams.SPLIT, 3), OutputBackend.DIRECT, compression, pipelined, new GenerationMetrics());
+
+        byte[] document;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(pipelined.toByteArray()))) {
+            document = input.readAllBytes();
+        }
+        assertArrayEquals(TestProfile.write(formatter(TestProfile.FIVE_INSTRUMENTS, RandomStreams.SPLIT, 3).generate(), OutputBackend.DIRECT), document);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = OutputBackend.class, names = {"DOM", "STAX"})
+    public void treeBackendsAreNotPipelined(OutputBackend backend) {
+        assertThrows(IllegalArgumentException.class, () -> FormatterUtils.writeXMLPipelined(formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.SHARED, 1), backend, Compression.NONE, new ByteArrayOutputStream(), null));
+    }
+
+    private static Formatter formatter(TestProfile profile, RandomStreams randomStreams, int partThreads) {
+        return profile.newBuilder(SEED).randomStreams(randomStreams).partThreads(partThreads).build();
+    }
+
+}
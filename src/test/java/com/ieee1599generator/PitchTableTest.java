@@ -0,0 +1,109 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the pitch table resolves the note names and quantizes the
+ * pitches as the scans of the map of all notes did
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class PitchTableTest {
+
+    private static final PitchTable TABLE = new PitchTable(IEEE1599App.ALL_NOTES_MAP, IEEE1599App.ACCIDENTAL_MAP);
+
+    @Test
+    public void noteNamesHaveThePitchOfTheirFirstKey() {
+        for (List<String> noteNames : IEEE1599App.ALL_NOTES_MAP.values()) {
+            for (String noteName : noteNames) {
+                assertEquals(scanPitch(noteName), TABLE.getPitch(noteName), noteName);
+            }
+        }
+        assertEquals(0f, TABLE.getPitch("H"));
+    }
+
+    @Test
+    public void keysAndMiddlePointsAreTheScannedOnes() {
+        // the keys, the middle points between them and the points next to both, on every reachable pitch
+        for (int eighth = -3 * 8; eighth <= 14 * 8; eighth++) {
+            float pitch = eighth / 8f;
+            assertNearestKey(pitch);
+            assertNearestKey(Math.nextUp(pitch));
+            assertNearestKey(Math.nextDown(pitch));
+        }
+    }
+
+    @Test
+    public void randomPitchesAreTheScannedOnes() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 100_000; i++) {
+            // the pitches between the lowest and the highest note name, moved by any accidental
+            assertNearestKey(-2f + random.nextFloat() * 15f);
+        }
+    }
+
+    @Test
+    public void noteNamesOfTheKeysAreSplit() {
+        for (int k = 0; k < IEEE1599App.ALL_NOTES_MAP.size(); k++) {
+            List<String> noteNames = IEEE1599App.ALL_NOTES_MAP.get(TABLE.getKey(k));
+            assertEquals(noteNames.size(), TABLE.getNoteNamesNumber(k));
+            for (int n = 0; n < noteNames.size(); n++) {
+                String noteName = noteNames.get(n);
+                assertEquals(noteName.charAt(0), TABLE.getStep(k, n));
+                assertEquals(noteName.contains("_") ? noteName.substring(2) : "natural", TABLE.getNoteNameAccidental(k, n));
+            }
+        }
+        String[] accidentals = IEEE1599App.ACCIDENTAL_MAP.keySet().toArray(new String[0]);
+        assertEquals(accidentals.length, TABLE.getAccidentalsNumber());
+        for (int a = 0; a < accidentals.length; a++) {
+            assertEquals(IEEE1599App.ACCIDENTAL_MAP.get(accidentals[a]), TABLE.getAccidentalOffset(a));
+        }
+    }
+
+    private static void assertNearestKey(float pitch) {
+        assertEquals(scanNearestKey(pitch), TABLE.getKey(TABLE.getNearestKeyIndex(pitch)), "pitch " + pitch);
+    }
+
+    /**
+     * @param noteName the note name
+     *
+     * @return the pitch of the first key containing the note name, or 0
+     */
+    private static float scanPitch(String noteName) {
+        for (Map.Entry<Float, List<String>> e : IEEE1599App.ALL_NOTES_MAP.entrySet()) {
+            if (e.getValue().contains(noteName)) {
+                return e.getKey();
+            }
+        }
+        return 0f;
+    }
+
+    /**
+     * @param pitch the pitch
+     *
+     * @return the key of the map of all notes nearest to the pitch, as the
+     * scan of the map found it
+     */
+    private static float scanNearestKey(float pitch) {
+        float minimumDistance = 0f;
+        float key = 0f;
+        for (Float k : IEEE1599App.ALL_NOTES_MAP.keySet()) {
+            if (k == 0f) {
+                minimumDistance = Math.abs(k - pitch);
+                key = k;
+            }
+            if (Math.abs(k - pitch) < minimumDistance) {
+                minimumDistance = Math.abs(k - pitch);
+                key = k;
+            }
+        }
+        return key;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that the documents generated with random streams of their own for
+ * each part do not depend on the number of threads formatting the parts, and
+ * that the keyed streams only depend on their keys
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class RandomStreamsTest {
+
+    private static final long[] SEEDS = {1, 42, 1234};
+    private static final int[] PART_THREADS = {2, 3, 8};
+
+    @ParameterizedTest
+    @EnumSource(value = TestProfile.class, names = {"FIVE_INSTRUMENTS", "COMPOUND_METRE"})
+    public void splitStreamsDoNotDependOnThePartThreads(TestProfile profile) throws Exception {
+        assertSameDocuments(profile, RandomStreams.SPLIT);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TestProfile.class, names = {"FIVE_INSTRUMENTS", "COMPOUND_METRE"})
+    public void keyedStreamsDoNotDependOnThePartThreads(TestProfile profile) throws Exception {
+        assertSameDocuments(profile, RandomStreams.KEYED);
+    }
+
+    @Test
+    public void keyedDrawsDependOnlyOnTheKey() {
+        Randomizer first = Randomizer.keyed(1234);
+        Randomizer second = Randomizer.keyed(1234);
+        // the second randomizer draws other values before the key
+        second.key(3, 7, 1);
+        second.getRandomInteger(0, 1000);
+        second.getRandomBoolean();
+
+        first.key(2, 5, 3);
+        second.key(2, 5, 3);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.getRandomInteger(0, 1_000_000), second.getRandomInteger(0, 1_000_000));
+        }
+    }
+
+    @Test
+    public void keySeedsAreFixed() {
+        // the seeds of the keys define the documents of the keyed streams, so they must never change
+        assertEquals(7676394149040636839L, Randomizer.keySeed(1234, 1, 1, 0));
+        assertEquals(5526772833473191432L, Randomizer.keySeed(1234, 0, 0, Randomizer.ALL_EVENTS));
+        assertNotEquals(Randomizer.keySeed(1234, 1, 2, 0), Randomizer.keySeed(1234, 2, 1, 0));
+    }
+
+    /**
+     * <p>
+     * checks that the documents of the seeds are the same when their parts are
+     * formatted by a single thread or by many threads
+     * </p>
+     *
+     * @param profile the profile of the documents
+     * @param randomStreams the random streams of the parts
+     *
+     * @throws Exception if a document cannot be written
+     */
+    private static void assertSameDocuments(TestProfile profile, RandomStreams randomStreams) throws Exception {
+        for (long seed : SEEDS) {
+            byte[] sequential = TestProfile.write(profile.newBuilder(seed).randomStreams(randomStreams).partThreads(1).build().generate(), OutputBackend.DIRECT);
+            for (int partThreads : PART_THREADS) {
+                Score score = profile.newBuilder(seed).randomStreams(randomStreams).partThreads(partThreads).build().generate();
+                assertArrayEquals(sequential, TestProfile.write(score, OutputBackend.DIRECT), "seed " + seed + " with " + partThreads + " threads");
+            }
+        }
+    }
+
+}
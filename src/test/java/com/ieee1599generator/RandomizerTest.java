@@ -0,0 +1,130 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the draws which do not allocate consume the random values as
+ * the draws on lists and key arrays did, so that every seed keeps its
+ * document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class RandomizerTest {
+
+    private static final long[] SEEDS = {1, 42, 1234};
+
+    @Test
+    public void shuffledArrayIsTheShuffledList() {
+        for (long seed : SEEDS) {
+            for (int size = 0; size <= 40; size++) {
+                char[] array = new char[size];
+                List<Character> list = new ArrayList<>(size);
+                for (int c = 0; c < size; c++) {
+                    array[c] = (char) ('a' + c);
+                    list.add(array[c]);
+                }
+                Randomizer randomizer = new Randomizer(seed);
+                randomizer.shuffleArray(array);
+                Collections.shuffle(list, new Random(seed));
+
+                assertEquals(list, chars(array), "seed " + seed + ", size " + size);
+            }
+        }
+    }
+
+    @Test
+    public void shuffleLeavesTheFollowingDrawsUnchanged() {
+        for (long seed : SEEDS) {
+            Randomizer randomizer = new Randomizer(seed);
+            Random random = new Random(seed);
+            randomizer.shuffleArray(new char[17]);
+            Collections.shuffle(new ArrayList<>(Collections.nCopies(17, 'N')), random);
+
+            assertEquals(random.nextInt(1000), randomizer.getRandomIndex(1000), "seed " + seed);
+        }
+    }
+
+    @Test
+    public void nonRepeatingIntegersAreTheRejectedDraws() {
+        for (long seed : SEEDS) {
+            Randomizer randomizer = new Randomizer(seed);
+            Random random = new Random(seed);
+            for (int size = 1; size <= 12; size++) {
+                List<Integer> numbers = randomizer.getRandomNonRepeatingIntegers(size, 12, 1);
+
+                // the draws of the list, checked with contains
+                List<Integer> expected = new ArrayList<>();
+                while (expected.size() < size) {
+                    int number = random.nextInt(12) + 1;
+                    if (!expected.contains(number)) {
+                        expected.add(number);
+                    }
+                }
+                assertEquals(expected, numbers, "seed " + seed + ", size " + size);
+                assertEquals(size, new HashSet<>(numbers).size());
+            }
+        }
+    }
+
+    @Test
+    public void mapDrawsAreTheKeyArrayDraws() {
+        Map<String, Float> accidentals = IEEE1599App.ACCIDENTAL_MAP;
+        Map<Integer, Integer> irregularGroups = new HashMap<>(Map.of(3, 2, 5, 4, 6, 4, 7, 8, 9, 8, 11, 8, 13, 8));
+        for (long seed : SEEDS) {
+            Randomizer randomizer = new Randomizer(seed);
+            Random random = new Random(seed);
+            for (int i = 0; i < 200; i++) {
+                assertEquals(accidentals.keySet().toArray()[random.nextInt(accidentals.size())], randomizer.getRandomStringFromMap(accidentals));
+                assertEquals(irregularGroups.keySet().toArray()[random.nextInt(irregularGroups.size())], randomizer.getRandomIntFromMap(irregularGroups));
+            }
+        }
+    }
+
+    @Test
+    public void arrayDrawsAreTheListDraws() {
+        String[] strings = {"C", "D", "E", "F", "G"};
+        int[] ints = {2, 4, 8, 16};
+        for (long seed : SEEDS) {
+            Randomizer randomizer = new Randomizer(seed);
+            Random random = new Random(seed);
+            for (int i = 0; i < 200; i++) {
+                assertEquals(strings[random.nextInt(strings.length)], randomizer.getRandomString(strings));
+                assertEquals(ints[random.nextInt(ints.length)], randomizer.getRandomIntFromArray(ints));
+            }
+        }
+    }
+
+    @Test
+    public void drawsAreInTheirRanges() {
+        Randomizer randomizer = new Randomizer(42);
+        for (int i = 0; i < 10_000; i++) {
+            int integer = randomizer.getRandomInteger(7, -3);
+            assertTrue(integer >= -3 && integer <= 7, "integer " + integer);
+            float real = randomizer.getRandomFloat(0.5f, 1.5f);
+            assertTrue(real >= 0.5f && real < 1.5f, "float " + real);
+            long bound = 3 + i * 1_000_000_007L;
+            long value = randomizer.getRandomLong(bound);
+            assertTrue(value >= 0 && value < bound, "long " + value);
+        }
+    }
+
+    private static List<Character> chars(char[] array) {
+        List<Character> chars = new ArrayList<>(array.length);
+        for (char c : array) {
+            chars.add(c);
+        }
+        return chars;
+    }
+
+}
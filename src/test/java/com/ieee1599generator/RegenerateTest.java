@@ -0,0 +1,81 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a part, or a range of its measures, generated again with the
+ * same seed and inputs gives back the same document
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class RegenerateTest {
+
+    private static final long SEED = 1234;
+
+    @Test
+    public void keyedRangeIsGeneratedAgain() throws Exception {
+        byte[] document = write(TestProfile.FIVE_INSTRUMENTS, RandomStreams.KEYED, SpineOrder.RANDOM);
+        for (int instrument = 1; instrument <= 5; instrument++) {
+            Score score = ScoreReader.read(new ByteArrayInputStream(document));
+            formatter(TestProfile.FIVE_INSTRUMENTS, RandomStreams.KEYED, SpineOrder.RANDOM).regenerate(score, instrument, 10, 20);
+
+            assertArrayEquals(document, TestProfile.write(score, OutputBackend.DIRECT), "instrument " + instrument);
+        }
+    }
+
+    @Test
+    public void keyedRangeIsGeneratedAgainInTimeOrder() throws Exception {
+        byte[] document = write(TestProfile.COMPOUND_METRE, RandomStreams.KEYED, SpineOrder.TIME);
+        Score score = ScoreReader.read(new ByteArrayInputStream(document));
+        formatter(TestProfile.COMPOUND_METRE, RandomStreams.KEYED, SpineOrder.TIME).regenerate(score, 2, 1, 5);
+
+        assertArrayEquals(document, TestProfile.write(score, OutputBackend.DIRECT));
+    }
+
+    @Test
+    public void splitPartIsGeneratedAgain() throws Exception {
+        byte[] document = write(TestProfile.FIVE_INSTRUMENTS, RandomStreams.SPLIT, SpineOrder.RANDOM);
+        Score score = ScoreReader.read(new ByteArrayInputStream(document));
+        formatter(TestProfile.FIVE_INSTRUMENTS, RandomStreams.SPLIT, SpineOrder.RANDOM).regenerate(score, 3, 1, score.getMeasuresNumber());
+
+        assertArrayEquals(document, TestProfile.write(score, OutputBackend.DIRECT));
+    }
+
+    @Test
+    public void sharedPartIsNotGeneratedAgain() {
+        Score score = formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.SHARED, SpineOrder.RANDOM).generate();
+
+        assertThrows(IllegalStateException.class, () -> formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.SHARED, SpineOrder.RANDOM).regenerate(score, 1, 1, score.getMeasuresNumber()));
+    }
+
+    @Test
+    public void splitRangeIsNotGeneratedAgain() {
+        Score score = formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.SPLIT, SpineOrder.RANDOM).generate();
+
+        assertThrows(IllegalStateException.class, () -> formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.SPLIT, SpineOrder.RANDOM).regenerate(score, 1, 2, 3));
+    }
+
+    @Test
+    public void missingRangeIsNotGeneratedAgain() {
+        Score score = formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.KEYED, SpineOrder.RANDOM).generate();
+        Formatter formatter = formatter(TestProfile.ONE_INSTRUMENT, RandomStreams.KEYED, SpineOrder.RANDOM);
+
+        assertThrows(IllegalArgumentException.class, () -> formatter.regenerate(score, 2, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> formatter.regenerate(score, 1, 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> formatter.regenerate(score, 1, 1, score.getMeasuresNumber() + 1));
+    }
+
+    private static Formatter formatter(TestProfile profile, RandomStreams randomStreams, SpineOrder spineOrder) {
+        return profile.newBuilder(SEED).randomStreams(randomStreams).spineOrder(spineOrder).build();
+    }
+
+    private static byte[] write(TestProfile profile, RandomStreams randomStreams, SpineOrder spineOrder) throws Exception {
+        return TestProfile.write(formatter(profile, randomStreams, spineOrder).generate(), OutputBackend.DIRECT);
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the time to generate and write a document grows linearly with
+ * its number of events, with the documents of ScalingBenchmark: a lookup of
+ * the spine events scanning all the events would make the time per event ten
+ * times longer for ten times the events
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class ScalingTest {
+
+    private static final int INSTRUMENTS_NUMBER = 16;
+    private static final String METRE = "4:4";
+    private static final int BPM = 60;
+    private static final int BEATS_NUMBER = 4;
+    private static final int[] WHOLE_DURATION = {1, 1};
+
+    private static final int SMALL_EVENTS = 16_000;
+    private static final int LARGE_EVENTS = 160_000;
+    /**
+     * The runs of each document, whose fastest one is measured, so that the
+     * collections of the garbage and the compilation of the code weigh little
+     */
+    private static final int RUNS = 5;
+    /**
+     * The maximum ratio between the times per event of the large and the small
+     * document, well below the ratio of ten of a quadratic generation
+     */
+    private static final double MAX_RATIO = 3;
+
+    @Test
+    public void timePerEventDoesNotGrowWithTheEvents() throws Exception {
+        Formatter small = formatter(SMALL_EVENTS);
+        Formatter large = formatter(LARGE_EVENTS);
+        // the code is compiled before the runs are measured
+        for (int i = 0; i < RUNS; i++) {
+            generateAndWrite(small);
+        }
+
+        double smallTime = (double) fastestRun(small) / SMALL_EVENTS;
+        double largeTime = (double) fastestRun(large) / LARGE_EVENTS;
+
+        assertTrue(largeTime < MAX_RATIO * smallTime, String.format("%.0f ns per event with %d events, %.0f ns per event with %d events", largeTime, LARGE_EVENTS, smallTime, SMALL_EVENTS));
+    }
+
+    @Test
+    public void documentsHaveTheirEvents() {
+        for (int events : new int[]{SMALL_EVENTS, LARGE_EVENTS}) {
+            Score score = formatter(events).generate();
+            int generatedEvents = 0;
+            for (int i = 1; i <= INSTRUMENTS_NUMBER; i++) {
+                generatedEvents += score.getEventsNumberInAMeasure(i) * score.getMeasuresNumber();
+            }
+            assertEquals(events, generatedEvents);
+        }
+    }
+
+    /**
+     * @param formatter the formatter of the document
+     *
+     * @return the nanoseconds of the fastest run generating and writing the
+     * document
+     */
+    private static long fastestRun(Formatter formatter) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            generateAndWrite(formatter);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+
+    private static void generateAndWrite(Formatter formatter) {
+        formatter.format(new ByteScoreWriter(OutputStream.nullOutputStream(), false));
+    }
+
+    /**
+     * <p>
+     * creates the formatter of a document of ScalingBenchmark, in which each
+     * instrument has a single event in each measure
+     * </p>
+     *
+     * @param events the number of events of the voices of the document, a
+     * multiple of the number of instruments
+     *
+     * @return the created formatter
+     */
+    private static Formatter formatter(int events) {
+        int measuresNumber = events / INSTRUMENTS_NUMBER;
+        // at 60 bpm a beat lasts one second
+        Initializer initializer = new Initializer((long) measuresNumber * BEATS_NUMBER, METRE, BPM);
+        for (int i = 0; i < INSTRUMENTS_NUMBER; i++) {
+            initializer.initializeInstrumentsParams(4, WHOLE_DURATION, WHOLE_DURATION, "C2", "A6", 3, false, 256);
+        }
+
+        return FormatterBuilder.newBuilder()
+                .seed(1234)
+                .creator("Benchmark")
+                .docVersion(IEEE1599App.DOC_VERSION)
+                .title("Title")
+                .author("Author")
+                .instrumentsNumber(INSTRUMENTS_NUMBER)
+                .instruments(initializer.getInstruments())
+                .clefs(IEEE1599App.CLEFS)
+                .clefsSteps(IEEE1599App.CLEFS_STEPS)
+                .accidentalMap(IEEE1599App.ACCIDENTAL_MAP)
+                .allNotesMap(IEEE1599App.ALL_NOTES_MAP)
+                .metreInNumbers(initializer.getMetreInNumbers())
+                .measuresNumber(initializer.getMeasuresNumber())
+                .irregularGroupsMap(initializer.getIrregularGroupsMap())
+                .build();
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.ieee1599generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that the spine ordered by time holds the events of the voices by the
+ * time at which they start, and the same events as the spine in random order
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public class SpineOrderTest {
+
+    private static final long[] SEEDS = {1, 42, 1234};
+
+    private static final Pattern EVENT = Pattern.compile("<event (?:hpos=\"\\d+\" )?id=\"([^\"]+)\"(?: timing=\"(\\d+)\")?/>");
+    private static final Pattern VOICE_EVENT = Pattern.compile("Instrument_(\\d+)_voice0_measure(\\d+)_ev(\\d+)");
+
+    @ParameterizedTest
+    @EnumSource(TestProfile.class)
+    public void timeOrderedSpineStartsInTimeOrder(TestProfile profile) throws Exception {
+        for (long seed : SEEDS) {
+            List<String[]> spine = spine(write(profile, seed, SpineOrder.TIME));
+            int instrumentsNumber = profile.newBuilder(seed).build().getInstrumentsNumber();
+
+            // the first event of each instrument, then the time signatures and the clefs
+            for (int i = 1; i <= instrumentsNumber; i++) {
+                assertEquals("Instrument_" + i + "_voice0_measure1_ev0", spine.get(i - 1)[0]);
+                assertEquals(FormatterUtils.timeSignatureEventId(i), spine.get(instrumentsNumber + i - 1)[0]);
+                assertEquals(FormatterUtils.clefEventId(i), spine.get(2 * instrumentsNumber + i - 1)[0]);
+            }
+
+            // the start of the next event of each instrument, as the sum of the timings of its previous events, and its last event
+            Map<Integer, Long> starts = new HashMap<>();
+            Map<Integer, int[]> lastEvents = new HashMap<>();
+            for (int i = 1; i <= instrumentsNumber; i++) {
+                starts.put(i, timing(spine.get(i - 1)));
+                lastEvents.put(i, new int[]{1, 0});
+            }
+            long previousStart = -1;
+            int previousInstrument = 0;
+            for (String[] event : spine.subList(3 * instrumentsNumber, spine.size())) {
+                Matcher matcher = VOICE_EVENT.matcher(event[0]);
+                assertTrue(matcher.matches(), "seed " + seed + ": " + event[0] + " after the first events");
+                int instrument = Integer.parseInt(matcher.group(1));
+                int[] measureEvent = {Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3))};
+                long start = starts.get(instrument);
+
+                if (start == previousStart) {
+                    assertTrue(instrument >= previousInstrument, "seed " + seed + ": " + event[0] + " after an event of instrument " + previousInstrument + " starting at " + start);
+                } else {
+                    assertTrue(start > previousStart, "seed " + seed + ": " + event[0] + " starts at " + start + " before " + previousStart);
+                }
+                int[] lastEvent = lastEvents.get(instrument);
+                assertTrue(measureEvent[0] > lastEvent[0] || measureEvent[0] == lastEvent[0] && measureEvent[1] == lastEvent[1] + 1, "seed " + seed + ": " + event[0] + " out of order");
+
+                starts.put(instrument, start + timing(event));
+                lastEvents.put(instrument, measureEvent);
+                previousStart = start;
+                previousInstrument = instrument;
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestProfile.class)
+    public void timeOrderedSpineHoldsTheRandomSpineEvents(TestProfile profile) throws Exception {
+        for (long seed : SEEDS) {
+            String time = write(profile, seed, SpineOrder.TIME);
+            String random = write(profile, seed, SpineOrder.RANDOM);
+
+            // the keyed streams draw the same parts whatever the order of the spine
+            assertEquals(random.substring(random.indexOf("</spine>")), time.substring(time.indexOf("</spine>")), "seed " + seed);
+            assertEquals(sortedIds(random), sortedIds(time), "seed " + seed);
+        }
+    }
+
+    private static String write(TestProfile profile, long seed, SpineOrder spineOrder) throws Exception {
+        Score score = profile.newBuilder(seed).randomStreams(RandomStreams.KEYED).spineOrder(spineOrder).build().generate();
+        return new String(TestProfile.write(score, OutputBackend.DIRECT), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param document the document
+     *
+     * @return the id and the timing, which is null if it is missing, of each
+     * spine event of the document in document order
+     */
+    private static List<String[]> spine(String document) {
+        Matcher matcher = EVENT.matcher(document.substring(document.indexOf("<spine>"), document.indexOf("</spine>")));
+        List<String[]> spine = new ArrayList<>();
+        while (matcher.find()) {
+            spine.add(new String[]{matcher.group(1), matcher.group(2)});
+        }
+        return spine;
+    }
+
+    private static long timing(String[] event) {
+        return event[1] == null ? 0 : Long.parseLong(event[1]);
+    }
+
+    private static List<String> sortedIds(String document) {
+        List<String> ids = new ArrayList<>();
+        for (String[] event : spine(document)) {
+            ids.add(event[0] + " " + event[1]);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.ieee1599generator;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Represents the canned parameter profiles of the tests, from the usage
+ * examples of a single instrument to the ones of many instruments in other
+ * metres
+ *
+ * @author Federica Paoli', id: 961887, e-mail:
+ * federica.paoli1@studenti.unimi.it
+ */
+public enum TestProfile {
+
+    /**
+     * One instrument without irregular groups, as in the first usage example
+     */
+    ONE_INSTRUMENT(120, 108, "4:4", "Title", initializer
+            -> initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, "C-1", "A4", 3, false, 256)),
+    /**
+     * One instrument with irregular groups and accidentals, in 3:4, whose
+     * title needs escaping
+     */
+    WALTZ(120, 108, "3:4", "A & <B>", initializer
+            -> initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, "C_flat_and_a_half2", "A_sharp_5", 3, true, 256)),
+    /**
+     * Five instruments of different ranges and durations, as in the usage
+     * example with more than one instrument
+     */
+    FIVE_INSTRUMENTS(120, 108, "4:4", "Title", initializer -> {
+        initializer.initializeInstrumentsParams(150, new int[]{1, 8}, new int[]{1, 1}, "C-1", "B_sharp_9", 3, true, 256);
+        initializer.initializeInstrumentsParams(200, new int[]{1, 16}, new int[]{1, 2}, "E2", "A4", 2, true, 256);
+        initializer.initializeInstrumentsParams(250, new int[]{1, 32}, new int[]{1, 4}, "C-1", "G8", 5, false, 2);
+        initializer.initializeInstrumentsParams(50, new int[]{1, 64}, new int[]{1, 1}, "D_flat_and_a_half2", "A5", 1, true, 100);
+        initializer.initializeInstrumentsParams(20, new int[]{1, 2}, new int[]{1, 1}, "B-1", "A9", 7, false, 256);
+    }),
+    /**
+     * Two instruments in 6:8
+     */
+    COMPOUND_METRE(200, 90, "6:8", "Title", initializer -> {
+        initializer.initializeInstrumentsParams(400, new int[]{1, 16}, new int[]{1, 2}, "C2", "A6", 4, true, 128);
+        initializer.initializeInstrumentsParams(40, new int[]{1, 8}, new int[]{1, 4}, "E3", "A4", 2, true, 64);
+    });
+
+    private final long trackLength;
+    private final int bpm;
+    private final String metre;
+    private final String title;
+    /**
+     * Initializes the parameters of the instruments
+     */
+    private final Consumer<Initializer> instruments;
+
+    private TestProfile(long trackLength, int bpm, String metre, String title, Consumer<Initializer> instruments) {
+        this.trackLength = trackLength;
+        this.bpm = bpm;
+        this.metre = metre;
+        this.title = title;
+        this.instruments = instruments;
+    }
+
+    /**
+     * <p>
+     * creates the builder of the formatters of the profile, with SHARED random
+     * streams, RANDOM spine order and GREEDY composition draw unless they are
+     * set
+     * </p>
+     *
+     * @param seed the seed for the random object
+     *
+     * @return the created builder
+     */
+    protected FormatterBuilder newBuilder(long seed) {
+        Initializer initializer = new Initializer(this.trackLength, this.metre, this.bpm);
+        this.instruments.accept(initializer);
+        return FormatterBuilder.newBuilder()
+                .seed(seed)
+                .creator("Federica")
+                .docVersion(IEEE1599App.DOC_VERSION)
+                .title(this.title)
+                .author("Author")
+                .instrumentsNumber(initializer.getInstruments().size())
+                .instruments(initializer.getInstruments())
+                .clefs(IEEE1599App.CLEFS)
+                .clefsSteps(IEEE1599App.CLEFS_STEPS)
+                .accidentalMap(IEEE1599App.ACCIDENTAL_MAP)
+                .allNotesMap(IEEE1599App.ALL_NOTES_MAP)
+                .metreInNumbers(initializer.getMetreInNumbers())
+                .measuresNumber(initializer.getMeasuresNumber())
+                .irregularGroupsMap(initializer.getIrregularGroupsMap())
+                .randomStreams(RandomStreams.SHARED)
+                .spineOrder(SpineOrder.RANDOM)
+                .compositionDraw(CompositionDraw.GREEDY)
+                .partThreads(1);
+    }
+
+    /**
+     * <p>
+     * writes a score into a byte array through the input backend
+     * </p>
+     *
+     * @param score the score of the document
+     * @param backend the backend writing the document
+     *
+     * @return the bytes of the document
+     *
+     * @throws Exception if the document cannot be written
+     */
+    protected static byte[] write(Score score, OutputBackend backend) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FormatterUtils.writeXML(score, backend, output);
+        return output.toByteArray();
+    }
+
+}